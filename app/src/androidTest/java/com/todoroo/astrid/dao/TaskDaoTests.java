@@ -15,6 +15,8 @@ import com.google.common.collect.ImmutableList;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.service.TaskDeleter;
+import java.util.ArrayList;
+import java.util.List;
 import javax.inject.Inject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -155,6 +157,84 @@ public class TaskDaoTests extends InjectingTestCase {
     assertEquals(0, taskDao.getAll().size());
   }
 
+  /** Test sort keys are maintained on create and save */
+  @Test
+  public void testSortKeys() {
+    Task noDueDate = new Task();
+    noDueDate.setPriority(Task.Priority.HIGH);
+    taskDao.createNew(noDueDate);
+
+    Task dueLater = new Task();
+    dueLater.setPriority(Task.Priority.HIGH);
+    dueLater.setDueDate(DateUtilities.now() + DateUtilities.ONE_WEEK);
+    taskDao.createNew(dueLater);
+
+    Task dueSooner = new Task();
+    dueSooner.setPriority(Task.Priority.NONE);
+    dueSooner.setDueDate(DateUtilities.now());
+    taskDao.createNew(dueSooner);
+
+    assertEquals(
+        ImmutableList.of(dueSooner.getId(), dueLater.getId(), noDueDate.getId()),
+        sortedBy("dueSort"));
+    assertEquals(
+        ImmutableList.of(dueLater.getId(), noDueDate.getId(), dueSooner.getId()),
+        sortedBy("importanceSort"));
+
+    dueSooner.setPriority(Task.Priority.HIGH);
+    taskDao.save(dueSooner);
+
+    assertEquals(
+        ImmutableList.of(dueSooner.getId(), dueLater.getId(), noDueDate.getId()),
+        sortedBy("importanceSort"));
+  }
+
+  @Test
+  public void createNewDiscardsBackedUpReminderTime() {
+    Task task = new Task();
+    task.setReminderFlags(Task.NOTIFY_AT_DEADLINE);
+    task.nextReminder = 1234L;
+
+    taskDao.createNew(task);
+
+    assertEquals(-1L, (long) taskDao.fetch(task.getId()).nextReminder);
+  }
+
+  @Test
+  public void createNewWithoutReminders() {
+    Task task = new Task();
+    task.nextReminder = 1234L;
+
+    taskDao.createNew(task);
+
+    assertEquals(0L, (long) taskDao.fetch(task.getId()).nextReminder);
+  }
+
+  @Test
+  public void invalidateNextReminders() {
+    Task withReminder = new Task();
+    withReminder.setReminderFlags(Task.NOTIFY_AT_DEADLINE);
+    taskDao.createNew(withReminder);
+    taskDao.setNextReminder(withReminder.getId(), 1234L, 0);
+    Task completed = new Task();
+    completed.setReminderFlags(Task.NOTIFY_AT_DEADLINE);
+    completed.setCompletionDate(DateUtilities.now());
+    taskDao.createNew(completed);
+
+    taskDao.invalidateNextReminders();
+
+    assertEquals(-1L, (long) taskDao.fetch(withReminder.getId()).nextReminder);
+    assertEquals(0L, (long) taskDao.fetch(completed.getId()).nextReminder);
+  }
+
+  private List<Long> sortedBy(String column) {
+    List<Long> result = new ArrayList<>();
+    for (Task task : taskDao.fetchFiltered("ORDER BY " + column + " ASC")) {
+      result.add(task.getId());
+    }
+    return result;
+  }
+
   @Override
   protected void inject(TestComponent component) {
     component.inject(this);
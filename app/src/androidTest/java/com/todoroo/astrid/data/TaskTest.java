@@ -19,8 +19,10 @@ import static org.tasks.Freeze.thaw;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
+import androidx.room.ColumnInfo;
 import androidx.test.runner.AndroidJUnit4;
 import com.todoroo.astrid.data.Task.Priority;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.TreeSet;
 import org.junit.After;
@@ -300,4 +302,30 @@ public class TaskTest {
     // assert no duplicates
     assertEquals(new TreeSet<>(reminderFlags).size(), reminderFlags.size());
   }
+
+  @Test
+  public void copyEveryColumn() throws IllegalAccessException {
+    Task task = new Task();
+    int value = 1;
+    for (Field field : Task.class.getDeclaredFields()) {
+      if (field.isAnnotationPresent(ColumnInfo.class)) {
+        field.setAccessible(true);
+        if (field.getType() == String.class) {
+          field.set(task, Integer.toString(value++));
+        } else if (field.getType() == Integer.class) {
+          field.set(task, value++);
+        } else {
+          field.set(task, (long) value++);
+        }
+      }
+    }
+
+    Task copy = new Task(task);
+
+    for (Field field : Task.class.getDeclaredFields()) {
+      if (field.isAnnotationPresent(ColumnInfo.class)) {
+        assertEquals(field.getName(), field.get(task), field.get(copy));
+      }
+    }
+  }
 }
@@ -0,0 +1,176 @@
+package com.todoroo.astrid.gtasks.api;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.tasks.model.Task;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class GtasksInvokerTest {
+
+  private static final String BOUNDARY = "batch_boundary";
+
+  private final MockWebServer server = new MockWebServer();
+  private final List<Object> results = new ArrayList<>();
+  private GtasksInvoker invoker;
+
+  @Before
+  public void before() throws IOException {
+    server.start();
+    invoker = new GtasksInvoker(new NetHttpTransport(), request -> {}, server.url("/").toString());
+  }
+
+  @After
+  public void after() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void sendRequestsForOneListInOneBatch() throws Exception {
+    server.enqueue(batchResponse(ok("{\"id\":\"1\"}"), ok("{\"id\":\"2\"}")));
+
+    GtasksInvoker.Batch batch = invoker.newBatch();
+    batch.update("list", new Task().setId("1").setTitle("one"), new Recorder<>());
+    batch.update("list", new Task().setId("2").setTitle("two"), new Recorder<>());
+    batch.execute();
+
+    assertEquals(1, server.getRequestCount());
+    RecordedRequest request = server.takeRequest();
+    assertEquals("POST", request.getMethod());
+    assertTrue(request.getPath().startsWith("/batch"));
+    String body = request.getBody().readUtf8();
+    assertTrue(body.contains("PUT /tasks/v1/lists/list/tasks/1"));
+    assertTrue(body.contains("PUT /tasks/v1/lists/list/tasks/2"));
+    assertEquals(2, results.size());
+    assertEquals("1", ((Task) results.get(0)).getId());
+    assertEquals("2", ((Task) results.get(1)).getId());
+  }
+
+  @Test
+  public void sendOneBatchPerList() throws Exception {
+    server.enqueue(batchResponse(noContent()));
+    server.enqueue(batchResponse(noContent()));
+
+    GtasksInvoker.Batch batch = invoker.newBatch();
+    batch.delete("list1", "1", new Recorder<>());
+    batch.delete("list2", "2", new Recorder<>());
+    batch.execute();
+
+    assertEquals(2, server.getRequestCount());
+    assertTrue(server.takeRequest().getBody().readUtf8().contains("/lists/list1/tasks/1"));
+    assertTrue(server.takeRequest().getBody().readUtf8().contains("/lists/list2/tasks/2"));
+  }
+
+  @Test
+  public void splitLargeBatches() throws Exception {
+    MockResponse[] responses = new MockResponse[50];
+    for (int i = 0; i < responses.length; i++) {
+      responses[i] = noContent();
+    }
+    server.enqueue(batchResponse(responses));
+    server.enqueue(batchResponse(noContent()));
+
+    GtasksInvoker.Batch batch = invoker.newBatch();
+    for (int i = 0; i < 51; i++) {
+      batch.delete("list", Integer.toString(i), new Recorder<>());
+    }
+    batch.execute();
+
+    assertEquals(2, server.getRequestCount());
+    assertEquals(51, results.size());
+  }
+
+  @Test
+  public void mapNotFoundToFailure() throws Exception {
+    server.enqueue(
+        batchResponse(
+            ok("{\"id\":\"1\"}"),
+            new MockResponse()
+                .setResponseCode(404)
+                .setBody("{\"error\":{\"code\":404,\"message\":\"Not Found\"}}")));
+
+    GtasksInvoker.Batch batch = invoker.newBatch();
+    batch.update("list", new Task().setId("1"), new Recorder<>());
+    batch.update("list", new Task().setId("2"), new Recorder<>());
+    batch.execute();
+
+    assertEquals(2, results.size());
+    assertTrue(results.get(0) instanceof Task);
+    assertTrue(results.get(1) instanceof HttpNotFoundException);
+  }
+
+  @Test
+  public void insertSetsParentAndPrevious() throws Exception {
+    server.enqueue(batchResponse(ok("{\"id\":\"3\"}")));
+
+    GtasksInvoker.Batch batch = invoker.newBatch();
+    batch.insert("list", new Task().setTitle("child"), "1", "2", new Recorder<>());
+    batch.execute();
+
+    String body = server.takeRequest().getBody().readUtf8();
+    assertTrue(body.contains("POST /tasks/v1/lists/list/tasks?"));
+    assertTrue(body.contains("parent=1"));
+    assertTrue(body.contains("previous=2"));
+    assertEquals("3", ((Task) results.get(0)).getId());
+  }
+
+  private static MockResponse ok(String json) {
+    return new MockResponse().setBody(json);
+  }
+
+  private static MockResponse noContent() {
+    return new MockResponse().setResponseCode(204);
+  }
+
+  private static MockResponse batchResponse(MockResponse... parts) {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < parts.length; i++) {
+      MockResponse part = parts[i];
+      String content = part.getBody() == null ? "" : part.getBody().readUtf8();
+      body.append("--")
+          .append(BOUNDARY)
+          .append("\r\n")
+          .append("Content-Type: application/http\r\n")
+          .append("Content-ID: <response-")
+          .append(i + 1)
+          .append(">\r\n\r\n")
+          .append(part.getStatus())
+          .append("\r\n")
+          .append("Content-Type: application/json; charset=UTF-8\r\n")
+          .append("Content-Length: ")
+          .append(content.length())
+          .append("\r\n\r\n")
+          .append(content)
+          .append("\r\n");
+    }
+    body.append("--").append(BOUNDARY).append("--\r\n");
+    return new MockResponse()
+        .setHeader("Content-Type", "multipart/mixed; boundary=" + BOUNDARY)
+        .setBody(body.toString());
+  }
+
+  private class Recorder<T> implements GtasksInvoker.Callback<T> {
+
+    @Override
+    public void onSuccess(T result) {
+      results.add(result);
+    }
+
+    @Override
+    public void onFailure(IOException e) {
+      results.add(e);
+    }
+  }
+}
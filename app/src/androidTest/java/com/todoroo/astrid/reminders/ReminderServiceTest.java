@@ -5,6 +5,9 @@ import static com.todoroo.andlib.utility.DateUtilities.ONE_HOUR;
 import static com.todoroo.andlib.utility.DateUtilities.ONE_WEEK;
 import static com.todoroo.astrid.data.Task.NOTIFY_AFTER_DEADLINE;
 import static com.todoroo.astrid.data.Task.NOTIFY_AT_DEADLINE;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -452,4 +455,20 @@ public class ReminderServiceTest extends InjectingTestCase {
         .verify(jobs)
         .add(new ReminderEntry(1, now.plusMonths(12).getMillis(), ReminderService.TYPE_SNOOZE));
   }
+
+  @Test
+  public void storeNextReminderOnTask() {
+    Task task =
+        newTask(with(DUE_TIME, newDateTime().plusDays(1)), with(REMINDERS, NOTIFY_AT_DEADLINE));
+    taskDao.createNew(task);
+
+    service.scheduleAlarm(task);
+
+    ReminderEntry expected =
+        new ReminderEntry(task.getId(), task.getDueDate(), ReminderService.TYPE_DUE);
+    verify(jobs).cancelReminder(task.getId());
+    verify(jobs).add(expected);
+    assertEquals(singletonList(expected), service.getRemindersBefore(task.getDueDate() + 1));
+    assertTrue(service.getRemindersBefore(task.getDueDate()).isEmpty());
+  }
 }
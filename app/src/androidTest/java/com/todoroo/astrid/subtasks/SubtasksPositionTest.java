@@ -0,0 +1,192 @@
+package com.todoroo.astrid.subtasks;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.astrid.data.Task;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.TaskListMetadata;
+import org.tasks.data.TaskListPosition;
+
+@RunWith(AndroidJUnit4.class)
+public class SubtasksPositionTest extends SubtasksTestCase {
+
+  private static final long GAP = SubtasksFilterUpdater.POSITION_GAP;
+
+  private TaskListMetadata list;
+  private Task A, B, C;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+    list = new TaskListMetadata();
+    list.setFilter(TaskListMetadata.FILTER_ID_ALL);
+    taskListMetadataDao.createNew(list);
+    A = createTask("A");
+    B = createTask("B");
+    C = createTask("C");
+    updater.initialize(list, filter);
+  }
+
+  private Task createTask(String title) {
+    Task task = new Task();
+    task.setTitle(title);
+    taskDao.createNew(task);
+    return task;
+  }
+
+  private Map<Long, TaskListPosition> getPositions() {
+    Map<Long, TaskListPosition> result = new HashMap<>();
+    for (TaskListPosition position : taskListMetadataDao.getPositions(list.getId())) {
+      result.put(position.getTask(), position);
+    }
+    return result;
+  }
+
+  @Test
+  public void testNewTasksAreAddedToTop() {
+    Map<Long, TaskListPosition> positions = getPositions();
+
+    assertEquals(3, positions.size());
+    assertTrue(positions.get(C.getId()).getPosition() < positions.get(B.getId()).getPosition());
+    assertTrue(positions.get(B.getId()).getPosition() < positions.get(A.getId()).getPosition());
+  }
+
+  @Test
+  public void testMoveOnlyChangesMovedTask() {
+    Map<Long, TaskListPosition> before = getPositions();
+
+    updater.moveTo(list, filter, A.getUuid(), C.getUuid());
+
+    Map<Long, TaskListPosition> after = getPositions();
+    assertEquals(before.get(B.getId()).getPosition(), after.get(B.getId()).getPosition());
+    assertEquals(before.get(C.getId()).getPosition(), after.get(C.getId()).getPosition());
+    assertTrue(after.get(A.getId()).getPosition() < after.get(C.getId()).getPosition());
+  }
+
+  @Test
+  public void testMoveOnlyChangesMovedSubtree() {
+    updater.indent(list, filter, B.getUuid(), 1);
+    Map<Long, TaskListPosition> before = getPositions();
+
+    updater.moveTo(list, filter, C.getUuid(), "-1");
+
+    Map<Long, TaskListPosition> after = getPositions();
+    assertEquals(before.get(A.getId()).getPosition(), after.get(A.getId()).getPosition());
+    assertTrue(after.get(A.getId()).getPosition() < after.get(C.getId()).getPosition());
+    assertTrue(after.get(C.getId()).getPosition() < after.get(B.getId()).getPosition());
+    assertEquals(C.getId(), after.get(B.getId()).getParent());
+  }
+
+  @Test
+  public void testIndentIsRestored() {
+    updater.indent(list, filter, B.getUuid(), 1);
+
+    SubtasksFilterUpdater reloaded = new SubtasksFilterUpdater(taskListMetadataDao, taskDao);
+    reloaded.initialize(list, filter);
+
+    SubtasksFilterUpdater.Node node = reloaded.findNodeForTask(B.getUuid());
+    assertEquals(C.getUuid(), node.parent.uuid);
+    assertEquals(1, node.indent);
+    assertEquals(C.getId(), getPositions().get(B.getId()).getParent());
+  }
+
+  @Test
+  public void testInitializeDoesNotWritePositions() {
+    Map<Long, TaskListPosition> before = getPositions();
+    createTask("D");
+
+    new SubtasksFilterUpdater(taskListMetadataDao, taskDao).initialize(list, filter);
+
+    Map<Long, TaskListPosition> after = getPositions();
+    assertEquals(3, after.size());
+    for (TaskListPosition position : before.values()) {
+      assertEquals(position.getPosition(), after.get(position.getTask()).getPosition());
+    }
+  }
+
+  @Test
+  public void testMoveTaskWithoutPosition() {
+    Map<Long, TaskListPosition> before = getPositions();
+    Task D = createTask("D");
+    SubtasksFilterUpdater reloaded = new SubtasksFilterUpdater(taskListMetadataDao, taskDao);
+    reloaded.initialize(list, filter);
+
+    reloaded.moveTo(list, filter, D.getUuid(), A.getUuid());
+
+    Map<Long, TaskListPosition> after = getPositions();
+    assertEquals(4, after.size());
+    assertEquals(before.get(A.getId()).getPosition(), after.get(A.getId()).getPosition());
+    assertEquals(before.get(B.getId()).getPosition(), after.get(B.getId()).getPosition());
+    assertTrue(after.get(B.getId()).getPosition() < after.get(D.getId()).getPosition());
+    assertTrue(after.get(D.getId()).getPosition() < after.get(A.getId()).getPosition());
+  }
+
+  @Test
+  public void testDeletedParentKeepsSubtaskPositions() {
+    updater.indent(list, filter, B.getUuid(), 1);
+    Map<Long, TaskListPosition> before = getPositions();
+
+    updater.onDeleteTask(list, filter, C.getUuid());
+
+    Map<Long, TaskListPosition> after = getPositions();
+    assertEquals(2, after.size());
+    assertEquals(before.get(B.getId()).getPosition(), after.get(B.getId()).getPosition());
+    assertEquals(0, after.get(B.getId()).getParent());
+    assertEquals(0, after.get(B.getId()).getIndent());
+  }
+
+  @Test
+  public void testRemovedTaskPositionIsDeleted() {
+    updater.onDeleteTask(list, filter, B.getUuid());
+
+    assertEquals(2, getPositions().size());
+  }
+
+  @Test
+  public void testKeepExistingPositions() {
+    long[] positions = SubtasksFilterUpdater.assignPositions(new Long[] {GAP, null, 2 * GAP});
+
+    assertEquals(GAP, positions[0]);
+    assertEquals(GAP + GAP / 2, positions[1]);
+    assertEquals(2 * GAP, positions[2]);
+  }
+
+  @Test
+  public void testKeepLongestIncreasingRun() {
+    long[] positions =
+        SubtasksFilterUpdater.assignPositions(new Long[] {4 * GAP, GAP, 2 * GAP, 3 * GAP});
+
+    assertEquals(GAP, positions[1]);
+    assertEquals(2 * GAP, positions[2]);
+    assertEquals(3 * GAP, positions[3]);
+    assertTrue(positions[0] < positions[1]);
+  }
+
+  @Test
+  public void testSpreadBetweenNeighbours() {
+    long[] positions = SubtasksFilterUpdater.spread(GAP, 4 * GAP, 2);
+
+    assertEquals(2 * GAP, positions[0]);
+    assertEquals(3 * GAP, positions[1]);
+  }
+
+  @Test
+  public void testNoRoomBetweenNeighbours() {
+    assertNull(SubtasksFilterUpdater.spread(1L, 2L, 1));
+  }
+
+  @Test
+  public void testRenumberWhenThereIsNoRoom() {
+    long[] positions = SubtasksFilterUpdater.assignPositions(new Long[] {1L, null, 2L});
+
+    assertEquals(GAP, positions[0]);
+    assertEquals(2 * GAP, positions[1]);
+    assertEquals(3 * GAP, positions[2]);
+  }
+}
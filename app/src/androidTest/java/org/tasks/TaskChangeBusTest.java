@@ -0,0 +1,58 @@
+package org.tasks;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.google.common.collect.ImmutableSet;
+import io.reactivex.subscribers.TestSubscriber;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.TaskChange.Kind;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskChangeBusTest {
+
+  private final TaskChangeBus bus = new TaskChangeBus();
+
+  @Test
+  public void mergeBurstIntoOneChange() throws InterruptedException {
+    TestSubscriber<TaskChange> subscriber = bus.observe().test();
+
+    bus.post(TaskChange.of(Kind.UPDATED, asList(1L, 2L)));
+    bus.post(TaskChange.of(Kind.COMPLETED, asList(2L, 3L)));
+    bus.post(TaskChange.of(Kind.DELETED, asList(4L)));
+
+    subscriber.awaitCount(1).await(500, TimeUnit.MILLISECONDS);
+    subscriber.assertValueCount(1);
+    TaskChange change = subscriber.values().get(0);
+    assertFalse(change.isEverything());
+    assertEquals(ImmutableSet.of(1L, 2L, 3L, 4L), change.getTaskIds());
+    assertTrue(change.contains(Kind.COMPLETED));
+    assertTrue(change.contains(Kind.DELETED));
+  }
+
+  @Test
+  public void everythingWins() {
+    TaskChange change =
+        TaskChange.merge(
+            asList(TaskChange.of(Kind.UPDATED, asList(1L)), TaskChange.everything()));
+
+    assertTrue(change.isEverything());
+    assertTrue(change.getTaskIds().isEmpty());
+    assertTrue(change.contains(Kind.DELETED));
+  }
+
+  @Test
+  public void ignoreEmptyChanges() throws InterruptedException {
+    TestSubscriber<TaskChange> subscriber = bus.observe().test();
+
+    bus.post(TaskChange.of(Kind.UPDATED, asList()));
+
+    subscriber.await(300, TimeUnit.MILLISECONDS);
+    subscriber.assertNoValues();
+  }
+}
@@ -3,11 +3,16 @@ package org.tasks.caldav;
 import androidx.test.runner.AndroidJUnit4;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.tasks.sync.HttpClientFactory;
 
 @RunWith(AndroidJUnit4.class)
 public class CaldavClientTest {
   @Test
   public void dontCrashOnSpaceInUrl() {
-    new CaldavClient("https://example.com/remote.php/a space/", "username", "password");
+    new CaldavClient(
+        new HttpClientFactory(),
+        "https://example.com/remote.php/a space/",
+        "username",
+        "password");
   }
 }
@@ -0,0 +1,67 @@
+package org.tasks.caldav;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.Task.Priority;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class CaldavConverterTest {
+
+  @Test
+  public void mergeKeepsLocalEdits() {
+    Task local = newTask("local title", "notes", Priority.NONE);
+    Task base = newTask("title", "notes", Priority.NONE);
+    Task remote = newTask("remote title", "notes", Priority.NONE);
+
+    assertTrue(CaldavConverter.merge(local, base, remote));
+
+    assertEquals("local title", local.getTitle());
+  }
+
+  @Test
+  public void mergeTakesRemoteEditsToOtherFields() {
+    Task local = newTask("local title", "notes", Priority.NONE);
+    Task base = newTask("title", "notes", Priority.NONE);
+    Task remote = newTask("title", "remote notes", Priority.HIGH);
+
+    assertTrue(CaldavConverter.merge(local, base, remote));
+
+    assertEquals("local title", local.getTitle());
+    assertEquals("remote notes", local.getNotes());
+    assertEquals(Priority.HIGH, (int) local.getPriority());
+  }
+
+  @Test
+  public void mergeWithoutLocalEdits() {
+    Task local = newTask("title", "notes", Priority.NONE);
+    Task base = newTask("title", "notes", Priority.NONE);
+    Task remote = newTask("remote title", "remote notes", Priority.LOW);
+
+    assertFalse(CaldavConverter.merge(local, base, remote));
+
+    assertEquals("remote title", local.getTitle());
+    assertEquals("remote notes", local.getNotes());
+    assertEquals(Priority.LOW, (int) local.getPriority());
+  }
+
+  @Test
+  public void noStoredObject() {
+    assertNull(CaldavConverter.fromVtodo(null));
+    assertNull(CaldavConverter.fromVtodo(new byte[0]));
+  }
+
+  private static Task newTask(String title, String notes, int priority) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setNotes(notes);
+    task.setPriority(priority);
+    return task;
+  }
+}
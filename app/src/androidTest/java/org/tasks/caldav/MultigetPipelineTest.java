@@ -0,0 +1,141 @@
+package org.tasks.caldav;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import androidx.test.runner.AndroidJUnit4;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.caldav.MultigetPipeline.MultigetSize;
+import org.tasks.sync.SyncScheduler;
+
+@RunWith(AndroidJUnit4.class)
+public class MultigetPipelineTest {
+
+  private final MultigetPipeline pipeline =
+      new MultigetPipeline(getClass().getClassLoader(), new SyncScheduler());
+
+  @Test
+  public void writeEveryParsedItem() throws Exception {
+    List<Integer> written = new ArrayList<>();
+
+    pipeline.run(range(100), items -> items, i -> i % 10 == 0 ? null : i * 2, written::addAll);
+
+    assertEquals(90, written.size());
+    Collections.sort(written);
+    assertEquals(2, (int) written.get(0));
+    assertEquals(198, (int) written.get(89));
+  }
+
+  @Test
+  public void limitRequestsInFlight() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    pipeline.run(
+        range(1000),
+        items -> {
+          int current = inFlight.incrementAndGet();
+          int max;
+          do {
+            max = maxInFlight.get();
+          } while (current > max && !maxInFlight.compareAndSet(max, current));
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+          inFlight.decrementAndGet();
+          return items;
+        },
+        i -> i,
+        items -> {});
+
+    assertTrue(maxInFlight.get() <= MultigetPipeline.MAX_REQUESTS);
+  }
+
+  @Test
+  public void writeOnSharedWriter() throws Exception {
+    Set<Thread> writers = new HashSet<>();
+
+    pipeline.run(range(100), items -> items, i -> i, items -> writers.add(Thread.currentThread()));
+
+    assertEquals(1, writers.size());
+    assertFalse(writers.contains(Thread.currentThread()));
+  }
+
+  @Test
+  public void rethrowFetchFailure() throws Exception {
+    try {
+      pipeline.run(
+          range(100),
+          items -> {
+            throw new IOException("failed");
+          },
+          i -> i,
+          items -> {});
+      fail();
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+  }
+
+  @Test
+  public void growSizeWhenFast() {
+    MultigetSize size = new MultigetSize();
+
+    size.onResponse(MultigetSize.INITIAL, 100);
+
+    assertEquals(45, size.get());
+  }
+
+  @Test
+  public void dontGrowSizeForPartialRequest() {
+    MultigetSize size = new MultigetSize();
+
+    size.onResponse(5, 100);
+
+    assertEquals(MultigetSize.INITIAL, size.get());
+  }
+
+  @Test
+  public void shrinkSizeWhenSlow() {
+    MultigetSize size = new MultigetSize();
+
+    size.onResponse(MultigetSize.INITIAL, 10000);
+
+    assertEquals(15, size.get());
+  }
+
+  @Test
+  public void sizeStaysWithinBounds() {
+    MultigetSize size = new MultigetSize();
+
+    for (int i = 0; i < 10; i++) {
+      size.onResponse(size.get(), 10000);
+    }
+    assertEquals(MultigetSize.MIN, size.get());
+
+    for (int i = 0; i < 10; i++) {
+      size.onResponse(size.get(), 100);
+    }
+    assertEquals(MultigetSize.MAX, size.get());
+  }
+
+  private static List<Integer> range(int count) {
+    List<Integer> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      result.add(i);
+    }
+    return result;
+  }
+}
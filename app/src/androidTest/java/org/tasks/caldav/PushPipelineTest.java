@@ -0,0 +1,98 @@
+package org.tasks.caldav;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.sync.SyncScheduler;
+
+@RunWith(AndroidJUnit4.class)
+public class PushPipelineTest {
+
+  private final PushPipeline pipeline =
+      new PushPipeline(getClass().getClassLoader(), new SyncScheduler());
+
+  @Test
+  public void writeEveryResult() throws Exception {
+    List<Integer> written = new ArrayList<>();
+
+    pipeline.run(range(50), i -> i * 2, written::addAll);
+
+    assertEquals(50, written.size());
+    Collections.sort(written);
+    assertEquals(0, (int) written.get(0));
+    assertEquals(98, (int) written.get(49));
+  }
+
+  @Test
+  public void limitUploadsInFlight() throws Exception {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+
+    pipeline.run(
+        range(100),
+        i -> {
+          int current = inFlight.incrementAndGet();
+          int max;
+          do {
+            max = maxInFlight.get();
+          } while (current > max && !maxInFlight.compareAndSet(max, current));
+          sleep(5);
+          inFlight.decrementAndGet();
+          return i;
+        },
+        results -> {});
+
+    assertTrue(maxInFlight.get() <= PushPipeline.MAX_UPLOADS);
+  }
+
+  @Test
+  public void slowUploadDoesNotBlockOthers() throws Exception {
+    CountDownLatch othersWritten = new CountDownLatch(9);
+    List<Integer> written = new ArrayList<>();
+
+    pipeline.run(
+        range(10),
+        i -> {
+          if (i == 0) {
+            try {
+              othersWritten.await();
+            } catch (InterruptedException e) {
+              throw new RuntimeException(e);
+            }
+          }
+          return i;
+        },
+        results -> {
+          written.addAll(results);
+          for (int i = 0; i < results.size(); i++) {
+            othersWritten.countDown();
+          }
+        });
+
+    assertEquals(0, (int) written.get(9));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static List<Integer> range(int count) {
+    List<Integer> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      result.add(i);
+    }
+    return result;
+  }
+}
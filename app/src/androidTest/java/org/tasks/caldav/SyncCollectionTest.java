@@ -0,0 +1,184 @@
+package org.tasks.caldav;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import androidx.test.runner.AndroidJUnit4;
+import at.bitfire.dav4android.exception.DavException;
+import java.io.IOException;
+import java.util.Collections;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class SyncCollectionTest {
+
+  private final MockWebServer server = new MockWebServer();
+  private SyncCollection syncCollection;
+
+  @Before
+  public void before() throws IOException {
+    server.start();
+    HttpUrl url = server.url("/calendars/user/tasks/");
+    syncCollection = new SyncCollection(new OkHttpClient(), url);
+  }
+
+  @After
+  public void after() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void initialSyncListsAllMembers() throws Exception {
+    server.enqueue(
+        multistatus(
+            "token-1",
+            member("/calendars/user/tasks/a.ics", "\"etag-a\""),
+            member("/calendars/user/tasks/b.ics", "W/\"etag-b\"")));
+
+    SyncCollection.Result result = syncCollection.report(null);
+
+    assertTrue(result.initial);
+    assertEquals("token-1", result.syncToken);
+    assertEquals(2, result.changed.size());
+    assertEquals("a.ics", result.changed.get(0).fileName());
+    assertEquals("etag-a", result.changed.get(0).eTag);
+    assertEquals("etag-b", result.changed.get(1).eTag);
+    RecordedRequest request = server.takeRequest();
+    assertEquals("REPORT", request.getMethod());
+    assertEquals("0", request.getHeader("Depth"));
+    assertTrue(request.getBody().readUtf8().matches("(?s).*<sync-token\\s*/>.*"));
+  }
+
+  @Test
+  public void deltaSyncReturnsChangesOnly() throws Exception {
+    server.enqueue(
+        multistatus(
+            "token-2",
+            member("/calendars/user/tasks/a.ics", "\"etag-a2\""),
+            removed("/calendars/user/tasks/c.ics")));
+
+    SyncCollection.Result result = syncCollection.report("token-1");
+
+    assertFalse(result.initial);
+    assertEquals("token-2", result.syncToken);
+    assertEquals(1, result.changed.size());
+    assertEquals("etag-a2", result.changed.get(0).eTag);
+    assertEquals(Collections.singletonList("c.ics"), result.removed);
+    assertEquals(1, server.getRequestCount());
+    assertTrue(server.takeRequest().getBody().readUtf8().contains(">token-1</sync-token>"));
+  }
+
+  @Test
+  public void emptyDeltaIsOneSmallRoundTrip() throws Exception {
+    MockResponse response = multistatus("token-2");
+    server.enqueue(response);
+
+    SyncCollection.Result result = syncCollection.report("token-1");
+
+    assertTrue(result.changed.isEmpty());
+    assertTrue(result.removed.isEmpty());
+    assertEquals(1, server.getRequestCount());
+    assertTrue(response.getBody().size() < 256);
+  }
+
+  @Test
+  public void followTruncatedResults() throws Exception {
+    server.enqueue(
+        multistatus(
+            "token-2",
+            member("/calendars/user/tasks/a.ics", "\"etag-a\""),
+            truncated("/calendars/user/tasks/")));
+    server.enqueue(multistatus("token-3", member("/calendars/user/tasks/b.ics", "\"etag-b\"")));
+
+    SyncCollection.Result result = syncCollection.report("token-1");
+
+    assertEquals("token-3", result.syncToken);
+    assertEquals(2, result.changed.size());
+    assertEquals(2, server.getRequestCount());
+    server.takeRequest();
+    assertTrue(server.takeRequest().getBody().readUtf8().contains(">token-2</sync-token>"));
+  }
+
+  @Test
+  public void rejectedTokenThrows() throws Exception {
+    server.enqueue(
+        new MockResponse()
+            .setResponseCode(403)
+            .setBody(
+                "<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+                    + "<d:error xmlns:d=\"DAV:\"><d:valid-sync-token/></d:error>"));
+
+    try {
+      syncCollection.report("expired");
+      fail();
+    } catch (DavException ignored) {
+    }
+  }
+
+  @Test
+  public void rejectedTokenFallsBackToInitialSync() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(403));
+    server.enqueue(multistatus("token-2", member("/calendars/user/tasks/a.ics", "\"etag-a\"")));
+
+    SyncCollection.Result result = syncCollection.getChanges("expired");
+
+    assertTrue(result.initial);
+    assertEquals("token-2", result.syncToken);
+    assertEquals(2, server.getRequestCount());
+  }
+
+  @Test
+  public void unsupportedReturnsNull() throws Exception {
+    server.enqueue(new MockResponse().setResponseCode(501));
+
+    assertNull(syncCollection.getChanges(null));
+  }
+
+  @Test
+  public void skipReportWhenUnsupported() throws Exception {
+    assertNull(syncCollection.getChanges(SyncCollection.UNSUPPORTED));
+    assertEquals(0, server.getRequestCount());
+  }
+
+  private static MockResponse multistatus(String syncToken, String... responses) {
+    StringBuilder body =
+        new StringBuilder(
+            "<?xml version=\"1.0\" encoding=\"utf-8\"?><d:multistatus xmlns:d=\"DAV:\">");
+    for (String response : responses) {
+      body.append(response);
+    }
+    body.append("<d:sync-token>").append(syncToken).append("</d:sync-token></d:multistatus>");
+    return new MockResponse().setResponseCode(207).setBody(body.toString());
+  }
+
+  private static String member(String href, String eTag) {
+    return "<d:response><d:href>"
+        + href
+        + "</d:href><d:propstat><d:prop><d:getetag>"
+        + eTag
+        + "</d:getetag></d:prop><d:status>HTTP/1.1 200 OK</d:status></d:propstat></d:response>";
+  }
+
+  private static String removed(String href) {
+    return "<d:response><d:href>"
+        + href
+        + "</d:href><d:status>HTTP/1.1 404 Not Found</d:status></d:response>";
+  }
+
+  private static String truncated(String href) {
+    return "<d:response><d:href>"
+        + href
+        + "</d:href><d:status>HTTP/1.1 507 Insufficient Storage</d:status></d:response>";
+  }
+}
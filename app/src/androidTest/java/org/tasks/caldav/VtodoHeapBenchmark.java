@@ -0,0 +1,104 @@
+package org.tasks.caldav;
+
+import static junit.framework.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.test.InstrumentationRegistry;
+import androidx.test.runner.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.CompressedText;
+
+/**
+ * Measures the heap retained per downloaded calendar object while it waits in the download
+ * pipeline and once it is attached to its CaldavTask: the response text as a String, as sync used
+ * to keep it, against the compressed copy kept now.
+ *
+ * <p>Heap readings depend on the garbage collector, so this only logs them and only runs when
+ * asked to, e.g. with {@code -e benchmark true}. The stored size is checked by {@link
+ * org.tasks.data.CaldavDaoTests}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VtodoHeapBenchmark {
+
+  private static final String TAG = "VtodoHeapBenchmark";
+  private static final int ITEMS = 1000;
+
+  @Test
+  public void heapPerSyncedItem() throws IOException {
+    assumeTrue(Boolean.parseBoolean(InstrumentationRegistry.getArguments().getString("benchmark")));
+    String template = readAsset("apple/basic_due_date.txt");
+
+    List<Object> strings = new ArrayList<>();
+    long stringBytes =
+        measure(
+            () -> {
+              for (int i = 0; i < ITEMS; i++) {
+                strings.add(CharStreams.toString(new StringReader(vtodo(template, i))));
+              }
+            });
+
+    List<Object> compressed = new ArrayList<>();
+    long compressedBytes =
+        measure(
+            () -> {
+              for (int i = 0; i < ITEMS; i++) {
+                compressed.add(CompressedText.compress(new StringReader(vtodo(template, i))));
+              }
+            });
+
+    Log.i(
+        TAG,
+        String.format(
+            "%s byte iCalendar: %s bytes/item as String, %s bytes/item compressed",
+            template.length(),
+            stringBytes / ITEMS,
+            compressedBytes / ITEMS));
+    assertEquals(ITEMS, strings.size());
+    assertEquals(ITEMS, compressed.size());
+  }
+
+  private static String vtodo(String template, int index) {
+    return template.replace("UID:CB8609CD", "UID:" + index + "-CB8609CD");
+  }
+
+  private static long measure(Benchmark benchmark) throws IOException {
+    long before = usedMemory();
+    benchmark.run();
+    return usedMemory() - before;
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      System.runFinalization();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String readAsset(String path) throws IOException {
+    Context context = InstrumentationRegistry.getInstrumentation().getContext();
+    Reader reader = new InputStreamReader(context.getAssets().open(path), Charsets.UTF_8);
+    try {
+      return CharStreams.toString(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private interface Benchmark {
+
+    void run() throws IOException;
+  }
+}
@@ -0,0 +1,64 @@
+package org.tasks.data;
+
+import static androidx.test.InstrumentationRegistry.getContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class CaldavDaoTests extends InjectingTestCase {
+
+  @Inject CaldavDao caldavDao;
+  @Inject TaskDao taskDao;
+
+  @Test
+  public void vtodoIsStoredCompressed() throws IOException {
+    String vtodo = readAsset("apple/basic_due_date.txt");
+    Task task = new Task();
+    taskDao.createNew(task);
+    CaldavTask caldavTask = new CaldavTask(task.getId(), "calendar", "uid", "uid.ics");
+    Reader reader = open("apple/basic_due_date.txt");
+    try {
+      caldavTask.setVtodo(CompressedText.compress(reader));
+    } finally {
+      reader.close();
+    }
+    caldavDao.insert(caldavTask);
+
+    byte[] stored = caldavDao.getTask(task.getId()).getVtodo();
+
+    assertTrue(stored.length < vtodo.getBytes(Charsets.UTF_8).length);
+    assertEquals(vtodo, CompressedText.toString(stored));
+  }
+
+  private static String readAsset(String path) throws IOException {
+    Reader reader = open(path);
+    try {
+      return CharStreams.toString(reader);
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static Reader open(String path) throws IOException {
+    return new InputStreamReader(getContext().getAssets().open(path), Charsets.UTF_8);
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
@@ -0,0 +1,73 @@
+package org.tasks.data;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.gson.Gson;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class CompressedTextTest {
+
+  private static final String VTODO =
+      "BEGIN:VCALENDAR\r\nBEGIN:VTODO\r\nSUMMARY:Grüße\r\nEND:VTODO\r\nEND:VCALENDAR\r\n";
+
+  @Test
+  public void roundTrip() throws IOException {
+    byte[] compressed = CompressedText.compress(VTODO);
+
+    assertEquals(VTODO, CompressedText.toString(compressed));
+    assertEquals(VTODO, CharStreams.toString(CompressedText.reader(compressed)));
+  }
+
+  @Test
+  public void compressUtf8Bytes() {
+    byte[] compressed = CompressedText.compress(VTODO.getBytes(Charsets.UTF_8));
+
+    assertEquals(VTODO, CompressedText.toString(compressed));
+  }
+
+  @Test
+  public void readUncompressedText() throws IOException {
+    byte[] legacy = VTODO.getBytes(Charsets.UTF_8);
+
+    assertEquals(VTODO, CompressedText.toString(legacy));
+    assertEquals(VTODO, CharStreams.toString(CompressedText.reader(legacy)));
+  }
+
+  @Test
+  public void compressRepeatedText() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append(VTODO);
+    }
+
+    assertTrue(CompressedText.compress(text.toString()).length < text.length() / 10);
+  }
+
+  @Test
+  public void backupStoresPlainText() {
+    CaldavTask caldavTask = new CaldavTask();
+    caldavTask.setVtodo(CompressedText.compress(VTODO));
+    Gson gson = new Gson();
+
+    String json = gson.toJson(caldavTask);
+    CaldavTask restored = gson.fromJson(json, CaldavTask.class);
+
+    assertTrue(json.contains("\"vtodo\":\"BEGIN:VCALENDAR"));
+    assertEquals(VTODO, CompressedText.toString(restored.getVtodo()));
+  }
+
+  @Test
+  public void restoreBackupWithoutVtodo() {
+    CaldavTask restored = new Gson().fromJson("{\"vtodo\":null}", CaldavTask.class);
+
+    assertNull(restored.getVtodo());
+  }
+}
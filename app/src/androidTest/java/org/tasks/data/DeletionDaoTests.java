@@ -1,6 +1,10 @@
 package org.tasks.data;
 
 import static com.google.common.collect.Lists.newArrayList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 import androidx.test.runner.AndroidJUnit4;
 import com.google.common.collect.ContiguousSet;
@@ -16,6 +20,8 @@ import org.tasks.injection.TestComponent;
 public class DeletionDaoTests extends InjectingTestCase {
 
   @Inject DeletionDao deletionDao;
+  @Inject TagDataDao tagDataDao;
+  @Inject TaskListMetadataDao taskListMetadataDao;
 
   @Test
   public void deleting1000DoesntCrash() {
@@ -29,6 +35,23 @@ public class DeletionDaoTests extends InjectingTestCase {
         newArrayList(ContiguousSet.create(Range.closed(1L, 1000L), DiscreteDomain.longs())));
   }
 
+  @Test
+  public void deletingTagDeletesManualOrder() {
+    TagData tagData = new TagData();
+    tagData.setName("tag");
+    tagDataDao.createNew(tagData);
+    TaskListMetadata list = new TaskListMetadata();
+    list.setTagUuid(tagData.getRemoteId());
+    taskListMetadataDao.createNew(list);
+    taskListMetadataDao.updatePositions(
+        list.getId(), singletonList(new TaskListPosition(list.getId(), 1)), emptyList());
+
+    deletionDao.delete(tagData);
+
+    assertNull(taskListMetadataDao.fetchByTagOrFilter(tagData.getRemoteId()));
+    assertTrue(taskListMetadataDao.getPositions(list.getId()).isEmpty());
+  }
+
   @Override
   protected void inject(TestComponent component) {
     component.inject(this);
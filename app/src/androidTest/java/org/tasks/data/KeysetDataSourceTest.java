@@ -0,0 +1,166 @@
+package org.tasks.data;
+
+import static com.google.common.collect.Lists.transform;
+import static junit.framework.Assert.assertEquals;
+
+import androidx.annotation.NonNull;
+import androidx.paging.ItemKeyedDataSource.LoadCallback;
+import androidx.paging.ItemKeyedDataSource.LoadInitialCallback;
+import androidx.paging.ItemKeyedDataSource.LoadInitialParams;
+import androidx.paging.ItemKeyedDataSource.LoadParams;
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class KeysetDataSourceTest extends InjectingTestCase {
+
+  @Inject Database database;
+  @Inject TaskDao taskDao;
+
+  @Override
+  public void setUp() {
+    super.setUp();
+    for (int i = 0; i < 95; i++) {
+      Task task = new Task();
+      task.setTitle(i % 3 == 0 ? null : "task " + (i % 7));
+      task.setPriority(i % 4);
+      task.setDueDate(i % 5 == 0 ? 0 : i * 1000L);
+      taskDao.createNew(task);
+    }
+  }
+
+  @Test
+  public void pagesForwardInSortOrder() {
+    String template =
+        " WHERE deleted = 0 GROUP BY tasks._id"
+            + " ORDER BY importance ASC, UPPER(tasks.title) DESC, tasks._id ASC";
+
+    assertEquals(
+        expected(template), pageForward(new KeysetDataSource(database, query(template)), 10));
+  }
+
+  @Test
+  public void pagesForwardWithoutOrder() {
+    assertEquals(
+        expected(" WHERE deleted = 0 ORDER BY tasks._id"),
+        pageForward(new KeysetDataSource(database, query(" WHERE deleted = 0")), 7));
+  }
+
+  @Test
+  public void pagesBackwardFromInitialKey() {
+    String template =
+        " WHERE deleted = 0 GROUP BY tasks._id"
+            + " ORDER BY dueDate DESC, tasks.title ASC, tasks._id ASC";
+    String query = query(template);
+    KeysetDataSource first = new KeysetDataSource(database, query);
+    List<Task> start = loadInitial(first, null, 50);
+    KeysetDataSource.Key key = first.getKey(start.get(40));
+
+    KeysetDataSource second = new KeysetDataSource(database, query);
+    List<Task> tasks = loadInitial(second, key, 20);
+    assertEquals(start.get(30).getId(), tasks.get(0).getId());
+    while (true) {
+      List<Task> before = loadBefore(second, second.getKey(tasks.get(0)), 8);
+      if (before.isEmpty()) {
+        break;
+      }
+      tasks.addAll(0, before);
+    }
+
+    assertEquals(expected(template).subList(0, tasks.size()), ids(tasks));
+  }
+
+  @Test
+  public void fallsBackToOffsetForLongOrders() {
+    StringBuilder order = new StringBuilder(" WHERE deleted = 0 ORDER BY ");
+    for (int i = 1; i <= 20; i++) {
+      order.append("tasks._id = ").append(i * 3).append(" DESC, ");
+    }
+    order.append("tasks._id ASC");
+    String template = order.toString();
+
+    assertEquals(
+        expected(template), pageForward(new KeysetDataSource(database, query(template)), 9));
+  }
+
+  private List<Long> pageForward(KeysetDataSource dataSource, int pageSize) {
+    List<Task> tasks = loadInitial(dataSource, null, pageSize);
+    while (true) {
+      List<Task> after =
+          loadAfter(dataSource, dataSource.getKey(tasks.get(tasks.size() - 1)), pageSize);
+      if (after.isEmpty()) {
+        return ids(tasks);
+      }
+      tasks.addAll(after);
+    }
+  }
+
+  private List<Long> expected(String template) {
+    return ids(taskDao.fetchFiltered(template));
+  }
+
+  private static List<Long> ids(List<Task> tasks) {
+    return new ArrayList<>(transform(tasks, Task::getId));
+  }
+
+  private static String query(String template) {
+    return Query.select(Task.PROPERTIES).withQueryTemplate(template).from(Task.TABLE).toString();
+  }
+
+  private static List<Task> loadInitial(
+      KeysetDataSource dataSource, KeysetDataSource.Key key, int size) {
+    List<Task> result = new ArrayList<>();
+    dataSource.loadInitial(
+        new LoadInitialParams<>(key, size, false),
+        new LoadInitialCallback<Task>() {
+          @Override
+          public void onResult(@NonNull List<Task> data, int position, int totalCount) {
+            result.addAll(data);
+          }
+
+          @Override
+          public void onResult(@NonNull List<Task> data) {
+            result.addAll(data);
+          }
+        });
+    return result;
+  }
+
+  private static List<Task> loadAfter(
+      KeysetDataSource dataSource, KeysetDataSource.Key key, int size) {
+    List<Task> result = new ArrayList<>();
+    dataSource.loadAfter(new LoadParams<>(key, size), callback(result));
+    return result;
+  }
+
+  private static List<Task> loadBefore(
+      KeysetDataSource dataSource, KeysetDataSource.Key key, int size) {
+    List<Task> result = new ArrayList<>();
+    dataSource.loadBefore(new LoadParams<>(key, size), callback(result));
+    return result;
+  }
+
+  private static LoadCallback<Task> callback(List<Task> result) {
+    return new LoadCallback<Task>() {
+      @Override
+      public void onResult(@NonNull List<Task> data) {
+        result.addAll(data);
+      }
+    };
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
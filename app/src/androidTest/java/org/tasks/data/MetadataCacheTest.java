@@ -0,0 +1,99 @@
+package org.tasks.data;
+
+import static com.google.common.collect.Lists.transform;
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import androidx.test.runner.AndroidJUnit4;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class MetadataCacheTest extends InjectingTestCase {
+
+  @Inject TagDataDao tagDataDao;
+  @Inject GoogleTaskListDao googleTaskListDao;
+  @Inject CaldavDao caldavDao;
+  @Inject MetadataCache metadataCache;
+
+  @Test
+  public void hiddenTagsAreListedLast() {
+    newTag(".hidden");
+    newTag("b");
+    newTag("a");
+
+    assertEquals(asList("a", "b", ".hidden"), transform(metadataCache.getTags(), TagData::getName));
+  }
+
+  @Test
+  public void unnamedTagsAreNotListed() {
+    TagData tag = newTag("");
+
+    assertTrue(metadataCache.getTags().isEmpty());
+    assertEquals(tag.getId(), metadataCache.getTag(tag.getRemoteId()).getId());
+  }
+
+  @Test
+  public void getTagFilter() {
+    TagData tag = newTag("tag");
+
+    assertEquals("tag", metadataCache.getTagFilter(tag.getRemoteId()).listingTitle);
+    assertNull(metadataCache.getTagFilter("missing"));
+  }
+
+  @Test
+  public void googleTaskListsByAccount() {
+    newGoogleTaskList("user1@gmail.com", "1", "b");
+    newGoogleTaskList("user2@gmail.com", "2", "c");
+    newGoogleTaskList("user1@gmail.com", "3", "a");
+
+    assertEquals(
+        asList("a", "b"),
+        transform(metadataCache.getGoogleTaskLists("user1@gmail.com"), GoogleTaskList::getTitle));
+    assertEquals("c", metadataCache.getGoogleTaskFilter("2").listingTitle);
+  }
+
+  @Test
+  public void caldavCalendarsByAccount() {
+    newCalendar("account1", "1", "b");
+    newCalendar("account2", "2", "c");
+    newCalendar("account1", "3", "a");
+
+    assertEquals(
+        asList("a", "b"),
+        transform(metadataCache.getCaldavCalendars("account1"), CaldavCalendar::getName));
+    assertEquals("c", metadataCache.getCaldavCalendar("2").getName());
+    assertEquals("c", metadataCache.getCaldavFilter("2").listingTitle);
+  }
+
+  private TagData newTag(String name) {
+    TagData tag = new TagData();
+    tag.setName(name);
+    tagDataDao.createNew(tag);
+    return tag;
+  }
+
+  private void newGoogleTaskList(String account, String remoteId, String title) {
+    GoogleTaskList list = new GoogleTaskList();
+    list.setAccount(account);
+    list.setRemoteId(remoteId);
+    list.setTitle(title);
+    googleTaskListDao.insert(list);
+  }
+
+  private void newCalendar(String account, String uuid, String name) {
+    CaldavCalendar calendar = new CaldavCalendar(name, uuid);
+    calendar.setAccount(account);
+    caldavDao.insert(calendar);
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
@@ -0,0 +1,389 @@
+package org.tasks.db;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static com.todoroo.astrid.core.SortHelper.SORT_ALPHA;
+import static com.todoroo.astrid.core.SortHelper.SORT_AUTO;
+import static com.todoroo.astrid.core.SortHelper.SORT_DUE;
+import static com.todoroo.astrid.core.SortHelper.SORT_IMPORTANCE;
+import static com.todoroo.astrid.core.SortHelper.SORT_MODIFIED;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.fail;
+
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.text.TextUtils;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteOpenHelper.Configuration;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.astrid.adapter.TaskAdapter;
+import com.todoroo.astrid.api.CaldavFilter;
+import com.todoroo.astrid.api.CustomFilterCriterion;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.api.GtasksFilter;
+import com.todoroo.astrid.api.MultipleSelectCriterion;
+import com.todoroo.astrid.api.TagFilter;
+import com.todoroo.astrid.core.BuiltInFilterExposer;
+import com.todoroo.astrid.core.CustomFilterActivity;
+import com.todoroo.astrid.core.CustomFilterActivity.CriterionInstance;
+import com.todoroo.astrid.core.CustomFilterExposer;
+import com.todoroo.astrid.dao.Database;
+import com.todoroo.astrid.data.Task;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.CaldavAccount;
+import org.tasks.data.CaldavCalendar;
+import org.tasks.data.CaldavDao;
+import org.tasks.data.FilterDao;
+import org.tasks.data.GoogleTaskAccount;
+import org.tasks.data.GoogleTaskList;
+import org.tasks.data.GoogleTaskListDao;
+import org.tasks.data.TagData;
+import org.tasks.filters.FilterCriteriaProvider;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+import org.tasks.preferences.Preferences;
+import org.tasks.ui.TaskListViewModel;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on every DAO query and on the task list query for each kind of filter
+ * and fails if any of them falls back to a full scan of a table that grows with the number of
+ * tasks.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest extends InjectingTestCase {
+
+  private static final Pattern FULL_SCAN =
+      Pattern.compile("^SCAN (?:TABLE )?(\\w+)(?: AS \\w+)?$");
+
+  /** Tables with rows per task. The rest hold a handful of lists, accounts or filters. */
+  private static final Set<String> LARGE_TABLES =
+      new HashSet<>(
+          asList(
+              "tasks",
+              "alarms",
+              "locations",
+              "tags",
+              "google_tasks",
+              "caldav_tasks",
+              "task_attachments",
+              "userActivity",
+              "task_list_positions"));
+
+  /** DAO methods that read or rewrite every row on purpose */
+  private static final Set<String> WHOLE_TABLE =
+      new HashSet<>(
+          asList(
+              // backup export and import
+              "TaskDao.getAll()",
+              "TaskDao.countAll()",
+              "TaskDao.getUuids()",
+              "TaskAttachmentDao.getAttachments()",
+              "UserActivityDao.getComments()",
+              // calendar cleanup from the settings screen
+              "TaskDao.getAllCalendarEvents()",
+              "TaskDao.clearAllCalendarEvents()",
+              "TaskDao.getCompletedCalendarEvents()",
+              "TaskDao.clearCompletedCalendarEvents()",
+              // every alarm and geofence is scheduled or registered
+              "AlarmDao.getActiveAlarms()",
+              "AlarmDao.getActiveAlarmsBefore(long)",
+              "LocationDao.getActiveGeofences()"));
+
+  @Inject Database database;
+  @Inject Preferences preferences;
+  @Inject FilterDao filterDao;
+  @Inject GoogleTaskListDao googleTaskListDao;
+  @Inject CaldavDao caldavDao;
+  @Inject FilterCriteriaProvider filterCriteriaProvider;
+  @Inject CustomFilterExposer customFilterExposer;
+
+  @Test
+  public void daoQueriesUseIndexes() throws IllegalAccessException {
+    Recorder recorder = new Recorder();
+    Database recorded =
+        Room.inMemoryDatabaseBuilder(getTargetContext(), Database.class)
+            .addCallback(TaskSearch.CALLBACK)
+            .openHelperFactory(recorder)
+            .build();
+    List<String> failures = new ArrayList<>();
+    try {
+      recorded.getOpenHelper().getWritableDatabase();
+      for (Method getter : Database.class.getDeclaredMethods()) {
+        if (!Modifier.isAbstract(getter.getModifiers())
+            || getter.getParameterTypes().length > 0) {
+          continue;
+        }
+        Object dao = getter.invoke(recorded);
+        for (Method method : getter.getReturnType().getDeclaredMethods()) {
+          if (!Modifier.isAbstract(method.getModifiers())) {
+            continue;
+          }
+          String name = getName(method);
+          List<String> statements = recorder.record(dao, method, getArguments(method));
+          if (statements.isEmpty()) {
+            failures.add(name + " didn't run any SQL");
+          }
+          for (String sql : statements) {
+            List<String> scans = getFullScans(recorded, sql);
+            if (!scans.isEmpty() && !WHOLE_TABLE.contains(name)) {
+              failures.add(name + " scans " + scans + ": " + sql);
+            }
+          }
+        }
+      }
+    } catch (InvocationTargetException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      recorded.close();
+    }
+    if (!failures.isEmpty()) {
+      fail(TextUtils.join("\n", failures));
+    }
+  }
+
+  @Test
+  public void builtInFiltersUseIndexes() {
+    Resources r = getTargetContext().getResources();
+    assertIndexed(BuiltInFilterExposer.getMyTasksFilter(r, preferences));
+    assertIndexed(BuiltInFilterExposer.getTodayFilter(r));
+    assertIndexed(BuiltInFilterExposer.getRecentlyModifiedFilter(r));
+    assertIndexed(BuiltInFilterExposer.getUncategorizedFilter(r));
+  }
+
+  @Test
+  public void listFiltersUseIndexes() {
+    TagData tagData = new TagData();
+    tagData.setName("tag");
+    tagData.setRemoteId("1234");
+    assertIndexed(new TagFilter(tagData));
+
+    GoogleTaskList googleTaskList = new GoogleTaskList();
+    googleTaskList.setTitle("list");
+    googleTaskList.setRemoteId("1234");
+    assertIndexed(new GtasksFilter(googleTaskList));
+
+    CaldavCalendar calendar = new CaldavCalendar();
+    calendar.setName("calendar");
+    calendar.setUuid("1234");
+    assertIndexed(new CaldavFilter(calendar));
+  }
+
+  @Test
+  public void savedFiltersUseIndexes() {
+    googleTaskListDao.insert(new GoogleTaskAccount("user@gmail.com"));
+    caldavDao.insert(new CaldavAccount());
+    CriterionInstance universe = new CriterionInstance();
+    universe.criterion =
+        new MultipleSelectCriterion(null, null, null, null, null, null, null, null);
+    universe.type = CriterionInstance.TYPE_UNIVERSE;
+    int[] types = {CriterionInstance.TYPE_INTERSECT, CriterionInstance.TYPE_SUBTRACT};
+    for (CustomFilterCriterion criterion : filterCriteriaProvider.getAll()) {
+      for (int type : types) {
+        CriterionInstance instance = new CriterionInstance();
+        instance.criterion = criterion;
+        instance.selectedIndex = 0;
+        instance.selectedText = "report";
+        instance.type = type;
+        org.tasks.data.Filter filter = new org.tasks.data.Filter();
+        filter.setTitle(criterion.identifier + " " + type);
+        filter.setSql(CustomFilterActivity.getSql(asList(universe, instance)));
+        filter.setValues("");
+        filterDao.insert(filter);
+      }
+    }
+
+    List<Filter> filters = customFilterExposer.getFilters();
+
+    assertFalse(filters.isEmpty());
+    for (Filter filter : filters) {
+      assertIndexed(filter);
+    }
+  }
+
+  @Test
+  public void searchUsesIndex() {
+    assertIndexed(
+        Query.select(Task.PROPERTIES)
+            .withQueryTemplate(
+                new QueryTemplate()
+                    .where(TaskSearch.matches("report"))
+                    .orderBy(TaskSearch.rank("report"))
+                    .toString())
+            .from(Task.TABLE)
+            .toString());
+  }
+
+  private void assertIndexed(Filter filter) {
+    int sortMode = preferences.getSortMode();
+    try {
+      for (int sort : new int[] {SORT_AUTO, SORT_ALPHA, SORT_DUE, SORT_IMPORTANCE, SORT_MODIFIED}) {
+        preferences.setSortMode(sort);
+        assertIndexed(TaskListViewModel.getQuery(preferences, filter, TaskAdapter.PROPERTIES));
+      }
+    } finally {
+      preferences.setSortMode(sortMode);
+    }
+  }
+
+  private void assertIndexed(String sql) {
+    List<String> scans = getFullScans(database, sql);
+    if (!scans.isEmpty()) {
+      fail("Full scan of " + scans + " in " + sql);
+    }
+  }
+
+  private static List<String> getFullScans(RoomDatabase database, String sql) {
+    List<String> scans = new ArrayList<>();
+    Cursor cursor = database.query("EXPLAIN QUERY PLAN " + sql, null);
+    try {
+      int detail = cursor.getColumnIndexOrThrow("detail");
+      while (cursor.moveToNext()) {
+        Matcher matcher = FULL_SCAN.matcher(cursor.getString(detail));
+        if (matcher.matches() && LARGE_TABLES.contains(matcher.group(1))) {
+          scans.add(matcher.group(1));
+        }
+      }
+    } finally {
+      cursor.close();
+    }
+    return scans;
+  }
+
+  private static String getName(Method method) {
+    List<String> parameters = new ArrayList<>();
+    for (Class<?> type : method.getParameterTypes()) {
+      parameters.add(type.getSimpleName());
+    }
+    return method.getDeclaringClass().getSimpleName()
+        + "."
+        + method.getName()
+        + "("
+        + TextUtils.join(", ", parameters)
+        + ")";
+  }
+
+  /**
+   * Placeholder arguments. Entities are null, the generated code compiles its statement before
+   * binding them.
+   */
+  private static Object[] getArguments(Method method) {
+    Class<?>[] types = method.getParameterTypes();
+    Type[] genericTypes = method.getGenericParameterTypes();
+    Object[] arguments = new Object[types.length];
+    for (int i = 0; i < types.length; i++) {
+      arguments[i] = getArgument(types[i], genericTypes[i]);
+    }
+    return arguments;
+  }
+
+  private static Object getArgument(Class<?> type, Type genericType) {
+    if (type == long.class || type == Long.class) {
+      return 1L;
+    } else if (type == int.class || type == Integer.class) {
+      return 1;
+    } else if (type == boolean.class || type == Boolean.class) {
+      return false;
+    } else if (type == String.class) {
+      return "1234";
+    } else if (type == List.class) {
+      Type element = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+      return singletonList(getArgument((Class<?>) element, element));
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+
+  /** Records the statements compiled and queries run while calling a DAO method */
+  private static class Recorder implements SupportSQLiteOpenHelper.Factory {
+
+    private final SupportSQLiteOpenHelper.Factory delegate = new FrameworkSQLiteOpenHelperFactory();
+    private final List<String> statements = new ArrayList<>();
+    private volatile Thread recording;
+
+    @Override
+    public SupportSQLiteOpenHelper create(Configuration configuration) {
+      SupportSQLiteOpenHelper helper = delegate.create(configuration);
+      return (SupportSQLiteOpenHelper)
+          Proxy.newProxyInstance(
+              SupportSQLiteOpenHelper.class.getClassLoader(),
+              new Class<?>[] {SupportSQLiteOpenHelper.class},
+              (proxy, method, args) -> {
+                Object result = invoke(helper, method, args);
+                return result instanceof SupportSQLiteDatabase
+                    ? wrap((SupportSQLiteDatabase) result)
+                    : result;
+              });
+    }
+
+    List<String> record(Object dao, Method method, Object[] arguments)
+        throws IllegalAccessException {
+      statements.clear();
+      method.setAccessible(true);
+      recording = Thread.currentThread();
+      try {
+        method.invoke(dao, arguments);
+      } catch (InvocationTargetException ignored) {
+        // placeholder arguments may violate constraints, the statement was already recorded
+      } finally {
+        recording = null;
+      }
+      return new ArrayList<>(statements);
+    }
+
+    private SupportSQLiteDatabase wrap(SupportSQLiteDatabase database) {
+      return (SupportSQLiteDatabase)
+          Proxy.newProxyInstance(
+              SupportSQLiteDatabase.class.getClassLoader(),
+              new Class<?>[] {SupportSQLiteDatabase.class},
+              (proxy, method, args) -> {
+                if (recording == Thread.currentThread()
+                    && (method.getName().equals("query")
+                        || method.getName().equals("compileStatement"))) {
+                  String sql =
+                      args[0] instanceof SupportSQLiteQuery
+                          ? ((SupportSQLiteQuery) args[0]).getSql()
+                          : args[0].toString();
+                  if (!sql.contains("room_")) {
+                    statements.add(sql);
+                  }
+                }
+                return invoke(database, method, args);
+              });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+}
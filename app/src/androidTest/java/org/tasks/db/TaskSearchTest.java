@@ -0,0 +1,138 @@
+package org.tasks.db;
+
+import static com.google.common.collect.Lists.transform;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static junit.framework.Assert.assertEquals;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.andlib.sql.QueryTemplate;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.List;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.DeletionDao;
+import org.tasks.data.Tag;
+import org.tasks.data.TagDao;
+import org.tasks.data.UserActivity;
+import org.tasks.data.UserActivityDao;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+
+@RunWith(AndroidJUnit4.class)
+public class TaskSearchTest extends InjectingTestCase {
+
+  @Inject TaskDao taskDao;
+  @Inject TagDao tagDao;
+  @Inject UserActivityDao userActivityDao;
+  @Inject DeletionDao deletionDao;
+
+  @Test
+  public void matchPrefixOfTitle() {
+    Task task = newTask("Buy groceries", "");
+
+    assertEquals(asList(task.getId()), search("groc"));
+  }
+
+  @Test
+  public void matchNotes() {
+    Task task = newTask("title", "call the plumber");
+
+    assertEquals(asList(task.getId()), search("plumb"));
+  }
+
+  @Test
+  public void everyWordMustMatch() {
+    newTask("Buy groceries", "");
+    Task task = newTask("Buy milk", "");
+
+    assertEquals(asList(task.getId()), search("buy mi"));
+  }
+
+  @Test
+  public void operatorsAreSearchedLiterally() {
+    newTask("this or that", "");
+
+    assertEquals(emptyList(), search("OR"));
+    assertEquals(emptyList(), search("\"that"));
+  }
+
+  @Test
+  public void updateTitle() {
+    Task task = newTask("old title", "");
+    task.setTitle("new title");
+    taskDao.save(task);
+
+    assertEquals(emptyList(), search("old"));
+    assertEquals(asList(task.getId()), search("new"));
+  }
+
+  @Test
+  public void matchTags() {
+    Task task = newTask("title", "");
+    Tag tag = new Tag(task.getId(), task.getUuid(), "errands", "1234");
+    tagDao.insert(tag);
+
+    assertEquals(asList(task.getId()), search("err"));
+
+    tagDao.deleteTags(task.getId(), asList("1234"));
+
+    assertEquals(emptyList(), search("err"));
+  }
+
+  @Test
+  public void matchComments() {
+    Task task = newTask("title", "");
+    UserActivity comment = new UserActivity();
+    comment.setTargetId(task.getUuid());
+    comment.setMessage("waiting on approval");
+    userActivityDao.createNew(comment);
+
+    assertEquals(asList(task.getId()), search("approv"));
+  }
+
+  @Test
+  public void deletedTasksAreRemoved() {
+    Task task = newTask("title", "");
+    deletionDao.delete(asList(task.getId()));
+
+    assertEquals(emptyList(), search("title"));
+  }
+
+  @Test
+  public void titleMatchesRankFirst() {
+    Task notes = newTask("first", "report");
+    Task title = newTask("report", "");
+
+    QueryTemplate query =
+        new QueryTemplate()
+            .where(TaskSearch.matches("report"))
+            .orderBy(TaskSearch.rank("report"));
+    assertEquals(
+        asList(title.getId(), notes.getId()), getIds(taskDao.fetchFiltered(query.toString())));
+  }
+
+  private Task newTask(String title, String notes) {
+    Task task = new Task();
+    task.setTitle(title);
+    task.setNotes(notes);
+    taskDao.createNew(task);
+    return task;
+  }
+
+  private List<Long> search(String query) {
+    return getIds(
+        taskDao.fetchFiltered(new QueryTemplate().where(TaskSearch.matches(query)).toString()));
+  }
+
+  private static List<Long> getIds(List<Task> tasks) {
+    return transform(tasks, Task::getId);
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+}
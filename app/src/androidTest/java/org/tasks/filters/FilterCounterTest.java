@@ -0,0 +1,117 @@
+package org.tasks.filters;
+
+import static androidx.test.InstrumentationRegistry.getTargetContext;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import android.content.res.Resources;
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.api.TagFilter;
+import com.todoroo.astrid.core.BuiltInFilterExposer;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.inject.Inject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.data.Tag;
+import org.tasks.data.TagDao;
+import org.tasks.data.TagData;
+import org.tasks.data.TagDataDao;
+import org.tasks.injection.InjectingTestCase;
+import org.tasks.injection.TestComponent;
+import org.tasks.preferences.Preferences;
+
+@RunWith(AndroidJUnit4.class)
+public class FilterCounterTest extends InjectingTestCase {
+
+  @Inject TaskDao taskDao;
+  @Inject TagDao tagDao;
+  @Inject TagDataDao tagDataDao;
+  @Inject Preferences preferences;
+  @Inject FilterCounter filterCounter;
+
+  private final List<Filter> filters = new ArrayList<>();
+
+  @Override
+  public void setUp() {
+    super.setUp();
+    Resources r = getTargetContext().getResources();
+    List<TagData> tags = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      TagData tagData = new TagData();
+      tagData.setName("tag " + i);
+      tagDataDao.createNew(tagData);
+      tags.add(tagData);
+      filters.add(new TagFilter(tagData));
+    }
+    for (int i = 0; i < 20; i++) {
+      Task task = new Task();
+      task.setTitle("task " + i);
+      task.setDueDate(i % 4 == 0 ? 0 : i * 1000L);
+      task.setCompletionDate(i % 5 == 0 ? 1L : 0L);
+      taskDao.createNew(task);
+      for (int j = 0; j < tags.size(); j++) {
+        if (i % (j + 2) == 0) {
+          TagData tagData = tags.get(j);
+          tagDao.insert(
+              new Tag(task.getId(), task.getUuid(), tagData.getName(), tagData.getRemoteId()));
+        }
+      }
+    }
+    filters.add(BuiltInFilterExposer.getMyTasksFilter(r, preferences));
+    filters.add(BuiltInFilterExposer.getTodayFilter(r));
+    filters.add(BuiltInFilterExposer.getUncategorizedFilter(r));
+    filters.add(BuiltInFilterExposer.getRecentlyModifiedFilter(r));
+  }
+
+  @Override
+  protected void inject(TestComponent component) {
+    component.inject(this);
+  }
+
+  @Test
+  public void countsMatchIndividualQueries() {
+    Map<Filter, Integer> counts = filterCounter.count(filters);
+
+    assertEquals(filters.size(), counts.size());
+    for (Filter filter : filters) {
+      assertEquals(filter.listingTitle, taskDao.count(filter), (int) counts.get(filter));
+    }
+  }
+
+  @Test
+  public void splitJoinsFromPredicate() {
+    String[] split =
+        FilterCounter.split(
+            "INNER JOIN tags AS mtags ON (tasks.remoteId=mtags.task_uid) "
+                + "WHERE (mtags.tag_uid='x' AND (tasks.deleted=0)) ORDER BY tasks.created");
+
+    assertEquals("INNER JOIN tags AS mtags ON (tasks.remoteId=mtags.task_uid)", split[0]);
+    assertEquals("(mtags.tag_uid='x' AND (tasks.deleted=0))", split[1]);
+  }
+
+  @Test
+  public void ignoreKeywordsInStringsAndSubqueries() {
+    String[] split =
+        FilterCounter.split(
+            "WHERE tasks.title = 'x LIMIT 1' AND tasks._id IN (SELECT task FROM tags LIMIT 5)");
+
+    assertEquals("", split[0]);
+    assertEquals(
+        "tasks.title = 'x LIMIT 1' AND tasks._id IN (SELECT task FROM tags LIMIT 5)", split[1]);
+  }
+
+  @Test
+  public void dontSplitLimitedQueries() {
+    assertNull(FilterCounter.split("WHERE tasks.deleted=0 ORDER BY tasks.modified DESC LIMIT 15"));
+  }
+
+  @Test
+  public void dontSplitGroupedQueries() {
+    assertNull(FilterCounter.split("WHERE tasks.deleted=0 GROUP BY tasks._id"));
+  }
+}
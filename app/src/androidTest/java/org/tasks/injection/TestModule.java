@@ -18,7 +18,9 @@ import org.tasks.data.TagDataDao;
 import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.TaskListMetadataDao;
 import org.tasks.data.UserActivityDao;
-import org.tasks.jobs.WorkManager;
+import org.tasks.db.TaskSearch;
+import org.tasks.jobs.AfterSaveQueue;
+import org.tasks.jobs.PendingSaveDao;
 import org.tasks.notifications.NotificationDao;
 import org.tasks.preferences.PermissionChecker;
 import org.tasks.preferences.PermissivePermissionChecker;
@@ -37,6 +39,7 @@ public class TestModule {
   public Database getDatabase() {
     return Room.inMemoryDatabaseBuilder(context, Database.class)
         .fallbackToDestructiveMigration()
+        .addCallback(TaskSearch.CALLBACK)
         .build();
   }
 
@@ -86,9 +89,9 @@ public class TestModule {
   }
 
   @Provides
-  public TaskDao getTaskDao(WorkManager workManager, Database database) {
+  public TaskDao getTaskDao(AfterSaveQueue afterSaveQueue, Database database) {
     TaskDao taskDao = database.getTaskDao();
-    taskDao.initialize(workManager);
+    taskDao.initialize(afterSaveQueue);
     return taskDao;
   }
 
@@ -112,6 +115,11 @@ public class TestModule {
     return database.getTaskAttachmentDao();
   }
 
+  @Provides
+  public PendingSaveDao getPendingSaveDao(Database database) {
+    return database.getPendingSaveDao();
+  }
+
   @ApplicationScope
   @Provides
   @ForApplication
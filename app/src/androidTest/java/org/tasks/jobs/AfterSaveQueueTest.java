@@ -0,0 +1,252 @@
+package org.tasks.jobs;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import androidx.test.runner.AndroidJUnit4;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.tasks.LocalBroadcastManager;
+import org.tasks.TaskChange;
+import org.tasks.analytics.Tracker;
+import org.tasks.jobs.AfterSaveQueue.Entry;
+import org.tasks.sync.SyncAdapters;
+
+@RunWith(AndroidJUnit4.class)
+public class AfterSaveQueueTest {
+
+  private static final int TIMEOUT = 2000;
+
+  private TaskDao taskDao;
+  private AfterSaveHandler afterSaveHandler;
+  private PendingSaveDao pendingSaveDao;
+  private WorkManager workManager;
+  private LocalBroadcastManager localBroadcastManager;
+  private AfterSaveQueue queue;
+
+  @Before
+  public void before() {
+    taskDao = mock(TaskDao.class);
+    afterSaveHandler = mock(AfterSaveHandler.class);
+    pendingSaveDao = mock(PendingSaveDao.class);
+    workManager = mock(WorkManager.class);
+    localBroadcastManager = mock(LocalBroadcastManager.class);
+    SyncAdapters syncAdapters = mock(SyncAdapters.class);
+    when(syncAdapters.isGoogleTaskSyncEnabled()).thenReturn(true);
+    AtomicLong rowId = new AtomicLong();
+    when(pendingSaveDao.insert(anyListOf(PendingSave.class)))
+        .thenAnswer(
+            invocation -> {
+              List<Long> rowIds = new ArrayList<>();
+              for (Object ignored : (List<?>) invocation.getArguments()[0]) {
+                rowIds.add(rowId.incrementAndGet());
+              }
+              return rowIds;
+            });
+    queue =
+        new AfterSaveQueue(
+            () -> taskDao,
+            () -> afterSaveHandler,
+            () -> syncAdapters,
+            pendingSaveDao,
+            workManager,
+            localBroadcastManager,
+            mock(Tracker.class));
+  }
+
+  @Test
+  public void persistBeforeWindow() {
+    queue.add(newTask(1), null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).insert(anyListOf(PendingSave.class));
+    verifyZeroInteractions(taskDao, afterSaveHandler, localBroadcastManager);
+  }
+
+  @Test
+  public void persistOffCallersThread() {
+    Thread caller = Thread.currentThread();
+    AtomicReference<Thread> writer = new AtomicReference<>();
+    when(pendingSaveDao.insert(anyListOf(PendingSave.class)))
+        .thenAnswer(
+            invocation -> {
+              writer.set(Thread.currentThread());
+              return singletonList(1L);
+            });
+
+    queue.add(newTask(1), null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).insert(anyListOf(PendingSave.class));
+    assertNotSame(caller, writer.get());
+  }
+
+  @Test
+  public void processAfterWindow() {
+    Task task = newTask(1);
+    when(taskDao.fetch(singletonList(1L))).thenReturn(singletonList(task));
+
+    queue.add(task, null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).delete(1, 1);
+    verify(afterSaveHandler).afterSave(task, 0, 0);
+  }
+
+  @Test
+  public void dedupeSavesWithinWindow() {
+    Task task = newTask(1);
+    when(taskDao.fetch(singletonList(1L))).thenReturn(singletonList(task));
+
+    queue.add(task, null);
+    queue.add(task, null);
+    queue.add(task, null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).delete(1, 3);
+    verify(taskDao).fetch(singletonList(1L));
+    verify(afterSaveHandler).afterSave(task, 0, 0);
+  }
+
+  @Test
+  public void oneRefreshAndSyncPerBatch() {
+    Task first = newTask(1);
+    Task second = newTask(2);
+    Task third = newTask(3);
+    when(taskDao.fetch(asList(1L, 2L, 3L))).thenReturn(asList(first, second, third));
+
+    queue.add(first, null);
+    queue.add(second, null);
+    queue.add(third, null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).delete(1, 3);
+    verify(workManager, times(1)).syncNow();
+    ArgumentCaptor<TaskChange> change = ArgumentCaptor.forClass(TaskChange.class);
+    verify(localBroadcastManager, times(1)).broadcastRefresh(change.capture());
+    assertEquals(3, change.getValue().getTaskIds().size());
+  }
+
+  @Test
+  public void fallBackToWorkManager() {
+    when(taskDao.fetch(singletonList(1L))).thenThrow(new RuntimeException());
+
+    queue.add(newTask(1), null);
+
+    InOrder order = inOrder(workManager, pendingSaveDao);
+    order.verify(workManager, timeout(TIMEOUT)).afterSave(anyListOf(Entry.class));
+    order.verify(pendingSaveDao).delete(1, 1);
+    verify(workManager, never()).syncNow();
+  }
+
+  @Test
+  public void retryOnlyFailedEntries() {
+    Task first = newTask(1);
+    Task second = newTask(2);
+    when(taskDao.fetch(asList(1L, 2L))).thenReturn(asList(first, second));
+    doThrow(new RuntimeException()).when(afterSaveHandler).afterSave(first, 0, 0);
+
+    queue.add(first, null);
+    queue.add(second, null);
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).delete(1, 2);
+    verify(afterSaveHandler).afterSave(second, 0, 0);
+    ArgumentCaptor<List> retried = ArgumentCaptor.forClass(List.class);
+    verify(workManager).afterSave(retried.capture());
+    assertEquals(singletonList(1L), Entry.ids(retried.getValue()));
+    ArgumentCaptor<TaskChange> change = ArgumentCaptor.forClass(TaskChange.class);
+    verify(localBroadcastManager).broadcastRefresh(change.capture());
+    assertEquals(singletonList(2L), new ArrayList<>(change.getValue().getTaskIds()));
+  }
+
+  @Test
+  public void recoverPendingSaves() {
+    Task task = newTask(1);
+    when(taskDao.fetch(singletonList(1L))).thenReturn(singletonList(task));
+    when(pendingSaveDao.getBefore(anyLong()))
+        .thenReturn(
+            asList(
+                newPendingSave(5, new Entry(1, 0, 0, false, false, false)),
+                newPendingSave(6, new Entry(1, 1234, 0, true, false, false))));
+
+    queue.recover();
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).delete(5, 6);
+    verify(pendingSaveDao).getBefore(Long.MAX_VALUE);
+    verify(afterSaveHandler).afterSave(task, 0, 0);
+    verify(workManager).syncNow();
+  }
+
+  @Test
+  public void dontRecoverSavesFromThisProcess() {
+    when(pendingSaveDao.getBefore(anyLong())).thenReturn(emptyList());
+
+    queue.add(newTask(1), null);
+    queue.recover();
+
+    verify(pendingSaveDao, timeout(TIMEOUT)).getBefore(1);
+  }
+
+  @Test
+  public void mergeKeepsFirstOriginal() {
+    Entry merged =
+        new Entry(1, 0, 0, false, false, false)
+            .merge(new Entry(1, 1234, 5678, false, false, false));
+
+    assertEquals(0, merged.originalCompletion);
+    assertEquals(0, merged.originalDeletion);
+  }
+
+  @Test
+  public void mergePushesIfAnySaveNeedsIt() {
+    Entry merged =
+        new Entry(1, 0, 0, true, false, false).merge(new Entry(1, 0, 0, false, true, false));
+
+    assertTrue(merged.pushGtasks);
+    assertTrue(merged.pushCaldav);
+  }
+
+  @Test
+  public void mergeRefreshesIfAnySaveNeedsIt() {
+    assertFalse(
+        new Entry(1, 0, 0, false, false, true)
+            .merge(new Entry(1, 0, 0, false, false, false))
+            .suppressRefresh);
+    assertTrue(
+        new Entry(1, 0, 0, false, false, true)
+            .merge(new Entry(1, 0, 0, false, false, true))
+            .suppressRefresh);
+  }
+
+  private static Task newTask(long id) {
+    Task task = new Task();
+    task.setId(id);
+    return task;
+  }
+
+  private static PendingSave newPendingSave(long id, Entry entry) {
+    PendingSave pendingSave = new PendingSave(entry);
+    pendingSave.setId(id);
+    return pendingSave;
+  }
+}
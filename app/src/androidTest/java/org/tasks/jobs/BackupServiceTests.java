@@ -13,9 +13,14 @@ import static junit.framework.Assert.assertTrue;
 import android.net.Uri;
 import androidx.test.runner.AndroidJUnit4;
 import com.todoroo.astrid.dao.TaskDao;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.todoroo.astrid.data.Task;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import javax.inject.Inject;
 import org.junit.After;
 import org.junit.Test;
@@ -23,6 +28,8 @@ import org.junit.runner.RunWith;
 import org.tasks.R;
 import org.tasks.backup.TasksJsonExporter;
 import org.tasks.backup.TasksJsonExporter.ExportType;
+import org.tasks.data.Alarm;
+import org.tasks.data.AlarmDao;
 import org.tasks.injection.InjectingTestCase;
 import org.tasks.injection.TestComponent;
 import org.tasks.preferences.Preferences;
@@ -32,6 +39,7 @@ public class BackupServiceTests extends InjectingTestCase {
 
   @Inject TasksJsonExporter jsonExporter;
   @Inject TaskDao taskDao;
+  @Inject AlarmDao alarmDao;
   @Inject Preferences preferences;
   private File temporaryDirectory = null;
 
@@ -88,4 +96,29 @@ public class BackupServiceTests extends InjectingTestCase {
     assertEquals(1, files.length);
     assertTrue(files[0].getName().matches(BackupWork.BACKUP_FILE_NAME_REGEX));
   }
+
+  @Test
+  public void testBackupContainsChildRows() throws IOException {
+    Task task = new Task();
+    task.setTitle("airplane");
+    taskDao.createNew(task);
+    alarmDao.insert(new Alarm(task.getId(), 1234));
+
+    jsonExporter.exportTasks(getTargetContext(), ExportType.EXPORT_TYPE_SERVICE, null);
+
+    File[] files = temporaryDirectory.listFiles();
+    assertEquals(1, files.length);
+    JsonObject backup;
+    try (Reader reader = new FileReader(files[0])) {
+      backup = new Gson().fromJson(reader, JsonObject.class);
+    }
+    JsonArray tasks = backup.getAsJsonObject("data").getAsJsonArray("tasks");
+    assertEquals(2, tasks.size());
+    JsonObject first = tasks.get(0).getAsJsonObject();
+    JsonObject second = tasks.get(1).getAsJsonObject();
+    assertEquals("helicopter", first.getAsJsonObject("task").get("title").getAsString());
+    assertEquals(0, first.getAsJsonArray("alarms").size());
+    assertEquals("airplane", second.getAsJsonObject("task").get("title").getAsString());
+    assertEquals(1, second.getAsJsonArray("alarms").size());
+  }
 }
@@ -4,6 +4,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static com.todoroo.astrid.reminders.ReminderService.TYPE_DUE;
 import static com.todoroo.astrid.reminders.ReminderService.TYPE_SNOOZE;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static junit.framework.Assert.assertEquals;
 import static org.mockito.AdditionalAnswers.returnsFirstArg;
@@ -16,6 +17,7 @@ import static org.mockito.Mockito.when;
 import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
 import androidx.test.runner.AndroidJUnit4;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
@@ -368,4 +370,93 @@ public class NotificationQueueTest {
               }
             });
   }
+
+  @Test
+  public void keepEntriesWithCollidingHashCodes() {
+    ReminderEntry first = new ReminderEntry(1, 1, 961);
+    ReminderEntry second = new ReminderEntry(2, 1, 0);
+    assertEquals(first.hashCode(), second.hashCode());
+
+    queue.add(first);
+    queue.add(second);
+
+    verify(workManager).scheduleNotification(1);
+    assertEquals(asList(first, second), queue.getJobs());
+  }
+
+  @Test
+  public void replaceAllReminders() {
+    queue.add(new ReminderEntry(1, 1, TYPE_DUE));
+    queue.add(new AlarmEntry(1, 1, 2L));
+
+    queue.replaceReminders(singletonList(new ReminderEntry(2, 3, TYPE_DUE)));
+
+    InOrder order = inOrder(workManager);
+    order.verify(workManager).scheduleNotification(1);
+    order.verify(workManager).scheduleNotification(2);
+    assertEquals(
+        asList(new AlarmEntry(1, 1, 2L), new ReminderEntry(2, 3, TYPE_DUE)), queue.getJobs());
+  }
+
+  @Test
+  public void replaceRemindersForTasks() {
+    queue.add(new ReminderEntry(1, 1, TYPE_DUE));
+    queue.add(new ReminderEntry(2, 2, TYPE_DUE));
+
+    queue.replaceReminders(asList(1L, 3L), singletonList(new ReminderEntry(3, 3, TYPE_DUE)));
+
+    InOrder order = inOrder(workManager);
+    order.verify(workManager).scheduleNotification(1);
+    order.verify(workManager).scheduleNotification(2);
+    assertEquals(
+        asList(new ReminderEntry(2, 2, TYPE_DUE), new ReminderEntry(3, 3, TYPE_DUE)),
+        queue.getJobs());
+  }
+
+  @Test
+  public void cancelManyReminders() {
+    int count = 100_000;
+    List<ReminderEntry> entries = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      entries.add(new ReminderEntry(i, i, TYPE_DUE));
+    }
+    queue.add(entries);
+    assertEquals(count, queue.size());
+
+    for (int i = count; i > 0; i--) {
+      queue.cancelReminder(i);
+    }
+
+    InOrder order = inOrder(workManager);
+    order.verify(workManager).scheduleNotification(1);
+    order.verify(workManager).cancelNotifications();
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void dropEntriesOutsideOfWindow() {
+    queue.setWindow(10, singletonList(new ReminderEntry(1, 5, TYPE_DUE)));
+    queue.add(new ReminderEntry(2, 10, TYPE_DUE));
+
+    verify(workManager).scheduleNotification(5);
+    assertEquals(singletonList(new ReminderEntry(1, 5, TYPE_DUE)), queue.getJobs());
+  }
+
+  @Test
+  public void wakeUpAtEndOfEmptyWindow() {
+    queue.setWindow(10, emptyList());
+
+    verify(workManager).scheduleNotification(10);
+    assertEquals(10, queue.nextScheduledTime());
+  }
+
+  @Test
+  public void wakeUpAtEndOfWindowAfterLastEntry() {
+    queue.setWindow(10, singletonList(new ReminderEntry(1, 5, TYPE_DUE)));
+    queue.cancelReminder(1);
+
+    InOrder order = inOrder(workManager);
+    order.verify(workManager).scheduleNotification(5);
+    order.verify(workManager).scheduleNotification(10);
+  }
 }
@@ -0,0 +1,92 @@
+package org.tasks.sync;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+import androidx.test.runner.AndroidJUnit4;
+import java.io.IOException;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class HttpClientFactoryTest {
+
+  private final MockWebServer server = new MockWebServer();
+  private final HttpClientFactory httpClientFactory = new HttpClientFactory();
+
+  @Before
+  public void before() throws IOException {
+    server.start();
+  }
+
+  @After
+  public void after() throws IOException {
+    server.shutdown();
+  }
+
+  @Test
+  public void derivedClientsShareConnections() throws IOException {
+    server.enqueue(new MockResponse().setBody("one"));
+    server.enqueue(new MockResponse().setBody("two"));
+    OkHttpClient first = httpClientFactory.newBuilder().build();
+    OkHttpClient second = httpClientFactory.newBuilder().build();
+
+    execute(first, propfind());
+    execute(second, propfind());
+
+    assertSame(first.connectionPool(), second.connectionPool());
+    HttpMetrics.Host host = httpClientFactory.getMetrics().getHost(server.getHostName());
+    assertEquals(2, host.getCalls());
+    assertEquals(1, host.getConnectionsOpened());
+    assertEquals(1, host.getConnectionsReused());
+  }
+
+  @Test
+  public void requestCompressedResponses() throws Exception {
+    server.enqueue(new MockResponse());
+
+    execute(httpClientFactory.newBuilder().build(), propfind());
+
+    assertEquals("gzip", server.takeRequest().getHeader("Accept-Encoding"));
+  }
+
+  @Test
+  public void countBytesAndLatency() throws IOException {
+    server.enqueue(new MockResponse().setBody("response"));
+
+    execute(httpClientFactory.newBuilder().build(), propfind());
+
+    HttpMetrics.Host host = httpClientFactory.getMetrics().getHost(server.getHostName());
+    assertEquals(1, host.getCalls());
+    assertEquals(0, host.getFailures());
+    long total = 0;
+    for (int i = 0; i <= HttpMetrics.LATENCY_BUCKETS.length; i++) {
+      total += host.getLatency(i);
+    }
+    assertEquals(1, total);
+    assertEquals(true, host.getBytesOut() > "<propfind/>".length());
+    assertEquals(true, host.getBytesIn() > "response".length());
+  }
+
+  private Request propfind() {
+    return new Request.Builder()
+        .url(server.url("/calendars/"))
+        .method("PROPFIND", RequestBody.create(MediaType.parse("text/xml"), "<propfind/>"))
+        .build();
+  }
+
+  private static void execute(OkHttpClient client, Request request) throws IOException {
+    try (Response response = client.newCall(request).execute()) {
+      response.body().string();
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package org.tasks.sync;
+
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import androidx.test.runner.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.tasks.sync.SyncScheduler.Job;
+
+@RunWith(AndroidJUnit4.class)
+public class SyncSchedulerTest {
+
+  private final SyncScheduler scheduler = new SyncScheduler();
+
+  @Test
+  public void busyHostDoesntBlockOtherHosts() throws InterruptedException {
+    CountDownLatch otherHostRan = new CountDownLatch(1);
+    AtomicInteger timedOut = new AtomicInteger();
+    Runnable waitForOtherHost =
+        () -> {
+          try {
+            if (!otherHostRan.await(5, TimeUnit.SECONDS)) {
+              timedOut.incrementAndGet();
+            }
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        };
+    List<Job> jobs = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      jobs.add(new Job("busy" + i, "busy.example.com", waitForOtherHost));
+    }
+    jobs.add(new Job("other", "other.example.com", otherHostRan::countDown));
+
+    scheduler.runAll("test", jobs);
+
+    assertEquals(0, timedOut.get());
+  }
+
+  @Test
+  public void limitJobsPerHost() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Runnable job =
+        () -> {
+          int current = running.incrementAndGet();
+          int max;
+          do {
+            max = maxRunning.get();
+          } while (current > max && !maxRunning.compareAndSet(max, current));
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          running.decrementAndGet();
+        };
+
+    scheduler.runAll(
+        "test",
+        asList(
+            new Job("a", "example.com", job),
+            new Job("b", "example.com", job),
+            new Job("c", "example.com", job),
+            new Job("d", "example.com", job),
+            new Job("e", "example.com", job)));
+
+    assertTrue(maxRunning.get() <= 2);
+  }
+
+  @Test
+  public void failedJobReleasesHost() throws InterruptedException {
+    AtomicInteger ran = new AtomicInteger();
+    Runnable fail =
+        () -> {
+          throw new RuntimeException();
+        };
+
+    scheduler.runAll(
+        "test",
+        asList(
+            new Job("a", "example.com", fail),
+            new Job("b", "example.com", fail),
+            new Job("c", "example.com", ran::incrementAndGet)));
+
+    assertEquals(1, ran.get());
+  }
+
+  @Test
+  public void writesRunOneAtATimeOnOneThread() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Set<Thread> writers = Collections.synchronizedSet(new HashSet<>());
+    Runnable write =
+        () -> {
+          int current = running.incrementAndGet();
+          int max;
+          do {
+            max = maxRunning.get();
+          } while (current > max && !maxRunning.compareAndSet(max, current));
+          writers.add(Thread.currentThread());
+          try {
+            Thread.sleep(20);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          running.decrementAndGet();
+        };
+    Runnable job =
+        () -> {
+          try {
+            scheduler.write(write);
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+        };
+
+    scheduler.runAll(
+        "test",
+        asList(
+            new Job("a", "a.example.com", job),
+            new Job("b", "b.example.com", job),
+            new Job("c", "c.example.com", job),
+            new Job("d", "d.example.com", job)));
+
+    assertEquals(1, maxRunning.get());
+    assertEquals(1, writers.size());
+  }
+
+  @Test
+  public void nestedWriteRunsInline() throws InterruptedException {
+    assertTrue(scheduler.write(() -> scheduler.write(() -> true)));
+  }
+
+  @Test
+  public void writeRethrowsFailure() throws InterruptedException {
+    try {
+      scheduler.write(
+          () -> {
+            throw new IllegalStateException();
+          });
+      fail();
+    } catch (IllegalStateException expected) {
+    }
+  }
+}
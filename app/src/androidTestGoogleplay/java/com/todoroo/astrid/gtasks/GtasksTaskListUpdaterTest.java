@@ -88,6 +88,28 @@ public class GtasksTaskListUpdaterTest extends InjectingTestCase {
     thenExpectMetadataIndentAndOrder(tasks[4], 4, 0);
   }
 
+  @Test
+  public void testCorrectOrderAndIndentFromRemoteOrder() {
+    Task a = createTask("A", 0, 0);
+    Task e = createTask("E", 1, 0);
+    Task c = createTask("C", 2, 0);
+    Task b = createTask("B", 3, 0);
+    Task d = createTask("D", 4, 0);
+    setRemoteOrder(a, null, 0);
+    setRemoteOrder(b, a, 0);
+    setRemoteOrder(c, a, 1);
+    setRemoteOrder(d, c, 0);
+    setRemoteOrder(e, null, 1);
+
+    gtasksTaskListUpdater.correctOrderAndIndentForList("1");
+
+    thenExpectMetadataIndentAndOrder(a, 0, 0);
+    thenExpectMetadataIndentAndOrder(b, 1, 1);
+    thenExpectMetadataIndentAndOrder(c, 2, 1);
+    thenExpectMetadataIndentAndOrder(d, 3, 2);
+    thenExpectMetadataIndentAndOrder(e, 4, 0);
+  }
+
   @Ignore
   @Test
   public void testNewTaskOrder() {
@@ -188,6 +210,13 @@ public class GtasksTaskListUpdaterTest extends InjectingTestCase {
     };
   }
 
+  private void setRemoteOrder(Task task, Task parent, long remoteOrder) {
+    GoogleTask metadata = googleTaskDao.getByTaskId(task.getId());
+    metadata.setParent(parent == null ? Task.NO_ID : parent.getId());
+    metadata.setRemoteOrder(remoteOrder);
+    googleTaskDao.update(metadata);
+  }
+
   private Task createTask(String title, long order, int indent) {
     Task task = new Task();
     task.setTitle(title);
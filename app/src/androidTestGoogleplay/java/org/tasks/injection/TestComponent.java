@@ -2,6 +2,7 @@ package org.tasks.injection;
 
 import com.todoroo.astrid.alarms.AlarmJobServiceTest;
 import com.todoroo.astrid.dao.TaskDaoTests;
+import com.todoroo.astrid.data.TaskRowMapperTest;
 import com.todoroo.astrid.gtasks.GtasksIndentActionTest;
 import com.todoroo.astrid.gtasks.GtasksListServiceTest;
 import com.todoroo.astrid.gtasks.GtasksMetadataServiceTest;
@@ -16,7 +17,13 @@ import com.todoroo.astrid.subtasks.SubtasksHelperTest;
 import com.todoroo.astrid.subtasks.SubtasksTestCase;
 import com.todoroo.astrid.sync.NewSyncTestCase;
 import dagger.Component;
+import org.tasks.data.CaldavDaoTests;
 import org.tasks.data.DeletionDaoTests;
+import org.tasks.data.KeysetDataSourceTest;
+import org.tasks.data.MetadataCacheTest;
+import org.tasks.db.QueryPlanTest;
+import org.tasks.db.TaskSearchTest;
+import org.tasks.filters.FilterCounterTest;
 import org.tasks.jobs.BackupServiceTests;
 
 @ApplicationScope
@@ -56,4 +63,18 @@ public interface TestComponent {
   void inject(GtasksMetadataServiceTest gtasksMetadataServiceTest);
 
   void inject(DeletionDaoTests deletionDaoTests);
+
+  void inject(KeysetDataSourceTest keysetDataSourceTest);
+
+  void inject(QueryPlanTest queryPlanTest);
+
+  void inject(FilterCounterTest filterCounterTest);
+
+  void inject(TaskSearchTest taskSearchTest);
+
+  void inject(TaskRowMapperTest taskRowMapperTest);
+
+  void inject(MetadataCacheTest metadataCacheTest);
+
+  void inject(CaldavDaoTests caldavDaoTests);
 }
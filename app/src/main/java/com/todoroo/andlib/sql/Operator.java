@@ -16,6 +16,7 @@ public final class Operator {
   public static final Operator exists = new Operator("EXISTS");
   public static final Operator like = new Operator("LIKE");
   public static final Operator in = new Operator("IN");
+  public static final Operator match = new Operator("MATCH");
   static final Operator neq = new Operator("<>");
   static final Operator isNotNull = new Operator("IS NOT NULL");
   static final Operator gt = new Operator(">");
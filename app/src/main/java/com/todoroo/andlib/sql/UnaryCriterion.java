@@ -71,6 +71,15 @@ public class UnaryCriterion extends Criterion {
     };
   }
 
+  public static Criterion match(Field field, String value) {
+    return new UnaryCriterion(field, Operator.match, value) {
+      @Override
+      protected void populateOperator(StringBuilder sb) {
+        sb.append(SPACE).append(operator).append(SPACE);
+      }
+    };
+  }
+
   @Override
   protected void populate(StringBuilder sb) {
     beforePopulateOperator(sb);
@@ -10,7 +10,6 @@ import static android.app.Activity.RESULT_OK;
 import static androidx.core.content.ContextCompat.getColor;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
@@ -21,6 +20,7 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
@@ -36,29 +36,36 @@ import butterknife.OnClick;
 import com.google.android.material.snackbar.Snackbar;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Order;
 import com.todoroo.andlib.sql.QueryTemplate;
 import com.todoroo.astrid.adapter.TaskAdapter;
 import com.todoroo.astrid.api.CustomFilter;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.SearchFilter;
 import com.todoroo.astrid.core.BuiltInFilterExposer;
+import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.gtasks.GtasksSubtaskListFragment;
 import com.todoroo.astrid.service.TaskCreator;
 import com.todoroo.astrid.service.TaskDeleter;
 import com.todoroo.astrid.service.TaskMover;
 import com.todoroo.astrid.timers.TimerPlugin;
+import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import io.reactivex.subjects.PublishSubject;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
+import org.tasks.TaskChange;
+import org.tasks.TaskChangeBus;
 import org.tasks.activities.FilterSettingsActivity;
 import org.tasks.activities.RemoteListSupportPicker;
 import org.tasks.analytics.Tracker;
 import org.tasks.analytics.Tracking;
+import org.tasks.db.TaskSearch;
 import org.tasks.dialogs.DialogBuilder;
 import org.tasks.dialogs.SortDialog;
 import org.tasks.injection.ForActivity;
@@ -74,6 +81,7 @@ import org.tasks.ui.CheckBoxes;
 import org.tasks.ui.MenuColorizer;
 import org.tasks.ui.ProgressDialogAsyncTask;
 import org.tasks.ui.TaskListViewModel;
+import timber.log.Timber;
 
 /**
  * Primary activity for the Bente application. Shows a list of upcoming tasks and a user's coaches.
@@ -94,7 +102,6 @@ public class TaskListFragment extends InjectingFragment
   // --- instance variables
   private static final int REQUEST_EDIT_FILTER = 11544;
   private static final int SEARCH_DEBOUNCE_TIMEOUT = 300;
-  private final RefreshReceiver refreshReceiver = new RefreshReceiver();
   @Inject protected Tracker tracker;
   protected Filter filter;
   @Inject SyncAdapters syncAdapters;
@@ -107,6 +114,7 @@ public class TaskListFragment extends InjectingFragment
   @Inject TimerPlugin timerPlugin;
   @Inject ViewHolderFactory viewHolderFactory;
   @Inject LocalBroadcastManager localBroadcastManager;
+  @Inject TaskChangeBus taskChangeBus;
   @Inject Device device;
   @Inject TaskMover taskMover;
   @Inject ActionModeProvider actionModeProvider;
@@ -132,6 +140,7 @@ public class TaskListFragment extends InjectingFragment
 
   private PublishSubject<String> searchSubject = PublishSubject.create();
   private Disposable searchDisposable;
+  private Disposable taskChanges;
 
   /*
    * ======================================================================
@@ -318,14 +327,14 @@ public class TaskListFragment extends InjectingFragment
 
   private Filter createSearchFilter(String query) {
     String title = getString(R.string.FLA_search_filter, query);
-    return new SearchFilter(
-        title,
+    QueryTemplate template =
         new QueryTemplate()
-            .where(
-                Criterion.and(
-                    Task.DELETION_DATE.eq(0),
-                    Criterion.or(
-                        Task.NOTES.like("%" + query + "%"), Task.TITLE.like("%" + query + "%")))));
+            .where(Criterion.and(Task.DELETION_DATE.eq(0), TaskSearch.matches(query)));
+    Order rank = TaskSearch.rank(query);
+    if (rank != null) {
+      template.orderBy(rank, SortHelper.orderFor(preferences, preferences.getSortMode()));
+    }
+    return new SearchFilter(title, template);
   }
 
   @Override
@@ -436,7 +445,13 @@ public class TaskListFragment extends InjectingFragment
   public void onResume() {
     super.onResume();
 
-    localBroadcastManager.registerRefreshReceiver(refreshReceiver);
+    taskChanges =
+        taskChangeBus
+            .observe()
+            .observeOn(Schedulers.io())
+            .filter(this::isAffectedBy)
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(change -> refresh(), Timber::e);
 
     refresh();
   }
@@ -453,7 +468,7 @@ public class TaskListFragment extends InjectingFragment
   public void onPause() {
     super.onPause();
 
-    localBroadcastManager.unregisterReceiver(refreshReceiver);
+    taskChanges.dispose();
   }
 
   @Override
@@ -464,10 +479,18 @@ public class TaskListFragment extends InjectingFragment
     }
   }
 
-  /**
-   * Called by the RefreshReceiver when the task list receives a refresh broadcast. Subclasses
-   * should override this.
-   */
+  /** Refresh unless the change is known not to alter the list */
+  @WorkerThread
+  private boolean isAffectedBy(TaskChange change) {
+    try {
+      return !taskListViewModel.isUnaffectedBy(change);
+    } catch (Exception e) {
+      Timber.e(e);
+      return true;
+    }
+  }
+
+  /** Called when tasks in the list changed */
   private void refresh() {
     // TODO: compare indents in diff callback, then animate this
     loadTaskListContent(!(this instanceof GtasksSubtaskListFragment));
@@ -618,17 +641,4 @@ public class TaskListFragment extends InjectingFragment
 
     void onNavigationIconClicked();
   }
-
-  /**
-   * Receiver which receives refresh intents
-   *
-   * @author Tim Su <tim@todoroo.com>
-   */
-  protected class RefreshReceiver extends BroadcastReceiver {
-
-    @Override
-    public void onReceive(Context context, Intent intent) {
-      refresh();
-    }
-  }
 }
@@ -12,8 +12,6 @@ import static com.todoroo.andlib.utility.AndroidUtilities.preLollipop;
 import static org.tasks.caldav.CaldavCalendarSettingsActivity.EXTRA_CALDAV_ACCOUNT;
 
 import android.app.Activity;
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
 import android.content.res.ColorStateList;
 import android.graphics.drawable.Drawable;
@@ -70,7 +68,6 @@ public class FilterAdapter extends ArrayAdapter<FilterListItem> {
   private final Theme theme;
   private final Locale locale;
   private final Inventory inventory;
-  private final FilterListUpdateReceiver filterListUpdateReceiver = new FilterListUpdateReceiver();
   private final List<FilterListItem> items = new ArrayList<>();
   private final LayoutInflater inflater;
   private final ThemeCache themeCache;
@@ -101,10 +98,6 @@ public class FilterAdapter extends ArrayAdapter<FilterListItem> {
     navigationDrawer = true;
   }
 
-  public FilterListUpdateReceiver getFilterListUpdateReceiver() {
-    return filterListUpdateReceiver;
-  }
-
   @Override
   public boolean hasStableIds() {
     return true;
@@ -428,12 +421,4 @@ public class FilterAdapter extends ArrayAdapter<FilterListItem> {
     TextView size;
     View view;
   }
-
-  public class FilterListUpdateReceiver extends BroadcastReceiver {
-
-    @Override
-    public void onReceive(Context context, Intent intent) {
-      notifyDataSetChanged();
-    }
-  }
 }
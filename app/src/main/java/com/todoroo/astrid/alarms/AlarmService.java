@@ -6,6 +6,7 @@
 
 package com.todoroo.astrid.alarms;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -53,6 +54,15 @@ public class AlarmService {
     return alarmDao.getAlarms(taskId);
   }
 
+  /** Active alarms that go off before the given time */
+  public List<AlarmEntry> getAlarmEntriesBefore(long end) {
+    List<AlarmEntry> result = new ArrayList<>();
+    for (Alarm alarm : alarmDao.getActiveAlarmsBefore(end)) {
+      result.add(new AlarmEntry(alarm));
+    }
+    return result;
+  }
+
   /**
    * Save the given array of alarms into the database
    *
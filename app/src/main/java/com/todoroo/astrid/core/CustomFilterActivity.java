@@ -46,6 +46,7 @@ import java.util.Map.Entry;
 import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.data.FilterDao;
+import org.tasks.db.TaskSearch;
 import org.tasks.dialogs.DialogBuilder;
 import org.tasks.filters.FilterCriteriaProvider;
 import org.tasks.injection.ActivityComponent;
@@ -107,6 +108,50 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
     return values.toString();
   }
 
+  /** The WHERE clause stored for a saved filter made of {@code instances} */
+  public static String getSql(List<CriterionInstance> instances) {
+    StringBuilder sql = new StringBuilder(" WHERE ");
+    for (CriterionInstance instance : instances) {
+      switch (instance.type) {
+        case CriterionInstance.TYPE_ADD:
+          sql.append("OR ");
+          break;
+        case CriterionInstance.TYPE_SUBTRACT:
+          sql.append("AND NOT ");
+          break;
+        case CriterionInstance.TYPE_INTERSECT:
+          sql.append("AND ");
+          break;
+        case CriterionInstance.TYPE_UNIVERSE:
+      }
+
+      // special code for all tasks universe
+      if (instance.criterion.sql == null) {
+        sql.append(TaskCriteria.activeAndVisible()).append(' ');
+      } else {
+        String subSql =
+            instance.criterion.sql.replace("?", getSqlValue(instance, getValue(instance)));
+        sql.append(Task.ID).append(" IN (").append(subSql).append(") ");
+      }
+    }
+    return sql.toString();
+  }
+
+  private static String getValue(CriterionInstance instance) {
+    String value = instance.getValueFromCriterion();
+    if (value == null && instance.criterion.sql != null && instance.criterion.sql.contains("?")) {
+      value = "";
+    }
+    return value;
+  }
+
+  private static String getSqlValue(CriterionInstance instance, String value) {
+    if (FilterCriteriaProvider.IDENTIFIER_TEXT.equals(instance.criterion.identifier)) {
+      return TaskSearch.toMatchQuery(value);
+    }
+    return UnaryCriterion.sanitize(value);
+  }
+
   private static String escape(String item) {
     if (item == null) {
       return ""; // $NON-NLS-1$
@@ -211,36 +256,14 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
       return;
     }
 
-    StringBuilder sql = new StringBuilder(" WHERE ");
-    Map<String, Object> values = new HashMap<>();
+    List<CriterionInstance> instances = new ArrayList<>();
     for (int i = 0; i < adapter.getCount(); i++) {
-      CriterionInstance instance = adapter.getItem(i);
-      String value = instance.getValueFromCriterion();
-      if (value == null && instance.criterion.sql != null && instance.criterion.sql.contains("?")) {
-        value = "";
-      }
-
-      switch (instance.type) {
-        case CriterionInstance.TYPE_ADD:
-          sql.append("OR ");
-          break;
-        case CriterionInstance.TYPE_SUBTRACT:
-          sql.append("AND NOT ");
-          break;
-        case CriterionInstance.TYPE_INTERSECT:
-          sql.append("AND ");
-          break;
-        case CriterionInstance.TYPE_UNIVERSE:
-      }
-
-      // special code for all tasks universe
-      if (instance.criterion.sql == null) {
-        sql.append(TaskCriteria.activeAndVisible()).append(' ');
-      } else {
-        String subSql = instance.criterion.sql.replace("?", UnaryCriterion.sanitize(value));
-        sql.append(Task.ID).append(" IN (").append(subSql).append(") ");
-      }
-
+      instances.add(adapter.getItem(i));
+    }
+    String sql = getSql(instances);
+    Map<String, Object> values = new HashMap<>();
+    for (CriterionInstance instance : instances) {
+      String value = getValue(instance);
       if (instance.criterion.valuesForNewTasks != null
           && instance.type == CriterionInstance.TYPE_INTERSECT) {
         for (Entry<String, Object> entry : instance.criterion.valuesForNewTasks.entrySet()) {
@@ -250,10 +273,9 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
       }
     }
 
-    org.tasks.data.Filter storeObject = persist(title, sql.toString(), values);
+    org.tasks.data.Filter storeObject = persist(title, sql, values);
     Filter filter =
-        new CustomFilter(
-            title, sql.toString(), values, storeObject.getId(), storeObject.getCriterion());
+        new CustomFilter(title, sql, values, storeObject.getId(), storeObject.getCriterion());
     setResult(RESULT_OK, new Intent().putExtra(MainActivity.OPEN_FILTER, filter));
     finish();
   }
@@ -290,7 +312,7 @@ public class CustomFilterActivity extends ThemedInjectingAppCompatActivity
       if (instance.criterion.sql == null) {
         sql.append(TaskCriteria.activeAndVisible()).append(' ');
       } else {
-        String subSql = instance.criterion.sql.replace("?", UnaryCriterion.sanitize(value));
+        String subSql = instance.criterion.sql.replace("?", getSqlValue(instance, value));
         subSql = PermaSql.replacePlaceholdersForQuery(subSql);
         sql.append(Task.ID).append(" IN (").append(subSql).append(") ");
       }
@@ -29,8 +29,10 @@ public class SortHelper {
   public static final int SORT_IMPORTANCE = 3;
   public static final int SORT_MODIFIED = 4;
   public static final int SORT_WIDGET = 5;
-  private static final String ADJUSTED_DUE_DATE =
-      "(CASE WHEN (dueDate / 1000) % 60 > 0 THEN dueDate ELSE (dueDate + 43140000) END)";
+  /** Sorts after any real due date. Stands in for the old "now * 2", which changed every day */
+  private static final long NO_DUE_DATE = 1L << 50;
+
+  private static final long IMPORTANCE_STRIDE = 1L << 52;
   private static final Order ORDER_TITLE = Order.asc(Functions.upper(Task.TITLE));
 
   /** Takes a SQL query, and if there isn't already an order, creates an order. */
@@ -41,12 +43,7 @@ public class SortHelper {
       originalSql = "";
     }
     if (!originalSql.toUpperCase().contains("ORDER BY")) {
-      Order order = orderForSortType(sort);
-
-      if (preferences.getBoolean(R.string.p_reverse_sort, false)) {
-        order = order.reverse();
-      }
-      originalSql += " ORDER BY " + order;
+      originalSql += " ORDER BY " + orderFor(preferences, sort);
     }
 
     // flags
@@ -69,6 +66,15 @@ public class SortHelper {
     return originalSql;
   }
 
+  /** The order for a sort mode, reversed if the user asked for it */
+  public static Order orderFor(Preferences preferences, int sort) {
+    Order order = orderForSortType(sort);
+    if (preferences.getBoolean(R.string.p_reverse_sort, false)) {
+      order = order.reverse();
+    }
+    return order;
+  }
+
   private static Order orderForSortType(int sortType) {
     Order order;
     switch (sortType) {
@@ -76,33 +82,17 @@ public class SortHelper {
         order = ORDER_TITLE;
         break;
       case SORT_DUE:
-        order =
-            Order.asc(
-                "(CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000)*2 ELSE "
-                    + ADJUSTED_DUE_DATE
-                    + " END)+importance");
+        order = Order.asc(Task.DUE_SORT);
         break;
       case SORT_IMPORTANCE:
-        order =
-            Order.asc(
-                "importance*(strftime('%s','now')*1000)+(CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000) ELSE dueDate END)");
+        order = Order.asc(Task.IMPORTANCE_SORT);
         break;
       case SORT_MODIFIED:
         order = Order.desc(Task.MODIFICATION_DATE);
         break;
       case SORT_WIDGET:
       default:
-        order =
-            Order.asc(
-                "(CASE WHEN (dueDate=0) "
-                    + // if no due date
-                    "THEN (strftime('%s','now')*1000)*2 "
-                    + // then now * 2
-                    "ELSE ("
-                    + ADJUSTED_DUE_DATE
-                    + ") END) "
-                    + // else due time
-                    "+ 172800000 * importance"); // add 2 days * importance
+        order = Order.asc(Task.AUTO_SORT);
     }
     if (sortType != SORT_ALPHA) {
       order.addSecondaryExpression(ORDER_TITLE);
@@ -110,4 +100,24 @@ public class SortHelper {
 
     return order;
   }
+
+  /**
+   * Compute the persisted sort keys used by {@link #orderForSortType(int)}. Must be kept in sync
+   * with the SQL in {@link org.tasks.db.Migrations}.
+   */
+  public static void setSortKeys(Task task) {
+    long dueDate = task.dueDate == null ? 0 : task.dueDate;
+    long importance = task.priority == null ? 0 : task.priority;
+    long adjustedDueDate;
+    if (dueDate == 0) {
+      adjustedDueDate = NO_DUE_DATE;
+    } else if ((dueDate / 1000) % 60 > 0) {
+      adjustedDueDate = dueDate;
+    } else {
+      adjustedDueDate = dueDate + 43140000; // no due time, sort at end of day
+    }
+    task.autoSort = adjustedDueDate + 172800000 * importance; // add 2 days * importance
+    task.dueSort = adjustedDueDate + importance;
+    task.importanceSort = importance * IMPORTANCE_STRIDE + (dueDate == 0 ? NO_DUE_DATE : dueDate);
+  }
 }
@@ -36,8 +36,11 @@ import org.tasks.data.TaskAttachment;
 import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.TaskListMetadata;
 import org.tasks.data.TaskListMetadataDao;
+import org.tasks.data.TaskListPosition;
 import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
+import org.tasks.jobs.PendingSave;
+import org.tasks.jobs.PendingSaveDao;
 import org.tasks.notifications.Notification;
 import org.tasks.notifications.NotificationDao;
 import timber.log.Timber;
@@ -59,9 +62,11 @@ import timber.log.Timber;
       CaldavCalendar.class,
       CaldavTask.class,
       CaldavAccount.class,
-      GoogleTaskAccount.class
+      GoogleTaskAccount.class,
+      TaskListPosition.class,
+      PendingSave.class
     },
-    version = 60)
+    version = 70)
 public abstract class Database extends RoomDatabase {
 
   public static final String NAME = "database";
@@ -97,6 +102,8 @@ public abstract class Database extends RoomDatabase {
 
   public abstract DeletionDao getDeletionDao();
 
+  public abstract PendingSaveDao getPendingSaveDao();
+
   // --- implementation
 
   public String getName() {
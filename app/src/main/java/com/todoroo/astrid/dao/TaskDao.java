@@ -12,18 +12,22 @@ import android.database.Cursor;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Update;
+import com.google.common.base.Joiner;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Functions;
 import com.todoroo.andlib.sql.Query;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.PermaSql;
+import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskRowMapper;
 import com.todoroo.astrid.helper.UUIDHelper;
 import java.util.ArrayList;
 import java.util.List;
 import org.tasks.BuildConfig;
-import org.tasks.jobs.WorkManager;
+import org.tasks.jobs.AfterSaveQueue;
+import org.tasks.jobs.ReminderEntry;
 import timber.log.Timber;
 
 @Dao
@@ -33,14 +37,14 @@ public abstract class TaskDao {
 
   private final Database database;
 
-  private WorkManager workManager;
+  private AfterSaveQueue afterSaveQueue;
 
   public TaskDao(Database database) {
     this.database = database;
   }
 
-  public void initialize(WorkManager workManager) {
-    this.workManager = workManager;
+  public void initialize(AfterSaveQueue afterSaveQueue) {
+    this.afterSaveQueue = afterSaveQueue;
   }
 
   public List<Task> needsRefresh() {
@@ -70,9 +74,6 @@ public abstract class TaskDao {
   @androidx.room.Query("SELECT * FROM tasks WHERE completed = 0 AND deleted = 0")
   abstract List<Task> getActiveTasks();
 
-  @androidx.room.Query("SELECT * FROM tasks WHERE hideUntil < (strftime('%s','now')*1000)")
-  abstract List<Task> getVisibleTasks();
-
   @androidx.room.Query(
       "SELECT * FROM tasks WHERE remoteId IN (:remoteIds) "
           + "AND recurrence NOT NULL AND LENGTH(recurrence) > 0")
@@ -90,7 +91,7 @@ public abstract class TaskDao {
 
   @androidx.room.Query(
       "SELECT tasks.* FROM tasks "
-          + "LEFT JOIN google_tasks ON tasks._id = google_tasks.task "
+          + "INNER JOIN google_tasks ON tasks._id = google_tasks.task "
           + "WHERE list_id IN (SELECT remote_id FROM google_task_lists WHERE account = :account)"
           + "AND (tasks.modified > google_tasks.last_sync "
           + "OR google_tasks.remote_id = '')")
@@ -98,7 +99,7 @@ public abstract class TaskDao {
 
   @androidx.room.Query(
       "SELECT tasks.* FROM tasks "
-          + "LEFT JOIN caldav_tasks ON tasks._id = caldav_tasks.task "
+          + "INNER JOIN caldav_tasks ON tasks._id = caldav_tasks.task "
           + "WHERE caldav_tasks.calendar = :calendar "
           + "AND tasks.modified > caldav_tasks.last_sync")
   public abstract List<Task> getCaldavTasksToPush(String calendar);
@@ -108,11 +109,40 @@ public abstract class TaskDao {
           + "WHERE completed = 0 AND deleted = 0 AND (notificationFlags > 0 OR notifications > 0)")
   public abstract List<Task> getTasksWithReminders();
 
+  @androidx.room.Query(
+      "SELECT * FROM tasks WHERE nextReminder < 0 AND completed = 0 AND deleted = 0")
+  public abstract List<Task> getTasksWithUnknownReminder();
+
+  @androidx.room.Query(
+      "SELECT _id AS taskId, nextReminder AS time, nextReminderType AS type FROM tasks "
+          + "WHERE nextReminder > 0 AND nextReminder < :end AND completed = 0 AND deleted = 0")
+  public abstract List<ReminderEntry> getRemindersBefore(long end);
+
+  @androidx.room.Query(
+      "UPDATE tasks SET nextReminder = :time, nextReminderType = :type WHERE _id = :taskId")
+  public abstract void setNextReminder(long taskId, long time, int type);
+
+  /** Reminder times are computed again the next time notifications are loaded */
+  @androidx.room.Query(
+      "UPDATE tasks SET nextReminder = -1 WHERE completed = 0 AND deleted = 0 "
+          + "AND (notificationFlags > 0 OR notifications > 0 OR snoozeTime > 0)")
+  public abstract void invalidateNextReminders();
+
   // --- SQL clause generators
 
   @androidx.room.Query("SELECT * FROM tasks")
   public abstract List<Task> getAll();
 
+  @androidx.room.Query("SELECT COUNT(1) FROM tasks")
+  public abstract int countAll();
+
+  @androidx.room.Query("SELECT remoteId FROM tasks")
+  public abstract List<String> getUuids();
+
+  /** Tasks ordered by id, starting after the given id */
+  @androidx.room.Query("SELECT * FROM tasks WHERE _id > :after ORDER BY _id LIMIT :limit")
+  public abstract List<Task> getPage(long after, int limit);
+
   @androidx.room.Query(
       "SELECT calendarUri FROM tasks " + "WHERE calendarUri NOT NULL AND calendarUri != ''")
   public abstract List<String> getAllCalendarEvents();
@@ -144,10 +174,19 @@ public abstract class TaskDao {
   // TODO: get rid of this super-hack
   public void save(Task task, Task original) {
     if (saveExisting(task, original)) {
-      workManager.afterSave(task, original);
+      afterSaveQueue.add(task, original);
     }
   }
 
+  /**
+   * Saves the task without queueing after-save work. Used to apply remote changes in bulk, the
+   * caller passes the saved tasks to {@link org.tasks.jobs.AfterSaveHandler} once the batch has
+   * been written. Returns true on success.
+   */
+  public boolean saveWithoutHooks(Task task, Task original) {
+    return saveExisting(task, original);
+  }
+
   @Insert
   abstract long insert(Task task);
 
@@ -162,14 +201,24 @@ public abstract class TaskDao {
     if (Task.isUuidEmpty(task.remoteId)) {
       task.remoteId = UUIDHelper.newUUID();
     }
+    // imported tasks skip after-save, and a backed up reminder time may be stale
+    task.nextReminder = hasReminders(task) ? -1L : 0L;
+    SortHelper.setSortKeys(task);
     long insert = insert(task);
     task.setId(insert);
   }
 
+  private static boolean hasReminders(Task task) {
+    return !task.isCompleted()
+        && !task.isDeleted()
+        && (task.notificationFlags > 0 || task.notifications > 0 || task.snoozeTime > 0);
+  }
+
   private boolean saveExisting(Task item, Task original) {
     if (!item.insignificantChange(original)) {
       item.setModificationDate(now());
     }
+    SortHelper.setSortKeys(item);
     int updated = update(item);
     if (updated == 1) {
       database.onDatabaseUpdated();
@@ -181,7 +230,7 @@ public abstract class TaskDao {
   @androidx.room.Query(
       "SELECT * FROM tasks "
           + "WHERE completed = 0 AND deleted = 0 AND hideUntil < (strftime('%s','now')*1000) "
-          + "ORDER BY (CASE WHEN (dueDate=0) THEN (strftime('%s','now')*1000)*2 ELSE ((CASE WHEN (dueDate / 1000) % 60 > 0 THEN dueDate ELSE (dueDate + 43140000) END)) END) + 172800000 * importance ASC "
+          + "ORDER BY autoSort ASC "
           + "LIMIT 100")
   public abstract List<Task> getAstrid2TaskProviderTasks();
 
@@ -197,14 +246,34 @@ public abstract class TaskDao {
   }
 
   public int count(Filter filter) {
-    Cursor cursor = getCursor(filter.getSqlQuery());
+    String query =
+        Query.select(Task.ID)
+            .withQueryTemplate(PermaSql.replacePlaceholdersForQuery(filter.getSqlQuery()))
+            .from(Task.TABLE)
+            .toString();
+    Cursor cursor = database.rawQuery("SELECT COUNT(*) FROM (" + query + ")");
     try {
-      return cursor.getCount();
+      return cursor.moveToFirst() ? cursor.getInt(0) : 0;
     } finally {
       cursor.close();
     }
   }
 
+  /** Selects the given expressions from tasks, the template is appended after FROM tasks */
+  public Cursor aggregate(String queryTemplate, List<String> expressions) {
+    String query =
+        "SELECT "
+            + Joiner.on(", ").join(expressions)
+            + " FROM "
+            + Task.TABLE
+            + " "
+            + PermaSql.replacePlaceholdersForQuery(queryTemplate);
+    if (BuildConfig.DEBUG) {
+      Timber.v(query);
+    }
+    return database.rawQuery(query);
+  }
+
   public List<Task> fetchFiltered(Filter filter) {
     return fetchFiltered(filter.getSqlQuery());
   }
@@ -213,8 +282,9 @@ public abstract class TaskDao {
     Cursor cursor = getCursor(queryTemplate);
     List<Task> result = new ArrayList<>();
     try {
+      TaskRowMapper mapper = new TaskRowMapper(cursor);
       for (cursor.moveToFirst(); !cursor.isAfterLast(); cursor.moveToNext()) {
-        result.add(new Task(cursor));
+        result.add(mapper.map(cursor));
       }
       return result;
     } finally {
@@ -41,7 +41,17 @@ import timber.log.Timber;
  *
  * @author Tim Su <tim@todoroo.com>
  */
-@Entity(tableName = "tasks", indices = @Index(name = "t_rid", value = "remoteId", unique = true))
+@Entity(
+    tableName = "tasks",
+    indices = {
+      @Index(name = "t_rid", value = "remoteId", unique = true),
+      @Index(name = "t_active", value = {"deleted", "completed", "hideUntil"}),
+      @Index(name = "t_due_date", value = "dueDate"),
+      @Index(name = "t_auto_sort", value = "autoSort"),
+      @Index(name = "t_due_sort", value = "dueSort"),
+      @Index(name = "t_importance_sort", value = "importanceSort"),
+      @Index(name = "t_next_reminder", value = "nextReminder")
+    })
 public class Task implements Parcelable {
 
   // --- table and uri
@@ -62,6 +72,9 @@ public class Task implements Parcelable {
   public static final LongProperty DELETION_DATE = new LongProperty(TABLE, "deleted");
   public static final StringProperty NOTES = new StringProperty(TABLE, "notes");
   public static final LongProperty TIMER_START = new LongProperty(TABLE, "timerStart");
+  public static final LongProperty AUTO_SORT = new LongProperty(TABLE, "autoSort");
+  public static final LongProperty DUE_SORT = new LongProperty(TABLE, "dueSort");
+  public static final LongProperty IMPORTANCE_SORT = new LongProperty(TABLE, "importanceSort");
   /** constant value for no uuid */
   public static final String NO_UUID = "0"; // $NON-NLS-1$
 
@@ -206,6 +219,27 @@ public class Task implements Parcelable {
   @ColumnInfo(name = "remoteId")
   public String remoteId = NO_UUID;
 
+  /** Sort keys, see {@link com.todoroo.astrid.core.SortHelper#setSortKeys(Task)} */
+  @ColumnInfo(name = "autoSort")
+  public Long autoSort = 0L;
+
+  @ColumnInfo(name = "dueSort")
+  public Long dueSort = 0L;
+
+  @ColumnInfo(name = "importanceSort")
+  public Long importanceSort = 0L;
+
+  /**
+   * Time and type of the next reminder, kept current by {@link
+   * com.todoroo.astrid.reminders.ReminderService}. Zero if there is no upcoming reminder, negative
+   * if it hasn't been computed yet.
+   */
+  @ColumnInfo(name = "nextReminder")
+  public Long nextReminder = 0L;
+
+  @ColumnInfo(name = "nextReminderType")
+  public Integer nextReminderType = 0;
+
   // --- due and hide until date management
   @Ignore private transient int indent;
   @Ignore private transient String tags;
@@ -216,134 +250,70 @@ public class Task implements Parcelable {
 
   public Task() {}
 
+  /** @see TaskRowMapper#map(Cursor) */
   @Ignore
-  public Task(Cursor _cursor) {
-    final int _cursorIndexOfId = _cursor.getColumnIndexOrThrow("_id");
-    final int _cursorIndexOfTitle = _cursor.getColumnIndexOrThrow("title");
-    final int _cursorIndexOfImportance = _cursor.getColumnIndexOrThrow("importance");
-    final int _cursorIndexOfDueDate = _cursor.getColumnIndexOrThrow("dueDate");
-    final int _cursorIndexOfHideUntil = _cursor.getColumnIndexOrThrow("hideUntil");
-    final int _cursorIndexOfCreated = _cursor.getColumnIndexOrThrow("created");
-    final int _cursorIndexOfModified = _cursor.getColumnIndexOrThrow("modified");
-    final int _cursorIndexOfCompleted = _cursor.getColumnIndexOrThrow("completed");
-    final int _cursorIndexOfDeleted = _cursor.getColumnIndexOrThrow("deleted");
-    final int _cursorIndexOfNotes = _cursor.getColumnIndexOrThrow("notes");
-    final int _cursorIndexOfEstimatedSeconds = _cursor.getColumnIndexOrThrow("estimatedSeconds");
-    final int _cursorIndexOfElapsedSeconds = _cursor.getColumnIndexOrThrow("elapsedSeconds");
-    final int _cursorIndexOfTimerStart = _cursor.getColumnIndexOrThrow("timerStart");
-    final int _cursorIndexOfNotificationFlags = _cursor.getColumnIndexOrThrow("notificationFlags");
-    final int _cursorIndexOfNotifications = _cursor.getColumnIndexOrThrow("notifications");
-    final int _cursorIndexOfLastNotified = _cursor.getColumnIndexOrThrow("lastNotified");
-    final int _cursorIndexOfSnoozeTime = _cursor.getColumnIndexOrThrow("snoozeTime");
-    final int _cursorIndexOfRecurrence = _cursor.getColumnIndexOrThrow("recurrence");
-    final int _cursorIndexOfRepeatUntil = _cursor.getColumnIndexOrThrow("repeatUntil");
-    final int _cursorIndexOfCalendarUri = _cursor.getColumnIndexOrThrow("calendarUri");
-    final int _cursorIndexOfRemoteId = _cursor.getColumnIndexOrThrow("remoteId");
-    final int _cursorIndexOfIndent = _cursor.getColumnIndex("indent");
-    final int _cursorIndexOfTags = _cursor.getColumnIndex("tags");
-    final int _cursorIndexOfGoogleTasks = _cursor.getColumnIndex("googletask");
-    final int _cursorIndexOfCaldav = _cursor.getColumnIndex("caldav");
-    final int _cursorIndexOfFileId = _cursor.getColumnIndex("fileId");
-    if (_cursor.isNull(_cursorIndexOfId)) {
-      id = null;
-    } else {
-      id = _cursor.getLong(_cursorIndexOfId);
-    }
-    title = _cursor.getString(_cursorIndexOfTitle);
-    if (_cursor.isNull(_cursorIndexOfImportance)) {
-      priority = null;
-    } else {
-      priority = _cursor.getInt(_cursorIndexOfImportance);
-    }
-    if (_cursor.isNull(_cursorIndexOfDueDate)) {
-      dueDate = null;
-    } else {
-      dueDate = _cursor.getLong(_cursorIndexOfDueDate);
-    }
-    if (_cursor.isNull(_cursorIndexOfHideUntil)) {
-      hideUntil = null;
-    } else {
-      hideUntil = _cursor.getLong(_cursorIndexOfHideUntil);
-    }
-    if (_cursor.isNull(_cursorIndexOfCreated)) {
-      created = null;
-    } else {
-      created = _cursor.getLong(_cursorIndexOfCreated);
-    }
-    if (_cursor.isNull(_cursorIndexOfModified)) {
-      modified = null;
-    } else {
-      modified = _cursor.getLong(_cursorIndexOfModified);
-    }
-    if (_cursor.isNull(_cursorIndexOfCompleted)) {
-      completed = null;
-    } else {
-      completed = _cursor.getLong(_cursorIndexOfCompleted);
-    }
-    if (_cursor.isNull(_cursorIndexOfDeleted)) {
-      deleted = null;
-    } else {
-      deleted = _cursor.getLong(_cursorIndexOfDeleted);
-    }
-    notes = _cursor.getString(_cursorIndexOfNotes);
-    if (_cursor.isNull(_cursorIndexOfEstimatedSeconds)) {
-      estimatedSeconds = null;
-    } else {
-      estimatedSeconds = _cursor.getInt(_cursorIndexOfEstimatedSeconds);
-    }
-    if (_cursor.isNull(_cursorIndexOfElapsedSeconds)) {
-      elapsedSeconds = null;
-    } else {
-      elapsedSeconds = _cursor.getInt(_cursorIndexOfElapsedSeconds);
-    }
-    if (_cursor.isNull(_cursorIndexOfTimerStart)) {
-      timerStart = null;
-    } else {
-      timerStart = _cursor.getLong(_cursorIndexOfTimerStart);
-    }
-    if (_cursor.isNull(_cursorIndexOfNotificationFlags)) {
-      notificationFlags = null;
-    } else {
-      notificationFlags = _cursor.getInt(_cursorIndexOfNotificationFlags);
-    }
-    if (_cursor.isNull(_cursorIndexOfNotifications)) {
-      notifications = null;
-    } else {
-      notifications = _cursor.getLong(_cursorIndexOfNotifications);
-    }
-    if (_cursor.isNull(_cursorIndexOfLastNotified)) {
-      lastNotified = null;
-    } else {
-      lastNotified = _cursor.getLong(_cursorIndexOfLastNotified);
-    }
-    if (_cursor.isNull(_cursorIndexOfSnoozeTime)) {
-      snoozeTime = null;
-    } else {
-      snoozeTime = _cursor.getLong(_cursorIndexOfSnoozeTime);
-    }
-    recurrence = _cursor.getString(_cursorIndexOfRecurrence);
-    if (_cursor.isNull(_cursorIndexOfRepeatUntil)) {
-      repeatUntil = null;
-    } else {
-      repeatUntil = _cursor.getLong(_cursorIndexOfRepeatUntil);
-    }
-    calendarUri = _cursor.getString(_cursorIndexOfCalendarUri);
-    remoteId = _cursor.getString(_cursorIndexOfRemoteId);
-    if (_cursorIndexOfIndent >= 0) {
-      indent = _cursor.getInt(_cursorIndexOfIndent);
-    }
-    if (_cursorIndexOfTags >= 0) {
-      tags = _cursor.getString(_cursorIndexOfTags);
-    }
-    if (_cursorIndexOfGoogleTasks >= 0) {
-      googleTaskList = _cursor.getString(_cursorIndexOfGoogleTasks);
-    }
-    if (_cursorIndexOfCaldav >= 0) {
-      caldav = _cursor.getString(_cursorIndexOfCaldav);
-    }
-    if (_cursorIndexOfFileId >= 0) {
-      hasFiles = _cursor.getInt(_cursorIndexOfFileId) > 0;
-    }
+  Task(TaskRowMapper columns, Cursor cursor) {
+    id = TaskRowMapper.getLong(cursor, columns.id, id);
+    title = TaskRowMapper.getString(cursor, columns.title, title);
+    priority = TaskRowMapper.getInt(cursor, columns.importance, priority);
+    dueDate = TaskRowMapper.getLong(cursor, columns.dueDate, dueDate);
+    hideUntil = TaskRowMapper.getLong(cursor, columns.hideUntil, hideUntil);
+    created = TaskRowMapper.getLong(cursor, columns.created, created);
+    modified = TaskRowMapper.getLong(cursor, columns.modified, modified);
+    completed = TaskRowMapper.getLong(cursor, columns.completed, completed);
+    deleted = TaskRowMapper.getLong(cursor, columns.deleted, deleted);
+    notes = TaskRowMapper.getString(cursor, columns.notes, notes);
+    estimatedSeconds = TaskRowMapper.getInt(cursor, columns.estimatedSeconds, estimatedSeconds);
+    elapsedSeconds = TaskRowMapper.getInt(cursor, columns.elapsedSeconds, elapsedSeconds);
+    timerStart = TaskRowMapper.getLong(cursor, columns.timerStart, timerStart);
+    notificationFlags = TaskRowMapper.getInt(cursor, columns.notificationFlags, notificationFlags);
+    notifications = TaskRowMapper.getLong(cursor, columns.notifications, notifications);
+    lastNotified = TaskRowMapper.getLong(cursor, columns.lastNotified, lastNotified);
+    snoozeTime = TaskRowMapper.getLong(cursor, columns.snoozeTime, snoozeTime);
+    recurrence = TaskRowMapper.getString(cursor, columns.recurrence, recurrence);
+    repeatUntil = TaskRowMapper.getLong(cursor, columns.repeatUntil, repeatUntil);
+    calendarUri = TaskRowMapper.getString(cursor, columns.calendarUri, calendarUri);
+    remoteId = TaskRowMapper.getString(cursor, columns.remoteId, remoteId);
+    if (columns.indent >= 0) {
+      indent = cursor.getInt(columns.indent);
+    }
+    tags = TaskRowMapper.getString(cursor, columns.tags, tags);
+    googleTaskList = TaskRowMapper.getString(cursor, columns.googleTask, googleTaskList);
+    caldav = TaskRowMapper.getString(cursor, columns.caldav, caldav);
+    if (columns.fileId >= 0) {
+      hasFiles = cursor.getInt(columns.fileId) > 0;
+    }
+  }
+
+  /** Copies the stored columns, so that a task loaded once can also serve as the original */
+  @Ignore
+  public Task(Task task) {
+    id = task.id;
+    title = task.title;
+    priority = task.priority;
+    dueDate = task.dueDate;
+    hideUntil = task.hideUntil;
+    created = task.created;
+    modified = task.modified;
+    completed = task.completed;
+    deleted = task.deleted;
+    notes = task.notes;
+    estimatedSeconds = task.estimatedSeconds;
+    elapsedSeconds = task.elapsedSeconds;
+    timerStart = task.timerStart;
+    notificationFlags = task.notificationFlags;
+    notifications = task.notifications;
+    lastNotified = task.lastNotified;
+    snoozeTime = task.snoozeTime;
+    recurrence = task.recurrence;
+    repeatUntil = task.repeatUntil;
+    calendarUri = task.calendarUri;
+    remoteId = task.remoteId;
+    autoSort = task.autoSort;
+    dueSort = task.dueSort;
+    importanceSort = task.importanceSort;
+    nextReminder = task.nextReminder;
+    nextReminderType = task.nextReminderType;
   }
 
   @Ignore
@@ -0,0 +1,107 @@
+package com.todoroo.astrid.data;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.data.Property.StringProperty;
+import com.todoroo.andlib.utility.DateUtilities;
+
+/**
+ * Read-only view of the task columns shown in the widget. Reading a row only touches the {@link
+ * #PROPERTIES} columns and doesn't box any values, so it is much cheaper than a full {@link Task}.
+ */
+public class TaskRow {
+
+  public static final Property<?>[] PROPERTIES =
+      new Property<?>[] {
+        Task.ID,
+        Task.TITLE,
+        Task.IMPORTANCE,
+        Task.DUE_DATE,
+        Task.COMPLETION_DATE,
+        new StringProperty(Task.TABLE, "recurrence")
+      };
+
+  private final long id;
+  private final String title;
+  private final int priority;
+  private final long dueDate;
+  private final long completed;
+  private final boolean recurring;
+
+  private TaskRow(Mapper columns, Cursor cursor) {
+    id = cursor.getLong(columns.id);
+    title = cursor.getString(columns.title);
+    priority = cursor.getInt(columns.importance);
+    dueDate = cursor.getLong(columns.dueDate);
+    completed = cursor.getLong(columns.completed);
+    recurring = !TextUtils.isEmpty(cursor.getString(columns.recurrence));
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public long getDueDate() {
+    return dueDate;
+  }
+
+  public boolean isCompleted() {
+    return completed > 0;
+  }
+
+  public boolean isRecurring() {
+    return recurring;
+  }
+
+  public boolean hasDueDate() {
+    return dueDate > 0;
+  }
+
+  /** @see Task#isOverdue() */
+  public boolean isOverdue() {
+    long compareTo =
+        Task.hasDueTime(dueDate)
+            ? DateUtilities.now()
+            : DateUtilities.getStartOfDay(DateUtilities.now());
+    return dueDate < compareTo && !isCompleted();
+  }
+
+  /** Reads rows from a cursor that selects {@link #PROPERTIES}, looking up column indices once */
+  public static class Mapper {
+
+    private final int id;
+    private final int title;
+    private final int importance;
+    private final int dueDate;
+    private final int completed;
+    private final int recurrence;
+
+    public Mapper(Cursor cursor) {
+      id = cursor.getColumnIndexOrThrow("_id");
+      title = cursor.getColumnIndexOrThrow("title");
+      importance = cursor.getColumnIndexOrThrow("importance");
+      dueDate = cursor.getColumnIndexOrThrow("dueDate");
+      completed = cursor.getColumnIndexOrThrow("completed");
+      recurrence = cursor.getColumnIndexOrThrow("recurrence");
+    }
+
+    /** Reads the row at the cursor's current position */
+    public TaskRow map(Cursor cursor) {
+      return new TaskRow(this, cursor);
+    }
+
+    /** Reads the id of the row at the cursor's current position without building a row */
+    public long getId(Cursor cursor) {
+      return cursor.getLong(id);
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.todoroo.astrid.data;
+
+import android.database.Cursor;
+
+/**
+ * Reads tasks from a cursor. Column indices are looked up once when the mapper is created instead
+ * of once per row, so create one mapper per cursor and reuse it for every row. Columns that aren't
+ * part of the projection keep their default values.
+ */
+public class TaskRowMapper {
+
+  final int id;
+  final int title;
+  final int importance;
+  final int dueDate;
+  final int hideUntil;
+  final int created;
+  final int modified;
+  final int completed;
+  final int deleted;
+  final int notes;
+  final int estimatedSeconds;
+  final int elapsedSeconds;
+  final int timerStart;
+  final int notificationFlags;
+  final int notifications;
+  final int lastNotified;
+  final int snoozeTime;
+  final int recurrence;
+  final int repeatUntil;
+  final int calendarUri;
+  final int remoteId;
+  final int indent;
+  final int tags;
+  final int googleTask;
+  final int caldav;
+  final int fileId;
+
+  public TaskRowMapper(Cursor cursor) {
+    id = cursor.getColumnIndexOrThrow("_id");
+    title = cursor.getColumnIndex("title");
+    importance = cursor.getColumnIndex("importance");
+    dueDate = cursor.getColumnIndex("dueDate");
+    hideUntil = cursor.getColumnIndex("hideUntil");
+    created = cursor.getColumnIndex("created");
+    modified = cursor.getColumnIndex("modified");
+    completed = cursor.getColumnIndex("completed");
+    deleted = cursor.getColumnIndex("deleted");
+    notes = cursor.getColumnIndex("notes");
+    estimatedSeconds = cursor.getColumnIndex("estimatedSeconds");
+    elapsedSeconds = cursor.getColumnIndex("elapsedSeconds");
+    timerStart = cursor.getColumnIndex("timerStart");
+    notificationFlags = cursor.getColumnIndex("notificationFlags");
+    notifications = cursor.getColumnIndex("notifications");
+    lastNotified = cursor.getColumnIndex("lastNotified");
+    snoozeTime = cursor.getColumnIndex("snoozeTime");
+    recurrence = cursor.getColumnIndex("recurrence");
+    repeatUntil = cursor.getColumnIndex("repeatUntil");
+    calendarUri = cursor.getColumnIndex("calendarUri");
+    remoteId = cursor.getColumnIndex("remoteId");
+    indent = cursor.getColumnIndex("indent");
+    tags = cursor.getColumnIndex("tags");
+    googleTask = cursor.getColumnIndex("googletask");
+    caldav = cursor.getColumnIndex("caldav");
+    fileId = cursor.getColumnIndex("fileId");
+  }
+
+  /** Reads the task at the cursor's current position */
+  public Task map(Cursor cursor) {
+    return new Task(this, cursor);
+  }
+
+  static Long getLong(Cursor cursor, int index, Long defaultValue) {
+    if (index < 0) {
+      return defaultValue;
+    }
+    return cursor.isNull(index) ? null : cursor.getLong(index);
+  }
+
+  static Integer getInt(Cursor cursor, int index, Integer defaultValue) {
+    if (index < 0) {
+      return defaultValue;
+    }
+    return cursor.isNull(index) ? null : cursor.getInt(index);
+  }
+
+  static String getString(Cursor cursor, int index, String defaultValue) {
+    return index < 0 ? defaultValue : cursor.getString(index);
+  }
+}
@@ -17,6 +17,7 @@ import javax.inject.Inject;
 import org.tasks.data.GoogleTaskAccount;
 import org.tasks.data.GoogleTaskList;
 import org.tasks.data.GoogleTaskListDao;
+import org.tasks.data.MetadataCache;
 import org.tasks.sync.SyncAdapters;
 
 /**
@@ -29,21 +30,24 @@ public class GtasksFilterExposer {
   private final GtasksListService gtasksListService;
   private final SyncAdapters syncAdapters;
   private final GoogleTaskListDao googleTaskListDao;
+  private final MetadataCache metadataCache;
 
   @Inject
   public GtasksFilterExposer(
       GtasksListService gtasksListService,
       SyncAdapters syncAdapters,
-      GoogleTaskListDao googleTaskListDao) {
+      GoogleTaskListDao googleTaskListDao,
+      MetadataCache metadataCache) {
     this.gtasksListService = gtasksListService;
     this.syncAdapters = syncAdapters;
     this.googleTaskListDao = googleTaskListDao;
+    this.metadataCache = metadataCache;
   }
 
   public List<Pair<GoogleTaskAccount, List<Filter>>> getFilters() {
     List<Pair<GoogleTaskAccount, List<Filter>>> listFilters = newArrayList();
     for (GoogleTaskAccount account : googleTaskListDao.getAccounts()) {
-      List<GoogleTaskList> lists = googleTaskListDao.getLists(account.getAccount());
+      List<GoogleTaskList> lists = metadataCache.getGoogleTaskLists(account.getAccount());
       listFilters.add(new Pair<>(account, transform(lists, GtasksFilter::new)));
     }
     return listFilters;
@@ -51,7 +55,10 @@ public class GtasksFilterExposer {
 
   public Filter getFilter(long id) {
     if (syncAdapters.isGoogleTaskSyncEnabled()) {
-      GoogleTaskList list = gtasksListService.getList(id);
+      GoogleTaskList list = metadataCache.getGoogleTaskList(id);
+      if (list == null) {
+        list = gtasksListService.getList(id);
+      }
       if (list != null) {
         return filterFromList(list);
       }
@@ -6,6 +6,8 @@
 
 package com.todoroo.astrid.gtasks;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.GtasksFilter;
 import com.todoroo.astrid.data.Task;
@@ -13,6 +15,7 @@ import com.todoroo.astrid.gtasks.sync.GtasksSyncService;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -65,24 +68,41 @@ public class GtasksTaskListUpdater {
 
   // --- used during synchronization
 
+  /**
+   * Sets order and indent from the parent and remote order of every task in the list. The list is
+   * read once, and only the rows that changed are written.
+   */
   public void correctOrderAndIndentForList(String listId) {
-    orderAndIndentHelper(listId, new AtomicLong(0L), Task.NO_ID, 0, new HashSet<>());
+    ListMultimap<Long, GoogleTask> children = ArrayListMultimap.create();
+    for (GoogleTask googleTask : googleTaskDao.byRemoteOrder(listId)) {
+      children.put(googleTask.getParent(), googleTask);
+    }
+    List<GoogleTask> changed = new ArrayList<>();
+    orderAndIndentHelper(children, new AtomicLong(0L), Task.NO_ID, 0, new HashSet<>(), changed);
+    if (!changed.isEmpty()) {
+      googleTaskDao.update(changed);
+    }
   }
 
   private void orderAndIndentHelper(
-      final String listId,
+      final ListMultimap<Long, GoogleTask> children,
       final AtomicLong order,
       final long parent,
       final int indentLevel,
-      final Set<Long> alreadyChecked) {
-    for (GoogleTask curr : googleTaskDao.byRemoteOrder(listId, parent)) {
+      final Set<Long> alreadyChecked,
+      final List<GoogleTask> changed) {
+    for (GoogleTask curr : children.get(parent)) {
       if (!alreadyChecked.contains(curr.getTask())) {
-        curr.setIndent(indentLevel);
-        curr.setOrder(order.getAndIncrement());
-        googleTaskDao.update(curr);
+        long newOrder = order.getAndIncrement();
+        if (curr.getIndent() != indentLevel || curr.getOrder() != newOrder) {
+          curr.setIndent(indentLevel);
+          curr.setOrder(newOrder);
+          changed.add(curr);
+        }
         alreadyChecked.add(curr.getTask());
 
-        orderAndIndentHelper(listId, order, curr.getTask(), indentLevel + 1, alreadyChecked);
+        orderAndIndentHelper(
+            children, order, curr.getTask(), indentLevel + 1, alreadyChecked, changed);
       }
     }
   }
@@ -1,10 +1,17 @@
 package com.todoroo.astrid.gtasks.api;
 
 import android.content.Context;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.HttpResponse;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.ExponentialBackOff;
@@ -14,9 +21,15 @@ import com.google.api.services.tasks.TasksScopes;
 import com.google.api.services.tasks.model.Task;
 import com.google.api.services.tasks.model.TaskList;
 import com.google.api.services.tasks.model.TaskLists;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import org.tasks.BuildConfig;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 /**
@@ -27,15 +40,26 @@ import timber.log.Timber;
  */
 public class GtasksInvoker {
 
+  /** Google recommends keeping batches small, large batches are throttled */
+  private static final int MAX_BATCH_SIZE = 50;
+
   private final Tasks service;
+  private final HttpRequestInitializer credential;
 
-  public GtasksInvoker(Context context, String account) {
-    GoogleAccountCredential credential =
+  public GtasksInvoker(Context context, HttpClientFactory httpClientFactory, String account) {
+    this(
+        httpClientFactory.getTransport(),
         GoogleAccountCredential.usingOAuth2(context, Collections.singletonList(TasksScopes.TASKS))
             .setBackOff(new ExponentialBackOff.Builder().build())
-            .setSelectedAccountName(account);
+            .setSelectedAccountName(account),
+        Tasks.DEFAULT_ROOT_URL);
+  }
+
+  GtasksInvoker(HttpTransport transport, HttpRequestInitializer credential, String rootUrl) {
+    this.credential = credential;
     service =
-        new Tasks.Builder(new NetHttpTransport(), new JacksonFactory(), credential)
+        new Tasks.Builder(transport, new JacksonFactory(), credential)
+            .setRootUrl(rootUrl)
             .setApplicationName(String.format("Tasks/%s", BuildConfig.VERSION_NAME))
             .build();
   }
@@ -62,18 +86,6 @@ public class GtasksInvoker {
                 GtasksApiUtilities.unixTimeToGtasksCompletionTime(lastSyncDate).toStringRfc3339()));
   }
 
-  public Task createGtask(String listId, Task task, String parent, String priorSiblingId)
-      throws IOException {
-    Timber.d("createGtask: %s", prettyPrint(task));
-    return execute(
-        service.tasks().insert(listId, task).setParent(parent).setPrevious(priorSiblingId));
-  }
-
-  public void updateGtask(String listId, Task task) throws IOException {
-    Timber.d("updateGtask: %s", prettyPrint(task));
-    execute(service.tasks().update(listId, task.getId(), task));
-  }
-
   public Task moveGtask(String listId, String taskId, String parentId, String previousId)
       throws IOException {
     return execute(
@@ -96,19 +108,23 @@ public class GtasksInvoker {
     execute(service.tasks().clear(listId));
   }
 
-  public void deleteGtask(String listId, String taskId) throws IOException {
-    try {
-      execute(service.tasks().delete(listId, taskId));
-    } catch (HttpNotFoundException ignored) {
-
-    }
+  public Batch newBatch() {
+    return new Batch();
   }
 
-  private synchronized <T> T execute(TasksRequest<T> request) throws IOException {
+  private <T> T execute(TasksRequest<T> request) throws IOException {
     String caller = getCaller();
     Timber.d("%s request: %s", caller, request);
     HttpRequest httpRequest = request.buildHttpRequest();
-    HttpResponse httpResponse = httpRequest.execute();
+    HttpResponse httpResponse;
+    try {
+      httpResponse = httpRequest.execute();
+    } catch (HttpResponseException e) {
+      if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+        throw new HttpNotFoundException(e);
+      }
+      throw e;
+    }
     T response = httpResponse.parseAs(request.getResponseClass());
     Timber.d("%s response: %s", caller, prettyPrint(response));
     return response;
@@ -133,4 +149,103 @@ public class GtasksInvoker {
     }
     return "";
   }
+
+  public interface Callback<T> {
+
+    void onSuccess(T result);
+
+    /** Called with an {@link HttpNotFoundException} if the task or list doesn't exist */
+    void onFailure(IOException e);
+  }
+
+  /**
+   * Task requests that are sent together in HTTP batch requests, one or more per list. Requests
+   * within a batch are executed in no particular order, so a request must not depend on the result
+   * of another request in the same batch. Callbacks are called on the thread that calls {@link
+   * #execute()}.
+   */
+  public class Batch {
+
+    private final ListMultimap<String, BatchItem> items =
+        MultimapBuilder.linkedHashKeys().arrayListValues().build();
+
+    private Batch() {}
+
+    public void insert(
+        String listId, Task task, String parent, String priorSiblingId, Callback<Task> callback) {
+      items.put(
+          listId,
+          batch ->
+              service
+                  .tasks()
+                  .insert(listId, task)
+                  .setParent(parent)
+                  .setPrevious(priorSiblingId)
+                  .queue(batch, new BatchCallback<>(callback)));
+    }
+
+    public void update(String listId, Task task, Callback<Task> callback) {
+      items.put(
+          listId,
+          batch ->
+              service
+                  .tasks()
+                  .update(listId, task.getId(), task)
+                  .queue(batch, new BatchCallback<>(callback)));
+    }
+
+    public void delete(String listId, String taskId, Callback<Void> callback) {
+      items.put(
+          listId,
+          batch ->
+              service.tasks().delete(listId, taskId).queue(batch, new BatchCallback<>(callback)));
+    }
+
+    public boolean isEmpty() {
+      return items.isEmpty();
+    }
+
+    /** Sends the queued requests and clears the batch */
+    public void execute() throws IOException {
+      for (Collection<BatchItem> list : items.asMap().values()) {
+        for (List<BatchItem> chunk : Iterables.partition(list, MAX_BATCH_SIZE)) {
+          BatchRequest batch = service.batch(credential);
+          for (BatchItem item : chunk) {
+            item.queue(batch);
+          }
+          Timber.d("Sending batch of %s requests", batch.size());
+          batch.execute();
+        }
+      }
+      items.clear();
+    }
+  }
+
+  private interface BatchItem {
+
+    void queue(BatchRequest batch) throws IOException;
+  }
+
+  private static class BatchCallback<T> extends JsonBatchCallback<T> {
+
+    private final Callback<T> callback;
+
+    BatchCallback(Callback<T> callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess(T result, HttpHeaders responseHeaders) {
+      callback.onSuccess(result);
+    }
+
+    @Override
+    public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+      if (error.getCode() == HttpStatusCodes.STATUS_CODE_NOT_FOUND) {
+        callback.onFailure(new HttpNotFoundException(error.getMessage()));
+      } else {
+        callback.onFailure(new IOException(error.getCode() + " " + error.getMessage()));
+      }
+    }
+  }
 }
@@ -31,6 +31,7 @@ import org.tasks.gtasks.GtaskSyncAdapterHelper;
 import org.tasks.injection.ApplicationScope;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 @ApplicationScope
@@ -44,6 +45,7 @@ public class GtasksSyncService {
   private final GtaskSyncAdapterHelper gtaskSyncAdapterHelper;
   private final Tracker tracker;
   private final GoogleTaskDao googleTaskDao;
+  private final HttpClientFactory httpClientFactory;
 
   @Inject
   public GtasksSyncService(
@@ -53,13 +55,15 @@ public class GtasksSyncService {
       GtaskSyncAdapterHelper gtaskSyncAdapterHelper,
       Tracker tracker,
       GoogleTaskDao googleTaskDao,
-      GoogleTaskListDao googleTaskListDao) {
+      GoogleTaskListDao googleTaskListDao,
+      HttpClientFactory httpClientFactory) {
     this.context = context;
     this.taskDao = taskDao;
     this.preferences = preferences;
     this.gtaskSyncAdapterHelper = gtaskSyncAdapterHelper;
     this.tracker = tracker;
     this.googleTaskDao = googleTaskDao;
+    this.httpClientFactory = httpClientFactory;
     new OperationPushThread(operationQueue).start();
   }
 
@@ -133,9 +137,15 @@ public class GtasksSyncService {
 
   /** Gets the remote id string of the previous sibling task */
   public String getRemoteSiblingId(String listId, GoogleTask gtasksMetadata) {
+    GoogleTask sibling = getPriorSibling(listId, gtasksMetadata);
+    return sibling == null ? null : sibling.getRemoteId();
+  }
+
+  /** Gets the previous sibling task, or null if it is the first child of its parent */
+  public GoogleTask getPriorSibling(String listId, GoogleTask gtasksMetadata) {
     final AtomicInteger indentToMatch = new AtomicInteger(gtasksMetadata.getIndent());
     final AtomicLong parentToMatch = new AtomicLong(gtasksMetadata.getParent());
-    final AtomicReference<String> sibling = new AtomicReference<>();
+    final AtomicReference<GoogleTask> sibling = new AtomicReference<>();
     GtasksTaskListUpdater.OrderedListIterator iterator =
         (taskId, googleTask) -> {
           Task t = taskDao.fetch(taskId);
@@ -147,7 +157,7 @@ public class GtasksSyncService {
 
           if (currIndent == indentToMatch.get() && currParent == parentToMatch.get()) {
             if (sibling.get() == null) {
-              sibling.set(googleTask.getRemoteId());
+              sibling.set(googleTask);
             }
           }
         };
@@ -173,7 +183,8 @@ public class GtasksSyncService {
 
     @Override
     public void op() throws IOException {
-      GtasksInvoker invoker = new GtasksInvoker(context, googleTaskList.getAccount());
+      GtasksInvoker invoker =
+          new GtasksInvoker(context, httpClientFactory, googleTaskList.getAccount());
       pushMetadataOnSave(googleTask, invoker);
     }
   }
@@ -188,7 +199,8 @@ public class GtasksSyncService {
 
     @Override
     public void op() throws IOException {
-      GtasksInvoker invoker = new GtasksInvoker(context, googleTaskList.getAccount());
+      GtasksInvoker invoker =
+          new GtasksInvoker(context, httpClientFactory, googleTaskList.getAccount());
       invoker.clearCompleted(googleTaskList.getRemoteId());
     }
   }
@@ -148,7 +148,7 @@ public class ReminderPreferences extends InjectingPreferenceActivity {
       findPreference(getString(resId))
           .setOnPreferenceChangeListener(
               (preference, newValue) -> {
-                NotificationSchedulerIntentService.enqueueWork(this, false);
+                NotificationSchedulerIntentService.enqueueWork(this, false, true);
                 return true;
               });
     }
@@ -6,11 +6,10 @@
 
 package com.todoroo.astrid.reminders;
 
-import static com.google.common.collect.Lists.transform;
-
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
 import org.jetbrains.annotations.Nullable;
@@ -52,15 +51,33 @@ public final class ReminderService {
   }
 
   public void scheduleAllAlarms(List<Long> taskIds) {
-    jobs.add(transform(taskDao.fetch(taskIds), this::getReminderEntry));
+    jobs.replaceReminders(taskIds, updateNextReminders(taskDao.fetch(taskIds)));
   }
 
+  /** Recomputes and queues every reminder right away */
   public void scheduleAllAlarms() {
-    jobs.add(transform(taskDao.getTasksWithReminders(), this::getReminderEntry));
+    jobs.replaceReminders(updateNextReminders(taskDao.getTasksWithReminders()));
+  }
+
+  /**
+   * Reminders that go off before the given time. Only reads the stored reminder times, except for
+   * tasks whose next reminder hasn't been computed yet.
+   */
+  public List<ReminderEntry> getRemindersBefore(long end) {
+    updateNextReminders(taskDao.getTasksWithUnknownReminder());
+    return taskDao.getRemindersBefore(end);
   }
 
   public void scheduleAlarm(Task task) {
-    ReminderEntry reminder = getReminderEntry(task);
+    if (task == null || !task.isSaved()) {
+      return;
+    }
+
+    // Make sure no alarms are scheduled other than the next one. When that one is shown, it
+    // will schedule the next one after it, and so on and so forth.
+    cancelReminder(task.getId());
+
+    ReminderEntry reminder = updateNextReminder(task);
     if (reminder != null) {
       jobs.add(reminder);
     }
@@ -70,16 +87,35 @@ public final class ReminderService {
     jobs.cancelReminder(taskId);
   }
 
-  private @Nullable ReminderEntry getReminderEntry(Task task) {
-    if (task == null || !task.isSaved()) {
-      return null;
+  private List<ReminderEntry> updateNextReminders(List<Task> tasks) {
+    List<ReminderEntry> result = new ArrayList<>();
+    for (Task task : tasks) {
+      ReminderEntry reminder = task.isSaved() ? updateNextReminder(task) : null;
+      if (reminder != null) {
+        result.add(reminder);
+      }
     }
+    return result;
+  }
 
-    long taskId = task.getId();
+  /** Computes the next reminder and stores it on the task */
+  private @Nullable ReminderEntry updateNextReminder(Task task) {
+    ReminderEntry reminder = getReminderEntry(task);
+    long time = reminder == null ? 0 : reminder.getTime();
+    int type = reminder == null ? 0 : reminder.getType();
+    if (task.nextReminder == null
+        || task.nextReminder != time
+        || task.nextReminderType == null
+        || task.nextReminderType != type) {
+      taskDao.setNextReminder(task.getId(), time, type);
+      task.nextReminder = time;
+      task.nextReminderType = type;
+    }
+    return reminder;
+  }
 
-    // Make sure no alarms are scheduled other than the next one. When that one is shown, it
-    // will schedule the next one after it, and so on and so forth.
-    cancelReminder(taskId);
+  private @Nullable ReminderEntry getReminderEntry(Task task) {
+    long taskId = task.getId();
 
     if (task.isCompleted() || task.isDeleted()) {
       return null;
@@ -12,6 +12,8 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
+import org.tasks.TaskChange;
+import org.tasks.TaskChange.Kind;
 import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.data.DeletionDao;
@@ -52,7 +54,7 @@ public class TaskDeleter {
     deletionDao.markDeleted(taskIds);
     workManager.cleanup(taskIds);
     workManager.syncNow();
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, taskIds));
     return taskDao.fetch(taskIds);
   }
 
@@ -63,7 +65,7 @@ public class TaskDeleter {
   public void delete(List<Long> tasks) {
     deletionDao.delete(tasks);
     workManager.cleanup(tasks);
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, tasks));
   }
 
   public int clearCompleted(Filter filter) {
@@ -85,28 +87,28 @@ public class TaskDeleter {
   public void delete(GoogleTaskList googleTaskList) {
     List<Long> ids = deletionDao.delete(googleTaskList);
     workManager.cleanup(ids);
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, ids));
     localBroadcastManager.broadcastRefreshList();
   }
 
   public void delete(GoogleTaskAccount googleTaskAccount) {
     List<Long> ids = deletionDao.delete(googleTaskAccount);
     workManager.cleanup(ids);
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, ids));
     localBroadcastManager.broadcastRefreshList();
   }
 
   public void delete(CaldavCalendar caldavCalendar) {
     List<Long> ids = deletionDao.delete(caldavCalendar);
     workManager.cleanup(ids);
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, ids));
     localBroadcastManager.broadcastRefreshList();
   }
 
   public void delete(CaldavAccount caldavAccount) {
     List<Long> ids = deletionDao.delete(caldavAccount);
     workManager.cleanup(ids);
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(TaskChange.of(Kind.DELETED, ids));
     localBroadcastManager.broadcastRefreshList();
   }
 }
@@ -12,6 +12,8 @@ import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
+import org.tasks.TaskChange;
+import org.tasks.TaskChange.Kind;
 import org.tasks.data.GoogleTask;
 import org.tasks.data.GoogleTaskDao;
 import org.tasks.data.Tag;
@@ -44,7 +46,8 @@ public class TaskDuplicator {
     for (Task task : taskDao.fetch(taskIds)) {
       result.add(clone(task));
     }
-    localBroadcastManager.broadcastRefresh();
+    localBroadcastManager.broadcastRefresh(
+        TaskChange.of(Kind.UPDATED, transform(result, Task::getId)));
     return result;
   }
 
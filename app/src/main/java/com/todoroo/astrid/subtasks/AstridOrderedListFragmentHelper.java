@@ -86,7 +86,7 @@ class AstridOrderedListFragmentHelper {
       }
 
       if (madeChanges) {
-        updater.writeSerialization(list, updater.serializeTree());
+        updater.save(list);
       }
 
       chainedCompletions.put(itemId, chained);
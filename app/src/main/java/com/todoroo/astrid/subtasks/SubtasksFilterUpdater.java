@@ -1,21 +1,36 @@
 package com.todoroo.astrid.subtasks;
 
+import android.database.Cursor;
 import android.text.TextUtils;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Join;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.andlib.sql.QueryTemplate;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.tasks.data.TaskListMetadata;
 import org.tasks.data.TaskListMetadataDao;
+import org.tasks.data.TaskListPosition;
 import timber.log.Timber;
 
+/**
+ * Keeps the tree of a manually sorted list in memory and stores it in {@link TaskListPosition}
+ * rows. Each task gets a sparse position key in preorder, so the list query sorts on a single
+ * joined column. A move only rewrites the moved subtree, spread between its new neighbours.
+ */
 public class SubtasksFilterUpdater {
 
   static final String ACTIVE_TASKS_ORDER = "active_tasks_order"; // $NON-NLS-1$
@@ -23,7 +38,11 @@ public class SubtasksFilterUpdater {
 
   private final TaskListMetadataDao taskListMetadataDao;
   private final TaskDao taskDao;
+  static final long POSITION_GAP = 1 << 16;
+
   private final HashMap<String, Node> idToNode = new HashMap<>();
+  private final Map<String, Long> uuidToId = new HashMap<>();
+  private final Map<Long, TaskListPosition> positions = new HashMap<>();
   private Node treeRoot;
 
   @Inject
@@ -116,23 +135,50 @@ public class SubtasksFilterUpdater {
     return order;
   }
 
-  void writeSerialization(TaskListMetadata list, String serialized) {
-    if (list != null) {
-      list.setTaskIds(serialized);
-      taskListMetadataDao.update(list);
-    }
+  private static boolean isPersisted(TaskListMetadata list) {
+    return list != null && list.getId() != null;
+  }
+
+  /** Joins each task to its position in the list, tasks without a position sort first */
+  static String joinPositions(long listId) {
+    return Join.left(
+                TaskListPosition.TABLE,
+                TaskListPosition.TASK.eq(Task.ID),
+                TaskListPosition.LIST.eq(listId))
+            .toString()
+        + " ";
+  }
+
+  static String orderByPosition() {
+    return "ORDER BY " + TaskListPosition.POSITION + " ASC";
   }
 
   public void initialize(TaskListMetadata list, Filter filter) {
-    initializeFromSerializedTree(list, filter, getSerializedTree(list));
-    applyToFilter(filter);
+    List<TaskListPosition> stored =
+        isPersisted(list)
+            ? taskListMetadataDao.getPositions(list.getId())
+            : Collections.emptyList();
+    if (stored.isEmpty()) {
+      initializeFromSerializedTree(list, filter, getSerializedTree(list));
+    } else {
+      initializeFromPositions(list, stored);
+    }
+    applyToFilter(list, filter);
   }
 
-  private void applyToFilter(Filter filter) {
+  private void applyToFilter(TaskListMetadata list, Filter filter) {
     String query = filter.getSqlQuery();
 
     query = query.replaceAll("ORDER BY .*", "");
-    query = query + String.format("ORDER BY %s", getOrderString());
+    if (isPersisted(list)) {
+      String join = joinPositions(list.getId());
+      if (!query.startsWith(join)) {
+        query = join + query;
+      }
+      query = query + orderByPosition();
+    } else {
+      query = query + String.format("ORDER BY %s", getOrderString());
+    }
     query =
         query.replace(
             TaskDao.TaskCriteria.activeAndVisible().toString(),
@@ -149,47 +195,112 @@ public class SubtasksFilterUpdater {
     return n.indent;
   }
 
+  /** Builds the tree from a legacy serialized tree and converts it to positions */
   void initializeFromSerializedTree(TaskListMetadata list, Filter filter, String serializedTree) {
-    idToNode.clear();
+    reset();
+    fetchTasks(filter);
     treeRoot = buildTreeModel(serializedTree, node -> idToNode.put(node.uuid, node));
-    verifyTreeModel(list, filter);
+    verifyTreeModel();
+    if (isPersisted(list) && !"[]".equals(list.getTaskIds())) { // $NON-NLS-1$
+      list.setTaskIds("[]"); // $NON-NLS-1$
+      taskListMetadataDao.update(list);
+    }
+    save(list);
+  }
+
+  /**
+   * Builds the tree from the stored positions only. Tasks that joined the list without a position
+   * are listed first by the query and get a node once they are moved, nothing is written here.
+   */
+  private void initializeFromPositions(TaskListMetadata list, List<TaskListPosition> stored) {
+    reset();
+    fetchPositionedTasks(list);
+    Map<Long, String> idToUuid = new HashMap<>();
+    for (Map.Entry<String, Long> entry : uuidToId.entrySet()) {
+      idToUuid.put(entry.getValue(), entry.getKey());
+    }
+    treeRoot = new Node("-1", null, -1); // $NON-NLS-1$
+    Map<Long, Node> nodes = new HashMap<>();
+    for (TaskListPosition position : stored) {
+      positions.put(position.getTask(), position);
+      Node parent = position.getParent() == 0 ? treeRoot : nodes.get(position.getParent());
+      if (parent == null) {
+        parent = treeRoot;
+      }
+      String uuid = idToUuid.get(position.getTask());
+      if (uuid == null) {
+        // deleted, subtasks take its place
+        nodes.put(position.getTask(), parent);
+        continue;
+      }
+      Node node = new Node(uuid, parent, parent.indent + 1);
+      parent.children.add(node);
+      nodes.put(position.getTask(), node);
+      idToNode.put(uuid, node);
+    }
   }
 
-  private void verifyTreeModel(TaskListMetadata list, Filter filter) {
-    boolean changedThings = false;
-    Set<String> keySet = idToNode.keySet();
-    Set<String> currentIds = new HashSet<>();
-    for (String id : keySet) {
-      currentIds.add(id);
-    }
-    Set<String> idsInQuery = new HashSet<>();
+  private void reset() {
+    idToNode.clear();
+    uuidToId.clear();
+    positions.clear();
+  }
+
+  private void fetchTasks(Filter filter) {
     String sql = filter.getSqlQuery().replaceAll("ORDER BY .*", ""); // $NON-NLS-1$//$NON-NLS-2$
     sql = sql + " ORDER BY created"; // $NON-NLS-1$
     sql =
         sql.replace(
             TaskDao.TaskCriteria.activeAndVisible().toString(),
             TaskDao.TaskCriteria.notDeleted().toString());
-    List<Task> tasks = taskDao.fetchFiltered(sql);
-    for (Task task : tasks) {
-      String id = task.getUuid();
-      idsInQuery.add(id);
+    Map<String, Long> tasks = new LinkedHashMap<>();
+    Cursor cursor = taskDao.getCursor(sql, Task.ID, Task.UUID);
+    try {
+      while (cursor.moveToNext()) {
+        tasks.put(cursor.getString(1), cursor.getLong(0));
+      }
+    } finally {
+      cursor.close();
+    }
+    uuidToId.putAll(tasks);
+  }
+
+  /** Loads the uuids of the tasks that have a position in the list */
+  private void fetchPositionedTasks(TaskListMetadata list) {
+    Criterion positioned =
+        Task.ID.in(
+            Query.select(TaskListPosition.TASK)
+                .from(TaskListPosition.TABLE)
+                .where(TaskListPosition.LIST.eq(list.getId())));
+    String sql =
+        new QueryTemplate()
+            .where(Criterion.and(TaskDao.TaskCriteria.notDeleted(), positioned))
+            .toString();
+    Cursor cursor = taskDao.getCursor(sql, Task.ID, Task.UUID);
+    try {
+      while (cursor.moveToNext()) {
+        uuidToId.put(cursor.getString(1), cursor.getLong(0));
+      }
+    } finally {
+      cursor.close();
+    }
+  }
+
+  private void verifyTreeModel() {
+    Set<String> currentIds = new HashSet<>(idToNode.keySet());
+    for (String id : uuidToId.keySet()) {
       if (idToNode.containsKey(id)) {
         continue;
       }
 
-      changedThings = true;
       Node newNode = new Node(id, treeRoot, 0);
       treeRoot.children.add(0, newNode);
       idToNode.put(id, newNode);
     }
 
-    currentIds.removeAll(idsInQuery);
+    currentIds.removeAll(uuidToId.keySet());
     if (currentIds.size() > 0) {
       removeNodes(currentIds);
-      changedThings = true;
-    }
-    if (changedThings) {
-      writeSerialization(list, serializeTree());
     }
   }
 
@@ -208,9 +319,255 @@ public class SubtasksFilterUpdater {
         parent.children.add(child);
         setNodeIndent(child, parent.indent + 1);
       }
+      idToNode.remove(id);
     }
   }
 
+  /**
+   * Writes the positions of the tasks whose position, parent or indent changed and removes the
+   * positions of tasks that left the list
+   */
+  void save(TaskListMetadata list) {
+    if (!isPersisted(list)) {
+      return;
+    }
+    List<Node> nodes = new ArrayList<>();
+    preorder(treeRoot, nodes);
+    Long[] previous = new Long[nodes.size()];
+    for (int i = 0; i < nodes.size(); i++) {
+      TaskListPosition position = positions.get(uuidToId.get(nodes.get(i).uuid));
+      previous[i] = position == null ? null : position.getPosition();
+    }
+    long[] assigned = assignPositions(previous);
+
+    List<TaskListPosition> changed = new ArrayList<>();
+    Set<Long> seen = new HashSet<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      Long taskId = uuidToId.get(node.uuid);
+      if (taskId == null) {
+        continue;
+      }
+      seen.add(taskId);
+      Long parentId = node.parent == treeRoot ? null : uuidToId.get(node.parent.uuid);
+      long parent = parentId == null ? 0 : parentId;
+      TaskListPosition position = positions.get(taskId);
+      if (position == null) {
+        position = new TaskListPosition(list.getId(), taskId);
+        positions.put(taskId, position);
+      } else if (position.getPosition() == assigned[i]
+          && position.getParent() == parent
+          && position.getIndent() == node.indent) {
+        continue;
+      }
+      position.setPosition(assigned[i]);
+      position.setParent(parent);
+      position.setIndent(node.indent);
+      changed.add(position);
+    }
+
+    List<Long> removed = new ArrayList<>();
+    Iterator<Long> iterator = positions.keySet().iterator();
+    while (iterator.hasNext()) {
+      Long taskId = iterator.next();
+      if (!seen.contains(taskId)) {
+        removed.add(taskId);
+        iterator.remove();
+      }
+    }
+
+    if (!changed.isEmpty() || !removed.isEmpty()) {
+      taskListMetadataDao.updatePositions(list.getId(), changed, removed);
+    }
+  }
+
+  private void preorder(Node node, List<Node> result) {
+    for (Node child : node.children) {
+      result.add(child);
+      preorder(child, result);
+    }
+  }
+
+  /**
+   * Writes new positions for {@code moved} and its subtasks, spread between the tasks now before
+   * and after them. The rest of the list kept its order, so it isn't visited. Falls back to {@link
+   * #save(TaskListMetadata)} when there is no room left between the neighbours.
+   */
+  private void saveMoved(TaskListMetadata list, Node moved) {
+    if (!isPersisted(list)) {
+      return;
+    }
+    List<Node> nodes = new ArrayList<>();
+    nodes.add(moved);
+    preorder(moved, nodes);
+    Node previous = previousInPreorder(moved);
+    Node next = nextAfterSubtree(moved);
+    TaskListPosition low = previous == null ? null : positions.get(uuidToId.get(previous.uuid));
+    TaskListPosition high = next == null ? null : positions.get(uuidToId.get(next.uuid));
+    long[] assigned =
+        (previous != null && low == null) || (next != null && high == null)
+            ? null
+            : spread(
+                low == null ? null : low.getPosition(),
+                high == null ? null : high.getPosition(),
+                nodes.size());
+    if (assigned == null) {
+      save(list);
+      return;
+    }
+
+    List<TaskListPosition> changed = new ArrayList<>();
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      Long taskId = uuidToId.get(node.uuid);
+      if (taskId == null) {
+        continue;
+      }
+      Long parentId = node.parent == treeRoot ? null : uuidToId.get(node.parent.uuid);
+      TaskListPosition position = positions.get(taskId);
+      if (position == null) {
+        position = new TaskListPosition(list.getId(), taskId);
+        positions.put(taskId, position);
+      }
+      position.setPosition(assigned[i]);
+      position.setParent(parentId == null ? 0 : parentId);
+      position.setIndent(node.indent);
+      changed.add(position);
+    }
+    taskListMetadataDao.updatePositions(list.getId(), changed, Collections.emptyList());
+  }
+
+  /** The task listed right before {@code node}, null if it is first */
+  private Node previousInPreorder(Node node) {
+    ArrayList<Node> siblings = node.parent.children;
+    int index = siblings.indexOf(node);
+    if (index > 0) {
+      Node last = siblings.get(index - 1);
+      while (!last.children.isEmpty()) {
+        last = last.children.get(last.children.size() - 1);
+      }
+      return last;
+    }
+    return node.parent == treeRoot ? null : node.parent;
+  }
+
+  /** The task listed right after the subtasks of {@code node}, null if they are last */
+  private Node nextAfterSubtree(Node node) {
+    for (Node current = node; current != treeRoot; current = current.parent) {
+      ArrayList<Node> siblings = current.parent.children;
+      int index = siblings.indexOf(current);
+      if (index + 1 < siblings.size()) {
+        return siblings.get(index + 1);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Assigns increasing positions to a list of tasks. The longest increasing run of existing
+   * positions is kept, the other tasks get keys spread between their neighbours. Everything is
+   * renumbered only when there is no room left between two neighbours.
+   *
+   * @param previous the current positions in the new order, null for tasks without a position
+   */
+  static long[] assignPositions(Long[] previous) {
+    int n = previous.length;
+    boolean[] keep = longestIncreasing(previous);
+    long[] result = new long[n];
+    int i = 0;
+    while (i < n) {
+      if (keep[i]) {
+        result[i] = previous[i];
+        i++;
+        continue;
+      }
+      int start = i;
+      while (i < n && !keep[i]) {
+        i++;
+      }
+      int count = i - start;
+      Long low = start > 0 ? result[start - 1] : null;
+      long[] spread = spread(low, i < n ? previous[i] : null, count);
+      if (spread == null) {
+        return renumber(n);
+      }
+      System.arraycopy(spread, 0, result, start, count);
+    }
+    return result;
+  }
+
+  /**
+   * Increasing positions for {@code count} tasks between two neighbours
+   *
+   * @param low position of the task before, null if there is none
+   * @param high position of the task after, null if there is none
+   * @return the positions, or null if there is no room between the neighbours
+   */
+  static long[] spread(Long low, Long high, int count) {
+    long start;
+    long step;
+    if (low != null && high != null) {
+      step = (high - low) / (count + 1);
+      if (step < 1) {
+        return null;
+      }
+      start = low;
+    } else {
+      step = POSITION_GAP;
+      if (high != null) {
+        start = high - (count + 1) * POSITION_GAP;
+      } else {
+        start = low == null ? 0 : low;
+      }
+    }
+    long[] result = new long[count];
+    for (int i = 0; i < count; i++) {
+      result[i] = start + (i + 1) * step;
+    }
+    return result;
+  }
+
+  private static long[] renumber(int n) {
+    long[] result = new long[n];
+    for (int i = 0; i < n; i++) {
+      result[i] = (i + 1) * POSITION_GAP;
+    }
+    return result;
+  }
+
+  /** Marks a longest strictly increasing subsequence of the non-null values */
+  private static boolean[] longestIncreasing(Long[] values) {
+    int n = values.length;
+    int[] tails = new int[n];
+    int[] previous = new int[n];
+    int length = 0;
+    for (int i = 0; i < n; i++) {
+      if (values[i] == null) {
+        continue;
+      }
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (values[tails[mid]] < values[i]) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      previous[i] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = i;
+      if (low == length) {
+        length++;
+      }
+    }
+    boolean[] keep = new boolean[n];
+    for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+      keep[i] = true;
+    }
+    return keep;
+  }
+
   Node findNodeForTask(String taskId) {
     return idToNode.get(taskId);
   }
@@ -253,7 +610,7 @@ public class SubtasksFilterUpdater {
   }
 
   public void indent(TaskListMetadata list, Filter filter, String targetTaskId, int delta) {
-    Node node = idToNode.get(targetTaskId);
+    Node node = getOrAddNode(targetTaskId);
     indentHelper(list, filter, node, delta);
   }
 
@@ -302,8 +659,8 @@ public class SubtasksFilterUpdater {
       newSiblings.add(insertAfter + 1, node);
     }
 
-    writeSerialization(list, serializeTree());
-    applyToFilter(filter);
+    saveMoved(list, node);
+    applyToFilter(list, filter);
   }
 
   private void setNodeIndent(Node node, int indent) {
@@ -319,7 +676,7 @@ public class SubtasksFilterUpdater {
   }
 
   void moveTo(TaskListMetadata list, Filter filter, String targetTaskId, String beforeTaskId) {
-    Node target = idToNode.get(targetTaskId);
+    Node target = getOrAddNode(targetTaskId);
     if (target == null) {
       return;
     }
@@ -329,7 +686,7 @@ public class SubtasksFilterUpdater {
       return;
     }
 
-    Node before = idToNode.get(beforeTaskId);
+    Node before = getOrAddNode(beforeTaskId);
 
     if (before == null) {
       return;
@@ -387,8 +744,8 @@ public class SubtasksFilterUpdater {
       beforeIndex--;
     }
     newSiblings.add(beforeIndex, moveThis);
-    writeSerialization(list, serializeTree());
-    applyToFilter(filter);
+    saveMoved(list, moveThis);
+    applyToFilter(list, filter);
   }
 
   // Returns true if desc is a descendant of parent
@@ -409,20 +766,43 @@ public class SubtasksFilterUpdater {
     treeRoot.children.add(moveThis);
     moveThis.parent = treeRoot;
     setNodeIndent(moveThis, 0);
-    writeSerialization(list, serializeTree());
-    applyToFilter(filter);
+    saveMoved(list, moveThis);
+    applyToFilter(list, filter);
   }
 
   void onCreateTask(TaskListMetadata list, Filter filter, String uuid) {
-    if (idToNode.containsKey(uuid) || !Task.isValidUuid(uuid)) {
+    if (idToNode.containsKey(uuid)) {
       return;
     }
 
-    Node newNode = new Node(uuid, treeRoot, 0);
-    treeRoot.children.add(0, newNode);
-    idToNode.put(uuid, newNode);
-    writeSerialization(list, serializeTree());
-    applyToFilter(filter);
+    Node newNode = getOrAddNode(uuid);
+    if (newNode == null) {
+      return;
+    }
+    saveMoved(list, newNode);
+    applyToFilter(list, filter);
+  }
+
+  /**
+   * Returns the node of a task, adding it to the top of the list if it doesn't have a position
+   * yet. The list query sorts those tasks first as well.
+   */
+  private Node getOrAddNode(String uuid) {
+    Node node = idToNode.get(uuid);
+    if (node != null || !Task.isValidUuid(uuid)) {
+      return node;
+    }
+
+    Task task = taskDao.fetch(uuid);
+    if (task == null) {
+      return null;
+    }
+
+    node = new Node(uuid, treeRoot, 0);
+    treeRoot.children.add(0, node);
+    idToNode.put(uuid, node);
+    uuidToId.put(uuid, task.getId());
+    return node;
   }
 
   void onDeleteTask(TaskListMetadata list, Filter filter, String taskId) {
@@ -446,8 +826,29 @@ public class SubtasksFilterUpdater {
     }
     idToNode.remove(taskId);
 
-    writeSerialization(list, serializeTree());
-    applyToFilter(filter);
+    // the subtasks keep their place, only their parent and indent change
+    if (isPersisted(list)) {
+      List<Node> moved = new ArrayList<>();
+      preorder(task, moved);
+      List<TaskListPosition> changed = new ArrayList<>();
+      for (Node node : moved) {
+        TaskListPosition position = positions.get(uuidToId.get(node.uuid));
+        if (position == null) {
+          continue;
+        }
+        Long parentId = node.parent == treeRoot ? null : uuidToId.get(node.parent.uuid);
+        position.setParent(parentId == null ? 0 : parentId);
+        position.setIndent(node.indent);
+        changed.add(position);
+      }
+      Long id = uuidToId.remove(taskId);
+      List<Long> removed = new ArrayList<>();
+      if (id != null && positions.remove(id) != null) {
+        removed.add(id);
+      }
+      taskListMetadataDao.updatePositions(list.getId(), changed, removed);
+    }
+    applyToFilter(list, filter);
   }
 
   String serializeTree() {
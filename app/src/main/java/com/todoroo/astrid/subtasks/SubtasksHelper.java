@@ -150,7 +150,15 @@ public class SubtasksHelper {
         }
 
         query = query.replaceAll("ORDER BY .*", "");
-        query = query + String.format(" ORDER BY %s", getOrderString(tagData, tlm));
+        if (tlm != null && tlm.getId() != null && "[]".equals(tlm.getTaskIds())) {
+          String join = SubtasksFilterUpdater.joinPositions(tlm.getId());
+          if (!query.startsWith(join)) {
+            query = join + query;
+          }
+          query = query + " " + SubtasksFilterUpdater.orderByPosition();
+        } else {
+          query = query + String.format(" ORDER BY %s", getOrderString(tagData, tlm));
+        }
         query =
             query.replace(TaskDao.TaskCriteria.isVisible().toString(), Criterion.all.toString());
       }
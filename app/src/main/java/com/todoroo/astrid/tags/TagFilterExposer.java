@@ -12,6 +12,7 @@ import com.todoroo.astrid.api.TagFilter;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
+import org.tasks.data.MetadataCache;
 import org.tasks.data.TagData;
 
 /**
@@ -22,10 +23,12 @@ import org.tasks.data.TagData;
 public class TagFilterExposer {
 
   private final TagService tagService;
+  private final MetadataCache metadataCache;
 
   @Inject
-  public TagFilterExposer(TagService tagService) {
+  public TagFilterExposer(TagService tagService, MetadataCache metadataCache) {
     this.tagService = tagService;
+    this.metadataCache = metadataCache;
   }
 
   /** Create filter from new tag object */
@@ -41,7 +44,8 @@ public class TagFilterExposer {
   }
 
   public Filter getFilterByUuid(String uuid) {
-    return filterFromTag(tagService.tagFromUUID(uuid));
+    TagData tagData = metadataCache.getTag(uuid);
+    return filterFromTag(tagData == null ? tagService.tagFromUUID(uuid) : tagData);
   }
 
   private List<Filter> filterFromTags(List<TagData> tags) {
@@ -9,10 +9,10 @@ package com.todoroo.astrid.tags;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.transform;
 
-import android.text.TextUtils;
 import java.util.ArrayList;
 import java.util.List;
 import javax.inject.Inject;
+import org.tasks.data.MetadataCache;
 import org.tasks.data.TagDao;
 import org.tasks.data.TagData;
 import org.tasks.data.TagDataDao;
@@ -28,11 +28,13 @@ public final class TagService {
 
   private final TagDataDao tagDataDao;
   private final TagDao tagDao;
+  private final MetadataCache metadataCache;
 
   @Inject
-  public TagService(TagDataDao tagDataDao, TagDao tagDao) {
+  public TagService(TagDataDao tagDataDao, TagDao tagDao, MetadataCache metadataCache) {
     this.tagDataDao = tagDataDao;
     this.tagDao = tagDao;
+    this.metadataCache = metadataCache;
   }
 
   /**
@@ -59,25 +61,9 @@ public final class TagService {
     return newArrayList(transform(uuids, this::tagFromUUID));
   }
 
-  /** Return all tags (including metadata tags and TagData tags) in an array list */
+  /** Return all tags with a name ordered by name, hidden tags last. Don't modify the result. */
   public List<TagData> getTagList() {
-    final List<TagData> tagList = new ArrayList<>();
-    final List<TagData> hiddenTagList = new ArrayList<>();
-    for (TagData tagData : tagDataDao.tagDataOrderedByName()) {
-      if (!TextUtils.isEmpty(tagData.getName())) {
-        if (tagData.getName().startsWith(".")) {
-          hiddenTagList.add(tagData);
-        } else {
-          tagList.add(tagData);
-        }
-      }
-    }
-    tagList.addAll(hiddenTagList);
-    return tagList;
-  }
-
-  public TagData getTagByUuid(String uuid) {
-    return tagDataDao.getByUuid(uuid);
+    return metadataCache.getTags();
   }
 
   /**
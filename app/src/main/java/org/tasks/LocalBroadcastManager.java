@@ -7,29 +7,23 @@ import android.content.IntentFilter;
 import com.todoroo.astrid.api.AstridApiConstants;
 import javax.inject.Inject;
 import org.tasks.injection.ForApplication;
-import org.tasks.widget.AppWidgetManager;
 
 public class LocalBroadcastManager {
 
-  public static final String REFRESH = BuildConfig.APPLICATION_ID + ".REFRESH";
   public static final String REFRESH_LIST = BuildConfig.APPLICATION_ID + ".REFRESH_LIST";
   private static final String REPEAT = BuildConfig.APPLICATION_ID + ".REPEAT";
   private static final String REFRESH_PURCHASES = BuildConfig.APPLICATION_ID + ".REFRESH_PURCHASES";
 
   private final androidx.localbroadcastmanager.content.LocalBroadcastManager localBroadcastManager;
-  private final AppWidgetManager appWidgetManager;
+  private final TaskChangeBus taskChangeBus;
 
   @Inject
-  public LocalBroadcastManager(@ForApplication Context context, AppWidgetManager appWidgetManager) {
-    this.appWidgetManager = appWidgetManager;
+  public LocalBroadcastManager(@ForApplication Context context, TaskChangeBus taskChangeBus) {
+    this.taskChangeBus = taskChangeBus;
     localBroadcastManager =
         androidx.localbroadcastmanager.content.LocalBroadcastManager.getInstance(context);
   }
 
-  public void registerRefreshReceiver(BroadcastReceiver broadcastReceiver) {
-    localBroadcastManager.registerReceiver(broadcastReceiver, new IntentFilter(REFRESH));
-  }
-
   public void registerRefreshListReceiver(BroadcastReceiver broadcastReceiver) {
     localBroadcastManager.registerReceiver(broadcastReceiver, new IntentFilter(REFRESH_LIST));
   }
@@ -42,9 +36,13 @@ public class LocalBroadcastManager {
     localBroadcastManager.registerReceiver(broadcastReceiver, new IntentFilter(REFRESH_PURCHASES));
   }
 
+  /** Notifies {@link TaskChangeBus} subscribers that any task may have changed */
   public void broadcastRefresh() {
-    localBroadcastManager.sendBroadcast(new Intent(REFRESH));
-    appWidgetManager.updateWidgets();
+    taskChangeBus.post(TaskChange.everything());
+  }
+
+  public void broadcastRefresh(TaskChange change) {
+    taskChangeBus.post(change);
   }
 
   public void broadcastRefreshList() {
@@ -0,0 +1,73 @@
+package org.tasks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/** Tasks that changed and how they changed, or a change that may affect every task */
+public class TaskChange {
+
+  public enum Kind {
+    UPDATED,
+    COMPLETED,
+    DELETED
+  }
+
+  private final boolean everything;
+  private final Set<Long> taskIds;
+  private final Set<Kind> kinds;
+
+  private TaskChange(boolean everything, Set<Long> taskIds, Set<Kind> kinds) {
+    this.everything = everything;
+    this.taskIds = Collections.unmodifiableSet(taskIds);
+    this.kinds = Collections.unmodifiableSet(kinds);
+  }
+
+  /** Time based changes, syncs, imports and preference changes */
+  public static TaskChange everything() {
+    return new TaskChange(true, new HashSet<>(), EnumSet.noneOf(Kind.class));
+  }
+
+  public static TaskChange of(Kind kind, Collection<Long> taskIds) {
+    return new TaskChange(false, new HashSet<>(taskIds), EnumSet.of(kind));
+  }
+
+  public static TaskChange merge(List<TaskChange> changes) {
+    boolean everything = false;
+    Set<Long> taskIds = new HashSet<>();
+    Set<Kind> kinds = EnumSet.noneOf(Kind.class);
+    for (TaskChange change : changes) {
+      everything |= change.everything;
+      taskIds.addAll(change.taskIds);
+      kinds.addAll(change.kinds);
+    }
+    return everything
+        ? new TaskChange(true, new HashSet<>(), EnumSet.noneOf(Kind.class))
+        : new TaskChange(false, taskIds, kinds);
+  }
+
+  /** True if any task may have changed, {@link #getTaskIds()} is empty in that case */
+  public boolean isEverything() {
+    return everything;
+  }
+
+  public Set<Long> getTaskIds() {
+    return taskIds;
+  }
+
+  public boolean contains(Kind kind) {
+    return everything || kinds.contains(kind);
+  }
+
+  public boolean isEmpty() {
+    return !everything && taskIds.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return everything ? "TaskChange{everything}" : "TaskChange{" + kinds + " " + taskIds + "}";
+  }
+}
@@ -0,0 +1,50 @@
+package org.tasks;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+
+/**
+ * In-process stream of task changes. Changes posted in quick succession, such as the saves of a
+ * sync or a batch edit, are merged so that subscribers refresh once per burst. Long bursts are
+ * still delivered at least once a second.
+ */
+@ApplicationScope
+public class TaskChangeBus {
+
+  private static final long QUIET_MILLIS = 100;
+  private static final long MAX_DELAY_MILLIS = 1000;
+
+  private final Subject<TaskChange> subject = PublishSubject.<TaskChange>create().toSerialized();
+  private final Flowable<TaskChange> changes =
+      subject
+          .toFlowable(BackpressureStrategy.BUFFER)
+          .publish(
+              shared ->
+                  shared.buffer(
+                      Flowable.merge(
+                          shared.debounce(QUIET_MILLIS, MILLISECONDS),
+                          shared.sample(MAX_DELAY_MILLIS, MILLISECONDS))))
+          .filter(batch -> !batch.isEmpty())
+          .map(TaskChange::merge)
+          .share();
+
+  @Inject
+  public TaskChangeBus() {}
+
+  public void post(TaskChange change) {
+    if (!change.isEmpty()) {
+      subject.onNext(change);
+    }
+  }
+
+  /** Merged changes, delivered on a background thread */
+  public Flowable<TaskChange> observe() {
+    return changes;
+  }
+}
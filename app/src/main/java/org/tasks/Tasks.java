@@ -3,13 +3,18 @@ package org.tasks;
 import com.jakewharton.processphoenix.ProcessPhoenix;
 import com.jakewharton.threetenabp.AndroidThreeTen;
 import com.todoroo.astrid.service.StartupService;
+import io.reactivex.schedulers.Schedulers;
 import javax.inject.Inject;
+import org.tasks.data.MetadataCache;
 import org.tasks.injection.ApplicationComponent;
 import org.tasks.injection.InjectingApplication;
+import org.tasks.jobs.AfterSaveQueue;
 import org.tasks.jobs.WorkManager;
 import org.tasks.preferences.Preferences;
 import org.tasks.receivers.Badger;
 import org.tasks.themes.ThemeCache;
+import org.tasks.widget.WidgetSnapshots;
+import timber.log.Timber;
 
 public class Tasks extends InjectingApplication {
 
@@ -20,6 +25,10 @@ public class Tasks extends InjectingApplication {
   @Inject ThemeCache themeCache;
   @Inject Badger badger;
   @Inject WorkManager workManager;
+  @Inject TaskChangeBus taskChangeBus;
+  @Inject WidgetSnapshots widgetSnapshots;
+  @Inject MetadataCache metadataCache;
+  @Inject AfterSaveQueue afterSaveQueue;
 
   @Override
   public void onCreate() {
@@ -39,11 +48,20 @@ public class Tasks extends InjectingApplication {
 
     badger.setEnabled(preferences.getBoolean(R.string.p_badges_enabled, true));
 
+    taskChangeBus
+        .observe()
+        .observeOn(Schedulers.io())
+        .subscribe(change -> widgetSnapshots.refresh(), Timber::e);
+
     themeCache.getThemeBase(preferences.getInt(R.string.p_theme, 0)).setDefaultNightMode();
 
     startupService.onStartupApplication();
 
+    metadataCache.warmUp();
+
     workManager.onStartup();
+
+    afterSaveQueue.recover();
   }
 
   @Override
@@ -31,6 +31,7 @@ import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.analytics.Tracker;
 import org.tasks.analytics.Tracking;
+import org.tasks.data.DeletionDao;
 import org.tasks.data.TagDao;
 import org.tasks.data.TagData;
 import org.tasks.data.TagDataDao;
@@ -54,6 +55,7 @@ public class TagSettingsActivity extends ThemedInjectingAppCompatActivity
   @Inject TagService tagService;
   @Inject TagDataDao tagDataDao;
   @Inject TagDao tagDao;
+  @Inject DeletionDao deletionDao;
   @Inject DialogBuilder dialogBuilder;
   @Inject Preferences preferences;
   @Inject ThemeCache themeCache;
@@ -253,8 +255,7 @@ public class TagSettingsActivity extends ThemedInjectingAppCompatActivity
             (dialog, which) -> {
               if (tagData != null) {
                 String uuid = tagData.getRemoteId();
-                tagDao.deleteTag(uuid);
-                tagDataDao.delete(tagData.getId());
+                deletionDao.delete(tagData);
                 setResult(RESULT_OK, new Intent(ACTION_DELETED).putExtra(EXTRA_TAG_UUID, uuid));
               }
               finish();
@@ -1,5 +1,9 @@
 package org.tasks.backup;
 
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.collect.Lists.newArrayList;
+import static com.google.common.collect.Lists.transform;
+import static com.google.common.collect.Multimaps.index;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 
 import android.app.Activity;
@@ -9,32 +13,40 @@ import android.net.Uri;
 import android.os.Handler;
 import android.widget.Toast;
 import androidx.annotation.Nullable;
+import com.google.common.collect.ListMultimap;
 import com.google.common.io.Files;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.todoroo.andlib.utility.DialogUtilities;
 import com.todoroo.astrid.backup.BackupConstants;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.inject.Inject;
 import org.tasks.BuildConfig;
 import org.tasks.R;
+import org.tasks.backup.BackupContainer.TaskBackup;
+import org.tasks.data.Alarm;
 import org.tasks.data.AlarmDao;
 import org.tasks.data.CaldavDao;
+import org.tasks.data.CaldavTask;
 import org.tasks.data.FilterDao;
+import org.tasks.data.GoogleTask;
 import org.tasks.data.GoogleTaskDao;
 import org.tasks.data.GoogleTaskListDao;
+import org.tasks.data.Location;
 import org.tasks.data.LocationDao;
+import org.tasks.data.Tag;
 import org.tasks.data.TagDao;
 import org.tasks.data.TagDataDao;
+import org.tasks.data.TaskAttachment;
 import org.tasks.data.TaskAttachmentDao;
+import org.tasks.data.UserActivity;
 import org.tasks.data.UserActivityDao;
 import org.tasks.drive.DriveInvoker;
 import org.tasks.files.FileHelper;
@@ -46,6 +58,7 @@ public class TasksJsonExporter {
 
   private static final String MIME = "application/json";
   private static final String EXTENSION = ".json";
+  private static final int PAGE_SIZE = 500;
 
   // --- public interface
   private final TagDataDao tagDataDao;
@@ -138,16 +151,15 @@ public class TasksJsonExporter {
   private void runBackup(ExportType exportType) {
     try {
       String filename = getFileName(exportType);
-      List<Task> tasks = taskDao.getAll();
+      int total = taskDao.countAll();
 
-      if (tasks.size() > 0) {
+      if (total > 0) {
         String basename = Files.getNameWithoutExtension(filename);
         Uri uri =
             FileHelper.newFile(
                 context, preferences.getBackupDirectory(), MIME, basename, EXTENSION);
         OutputStream os = context.getContentResolver().openOutputStream(uri);
-        doTasksExport(os, tasks);
-        os.close();
+        doTasksExport(os, total);
         workManager.scheduleDriveUpload(uri, exportType == ExportType.EXPORT_TYPE_SERVICE);
       }
 
@@ -168,44 +180,85 @@ public class TasksJsonExporter {
     }
   }
 
-  private void doTasksExport(OutputStream os, List<Task> tasks) throws IOException {
-
-    List<BackupContainer.TaskBackup> taskBackups = new ArrayList<>();
+  /**
+   * Writes the backup straight to the stream. Tasks are read in pages ordered by id and the rows
+   * belonging to a page are fetched with one query per table, so memory use does not grow with
+   * the number of tasks.
+   */
+  private void doTasksExport(OutputStream os, int total) throws IOException {
+    Gson gson = new Gson();
+    JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(os, UTF_8)));
+    if (BuildConfig.DEBUG) {
+      writer.setIndent("  ");
+    }
+    writer.beginObject();
+    writer.name("version").value(BuildConfig.VERSION_CODE);
+    writer.name("timestamp").value(System.currentTimeMillis());
+    writer.name("data").beginObject();
+    writer.name("tasks").beginArray();
+    int count = 0;
+    List<Task> page = taskDao.getPage(0, PAGE_SIZE);
+    while (!page.isEmpty()) {
+      for (TaskBackup taskBackup : getTaskBackups(page)) {
+        gson.toJson(taskBackup, TaskBackup.class, writer);
+      }
+      count += page.size();
+      setProgress(count, total);
+      page = taskDao.getPage(page.get(page.size() - 1).getId(), PAGE_SIZE);
+    }
+    writer.endArray();
+    writeArray(gson, writer, "tags", tagDataDao.getAll());
+    writeArray(gson, writer, "filters", filterDao.getAll());
+    writeArray(gson, writer, "googleTaskLists", googleTaskListDao.getAllLists());
+    writeArray(gson, writer, "googleTaskAccounts", googleTaskListDao.getAccounts());
+    writeArray(gson, writer, "caldavAccounts", caldavDao.getAccounts());
+    writeArray(gson, writer, "caldavCalendars", caldavDao.getCalendars());
+    writer.endObject();
+    writer.endObject();
+    writer.close();
+    exportCount = count;
+  }
 
+  private List<TaskBackup> getTaskBackups(List<Task> tasks) {
+    List<Long> ids = newArrayList(transform(tasks, Task::getId));
+    List<String> uuids = newArrayList(transform(tasks, Task::getUuid));
+    ListMultimap<Long, Alarm> alarms = index(alarmDao.getAlarms(ids), Alarm::getTask);
+    ListMultimap<Long, Location> locations =
+        index(locationDao.getGeofences(ids), Location::getTask);
+    ListMultimap<Long, Tag> tags = index(tagDao.getTagsForTasks(ids), Tag::getTask);
+    ListMultimap<Long, GoogleTask> googleTasks =
+        index(googleTaskDao.getAllByTaskIds(ids), GoogleTask::getTask);
+    ListMultimap<String, UserActivity> comments =
+        index(userActivityDao.getCommentsForTasks(uuids), UserActivity::getTargetId);
+    ListMultimap<String, TaskAttachment> attachments =
+        index(taskAttachmentDao.getAttachments(uuids), TaskAttachment::getTaskId);
+    ListMultimap<Long, CaldavTask> caldavTasks =
+        index(caldavDao.getTasks(ids), CaldavTask::getTask);
+    List<TaskBackup> result = new ArrayList<>();
     for (Task task : tasks) {
-      setProgress(taskBackups.size(), tasks.size());
       long taskId = task.getId();
-      taskBackups.add(
-          new BackupContainer.TaskBackup(
+      String uuid = task.getUuid();
+      result.add(
+          new TaskBackup(
               task,
-              alarmDao.getAlarms(taskId),
-              locationDao.getGeofences(taskId),
-              tagDao.getTagsForTask(taskId),
-              googleTaskDao.getAllByTaskId(taskId),
-              userActivityDao.getCommentsForTask(task.getUuid()),
-              taskAttachmentDao.getAttachments(task.getUuid()),
-              caldavDao.getTasks(taskId)));
+              alarms.get(taskId),
+              locations.get(taskId),
+              tags.get(taskId),
+              googleTasks.get(taskId),
+              comments.get(uuid),
+              attachments.get(uuid),
+              caldavTasks.get(taskId)));
     }
+    return result;
+  }
 
-    Map<String, Object> data = new HashMap<>();
-    data.put("version", BuildConfig.VERSION_CODE);
-    data.put("timestamp", System.currentTimeMillis());
-    data.put(
-        "data",
-        new BackupContainer(
-            taskBackups,
-            tagDataDao.getAll(),
-            filterDao.getAll(),
-            googleTaskListDao.getAccounts(),
-            googleTaskListDao.getAllLists(),
-            caldavDao.getAccounts(),
-            caldavDao.getCalendars()));
-
-    OutputStreamWriter out = new OutputStreamWriter(os);
-    Gson gson = BuildConfig.DEBUG ? new GsonBuilder().setPrettyPrinting().create() : new Gson();
-    out.write(gson.toJson(data));
-    out.close();
-    exportCount = taskBackups.size();
+  private static void writeArray(Gson gson, JsonWriter writer, String name, List<?> items)
+      throws IOException {
+    writer.name(name).beginArray();
+    for (Object item : items) {
+      gson.toJson(item, item.getClass(), writer);
+    }
+    writer.endArray();
   }
 
   private void onFinishExport(final String outputFile) {
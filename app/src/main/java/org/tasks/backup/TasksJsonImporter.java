@@ -1,23 +1,31 @@
 package org.tasks.backup;
 
+import static com.google.common.base.Charsets.UTF_8;
+
 import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.res.Resources;
 import android.net.Uri;
 import android.os.Handler;
 import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 import com.todoroo.andlib.utility.DialogUtilities;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
+import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
+import org.tasks.backup.BackupContainer.TaskBackup;
 import org.tasks.data.Alarm;
 import org.tasks.data.AlarmDao;
 import org.tasks.data.CaldavAccount;
@@ -46,6 +54,8 @@ import timber.log.Timber;
 
 public class TasksJsonImporter {
 
+  private static final int BATCH_SIZE = 250;
+
   private final TagDataDao tagDataDao;
   private final UserActivityDao userActivityDao;
   private final DialogBuilder dialogBuilder;
@@ -59,6 +69,7 @@ public class TasksJsonImporter {
   private final TaskAttachmentDao taskAttachmentDao;
   private final CaldavDao caldavDao;
   private final LocationDao locationDao;
+  private final Database database;
 
   private Activity activity;
   private Handler handler;
@@ -67,6 +78,7 @@ public class TasksJsonImporter {
   private int skipCount = 0;
   private ProgressDialog progressDialog;
   private Uri input;
+  private Set<String> uuids;
 
   @Inject
   public TasksJsonImporter(
@@ -82,7 +94,8 @@ public class TasksJsonImporter {
       GoogleTaskListDao googleTaskListDao,
       FilterDao filterDao,
       TaskAttachmentDao taskAttachmentDao,
-      CaldavDao caldavDao) {
+      CaldavDao caldavDao,
+      Database database) {
     this.tagDataDao = tagDataDao;
     this.userActivityDao = userActivityDao;
     this.dialogBuilder = dialogBuilder;
@@ -96,6 +109,7 @@ public class TasksJsonImporter {
     this.filterDao = filterDao;
     this.taskAttachmentDao = taskAttachmentDao;
     this.caldavDao = caldavDao;
+    this.database = database;
   }
 
   private void setProgressMessage(final String message) {
@@ -114,99 +128,20 @@ public class TasksJsonImporter {
 
   private void performImport() {
     Gson gson = new Gson();
-    InputStream is;
-    try {
-      is = activity.getContentResolver().openInputStream(this.input);
-    } catch (FileNotFoundException e) {
-      throw new IllegalStateException(e);
-    }
-    InputStreamReader reader = new InputStreamReader(is);
-    JsonObject input = gson.fromJson(reader, JsonObject.class);
-
     try {
-      JsonElement data = input.get("data");
-      int version = input.get("version").getAsInt();
-      BackupContainer backupContainer = gson.fromJson(data, BackupContainer.class);
-      for (TagData tagData : backupContainer.getTags()) {
-        if (tagDataDao.getByUuid(tagData.getRemoteId()) == null) {
-          tagDataDao.createNew(tagData);
-        }
-      }
-      for (GoogleTaskAccount googleTaskAccount : backupContainer.getGoogleTaskAccounts()) {
-        if (googleTaskListDao.getAccount(googleTaskAccount.getAccount()) == null) {
-          googleTaskListDao.insert(googleTaskAccount);
-        }
-      }
-      for (GoogleTaskList googleTaskList : backupContainer.getGoogleTaskLists()) {
-        if (googleTaskListDao.getByRemoteId(googleTaskList.getRemoteId()) == null) {
-          googleTaskListDao.insert(googleTaskList);
-        }
-      }
-      for (Filter filter : backupContainer.getFilters()) {
-        if (filterDao.getByName(filter.getTitle()) == null) {
-          filterDao.insert(filter);
-        }
-      }
-      for (CaldavAccount account : backupContainer.getCaldavAccounts()) {
-        if (caldavDao.getAccountByUuid(account.getUuid()) == null) {
-          caldavDao.insert(account);
-        }
-      }
-      for (CaldavCalendar calendar : backupContainer.getCaldavCalendars()) {
-        if (caldavDao.getCalendarByUuid(calendar.getUuid()) == null) {
-          caldavDao.insert(calendar);
-        }
-      }
-      for (BackupContainer.TaskBackup backup : backupContainer.getTasks()) {
-        taskCount++;
-        setProgressMessage(activity.getString(R.string.import_progress_read, taskCount));
-        Task task = backup.task;
-        if (taskDao.fetch(task.getUuid()) != null) {
-          skipCount++;
-          continue;
-        }
-        taskDao.createNew(task);
-        long taskId = task.getId();
-        String taskUuid = task.getUuid();
-        for (Alarm alarm : backup.alarms) {
-          alarm.setTask(taskId);
-          alarmDao.insert(alarm);
-        }
-        for (UserActivity comment : backup.comments) {
-          comment.setTargetId(taskUuid);
-          if (version < 546) {
-            comment.convertPictureUri();
-          }
-          userActivityDao.createNew(comment);
-        }
-        for (GoogleTask googleTask : backup.google) {
-          googleTask.setTask(taskId);
-          googleTaskDao.insert(googleTask);
-        }
-        for (Tag tag : backup.tags) {
-          tag.setTask(taskId);
-          tag.setTaskUid(taskUuid);
-          tagDao.insert(tag);
-        }
-        for (Location location : backup.locations) {
-          location.setTask(taskId);
-          locationDao.insert(location);
-        }
-        for (TaskAttachment attachment : backup.getAttachments()) {
-          attachment.setTaskId(taskUuid);
-          if (version < 546) {
-            attachment.convertPathUri();
-          }
-          taskAttachmentDao.insert(attachment);
-        }
-        for (CaldavTask caldavTask : backup.getCaldavTasks()) {
-          caldavTask.setTask(taskId);
-          caldavDao.insert(caldavTask);
+      int version = readVersion();
+      uuids = new HashSet<>(taskDao.getUuids());
+      JsonReader reader = openReader();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("data".equals(reader.nextName())) {
+          readData(gson, reader, version);
+        } else {
+          reader.skipValue();
         }
-        importCount++;
       }
+      reader.endObject();
       reader.close();
-      is.close();
     } catch (IOException e) {
       Timber.e(e);
     } finally {
@@ -221,6 +156,174 @@ public class TasksJsonImporter {
     }
   }
 
+  private JsonReader openReader() throws FileNotFoundException {
+    InputStream is = activity.getContentResolver().openInputStream(this.input);
+    return new JsonReader(new BufferedReader(new InputStreamReader(is, UTF_8)));
+  }
+
+  /** The version isn't guaranteed to come before the data, so look it up in a separate pass */
+  private int readVersion() throws IOException {
+    JsonReader reader = openReader();
+    try {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if ("version".equals(reader.nextName())) {
+          return reader.nextInt();
+        }
+        reader.skipValue();
+      }
+      throw new IOException("Missing version");
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void readData(Gson gson, JsonReader reader, int version) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      switch (reader.nextName()) {
+        case "tasks":
+          readTasks(gson, reader, version);
+          break;
+        case "tags":
+          for (TagData tagData : readArray(gson, reader, TagData.class)) {
+            if (tagDataDao.getByUuid(tagData.getRemoteId()) == null) {
+              tagDataDao.createNew(tagData);
+            }
+          }
+          break;
+        case "googleTaskAccounts":
+          for (GoogleTaskAccount googleTaskAccount :
+              readArray(gson, reader, GoogleTaskAccount.class)) {
+            if (googleTaskListDao.getAccount(googleTaskAccount.getAccount()) == null) {
+              googleTaskListDao.insert(googleTaskAccount);
+            }
+          }
+          break;
+        case "googleTaskLists":
+          for (GoogleTaskList googleTaskList : readArray(gson, reader, GoogleTaskList.class)) {
+            if (googleTaskListDao.getByRemoteId(googleTaskList.getRemoteId()) == null) {
+              googleTaskListDao.insert(googleTaskList);
+            }
+          }
+          break;
+        case "filters":
+          for (Filter filter : readArray(gson, reader, Filter.class)) {
+            if (filterDao.getByName(filter.getTitle()) == null) {
+              filterDao.insert(filter);
+            }
+          }
+          break;
+        case "caldavAccounts":
+          for (CaldavAccount account : readArray(gson, reader, CaldavAccount.class)) {
+            if (caldavDao.getAccountByUuid(account.getUuid()) == null) {
+              caldavDao.insert(account);
+            }
+          }
+          break;
+        case "caldavCalendars":
+          for (CaldavCalendar calendar : readArray(gson, reader, CaldavCalendar.class)) {
+            if (caldavDao.getCalendarByUuid(calendar.getUuid()) == null) {
+              caldavDao.insert(calendar);
+            }
+          }
+          break;
+        default:
+          reader.skipValue();
+          break;
+      }
+    }
+    reader.endObject();
+  }
+
+  private static <T> List<T> readArray(Gson gson, JsonReader reader, Class<T> type)
+      throws IOException {
+    List<T> result = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      result.add(gson.fromJson(reader, type));
+    }
+    reader.endArray();
+    return result;
+  }
+
+  /** Reads one task at a time and inserts them in transactional batches */
+  private void readTasks(Gson gson, JsonReader reader, int version) throws IOException {
+    List<TaskBackup> batch = new ArrayList<>();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      batch.add(gson.fromJson(reader, TaskBackup.class));
+      if (batch.size() == BATCH_SIZE) {
+        importTasks(batch, version);
+        batch.clear();
+      }
+    }
+    reader.endArray();
+    importTasks(batch, version);
+  }
+
+  private void importTasks(List<TaskBackup> backups, int version) {
+    if (backups.isEmpty()) {
+      return;
+    }
+    database.runInTransaction(
+        () -> {
+          for (TaskBackup backup : backups) {
+            importTask(backup, version);
+          }
+        });
+    taskCount += backups.size();
+    setProgressMessage(activity.getString(R.string.import_progress_read, taskCount));
+  }
+
+  private void importTask(TaskBackup backup, int version) {
+    Task task = backup.task;
+    if (uuids.contains(task.getUuid())) {
+      skipCount++;
+      return;
+    }
+    taskDao.createNew(task);
+    long taskId = task.getId();
+    String taskUuid = task.getUuid();
+    uuids.add(taskUuid);
+    for (Alarm alarm : backup.alarms) {
+      alarm.setTask(taskId);
+      alarmDao.insert(alarm);
+    }
+    for (UserActivity comment : backup.comments) {
+      comment.setTargetId(taskUuid);
+      if (version < 546) {
+        comment.convertPictureUri();
+      }
+      userActivityDao.createNew(comment);
+    }
+    for (GoogleTask googleTask : backup.google) {
+      googleTask.setTask(taskId);
+      googleTaskDao.insert(googleTask);
+    }
+    for (Tag tag : backup.tags) {
+      tag.setTask(taskId);
+      tag.setTaskUid(taskUuid);
+      tagDao.insert(tag);
+    }
+    for (Location location : backup.locations) {
+      location.setTask(taskId);
+      locationDao.insert(location);
+    }
+    for (TaskAttachment attachment : backup.getAttachments()) {
+      attachment.setTaskId(taskUuid);
+      if (version < 546) {
+        attachment.convertPathUri();
+      }
+      taskAttachmentDao.insert(attachment);
+    }
+    for (CaldavTask caldavTask : backup.getCaldavTasks()) {
+      caldavTask.setTask(taskId);
+      caldavDao.insert(caldavTask);
+    }
+    importCount++;
+  }
+
   private void showSummary() {
     Resources r = activity.getResources();
     dialogBuilder
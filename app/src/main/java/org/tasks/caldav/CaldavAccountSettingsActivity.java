@@ -37,6 +37,7 @@ import org.tasks.injection.ActivityComponent;
 import org.tasks.injection.ThemedInjectingAppCompatActivity;
 import org.tasks.preferences.Preferences;
 import org.tasks.security.Encryption;
+import org.tasks.sync.HttpClientFactory;
 import org.tasks.sync.SyncAdapters;
 import org.tasks.ui.DisplayableException;
 import org.tasks.ui.MenuColorizer;
@@ -54,6 +55,7 @@ public class CaldavAccountSettingsActivity extends ThemedInjectingAppCompatActiv
   @Inject SyncAdapters syncAdapters;
   @Inject TaskDeleter taskDeleter;
   @Inject Encryption encryption;
+  @Inject HttpClientFactory httpClientFactory;
 
   @BindView(R.id.root_layout)
   LinearLayout root;
@@ -263,7 +265,7 @@ public class CaldavAccountSettingsActivity extends ThemedInjectingAppCompatActiv
     }
 
     if (caldavAccount == null) {
-      CaldavClient client = new CaldavClient(url, username, password);
+      CaldavClient client = new CaldavClient(httpClientFactory, url, username, password);
       ProgressDialog dialog = dialogBuilder.newProgressDialog(R.string.contacting_server);
       dialog.show();
       client
@@ -271,7 +273,7 @@ public class CaldavAccountSettingsActivity extends ThemedInjectingAppCompatActiv
           .doAfterTerminate(dialog::dismiss)
           .subscribe(this::addAccount, this::requestFailed);
     } else if (needsValidation()) {
-      CaldavClient client = new CaldavClient(url, username, password);
+      CaldavClient client = new CaldavClient(httpClientFactory, url, username, password);
       ProgressDialog dialog = dialogBuilder.newProgressDialog(R.string.contacting_server);
       dialog.show();
       client
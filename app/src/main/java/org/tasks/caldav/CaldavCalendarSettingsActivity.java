@@ -42,6 +42,7 @@ import org.tasks.injection.ActivityComponent;
 import org.tasks.injection.ThemedInjectingAppCompatActivity;
 import org.tasks.preferences.Preferences;
 import org.tasks.security.Encryption;
+import org.tasks.sync.HttpClientFactory;
 import org.tasks.sync.SyncAdapters;
 import org.tasks.themes.ThemeCache;
 import org.tasks.themes.ThemeColor;
@@ -65,6 +66,7 @@ public class CaldavCalendarSettingsActivity extends ThemedInjectingAppCompatActi
   @Inject CaldavDao caldavDao;
   @Inject SyncAdapters syncAdapters;
   @Inject Encryption encryption;
+  @Inject HttpClientFactory httpClientFactory;
   @Inject TaskDeleter taskDeleter;
 
   @BindView(R.id.root_layout)
@@ -205,7 +207,7 @@ public class CaldavCalendarSettingsActivity extends ThemedInjectingAppCompatActi
     }
 
     if (caldavCalendar == null) {
-      CaldavClient client = new CaldavClient(caldavAccount, encryption);
+      CaldavClient client = new CaldavClient(httpClientFactory, caldavAccount, encryption);
       ProgressDialog dialog = dialogBuilder.newProgressDialog(R.string.contacting_server);
       dialog.show();
       client
@@ -359,7 +361,7 @@ public class CaldavCalendarSettingsActivity extends ThemedInjectingAppCompatActi
             R.string.delete,
             (dialog, which) -> {
               CaldavClient caldavClient =
-                  new CaldavClient(caldavAccount, caldavCalendar, encryption);
+                  new CaldavClient(httpClientFactory, caldavAccount, caldavCalendar, encryption);
               ProgressDialog progressDialog =
                   dialogBuilder.newProgressDialog(R.string.contacting_server);
               progressDialog.show();
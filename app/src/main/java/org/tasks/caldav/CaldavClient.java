@@ -34,6 +34,7 @@ import org.tasks.R;
 import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.security.Encryption;
+import org.tasks.sync.HttpClientFactory;
 import org.tasks.ui.DisplayableException;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -45,25 +46,32 @@ class CaldavClient {
   private final OkHttpClient httpClient;
   private final HttpUrl httpUrl;
 
-  CaldavClient(CaldavAccount caldavAccount, Encryption encryption) {
+  CaldavClient(
+      HttpClientFactory httpClientFactory, CaldavAccount caldavAccount, Encryption encryption) {
     this(
+        httpClientFactory,
         caldavAccount.getUrl(),
         caldavAccount.getUsername(),
         encryption.decrypt(caldavAccount.getPassword()));
   }
 
-  CaldavClient(CaldavAccount caldavAccount, CaldavCalendar caldavCalendar, Encryption encryption) {
+  CaldavClient(
+      HttpClientFactory httpClientFactory,
+      CaldavAccount caldavAccount,
+      CaldavCalendar caldavCalendar,
+      Encryption encryption) {
     this(
+        httpClientFactory,
         caldavCalendar.getUrl(),
         caldavAccount.getUsername(),
         encryption.decrypt(caldavAccount.getPassword()));
   }
 
-  CaldavClient(String url, String username, String password) {
+  CaldavClient(HttpClientFactory httpClientFactory, String url, String username, String password) {
     BasicDigestAuthHandler basicDigestAuthHandler =
         new BasicDigestAuthHandler(null, username, password);
     httpClient =
-        new OkHttpClient()
+        httpClientFactory
             .newBuilder()
             .addNetworkInterceptor(basicDigestAuthHandler)
             .authenticator(basicDigestAuthHandler)
@@ -1,14 +1,14 @@
 package org.tasks.caldav;
 
+import static com.google.common.base.Objects.equal;
 import static com.todoroo.andlib.utility.DateUtilities.now;
 import static com.todoroo.astrid.data.Task.URGENCY_SPECIFIC_DAY;
 import static com.todoroo.astrid.data.Task.URGENCY_SPECIFIC_DAY_TIME;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 
-import com.google.common.base.Strings;
+import androidx.annotation.Nullable;
 import com.todoroo.astrid.data.Task;
 import com.todoroo.astrid.data.Task.Priority;
-import java.io.StringReader;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -21,6 +21,7 @@ import net.fortuna.ical4j.model.property.Due;
 import net.fortuna.ical4j.model.property.RRule;
 import net.fortuna.ical4j.model.property.Status;
 import org.tasks.data.CaldavTask;
+import org.tasks.data.CompressedText;
 import timber.log.Timber;
 
 public class CaldavConverter {
@@ -101,18 +102,71 @@ public class CaldavConverter {
     return remotePriority > 5 ? Math.min(9, remotePriority) : 9;
   }
 
-  static at.bitfire.ical4android.Task toCaldav(CaldavTask caldavTask, Task task) {
-    at.bitfire.ical4android.Task remote = null;
+  /**
+   * Merges an object that was modified both locally and on the server. Fields that were edited
+   * locally since {@code base} keep the local value, every other field takes the value from {@code
+   * remote}.
+   *
+   * @param local updated in place
+   * @param base the local task with the last synced object applied
+   * @param remote the local task with the server's object applied
+   * @return true if a local edit was kept and still has to be sent
+   */
+  static boolean merge(Task local, Task base, Task remote) {
+    boolean kept = false;
+    if (equal(local.getCompletionDate(), base.getCompletionDate())) {
+      local.setCompletionDate(remote.getCompletionDate());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getCreationDate(), base.getCreationDate())) {
+      local.setCreationDate(remote.getCreationDate());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getTitle(), base.getTitle())) {
+      local.setTitle(remote.getTitle());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getNotes(), base.getNotes())) {
+      local.setNotes(remote.getNotes());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getPriority(), base.getPriority())) {
+      local.setPriority(remote.getPriority());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getRecurrence(), base.getRecurrence())) {
+      local.setRecurrence(remote.getRecurrence());
+    } else {
+      kept = true;
+    }
+    if (equal(local.getDueDate(), base.getDueDate())) {
+      local.setDueDateAdjustingHideUntil(remote.getDueDate());
+    } else {
+      kept = true;
+    }
+    return kept;
+  }
+
+  /** Returns null if there is no stored object or it can't be parsed */
+  static @Nullable at.bitfire.ical4android.Task fromVtodo(@Nullable byte[] vtodo) {
+    if (CompressedText.isEmpty(vtodo)) {
+      return null;
+    }
     try {
-      if (!Strings.isNullOrEmpty(caldavTask.getVtodo())) {
-        remote =
-            at.bitfire.ical4android.Task.Companion.fromReader(
-                    new StringReader(caldavTask.getVtodo()))
-                .get(0);
-      }
+      return at.bitfire.ical4android.Task.Companion.fromReader(CompressedText.reader(vtodo)).get(0);
     } catch (Exception e) {
       Timber.e(e);
+      return null;
     }
+  }
+
+  static at.bitfire.ical4android.Task toCaldav(CaldavTask caldavTask, Task task) {
+    at.bitfire.ical4android.Task remote = fromVtodo(caldavTask.getVtodo());
     if (remote == null) {
       remote = new at.bitfire.ical4android.Task();
     }
@@ -11,23 +11,27 @@ import javax.inject.Inject;
 import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.data.CaldavDao;
+import org.tasks.data.MetadataCache;
 import org.tasks.sync.SyncAdapters;
 
 public class CaldavFilterExposer {
 
   private final SyncAdapters syncAdapters;
   private final CaldavDao caldavDao;
+  private final MetadataCache metadataCache;
 
   @Inject
-  public CaldavFilterExposer(CaldavDao caldavDao, SyncAdapters syncAdapters) {
+  public CaldavFilterExposer(
+      CaldavDao caldavDao, SyncAdapters syncAdapters, MetadataCache metadataCache) {
     this.caldavDao = caldavDao;
     this.syncAdapters = syncAdapters;
+    this.metadataCache = metadataCache;
   }
 
   public List<Pair<CaldavAccount, List<Filter>>> getFilters() {
     List<Pair<CaldavAccount, List<Filter>>> filters = new ArrayList<>();
     for (CaldavAccount account : caldavDao.getAccounts()) {
-      List<CaldavCalendar> calendars = caldavDao.getCalendarsByAccount(account.getUuid());
+      List<CaldavCalendar> calendars = metadataCache.getCaldavCalendars(account.getUuid());
       filters.add(new Pair<>(account, transform(calendars, CaldavFilter::new)));
     }
     return filters;
@@ -35,7 +39,10 @@ public class CaldavFilterExposer {
 
   public Filter getFilterByUuid(String uuid) {
     if (syncAdapters.isCaldavSyncEnabled()) {
-      CaldavCalendar caldavCalendar = caldavDao.getCalendarByUuid(uuid);
+      CaldavCalendar caldavCalendar = metadataCache.getCaldavCalendar(uuid);
+      if (caldavCalendar == null) {
+        caldavCalendar = caldavDao.getCalendarByUuid(uuid);
+      }
       if (caldavCalendar != null) {
         return new CaldavFilter(caldavCalendar);
       }
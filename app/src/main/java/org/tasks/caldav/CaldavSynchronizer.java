@@ -1,15 +1,13 @@
 package org.tasks.caldav;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
-import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Iterables.partition;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.collect.Lists.transform;
-import static com.google.common.collect.Sets.difference;
 import static com.google.common.collect.Sets.newHashSet;
 import static org.tasks.time.DateTimeUtils.currentTimeMillis;
 
 import android.content.Context;
+import androidx.annotation.Nullable;
 import at.bitfire.dav4android.DavCalendar;
 import at.bitfire.dav4android.DavResource;
 import at.bitfire.dav4android.DavResponse;
@@ -20,11 +18,11 @@ import at.bitfire.dav4android.property.DisplayName;
 import at.bitfire.dav4android.property.GetCTag;
 import at.bitfire.dav4android.property.GetETag;
 import at.bitfire.ical4android.ICalendar;
-import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
-import com.google.common.io.CharStreams;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
 import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.Task;
@@ -34,9 +32,13 @@ import com.todoroo.astrid.service.TaskDeleter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
 import net.fortuna.ical4j.model.property.ProdId;
@@ -48,12 +50,20 @@ import org.tasks.BuildConfig;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
 import org.tasks.billing.Inventory;
+import org.tasks.caldav.SyncCollection.Member;
 import org.tasks.data.CaldavAccount;
 import org.tasks.data.CaldavCalendar;
 import org.tasks.data.CaldavDao;
+import org.tasks.data.CaldavEtag;
 import org.tasks.data.CaldavTask;
+import org.tasks.data.CompressedText;
 import org.tasks.injection.ForApplication;
+import org.tasks.jobs.AfterSaveHandler;
+import org.tasks.jobs.AfterSaveHandler.Change;
 import org.tasks.security.Encryption;
+import org.tasks.sync.HttpClientFactory;
+import org.tasks.sync.SyncScheduler;
+import org.tasks.sync.SyncScheduler.Job;
 import timber.log.Timber;
 
 public class CaldavSynchronizer {
@@ -71,6 +81,12 @@ public class CaldavSynchronizer {
   private final Encryption encryption;
   private final Inventory inventory;
   private final Context context;
+  private final Database database;
+  private final AfterSaveHandler afterSaveHandler;
+  private final SyncScheduler syncScheduler;
+  private final MultigetPipeline multigetPipeline;
+  private final PushPipeline pushPipeline;
+  private final HttpClientFactory httpClientFactory;
 
   @Inject
   public CaldavSynchronizer(
@@ -81,7 +97,13 @@ public class CaldavSynchronizer {
       TaskCreator taskCreator,
       TaskDeleter taskDeleter,
       Encryption encryption,
-      Inventory inventory) {
+      Inventory inventory,
+      Database database,
+      AfterSaveHandler afterSaveHandler,
+      SyncScheduler syncScheduler,
+      MultigetPipeline multigetPipeline,
+      PushPipeline pushPipeline,
+      HttpClientFactory httpClientFactory) {
     this.context = context;
     this.caldavDao = caldavDao;
     this.taskDao = taskDao;
@@ -90,11 +112,18 @@ public class CaldavSynchronizer {
     this.taskDeleter = taskDeleter;
     this.encryption = encryption;
     this.inventory = inventory;
+    this.database = database;
+    this.afterSaveHandler = afterSaveHandler;
+    this.syncScheduler = syncScheduler;
+    this.multigetPipeline = multigetPipeline;
+    this.pushPipeline = pushPipeline;
+    this.httpClientFactory = httpClientFactory;
   }
 
   public void sync() {
-    // required for dav4android (ServiceLoader)
-    Thread.currentThread().setContextClassLoader(context.getClassLoader());
+    List<CaldavAccount> accounts = new ArrayList<>();
+    List<Job> calendars = Collections.synchronizedList(new ArrayList<>());
+    List<Job> jobs = new ArrayList<>();
     for (CaldavAccount account : caldavDao.getAccounts()) {
       if (!inventory.hasPro()) {
         account.setError(context.getString(R.string.requires_pro_subscription));
@@ -109,46 +138,88 @@ public class CaldavSynchronizer {
         Timber.e("Missing password for %s", account);
         continue;
       }
-      CaldavClient caldavClient = new CaldavClient(account, encryption);
-      List<DavResponse> resources;
-      try {
-        resources = caldavClient.getCalendars();
-      } catch (IOException | DavException e) {
-        account.setError(e.getMessage());
+      accounts.add(account);
+      jobs.add(
+          new Job(
+              account.getName(),
+              getHost(account.getUrl()),
+              () -> calendars.addAll(getCalendarJobs(account))));
+    }
+    try {
+      syncScheduler.runAll("caldav", jobs);
+      syncScheduler.runAll("caldav", calendars);
+    } catch (InterruptedException e) {
+      Timber.e(e);
+      Thread.currentThread().interrupt();
+      return;
+    }
+    httpClientFactory.getMetrics().log();
+    for (CaldavAccount account : accounts) {
+      if (isNullOrEmpty(account.getError())) {
         caldavDao.update(account);
         localBroadcastManager.broadcastRefreshList();
-        Timber.e(e);
-        continue;
-      }
-      Set<String> urls = newHashSet(transform(resources, c -> c.getUrl().toString()));
-      Timber.d("Found calendars: %s", urls);
-      for (CaldavCalendar calendar :
-          caldavDao.findDeletedCalendars(account.getUuid(), newArrayList(urls))) {
-        taskDeleter.delete(calendar);
       }
-      for (DavResponse resource : resources) {
-        String url = resource.getUrl().toString();
-
-        CaldavCalendar calendar = caldavDao.getCalendarByUrl(account.getUuid(), url);
-        if (calendar == null) {
-          calendar = new CaldavCalendar();
-          calendar.setName(resource.get(DisplayName.class).getDisplayName());
-          calendar.setAccount(account.getUuid());
-          calendar.setUrl(url);
-          calendar.setUuid(UUIDHelper.newUUID());
-          calendar.setId(caldavDao.insert(calendar));
-        }
-        sync(calendar, resource, caldavClient.getHttpClient());
-      }
-      account.setError("");
+    }
+  }
+
+  /** Updates the list of calendars and returns a job to sync each of them */
+  private List<Job> getCalendarJobs(CaldavAccount account) {
+    // required for dav4android (ServiceLoader)
+    Thread.currentThread().setContextClassLoader(context.getClassLoader());
+    CaldavClient caldavClient = new CaldavClient(httpClientFactory, account, encryption);
+    List<DavResponse> resources;
+    try {
+      resources = caldavClient.getCalendars();
+    } catch (IOException | DavException e) {
+      account.setError(e.getMessage());
       caldavDao.update(account);
       localBroadcastManager.broadcastRefreshList();
+      Timber.e(e);
+      return Collections.emptyList();
     }
+    account.setError("");
+    Set<String> urls = newHashSet(transform(resources, c -> c.getUrl().toString()));
+    Timber.d("Found calendars: %s", urls);
+    for (CaldavCalendar calendar :
+        caldavDao.findDeletedCalendars(account.getUuid(), newArrayList(urls))) {
+      taskDeleter.delete(calendar);
+    }
+    List<Job> jobs = new ArrayList<>();
+    for (DavResponse resource : resources) {
+      String url = resource.getUrl().toString();
+
+      CaldavCalendar calendar = caldavDao.getCalendarByUrl(account.getUuid(), url);
+      if (calendar == null) {
+        calendar = new CaldavCalendar();
+        calendar.setName(resource.get(DisplayName.class).getDisplayName());
+        calendar.setAccount(account.getUuid());
+        calendar.setUrl(url);
+        calendar.setUuid(UUIDHelper.newUUID());
+        calendar.setId(caldavDao.insert(calendar));
+      }
+      CaldavCalendar caldavCalendar = calendar;
+      jobs.add(
+          new Job(
+              account.getName(),
+              resource.getUrl().host(),
+              () -> {
+                Thread.currentThread().setContextClassLoader(context.getClassLoader());
+                sync(caldavCalendar, resource, caldavClient.getHttpClient());
+              }));
+    }
+    return jobs;
+  }
+
+  private static String getHost(String url) {
+    HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+    return httpUrl == null ? null : httpUrl.host();
   }
 
   private void sync(CaldavCalendar caldavCalendar, DavResponse resource, OkHttpClient httpClient) {
     Timber.d("sync(%s)", caldavCalendar);
     HttpUrl httpUrl = resource.getUrl();
+    List<Change> saved = new ArrayList<>();
+    List<Long> merged = new ArrayList<>();
     try {
       pushLocalChanges(caldavCalendar, httpClient, httpUrl);
 
@@ -168,223 +239,472 @@ public class CaldavSynchronizer {
         return;
       }
 
-      DavCalendar davCalendar = new DavCalendar(httpClient, httpUrl);
-
-      List<DavResponse> members = davCalendar.calendarQuery("VTODO", null, null).getMembers();
-
-      Set<String> remoteObjects = newHashSet(transform(members, DavResponse::fileName));
-
-      Iterable<DavResponse> changed =
-          filter(
-              ImmutableSet.copyOf(members),
-              vCard -> {
-                GetETag eTag = vCard.get(GetETag.class);
-                if (eTag == null || isNullOrEmpty(eTag.getETag())) {
-                  return false;
-                }
-                CaldavTask caldavTask =
-                    caldavDao.getTask(caldavCalendar.getUuid(), vCard.fileName());
-                return caldavTask == null || !eTag.getETag().equals(caldavTask.getEtag());
-              });
-
-      for (List<DavResponse> items : partition(changed, 30)) {
-        if (items.size() == 1) {
-          DavResponse vCard = items.get(0);
+      SyncCollection.Result changes =
+          new SyncCollection(httpClient, httpUrl).getChanges(caldavCalendar.getSyncToken());
+      Map<String, String> localEtags = getLocalEtags(caldavCalendar);
+      if (changes == null) {
+        List<Member> members = new ArrayList<>();
+        DavCalendar davCalendar = new DavCalendar(httpClient, httpUrl);
+        for (DavResponse vCard : davCalendar.calendarQuery("VTODO", null, null).getMembers()) {
           GetETag eTag = vCard.get(GetETag.class);
-          if (eTag == null || isNullOrEmpty(eTag.getETag())) {
-            throw new DavException(
-                "Received CalDAV GET response without ETag for " + vCard.getUrl());
-          }
-          Timber.d("SINGLE %s", vCard.getUrl());
-          DavResponse response = new DavResource(httpClient, vCard.getUrl()).get("text/calendar");
-          ResponseBody responseBody = response.getBody();
-          Reader reader = null;
-          try {
-            reader = responseBody.charStream();
-            processVTodo(
-                vCard.fileName(), caldavCalendar, eTag.getETag(), CharStreams.toString(reader));
-          } finally {
-            if (reader != null) {
-              reader.close();
-            }
-          }
+          members.add(new Member(vCard.getUrl(), eTag == null ? null : eTag.getETag()));
+        }
+        fetchChanges(
+            caldavCalendar, httpClient, httpUrl, reconcile(members, localEtags), saved, merged);
+        deleteMissing(caldavCalendar, localEtags.keySet());
+        caldavCalendar.setSyncToken(SyncCollection.UNSUPPORTED);
+      } else {
+        fetchChanges(
+            caldavCalendar,
+            httpClient,
+            httpUrl,
+            reconcile(changes.changed, localEtags),
+            saved,
+            merged);
+        if (changes.initial) {
+          deleteMissing(caldavCalendar, localEtags.keySet());
         } else {
-          ArrayList<HttpUrl> urls = newArrayList(Iterables.transform(items, DavResponse::getUrl));
-          DavResponse response = davCalendar.multiget(urls);
-
-          Timber.d("MULTI %s", urls);
-
-          for (DavResponse vCard : response.getMembers()) {
-            GetETag eTag = vCard.get(GetETag.class);
-            if (eTag == null || isNullOrEmpty(eTag.getETag())) {
-              throw new DavException(
-                  "Received CalDAV GET response without ETag for " + vCard.getUrl());
-            }
-            CalendarData calendarData = vCard.get(CalendarData.class);
-            if (calendarData == null || isNullOrEmpty(calendarData.getICalendar())) {
-              throw new DavException(
-                  "Received CalDAV GET response without CalendarData for " + vCard.getUrl());
-            }
-
-            processVTodo(
-                vCard.fileName(), caldavCalendar, eTag.getETag(), calendarData.getICalendar());
-          }
+          deleteMissing(caldavCalendar, changes.removed);
         }
+        caldavCalendar.setSyncToken(changes.syncToken);
       }
 
-      List<String> deleted =
-          newArrayList(
-              difference(
-                  newHashSet(caldavDao.getObjects(caldavCalendar.getUuid())),
-                  newHashSet(remoteObjects)));
-      if (deleted.size() > 0) {
-        Timber.d("DELETED %s", deleted);
-        taskDeleter.delete(caldavDao.getTasks(caldavCalendar.getUuid(), deleted));
+      if (!merged.isEmpty()) {
+        Timber.d("Sending %s merged tasks", merged.size());
+        pushLocalChanges(caldavCalendar, httpClient, httpUrl);
       }
 
       caldavCalendar.setCtag(remoteCtag);
       Timber.d("UPDATE %s", caldavCalendar);
       caldavDao.update(caldavCalendar);
+    } catch (InterruptedException e) {
+      Timber.e(e);
+      Thread.currentThread().interrupt();
     } catch (IOException | DavException e) {
       Timber.e(e);
     } catch (Exception e) {
       Timber.e(e);
     }
 
+    afterSaveHandler.afterSave(saved);
     localBroadcastManager.broadcastRefresh();
   }
 
-  private void pushLocalChanges(
-      CaldavCalendar caldavCalendar, OkHttpClient httpClient, HttpUrl httpUrl) {
-    List<Task> tasks = taskDao.getCaldavTasksToPush(caldavCalendar.getUuid());
-    for (com.todoroo.astrid.data.Task task : tasks) {
+  private void fetchChanges(
+      CaldavCalendar caldavCalendar,
+      OkHttpClient httpClient,
+      HttpUrl httpUrl,
+      List<Member> changed,
+      List<Change> saved,
+      List<Long> merged)
+      throws IOException, DavException, InterruptedException {
+    multigetPipeline.run(
+        changed,
+        members -> download(httpClient, httpUrl, members),
+        CaldavSynchronizer::parse,
+        objects ->
+            database.runInTransaction(() -> apply(caldavCalendar, objects, saved, merged)));
+  }
+
+  private static List<Downloaded> download(
+      OkHttpClient httpClient, HttpUrl httpUrl, List<Member> members)
+      throws IOException, DavException {
+    if (members.size() == 1) {
+      Member member = members.get(0);
+      Timber.d("SINGLE %s", member.url);
+      DavResponse response = new DavResource(httpClient, member.url).get("text/calendar");
+      ResponseBody responseBody = response.getBody();
+      Reader reader = null;
+      byte[] vtodo;
       try {
-        pushTask(task, caldavCalendar, httpClient, httpUrl);
-      } catch (IOException e) {
-        Timber.e(e);
+        reader = responseBody.charStream();
+        vtodo = CompressedText.compress(reader);
+      } finally {
+        if (reader != null) {
+          reader.close();
+        }
       }
+      return Collections.singletonList(new Downloaded(member.fileName(), member.eTag, vtodo));
     }
-  }
 
-  private boolean deleteRemoteResource(
-      OkHttpClient httpClient, HttpUrl httpUrl, CaldavTask caldavTask) {
-    try {
-      if (!Strings.isNullOrEmpty(caldavTask.getObject())) {
-        DavResource remote =
-            new DavResource(
-                httpClient, httpUrl.newBuilder().addPathSegment(caldavTask.getObject()).build());
-        remote.delete(null);
+    ArrayList<HttpUrl> urls = newArrayList(Iterables.transform(members, m -> m.url));
+    DavResponse response = new DavCalendar(httpClient, httpUrl).multiget(urls);
+
+    Timber.d("MULTI %s", urls);
+
+    List<Downloaded> result = new ArrayList<>();
+    for (DavResponse vCard : response.getMembers()) {
+      GetETag eTag = vCard.get(GetETag.class);
+      if (eTag == null || isNullOrEmpty(eTag.getETag())) {
+        throw new DavException("Received CalDAV GET response without ETag for " + vCard.getUrl());
       }
-    } catch (HttpException e) {
-      if (e.getCode() != 404) {
-        Timber.e(e);
-        return false;
+      CalendarData calendarData = vCard.get(CalendarData.class);
+      if (calendarData == null || isNullOrEmpty(calendarData.getICalendar())) {
+        throw new DavException(
+            "Received CalDAV GET response without CalendarData for " + vCard.getUrl());
       }
-    } catch (IOException e) {
-      Timber.e(e);
-      return false;
+      result.add(
+          new Downloaded(
+              vCard.fileName(),
+              eTag.getETag(),
+              CompressedText.compress(calendarData.getICalendar())));
     }
-    caldavDao.delete(caldavTask);
-    return true;
+    return result;
   }
 
-  private void pushTask(
-      Task task, CaldavCalendar caldavCalendar, OkHttpClient httpClient, HttpUrl httpUrl)
-      throws IOException {
-    Timber.d("pushing %s", task);
-    List<CaldavTask> deleted = caldavDao.getDeleted(task.getId(), caldavCalendar.getUuid());
-    if (!deleted.isEmpty()) {
-      for (CaldavTask entry : deleted) {
-        deleteRemoteResource(httpClient, httpUrl, entry);
-      }
-      return;
-    }
-
-    CaldavTask caldavTask = caldavDao.getTask(task.getId());
-
-    if (caldavTask == null) {
-      return;
+  private Map<String, String> getLocalEtags(CaldavCalendar caldavCalendar) {
+    Map<String, String> result = new HashMap<>();
+    for (CaldavEtag etag : caldavDao.getEtags(caldavCalendar.getUuid())) {
+      result.put(etag.object, etag.etag);
     }
+    return result;
+  }
 
-    if (task.isDeleted()) {
-      if (deleteRemoteResource(httpClient, httpUrl, caldavTask)) {
-        caldavDao.delete(caldavTask);
+  /**
+   * Returns the members whose ETag differs from the local copy. Every member is removed from
+   * {@code localEtags}, so for a full listing the remaining entries are the objects that were
+   * deleted on the server.
+   */
+  private static List<Member> reconcile(List<Member> members, Map<String, String> localEtags) {
+    List<Member> changed = new ArrayList<>();
+    for (Member member : members) {
+      String localEtag = localEtags.remove(member.fileName());
+      if (!isNullOrEmpty(member.eTag) && !member.eTag.equals(localEtag)) {
+        changed.add(member);
       }
-      return;
     }
+    return changed;
+  }
 
-    at.bitfire.ical4android.Task remoteModel = CaldavConverter.toCaldav(caldavTask, task);
-
-    if (Strings.isNullOrEmpty(caldavTask.getRemoteId())) {
-      String caldavUid = UUIDHelper.newUUID();
-      caldavTask.setRemoteId(caldavUid);
-      remoteModel.setUid(caldavUid);
-    } else {
-      remoteModel.setUid(caldavTask.getRemoteId());
+  private void deleteMissing(CaldavCalendar caldavCalendar, Collection<String> objects)
+      throws InterruptedException {
+    if (objects.size() > 0) {
+      Timber.d("DELETED %s", objects);
+      syncScheduler.write(
+          () ->
+              taskDeleter.delete(
+                  caldavDao.getTasks(caldavCalendar.getUuid(), newArrayList(objects))));
     }
+  }
 
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
-    remoteModel.write(os);
-    byte[] data = os.toByteArray();
-    RequestBody requestBody = RequestBody.create(DavCalendar.Companion.getMIME_ICALENDAR(), data);
-
-    try {
-      DavResource remote =
-          new DavResource(
-              httpClient, httpUrl.newBuilder().addPathSegment(caldavTask.getObject()).build());
-      DavResponse response = remote.put(requestBody, null, false);
-      GetETag getETag = response.get(GetETag.class);
-      if (getETag != null && !isNullOrEmpty(getETag.getETag())) {
-        caldavTask.setEtag(getETag.getETag());
-        caldavTask.setVtodo(new String(data));
-      }
-    } catch (HttpException e) {
-      Timber.e(e);
+  /**
+   * Sends every locally modified task. Requests are conditional on the last known ETag. An object
+   * that changed on the server is marked as conflicting and stays modified, and the following
+   * download merges the server's version with the local edits.
+   */
+  private void pushLocalChanges(
+      CaldavCalendar caldavCalendar, OkHttpClient httpClient, HttpUrl httpUrl)
+      throws InterruptedException {
+    List<Task> tasks = taskDao.getCaldavTasksToPush(caldavCalendar.getUuid());
+    if (tasks.isEmpty()) {
       return;
     }
+    ListMultimap<Long, CaldavTask> caldavTasks =
+        Multimaps.index(caldavDao.getTasksToPush(caldavCalendar.getUuid()), CaldavTask::getTask);
+    List<Upload> uploads = new ArrayList<>();
+    Set<Long> seen = new HashSet<>();
+    for (Task task : tasks) {
+      if (!seen.add(task.getId())) {
+        continue;
+      }
+      List<CaldavTask> deleted = new ArrayList<>();
+      CaldavTask caldavTask = null;
+      for (CaldavTask entry : caldavTasks.get(task.getId())) {
+        if (entry.getDeleted() > 0) {
+          deleted.add(entry);
+        } else if (caldavTask == null) {
+          caldavTask = entry;
+        }
+      }
+      if (!deleted.isEmpty()) {
+        for (CaldavTask entry : deleted) {
+          uploads.add(new Upload(entry, null));
+        }
+      } else if (caldavTask != null) {
+        uploads.add(new Upload(caldavTask, task.isDeleted() ? null : task));
+      }
+    }
+    pushPipeline.run(
+        uploads,
+        upload -> upload.send(httpClient, httpUrl),
+        results ->
+            database.runInTransaction(
+                () -> {
+                  for (Upload upload : results) {
+                    applyUpload(upload);
+                  }
+                }));
+  }
 
-    caldavTask.setLastSync(currentTimeMillis());
-    caldavDao.update(caldavTask);
-    Timber.d("SENT %s", caldavTask);
+  private void applyUpload(Upload upload) {
+    CaldavTask caldavTask = upload.caldavTask;
+    if (upload.conflict) {
+      // keep the old ETag so that the server's version is downloaded, see resolveConflict
+      caldavTask.setConflict(true);
+      caldavDao.update(caldavTask);
+      Timber.d("CONFLICT %s", caldavTask);
+    } else if (upload.sent && upload.task == null) {
+      caldavDao.delete(caldavTask);
+      Timber.d("DELETED %s", caldavTask);
+    } else if (upload.sent) {
+      caldavTask.setEtag(upload.eTag);
+      caldavTask.setVtodo(upload.vtodo);
+      caldavTask.setLastSync(currentTimeMillis());
+      caldavDao.update(caldavTask);
+      Timber.d("SENT %s", caldavTask);
+    }
   }
 
-  private void processVTodo(
-      String fileName, CaldavCalendar caldavCalendar, String eTag, String vtodo) {
+  private static Parsed parse(Downloaded object) {
     List<at.bitfire.ical4android.Task> tasks;
     try {
-      tasks = at.bitfire.ical4android.Task.Companion.fromReader(new StringReader(vtodo));
+      tasks =
+          at.bitfire.ical4android.Task.Companion.fromReader(CompressedText.reader(object.vtodo));
     } catch (Exception e) {
       Timber.e(e);
-      return;
+      return null;
     }
+    if (tasks.size() != 1) {
+      Timber.e("Received VCALENDAR with %s VTODOs; ignoring %s", tasks.size(), object.fileName);
+      return null;
+    }
+    return new Parsed(object, tasks.get(0));
+  }
 
-    if (tasks.size() == 1) {
-      at.bitfire.ical4android.Task remote = tasks.get(0);
-      Task task;
+  /** Applies a downloaded batch, loading the batch's tasks with one query */
+  private void apply(
+      CaldavCalendar caldavCalendar, List<Parsed> objects, List<Change> saved, List<Long> merged) {
+    Map<String, CaldavTask> caldavTasks = new HashMap<>();
+    List<Long> ids = new ArrayList<>();
+    for (Parsed object : objects) {
+      String fileName = object.downloaded.fileName;
       CaldavTask caldavTask = caldavDao.getTask(caldavCalendar.getUuid(), fileName);
+      if (caldavTask != null) {
+        caldavTasks.put(fileName, caldavTask);
+        ids.add(caldavTask.getTask());
+      }
+    }
+    Map<Long, Task> tasks = new HashMap<>();
+    for (Task task : taskDao.fetch(ids)) {
+      tasks.put(task.getId(), task);
+    }
+    for (Parsed object : objects) {
+      CaldavTask caldavTask = caldavTasks.get(object.downloaded.fileName);
+      Task task = caldavTask == null ? null : tasks.get(caldavTask.getTask());
+      apply(caldavCalendar, object, caldavTask, task, saved, merged);
+    }
+  }
+
+  private void apply(
+      CaldavCalendar caldavCalendar,
+      Parsed object,
+      @Nullable CaldavTask caldavTask,
+      @Nullable Task task,
+      List<Change> saved,
+      List<Long> merged) {
+    at.bitfire.ical4android.Task remote = object.remote;
+    String fileName = object.downloaded.fileName;
+    Task original = null;
+    if (task == null) {
+      task = taskCreator.createWithValues(null, "");
+    } else {
+      original = new Task(task);
+    }
+    boolean resend = false;
+    if (caldavTask != null && caldavTask.isConflict()) {
+      resend = resolveConflict(caldavTask, task, remote);
+    } else {
+      CaldavConverter.apply(task, remote);
+    }
+    task.putTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC, true);
+    if (original == null) {
+      taskDao.createNew(task);
       if (caldavTask == null) {
-        task = taskCreator.createWithValues(null, "");
-        taskDao.createNew(task);
         caldavTask =
             new CaldavTask(task.getId(), caldavCalendar.getUuid(), remote.getUid(), fileName);
       } else {
-        task = taskDao.fetch(caldavTask.getTask());
+        // the local task is gone, the object is restored as a new task
+        caldavTask.setTask(task.getId());
       }
-      CaldavConverter.apply(task, remote);
-      task.putTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC, true);
-      taskDao.save(task);
-      caldavTask.setVtodo(vtodo);
-      caldavTask.setEtag(eTag);
+      saved.add(new Change(task, null));
+    } else if (taskDao.saveWithoutHooks(task, original)) {
+      saved.add(new Change(task, original));
+    }
+    caldavTask.setVtodo(object.downloaded.vtodo);
+    caldavTask.setEtag(object.downloaded.eTag);
+    caldavTask.setConflict(false);
+    if (resend) {
+      // still modified since the last sync, the merged task is sent with the new ETag
+      merged.add(task.getId());
+    } else {
       caldavTask.setLastSync(DateUtilities.now() + 1000L);
-      if (caldavTask.getId() == Task.NO_ID) {
-        caldavTask.setId(caldavDao.insert(caldavTask));
-        Timber.d("NEW %s", caldavTask);
+    }
+    if (caldavTask.getId() == Task.NO_ID) {
+      caldavTask.setId(caldavDao.insert(caldavTask));
+      Timber.d("NEW %s", caldavTask);
+    } else {
+      caldavDao.update(caldavTask);
+      Timber.d("UPDATE %s", caldavTask);
+    }
+  }
+
+  /**
+   * Applies the server's version of an object whose upload was rejected, keeping the fields that
+   * were edited locally since the last sync. Returns true if the task still has to be sent.
+   */
+  private boolean resolveConflict(
+      CaldavTask caldavTask, Task task, at.bitfire.ical4android.Task remote) {
+    // task hasn't been modified yet, copies of it are the stored version
+    Task theirs = new Task(task);
+    CaldavConverter.apply(theirs, remote);
+    at.bitfire.ical4android.Task lastSynced = CaldavConverter.fromVtodo(caldavTask.getVtodo());
+    boolean resend;
+    if (lastSynced == null) {
+      // nothing to compare with, the local version replaces the server's
+      resend = true;
+    } else {
+      Task base = new Task(task);
+      CaldavConverter.apply(base, lastSynced);
+      resend = CaldavConverter.merge(task, base, theirs);
+    }
+    Timber.i("Resolved conflict for %s, local edits kept: %s", caldavTask, resend);
+    // a local deletion is sent again with the new ETag
+    return resend || caldavTask.getDeleted() > 0 || task.isDeleted();
+  }
+
+  /**
+   * A PUT of a modified task, or a DELETE if there is no task, and its outcome. Sent from the push
+   * pool; the outcome is written by the calendar's sync thread.
+   */
+  private static class Upload {
+
+    final CaldavTask caldavTask;
+    @Nullable final Task task;
+    boolean sent;
+    boolean conflict;
+    String eTag;
+    byte[] vtodo;
+
+    Upload(CaldavTask caldavTask, @Nullable Task task) {
+      this.caldavTask = caldavTask;
+      this.task = task;
+    }
+
+    Upload send(OkHttpClient httpClient, HttpUrl httpUrl) {
+      try {
+        if (task == null) {
+          delete(httpClient, httpUrl);
+        } else {
+          put(httpClient, httpUrl);
+        }
+        sent = true;
+      } catch (HttpException e) {
+        if (e.getCode() == 412) {
+          conflict = true;
+        } else {
+          Timber.e(e);
+        }
+      } catch (IOException e) {
+        Timber.e(e);
+      }
+      return this;
+    }
+
+    private void delete(OkHttpClient httpClient, HttpUrl httpUrl)
+        throws IOException, HttpException {
+      if (isNullOrEmpty(caldavTask.getObject())) {
+        return;
+      }
+      try {
+        getResource(httpClient, httpUrl).delete(caldavTask.getEtag());
+      } catch (HttpException e) {
+        if (e.getCode() != 404) {
+          throw e;
+        }
+      }
+    }
+
+    private void put(OkHttpClient httpClient, HttpUrl httpUrl)
+        throws IOException, HttpException {
+      Timber.d("pushing %s", task);
+      at.bitfire.ical4android.Task remoteModel = CaldavConverter.toCaldav(caldavTask, task);
+
+      if (isNullOrEmpty(caldavTask.getRemoteId())) {
+        String caldavUid = UUIDHelper.newUUID();
+        caldavTask.setRemoteId(caldavUid);
+        remoteModel.setUid(caldavUid);
       } else {
-        caldavDao.update(caldavTask);
-        Timber.d("UPDATE %s", caldavTask);
+        remoteModel.setUid(caldavTask.getRemoteId());
       }
-    } else {
-      Timber.e("Received VCALENDAR with %s VTODOs; ignoring %s", tasks.size(), fileName);
+
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      remoteModel.write(os);
+      byte[] data = os.toByteArray();
+      RequestBody requestBody = RequestBody.create(DavCalendar.Companion.getMIME_ICALENDAR(), data);
+
+      // only a new object can be created without a known ETag
+      String ifMatch = caldavTask.getEtag();
+      if (isNullOrEmpty(ifMatch) && !CompressedText.isEmpty(caldavTask.getVtodo())) {
+        ifMatch = getETag(httpClient, httpUrl);
+        if (isNullOrEmpty(ifMatch)) {
+          throw new IOException("Unknown ETag, not overwriting " + caldavTask.getObject());
+        }
+      }
+      DavResponse response =
+          getResource(httpClient, httpUrl).put(requestBody, ifMatch, isNullOrEmpty(ifMatch));
+      GetETag getETag = response.get(GetETag.class);
+      eTag = getETag == null ? null : getETag.getETag();
+      if (isNullOrEmpty(eTag)) {
+        // some servers don't return the new ETag, the next PUT must still be conditional
+        eTag = getETag(httpClient, httpUrl);
+      }
+      vtodo = CompressedText.compress(data);
+    }
+
+    @Nullable
+    private String getETag(OkHttpClient httpClient, HttpUrl httpUrl) throws IOException {
+      try {
+        GetETag getETag =
+            getResource(httpClient, httpUrl).propfind(0, GetETag.NAME).get(GetETag.class);
+        return getETag == null ? null : getETag.getETag();
+      } catch (DavException e) {
+        Timber.e(e);
+        return null;
+      }
+    }
+
+    private DavResource getResource(OkHttpClient httpClient, HttpUrl httpUrl) {
+      return new DavResource(
+          httpClient, httpUrl.newBuilder().addPathSegment(caldavTask.getObject()).build());
+    }
+  }
+
+  /**
+   * A calendar object as received from the server. The iCalendar is compressed as soon as it is
+   * read, so batches waiting in the pipeline only hold the compressed copy.
+   */
+  private static class Downloaded {
+
+    final String fileName;
+    final String eTag;
+    final byte[] vtodo;
+
+    Downloaded(String fileName, String eTag, byte[] vtodo) {
+      this.fileName = fileName;
+      this.eTag = eTag;
+      this.vtodo = vtodo;
+    }
+  }
+
+  /** A calendar object with its VTODO parsed, ready to be written */
+  private static class Parsed {
+
+    final Downloaded downloaded;
+    final at.bitfire.ical4android.Task remote;
+
+    Parsed(Downloaded downloaded, at.bitfire.ical4android.Task remote) {
+      this.downloaded = downloaded;
+      this.remote = remote;
     }
   }
 }
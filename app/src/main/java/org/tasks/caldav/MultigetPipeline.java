@@ -0,0 +1,195 @@
+package org.tasks.caldav;
+
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
+
+import android.content.Context;
+import at.bitfire.dav4android.exception.DavException;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncScheduler;
+import timber.log.Timber;
+
+/**
+ * Downloads changed objects in three stages. Up to {@link #MAX_REQUESTS} multiget requests per
+ * calendar are in flight on a shared network pool, responses are parsed on a shared parser pool,
+ * and each parsed batch is written on {@link SyncScheduler#write}'s writer thread, which every
+ * calendar and list being synced shares. The calling thread waits for its batch to be written
+ * before it sends a new request, so at most {@link #MAX_REQUESTS} batches per calendar are held in
+ * memory and a busy writer slows down the downloads. Batches are written in the order they finish,
+ * not the order they were requested.
+ */
+@ApplicationScope
+public class MultigetPipeline {
+
+  static final int MAX_REQUESTS = 3;
+  private static final int NETWORK_THREADS = 6;
+
+  private final ListeningExecutorService network;
+  private final ListeningExecutorService parsers;
+  private final SyncScheduler syncScheduler;
+
+  @Inject
+  public MultigetPipeline(@ForApplication Context context, SyncScheduler syncScheduler) {
+    this(context.getClassLoader(), syncScheduler);
+  }
+
+  MultigetPipeline(ClassLoader classLoader, SyncScheduler syncScheduler) {
+    this.syncScheduler = syncScheduler;
+    network =
+        MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(
+                NETWORK_THREADS, threadFactory("caldav-network-%d", classLoader)));
+    parsers =
+        MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                threadFactory("caldav-parser-%d", classLoader)));
+  }
+
+  /** dav4android and ical4j look up services with the context class loader */
+  static ThreadFactory threadFactory(String nameFormat, ClassLoader classLoader) {
+    ThreadFactory threadFactory =
+        new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+    return runnable -> {
+      Thread thread = threadFactory.newThread(runnable);
+      thread.setContextClassLoader(classLoader);
+      return thread;
+    };
+  }
+
+  /**
+   * Fetches, parses and writes every item, and returns when all of them have been written. If a
+   * fetch fails the requests that are still in flight are cancelled and the error is rethrown.
+   *
+   * @param parser returns null for objects that should be skipped
+   */
+  <I, F, P> void run(List<I> items, Fetcher<I, F> fetcher, Parser<F, P> parser, Writer<P> writer)
+      throws IOException, DavException, InterruptedException {
+    MultigetSize size = new MultigetSize();
+    BlockingQueue<ListenableFuture<List<P>>> finished = new LinkedBlockingQueue<>();
+    Set<ListenableFuture<List<P>>> inFlight = new HashSet<>();
+    int next = 0;
+    try {
+      while (next < items.size() || !inFlight.isEmpty()) {
+        while (inFlight.size() < MAX_REQUESTS && next < items.size()) {
+          List<I> chunk = items.subList(next, Math.min(items.size(), next + size.get()));
+          next += chunk.size();
+          ListenableFuture<List<P>> future =
+              Futures.transform(
+                  fetch(chunk, fetcher, size), fetched -> parse(fetched, parser), parsers);
+          future.addListener(() -> finished.add(future), MoreExecutors.directExecutor());
+          inFlight.add(future);
+        }
+        ListenableFuture<List<P>> future = finished.take();
+        inFlight.remove(future);
+        List<P> parsed = getResult(future);
+        syncScheduler.write(() -> writer.write(parsed));
+      }
+    } finally {
+      for (ListenableFuture<List<P>> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private <I, F> ListenableFuture<List<F>> fetch(
+      List<I> chunk, Fetcher<I, F> fetcher, MultigetSize size) {
+    return network.submit(
+        () -> {
+          long start = currentTimeMillis();
+          List<F> result = fetcher.fetch(chunk);
+          size.onResponse(chunk.size(), currentTimeMillis() - start);
+          return result;
+        });
+  }
+
+  private static <F, P> List<P> parse(List<F> fetched, Parser<F, P> parser) {
+    List<P> result = new ArrayList<>(fetched.size());
+    for (F item : fetched) {
+      P parsed = parser.parse(item);
+      if (parsed != null) {
+        result.add(parsed);
+      }
+    }
+    return result;
+  }
+
+  private static <P> List<P> getResult(ListenableFuture<List<P>> future)
+      throws IOException, DavException, InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof DavException) {
+        throw (DavException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  interface Fetcher<I, F> {
+
+    List<F> fetch(List<I> items) throws IOException, DavException;
+  }
+
+  interface Parser<F, P> {
+
+    P parse(F item);
+  }
+
+  interface Writer<P> {
+
+    void write(List<P> items);
+  }
+
+  /**
+   * Number of objects per multiget. Grows while full size requests are answered quickly and
+   * shrinks when they are slow, so that a slow server isn't asked for more than it can answer
+   * within its timeout.
+   */
+  static class MultigetSize {
+
+    static final int MIN = 10;
+    static final int INITIAL = 30;
+    static final int MAX = 100;
+    static final long FAST_MILLIS = 1000;
+    static final long SLOW_MILLIS = 5000;
+
+    private int size = INITIAL;
+
+    synchronized int get() {
+      return size;
+    }
+
+    synchronized void onResponse(int requested, long millis) {
+      if (millis > SLOW_MILLIS) {
+        size = Math.max(MIN, size / 2);
+      } else if (millis < FAST_MILLIS && requested >= size) {
+        size = Math.min(MAX, size + size / 2);
+      } else {
+        return;
+      }
+      Timber.d("%s objects took %sms, multiget size is now %s", requested, millis, size);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.tasks.caldav;
+
+import android.content.Context;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+import org.tasks.injection.ForApplication;
+import org.tasks.sync.SyncScheduler;
+
+/**
+ * Sends local changes with up to {@link #MAX_UPLOADS} requests per calendar in flight on a shared
+ * pool. Results are handed back to the calling thread, which writes everything that has finished
+ * in one batch on {@link SyncScheduler#write}'s writer thread, so a slow upload only delays its own
+ * result.
+ */
+@ApplicationScope
+public class PushPipeline {
+
+  static final int MAX_UPLOADS = 4;
+  private static final int THREADS = 6;
+
+  private final ListeningExecutorService executor;
+  private final SyncScheduler syncScheduler;
+
+  @Inject
+  public PushPipeline(@ForApplication Context context, SyncScheduler syncScheduler) {
+    this(context.getClassLoader(), syncScheduler);
+  }
+
+  PushPipeline(ClassLoader classLoader, SyncScheduler syncScheduler) {
+    this.syncScheduler = syncScheduler;
+    executor =
+        MoreExecutors.listeningDecorator(
+            Executors.newFixedThreadPool(
+                THREADS, MultigetPipeline.threadFactory("caldav-push-%d", classLoader)));
+  }
+
+  /**
+   * Uploads every item and returns when all results have been written. Uploaders are expected to
+   * handle their own network errors.
+   */
+  <I, R> void run(List<I> items, Uploader<I, R> uploader, Writer<R> writer)
+      throws InterruptedException {
+    BlockingQueue<ListenableFuture<R>> finished = new LinkedBlockingQueue<>();
+    Set<ListenableFuture<R>> inFlight = new HashSet<>();
+    int next = 0;
+    try {
+      while (next < items.size() || !inFlight.isEmpty()) {
+        while (inFlight.size() < MAX_UPLOADS && next < items.size()) {
+          I item = items.get(next++);
+          ListenableFuture<R> future = executor.submit(() -> uploader.upload(item));
+          future.addListener(() -> finished.add(future), MoreExecutors.directExecutor());
+          inFlight.add(future);
+        }
+        List<ListenableFuture<R>> done = new ArrayList<>();
+        done.add(finished.take());
+        finished.drainTo(done);
+        List<R> results = new ArrayList<>();
+        for (ListenableFuture<R> future : done) {
+          inFlight.remove(future);
+          results.add(getResult(future));
+        }
+        syncScheduler.write(() -> writer.write(results));
+      }
+    } finally {
+      for (ListenableFuture<R> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static <R> R getResult(ListenableFuture<R> future) throws InterruptedException {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  interface Uploader<I, R> {
+
+    R upload(I item);
+  }
+
+  interface Writer<R> {
+
+    void write(List<R> results);
+  }
+}
@@ -0,0 +1,262 @@
+package org.tasks.caldav;
+
+import static at.bitfire.dav4android.XmlUtils.NS_WEBDAV;
+import static com.google.common.base.Strings.isNullOrEmpty;
+
+import at.bitfire.dav4android.exception.DavException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+import org.xmlpull.v1.XmlSerializer;
+import timber.log.Timber;
+
+/**
+ * WebDAV sync-collection REPORT (RFC 6578). Given the sync-token from the previous sync the server
+ * only returns the members that changed or were removed since then, along with a new token. An
+ * empty token requests every member of the collection.
+ */
+class SyncCollection {
+
+  private static final MediaType MIME_XML = MediaType.parse("application/xml; charset=utf-8");
+
+  private final OkHttpClient httpClient;
+  private final HttpUrl httpUrl;
+
+  SyncCollection(OkHttpClient httpClient, HttpUrl httpUrl) {
+    this.httpClient = httpClient;
+    this.httpUrl = httpUrl;
+  }
+
+  /**
+   * Stored instead of a sync-token once the server turned down sync-collection, so later syncs
+   * skip the REPORT. Tokens are URIs, which this never is.
+   */
+  static final String UNSUPPORTED = "unsupported"; // $NON-NLS-1$
+
+  /**
+   * Returns the changes since the previous sync, or every member if there was no previous sync.
+   * Returns null if the server does not support sync-collection.
+   */
+  Result getChanges(String syncToken) throws IOException {
+    if (UNSUPPORTED.equals(syncToken)) {
+      return null;
+    }
+    if (!isNullOrEmpty(syncToken)) {
+      try {
+        return report(syncToken);
+      } catch (DavException e) {
+        Timber.w(e, "sync-token rejected by %s", httpUrl);
+      }
+    }
+    try {
+      return report(null);
+    } catch (DavException e) {
+      Timber.w(e, "sync-collection not supported by %s", httpUrl);
+      return null;
+    }
+  }
+
+  /**
+   * @throws DavException if the server does not support sync-collection or rejected the token, in
+   *     which case the caller needs to fall back to a full listing
+   */
+  Result report(String syncToken) throws IOException, DavException {
+    Result result = new Result(isNullOrEmpty(syncToken));
+    String token = syncToken;
+    do {
+      result.truncated = false;
+      report(token, result);
+      token = result.syncToken;
+    } while (result.truncated);
+    return result;
+  }
+
+  private void report(String syncToken, Result result) throws IOException, DavException {
+    Request request =
+        new Request.Builder()
+            .url(httpUrl)
+            .method("REPORT", RequestBody.create(MIME_XML, getRequestBody(syncToken)))
+            .header("Depth", "0")
+            .build();
+    Response response = httpClient.newCall(request).execute();
+    ResponseBody body = response.body();
+    try {
+      if (response.code() != 207 || body == null) {
+        throw new DavException(
+            "sync-collection failed for " + httpUrl + ": HTTP " + response.code());
+      }
+      parse(body.charStream(), result);
+    } catch (XmlPullParserException e) {
+      Timber.e(e);
+      throw new DavException("Invalid sync-collection response from " + httpUrl);
+    } finally {
+      if (body != null) {
+        body.close();
+      }
+    }
+    if (isNullOrEmpty(result.syncToken)) {
+      throw new DavException("Missing sync-token in response from " + httpUrl);
+    }
+  }
+
+  private void parse(Reader reader, Result result) throws XmlPullParserException, IOException {
+    XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+    XmlPullParser parser = factory.newPullParser();
+    parser.setInput(reader);
+    for (int type = parser.next(); type != XmlPullParser.END_DOCUMENT; type = parser.next()) {
+      if (type != XmlPullParser.START_TAG || !NS_WEBDAV.equals(parser.getNamespace())) {
+        continue;
+      }
+      if ("response".equals(parser.getName())) {
+        parseResponse(parser, result);
+      } else if ("sync-token".equals(parser.getName()) && parser.getDepth() == 2) {
+        result.syncToken = parser.nextText().trim();
+      }
+    }
+  }
+
+  private void parseResponse(XmlPullParser parser, Result result)
+      throws XmlPullParserException, IOException {
+    int depth = parser.getDepth();
+    String href = null;
+    String status = null;
+    String propStatus = null;
+    String eTag = null;
+    for (int type = parser.next();
+        type != XmlPullParser.END_TAG || parser.getDepth() > depth;
+        type = parser.next()) {
+      if (type != XmlPullParser.START_TAG || !NS_WEBDAV.equals(parser.getNamespace())) {
+        continue;
+      }
+      switch (parser.getName()) {
+        case "href":
+          href = parser.nextText().trim();
+          break;
+        case "status":
+          if (parser.getDepth() == depth + 1) {
+            status = parser.nextText();
+          } else {
+            propStatus = parser.nextText();
+          }
+          break;
+        case "getetag":
+          eTag = unquote(parser.nextText().trim());
+          break;
+      }
+    }
+    if (href == null) {
+      return;
+    }
+    HttpUrl url = httpUrl.resolve(href);
+    if (url == null) {
+      Timber.e("Invalid href: %s", href);
+      return;
+    }
+    if (isCollection(url)) {
+      if (status != null && status.contains(" 507")) {
+        // result was truncated, the server expects us to continue with the new token
+        result.truncated = true;
+      }
+    } else if (status != null && status.contains(" 404")) {
+      result.removed.add(Member.fileName(url));
+    } else if (!isNullOrEmpty(eTag) && (propStatus == null || propStatus.contains(" 200"))) {
+      result.changed.add(new Member(url, eTag));
+    }
+  }
+
+  private boolean isCollection(HttpUrl url) {
+    return stripSlash(url.encodedPath()).equals(stripSlash(httpUrl.encodedPath()));
+  }
+
+  private static String stripSlash(String path) {
+    return path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+  }
+
+  /** Same normalization as {@link at.bitfire.dav4android.property.GetETag} */
+  private static String unquote(String eTag) {
+    if (eTag.startsWith("W/")) {
+      eTag = eTag.substring(2);
+    }
+    if (eTag.length() >= 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+      eTag = eTag.substring(1, eTag.length() - 1).replace("\\\"", "\"");
+    }
+    return eTag;
+  }
+
+  private static String getRequestBody(String syncToken) throws IOException {
+    try {
+      XmlSerializer xml = XmlPullParserFactory.newInstance().newSerializer();
+      StringWriter stringWriter = new StringWriter();
+      xml.setOutput(stringWriter);
+      xml.startDocument("UTF-8", null);
+      xml.setPrefix("", NS_WEBDAV);
+      xml.startTag(NS_WEBDAV, "sync-collection");
+      xml.startTag(NS_WEBDAV, "sync-token");
+      if (!isNullOrEmpty(syncToken)) {
+        xml.text(syncToken);
+      }
+      xml.endTag(NS_WEBDAV, "sync-token");
+      xml.startTag(NS_WEBDAV, "sync-level");
+      xml.text("1");
+      xml.endTag(NS_WEBDAV, "sync-level");
+      xml.startTag(NS_WEBDAV, "prop");
+      xml.startTag(NS_WEBDAV, "getetag");
+      xml.endTag(NS_WEBDAV, "getetag");
+      xml.endTag(NS_WEBDAV, "prop");
+      xml.endTag(NS_WEBDAV, "sync-collection");
+      xml.endDocument();
+      xml.flush();
+      return stringWriter.toString();
+    } catch (XmlPullParserException e) {
+      throw new IOException(e);
+    }
+  }
+
+  static class Member {
+
+    final HttpUrl url;
+    final String eTag;
+
+    Member(HttpUrl url, String eTag) {
+      this.url = url;
+      this.eTag = eTag;
+    }
+
+    String fileName() {
+      return fileName(url);
+    }
+
+    static String fileName(HttpUrl url) {
+      List<String> segments = url.pathSegments();
+      return segments.get(segments.size() - 1);
+    }
+  }
+
+  static class Result {
+
+    /** True if the result lists every member of the collection, not just the changes */
+    final boolean initial;
+
+    final List<Member> changed = new ArrayList<>();
+    final List<String> removed = new ArrayList<>();
+    String syncToken;
+    private boolean truncated;
+
+    private Result(boolean initial) {
+      this.initial = initial;
+    }
+  }
+}
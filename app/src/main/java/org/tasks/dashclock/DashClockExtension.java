@@ -1,17 +1,17 @@
 package org.tasks.dashclock;
 
-import android.content.BroadcastReceiver;
-import android.content.Context;
 import android.content.Intent;
 import com.google.android.apps.dashclock.api.ExtensionData;
 import com.todoroo.astrid.activity.MainActivity;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.Task;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import java.util.List;
 import javax.inject.Inject;
-import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
+import org.tasks.TaskChangeBus;
 import org.tasks.billing.Inventory;
 import org.tasks.injection.InjectingApplication;
 import org.tasks.preferences.DefaultFilterProvider;
@@ -23,15 +23,9 @@ public class DashClockExtension extends com.google.android.apps.dashclock.api.Da
   @Inject DefaultFilterProvider defaultFilterProvider;
   @Inject TaskDao taskDao;
   @Inject Preferences preferences;
-  @Inject LocalBroadcastManager localBroadcastManager;
+  @Inject TaskChangeBus taskChangeBus;
   @Inject Inventory inventory;
-  private final BroadcastReceiver refreshReceiver =
-      new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-          refresh();
-        }
-      };
+  private Disposable taskChanges;
 
   @Override
   public void onCreate() {
@@ -39,14 +33,18 @@ public class DashClockExtension extends com.google.android.apps.dashclock.api.Da
 
     ((InjectingApplication) getApplication()).getComponent().inject(this);
 
-    localBroadcastManager.registerRefreshReceiver(refreshReceiver);
+    taskChanges =
+        taskChangeBus
+            .observe()
+            .observeOn(Schedulers.io())
+            .subscribe(change -> refresh(), Timber::e);
   }
 
   @Override
   public void onDestroy() {
     super.onDestroy();
 
-    localBroadcastManager.unregisterReceiver(refreshReceiver);
+    taskChanges.dispose();
   }
 
   @Override
@@ -2,10 +2,11 @@ package org.tasks.data;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 
-@Entity(tableName = "alarms")
+@Entity(tableName = "alarms", indices = @Index("task"))
 public class Alarm {
 
   @PrimaryKey(autoGenerate = true)
@@ -21,9 +21,19 @@ public interface AlarmDao {
           + "ORDER BY time ASC")
   List<Alarm> getActiveAlarms(long taskId);
 
+  @Query(
+      "SELECT alarms.* FROM alarms INNER JOIN tasks ON tasks._id = alarms.task "
+          + "WHERE tasks.completed = 0 AND tasks.deleted = 0 AND tasks.lastNotified < alarms.time "
+          + "AND alarms.time < :end "
+          + "ORDER BY time ASC")
+  List<Alarm> getActiveAlarmsBefore(long end);
+
   @Query("SELECT * FROM alarms WHERE task = :taskId ORDER BY time ASC")
   List<Alarm> getAlarms(long taskId);
 
+  @Query("SELECT * FROM alarms WHERE task IN (:tasks) ORDER BY task, time ASC")
+  List<Alarm> getAlarms(List<Long> tasks);
+
   @Delete
   void delete(Alarm alarm);
 
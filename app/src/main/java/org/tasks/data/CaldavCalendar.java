@@ -47,6 +47,9 @@ public final class CaldavCalendar implements Parcelable {
   @ColumnInfo(name = "url")
   private String url = "";
 
+  @ColumnInfo(name = "sync_token")
+  private String syncToken;
+
   public CaldavCalendar() {}
 
   @Ignore
@@ -64,6 +67,7 @@ public final class CaldavCalendar implements Parcelable {
     color = source.readInt();
     ctag = source.readString();
     url = source.readString();
+    syncToken = source.readString();
   }
 
   public long getId() {
@@ -122,6 +126,14 @@ public final class CaldavCalendar implements Parcelable {
     this.url = url;
   }
 
+  public String getSyncToken() {
+    return syncToken;
+  }
+
+  public void setSyncToken(String syncToken) {
+    this.syncToken = syncToken;
+  }
+
   @Override
   public int describeContents() {
     return 0;
@@ -136,6 +148,7 @@ public final class CaldavCalendar implements Parcelable {
     dest.writeInt(color);
     dest.writeString(ctag);
     dest.writeString(url);
+    dest.writeString(syncToken);
   }
 
   @Override
@@ -160,6 +173,9 @@ public final class CaldavCalendar implements Parcelable {
         + ", url='"
         + url
         + '\''
+        + ", syncToken='"
+        + syncToken
+        + '\''
         + '}';
   }
 
@@ -192,7 +208,10 @@ public final class CaldavCalendar implements Parcelable {
     if (ctag != null ? !ctag.equals(that.ctag) : that.ctag != null) {
       return false;
     }
-    return url != null ? url.equals(that.url) : that.url == null;
+    if (url != null ? !url.equals(that.url) : that.url != null) {
+      return false;
+    }
+    return syncToken != null ? syncToken.equals(that.syncToken) : that.syncToken == null;
   }
 
   @Override
@@ -204,6 +223,7 @@ public final class CaldavCalendar implements Parcelable {
     result = 31 * result + color;
     result = 31 * result + (ctag != null ? ctag.hashCode() : 0);
     result = 31 * result + (url != null ? url.hashCode() : 0);
+    result = 31 * result + (syncToken != null ? syncToken.hashCode() : 0);
     return result;
   }
 }
@@ -43,6 +43,13 @@ public interface CaldavDao {
   @Query("SELECT * FROM caldav_tasks WHERE task = :taskId AND deleted > 0 AND calendar = :calendar")
   List<CaldavTask> getDeleted(long taskId, String calendar);
 
+  @Query(
+      "SELECT * FROM caldav_tasks WHERE calendar = :calendar AND task IN "
+          + "(SELECT caldav_tasks.task FROM caldav_tasks "
+          + "INNER JOIN tasks ON tasks._id = caldav_tasks.task "
+          + "WHERE caldav_tasks.calendar = :calendar AND tasks.modified > caldav_tasks.last_sync)")
+  List<CaldavTask> getTasksToPush(String calendar);
+
   @Query("SELECT * FROM caldav_tasks WHERE task = :taskId AND deleted = 0 LIMIT 1")
   CaldavTask getTask(long taskId);
 
@@ -52,6 +59,9 @@ public interface CaldavDao {
   @Query("SELECT * FROM caldav_tasks WHERE task = :taskId")
   List<CaldavTask> getTasks(long taskId);
 
+  @Query("SELECT * FROM caldav_tasks WHERE task IN (:tasks) ORDER BY task")
+  List<CaldavTask> getTasks(List<Long> tasks);
+
   @Query("SELECT * FROM caldav_calendar ORDER BY name COLLATE NOCASE")
   List<CaldavCalendar> getCalendars();
 
@@ -65,8 +75,8 @@ public interface CaldavDao {
       "SELECT * FROM caldav_calendar WHERE account = :account AND name = :name COLLATE NOCASE LIMIT 1")
   CaldavCalendar getCalendar(String account, String name);
 
-  @Query("SELECT object FROM caldav_tasks WHERE calendar = :calendar")
-  List<String> getObjects(String calendar);
+  @Query("SELECT object, etag FROM caldav_tasks WHERE calendar = :calendar")
+  List<CaldavEtag> getEtags(String calendar);
 
   @Query("SELECT task FROM caldav_tasks WHERE calendar = :calendar AND object IN (:objects)")
   List<Long> getTasks(String calendar, List<String> objects);
@@ -0,0 +1,8 @@
+package org.tasks.data;
+
+/** Object name and ETag of a synced CalDAV resource */
+public class CaldavEtag {
+
+  public String object;
+  public String etag;
+}
@@ -2,11 +2,15 @@ package org.tasks.data;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
+import com.google.gson.annotations.JsonAdapter;
 import com.todoroo.andlib.data.Table;
 
-@Entity(tableName = "caldav_tasks")
+@Entity(
+    tableName = "caldav_tasks",
+    indices = {@Index("task"), @Index({"calendar", "object"})})
 public class CaldavTask {
 
   public static final String KEY = "caldav";
@@ -38,8 +42,14 @@ public class CaldavTask {
   @ColumnInfo(name = "deleted")
   private long deleted;
 
+  /** Raw iCalendar, see {@link CompressedText} */
   @ColumnInfo(name = "vtodo")
-  private String vtodo;
+  @JsonAdapter(CompressedText.GsonAdapter.class)
+  private byte[] vtodo;
+
+  /** The server rejected the last upload because the object changed since {@link #etag} */
+  @ColumnInfo(name = "conflict")
+  private transient boolean conflict;
 
   public CaldavTask() {}
 
@@ -120,14 +130,22 @@ public class CaldavTask {
     this.deleted = deleted;
   }
 
-  public String getVtodo() {
+  public byte[] getVtodo() {
     return vtodo;
   }
 
-  public void setVtodo(String vtodo) {
+  public void setVtodo(byte[] vtodo) {
     this.vtodo = vtodo;
   }
 
+  public boolean isConflict() {
+    return conflict;
+  }
+
+  public void setConflict(boolean conflict) {
+    this.conflict = conflict;
+  }
+
   @Override
   public String toString() {
     return "CaldavTask{"
@@ -151,9 +169,11 @@ public class CaldavTask {
         + lastSync
         + ", deleted="
         + deleted
-        + ", vtodo='"
-        + vtodo
-        + '\''
+        + ", vtodo="
+        + (vtodo == null ? 0 : vtodo.length)
+        + " bytes"
+        + ", conflict="
+        + conflict
         + '}';
   }
 }
@@ -0,0 +1,111 @@
+package org.tasks.data;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed text, used for the raw iCalendar kept with each CalDAV task. Rows written by
+ * older versions hold plain UTF-8, which is returned as is.
+ */
+public final class CompressedText {
+
+  private CompressedText() {}
+
+  /** Compresses the remainder of the reader without holding the text in memory */
+  public static byte[] compress(Reader reader) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), Charsets.UTF_8);
+    try {
+      CharStreams.copy(reader, writer);
+    } finally {
+      writer.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  public static byte[] compress(byte[] utf8) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+      gzip.write(utf8);
+      gzip.close();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  public static byte[] compress(String text) {
+    try {
+      return compress(new StringReader(text));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Returns a reader that decompresses as it is read */
+  public static Reader reader(byte[] data) throws IOException {
+    InputStream in = new ByteArrayInputStream(data);
+    return new InputStreamReader(isCompressed(data) ? new GZIPInputStream(in) : in, Charsets.UTF_8);
+  }
+
+  public static String toString(byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      if (!isCompressed(data)) {
+        return new String(data, Charsets.UTF_8);
+      }
+      return new String(
+          ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(data))),
+          Charsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static boolean isEmpty(byte[] data) {
+    return data == null || data.length == 0;
+  }
+
+  private static boolean isCompressed(byte[] data) {
+    return data.length >= 2
+        && (data[0] & 0xff) == (GZIPInputStream.GZIP_MAGIC & 0xff)
+        && (data[1] & 0xff) == (GZIPInputStream.GZIP_MAGIC >> 8);
+  }
+
+  /** Backups keep the plain text, so they can be restored by any version */
+  public static class GsonAdapter extends TypeAdapter<byte[]> {
+
+    @Override
+    public void write(JsonWriter out, byte[] value) throws IOException {
+      out.value(CompressedText.toString(value));
+    }
+
+    @Override
+    public byte[] read(JsonReader in) throws IOException {
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        return null;
+      }
+      return compress(in.nextString());
+    }
+  }
+}
@@ -38,6 +38,9 @@ public abstract class DeletionDao {
   @Query("DELETE FROM alarms WHERE task IN(:ids)")
   abstract void deleteAlarms(List<Long> ids);
 
+  @Query("DELETE FROM task_list_positions WHERE task IN(:ids)")
+  abstract void deleteTaskListPositions(List<Long> ids);
+
   @Query("DELETE FROM tasks WHERE _id IN(:ids)")
   abstract void deleteTasks(List<Long> ids);
 
@@ -49,6 +52,7 @@ public abstract class DeletionDao {
       deleteTags(partition);
       deleteGoogleTasks(partition);
       deleteCaldavTasks(partition);
+      deleteTaskListPositions(partition);
       deleteTasks(partition);
     }
     database.onDatabaseUpdated();
@@ -124,4 +128,28 @@ public abstract class DeletionDao {
     deleteCaldavAccount(caldavAccount);
     return deleted;
   }
+
+  @Query("DELETE FROM tags WHERE tag_uid = :tagUid")
+  abstract void removeTag(String tagUid);
+
+  @Query(
+      "DELETE FROM task_list_positions WHERE list IN "
+          + "(SELECT _id FROM task_list_metadata WHERE tag_uuid = :tagUid)")
+  abstract void deleteTaskListPositions(String tagUid);
+
+  @Query("DELETE FROM task_list_metadata WHERE tag_uuid = :tagUid")
+  abstract void deleteTaskListMetadata(String tagUid);
+
+  @Delete
+  abstract void deleteTagData(TagData tagData);
+
+  /** Removes the tag from its tasks and deletes its manual sort order */
+  @Transaction
+  public void delete(TagData tagData) {
+    String uuid = tagData.getRemoteId();
+    removeTag(uuid);
+    deleteTaskListPositions(uuid);
+    deleteTaskListMetadata(uuid);
+    deleteTagData(tagData);
+  }
 }
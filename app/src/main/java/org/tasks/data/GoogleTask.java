@@ -2,13 +2,16 @@ package org.tasks.data;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.data.Table;
 import com.todoroo.andlib.utility.DateUtilities;
 
-@Entity(tableName = "google_tasks")
+@Entity(
+    tableName = "google_tasks",
+    indices = {@Index("task"), @Index("list_id"), @Index("remote_id")})
 public class GoogleTask {
 
   public static final String KEY = "gtasks"; // $NON-NLS-1$
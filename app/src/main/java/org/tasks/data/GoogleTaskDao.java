@@ -19,9 +19,14 @@ public interface GoogleTaskDao {
   @Update
   void update(GoogleTask googleTask);
 
-  @Query(
-      "SELECT * FROM google_tasks WHERE list_id = :listId AND parent = :parent ORDER BY remote_order ASC")
-  List<GoogleTask> byRemoteOrder(String listId, long parent);
+  @Update
+  void update(List<GoogleTask> googleTasks);
+
+  @Query("SELECT * FROM google_tasks WHERE list_id = :listId")
+  List<GoogleTask> getByListId(String listId);
+
+  @Query("SELECT * FROM google_tasks WHERE list_id = :listId ORDER BY remote_order ASC")
+  List<GoogleTask> byRemoteOrder(String listId);
 
   @Query(
       "SELECT * FROM google_tasks WHERE list_id = :listId AND `order` > :startAtOrder - 1 ORDER BY `order` ASC ")
@@ -37,12 +42,18 @@ public interface GoogleTaskDao {
   @Query("SELECT * FROM google_tasks WHERE remote_id = :remoteId LIMIT 1")
   GoogleTask getByRemoteId(String remoteId);
 
+  @Query("SELECT * FROM google_tasks WHERE remote_id IN (:remoteIds)")
+  List<GoogleTask> getByRemoteIds(List<String> remoteIds);
+
   @Query("SELECT * FROM google_tasks WHERE task = :taskId AND deleted > 0")
   List<GoogleTask> getDeletedByTaskId(long taskId);
 
   @Query("SELECT * FROM google_tasks WHERE task = :taskId")
   List<GoogleTask> getAllByTaskId(long taskId);
 
+  @Query("SELECT * FROM google_tasks WHERE task IN (:tasks) ORDER BY task")
+  List<GoogleTask> getAllByTaskIds(List<Long> tasks);
+
   @Query("SELECT DISTINCT list_id FROM google_tasks WHERE deleted = 0 AND task IN (:tasks)")
   List<String> getLists(List<Long> tasks);
 }
@@ -29,7 +29,7 @@ public abstract class GoogleTaskListDao {
       "SELECT * FROM google_task_lists WHERE remote_id = :remoteId AND IFNULL(account, '') = '' LIMIT 1")
   public abstract GoogleTaskList findExistingList(String remoteId);
 
-  @Query("SELECT * FROM google_task_lists")
+  @Query("SELECT * FROM google_task_lists ORDER BY title ASC")
   public abstract List<GoogleTaskList> getAllLists();
 
   @Insert(onConflict = OnConflictStrategy.REPLACE)
@@ -0,0 +1,437 @@
+package org.tasks.data;
+
+import static com.google.common.collect.Iterables.partition;
+
+import android.database.Cursor;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.paging.ItemKeyedDataSource;
+import androidx.room.RoomDatabase;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.data.TaskRowMapper;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.tasks.analytics.Tracker;
+import timber.log.Timber;
+
+/**
+ * Pages a task list query by seeking past the sort key of the last loaded row instead of using
+ * LIMIT/OFFSET. Each page is a single query with the seek predicate merged into the WHERE clause,
+ * so the cost of loading a page does not depend on how far the user has scrolled and no COUNT
+ * query is needed.
+ *
+ * <p>Orderings with too many terms to seek on efficiently (e.g. manual sort orders expressed as a
+ * list of uuids) fall back to offset paging.
+ */
+public class KeysetDataSource extends ItemKeyedDataSource<KeysetDataSource.Key, Task> {
+
+  private static final int MAX_SEEK_TERMS = 8;
+  private static final String KEY_COLUMN_PREFIX = "ks_";
+  private static final Pattern DIRECTION = Pattern.compile("(?i)\\s+(ASC|DESC)$");
+  private static final Pattern IDENTIFIER = Pattern.compile("`?(\\w+)`?");
+
+  private final RoomDatabase db;
+  private final Map<Long, Key> keys = new ConcurrentHashMap<>();
+  private final String query;
+  private final String order;
+  private final List<Term> terms = new ArrayList<>();
+  private final boolean seek;
+  private String select;
+  private String where;
+  private String tail;
+  private volatile boolean loadedFirst;
+  private volatile boolean loadedLast;
+
+  public KeysetDataSource(RoomDatabase db, String query) {
+    this.db = db;
+    int orderBy = lastIndexOfKeyword(query, "ORDER BY");
+    String unordered = orderBy < 0 ? query : query.substring(0, orderBy);
+    order = orderBy < 0 ? "" : query.substring(orderBy);
+    if (orderBy >= 0) {
+      for (String term : splitTopLevel(query.substring(orderBy + "ORDER BY".length()))) {
+        terms.add(Term.parse(term.trim(), terms.size()));
+      }
+    }
+    seek = terms.size() <= MAX_SEEK_TERMS;
+    this.query = query;
+    if (seek) {
+      terms.add(new Term(Task.ID.toString(), false, Task.ID.name));
+      splitQuery(unordered);
+    }
+  }
+
+  @Override
+  public void loadInitial(
+      @NonNull LoadInitialParams<Key> params, @NonNull LoadInitialCallback<Task> callback) {
+    Key key = params.requestedInitialKey;
+    if (key != null && seek && !order.equals(key.order)) {
+      // sort order changed, the previous key is meaningless
+      key = null;
+    }
+    int size = params.requestedLoadSize;
+    List<Task> result;
+    try {
+      if (key == null) {
+        result = seek ? seek(null, false, true, size) : offset(0, size);
+        loadedFirst = true;
+        loadedLast = result.size() < size;
+      } else if (seek) {
+        result = seek(key, true, false, size / 2);
+        loadedFirst = result.size() < size / 2;
+        int after = size - result.size();
+        List<Task> next = seek(key, false, true, after);
+        loadedLast = next.size() < after;
+        result.addAll(next);
+      } else {
+        int start = Math.max(0, key.position - size / 2);
+        result = offset(start, size);
+      }
+    } catch (Exception e) {
+      Timber.e(e);
+      Tracker.report(e);
+      result = Collections.emptyList();
+    }
+    callback.onResult(result);
+  }
+
+  @Override
+  public void loadAfter(@NonNull LoadParams<Key> params, @NonNull LoadCallback<Task> callback) {
+    Key key = params.key;
+    List<Task> result;
+    try {
+      result =
+          seek
+              ? seek(key, false, false, params.requestedLoadSize)
+              : offset(key.position + 1, params.requestedLoadSize);
+      if (result.size() < params.requestedLoadSize) {
+        loadedLast = true;
+      }
+    } catch (Exception e) {
+      Timber.e(e);
+      Tracker.report(e);
+      result = Collections.emptyList();
+      // an empty page would end the list, reload it from the start instead
+      invalidate();
+    }
+    callback.onResult(result);
+  }
+
+  @Override
+  public void loadBefore(@NonNull LoadParams<Key> params, @NonNull LoadCallback<Task> callback) {
+    Key key = params.key;
+    List<Task> result;
+    try {
+      if (seek) {
+        result = seek(key, true, false, params.requestedLoadSize);
+        if (result.size() < params.requestedLoadSize) {
+          loadedFirst = true;
+        }
+      } else {
+        int start = Math.max(0, key.position - params.requestedLoadSize);
+        result = offset(start, key.position - start);
+      }
+    } catch (Exception e) {
+      Timber.e(e);
+      Tracker.report(e);
+      result = Collections.emptyList();
+      invalidate();
+    }
+    callback.onResult(result);
+  }
+
+  @NonNull
+  @Override
+  public Key getKey(@NonNull Task item) {
+    return keys.get(item.getId());
+  }
+
+  /**
+   * True if every row has been loaded, none of the tasks were among them and none of them match the
+   * query now. Reloading after such a change would return the same rows.
+   */
+  @WorkerThread
+  public boolean isUnaffectedBy(Collection<Long> taskIds) {
+    if (!seek || !loadedFirst || !loadedLast || isInvalid()) {
+      return false;
+    }
+    for (Long taskId : taskIds) {
+      if (keys.containsKey(taskId)) {
+        return false;
+      }
+    }
+    for (List<Long> ids : partition(taskIds, 999)) {
+      String predicate = Task.ID.in(ids).toString();
+      String sql =
+          select
+              + (where.isEmpty() ? " WHERE " + predicate : where + " AND (" + predicate + ")")
+              + tail
+              + " LIMIT 1";
+      Cursor cursor = db.query(sql, null);
+      //noinspection TryFinallyCanBeTryWithResources
+      try {
+        if (cursor.getCount() > 0) {
+          return false;
+        }
+      } finally {
+        cursor.close();
+      }
+    }
+    return true;
+  }
+
+  @WorkerThread
+  private List<Task> seek(Key key, boolean backwards, boolean inclusive, int limit) {
+    if (limit <= 0) {
+      return new ArrayList<>();
+    }
+    List<Object> args = new ArrayList<>();
+    StringBuilder sql = new StringBuilder(select);
+    if (key == null) {
+      sql.append(where);
+    } else {
+      String predicate = seekPredicate(0, key, backwards, inclusive, args);
+      sql.append(where.isEmpty() ? " WHERE " + predicate : where + " AND (" + predicate + ")");
+    }
+    sql.append(tail).append(" ORDER BY ");
+    for (int i = 0; i < terms.size(); i++) {
+      Term term = terms.get(i);
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(term.expression).append(term.descending != backwards ? " DESC" : " ASC");
+    }
+    sql.append(" LIMIT ?");
+    args.add(limit);
+    List<Task> result = load(sql.toString(), args.toArray(), -1);
+    if (backwards) {
+      Collections.reverse(result);
+    }
+    return result;
+  }
+
+  @WorkerThread
+  private List<Task> offset(int start, int limit) {
+    if (limit <= 0) {
+      return new ArrayList<>();
+    }
+    return load(
+        "SELECT * FROM ( " + query + " ) LIMIT ? OFFSET ?", new Object[] {limit, start}, start);
+  }
+
+  private List<Task> load(String sql, Object[] args, int position) {
+    Cursor cursor = db.query(sql, args);
+    //noinspection TryFinallyCanBeTryWithResources
+    try {
+      int[] columns = new int[seek ? terms.size() : 0];
+      for (int i = 0; i < columns.length; i++) {
+        columns[i] = cursor.getColumnIndexOrThrow(terms.get(i).column);
+      }
+      TaskRowMapper mapper = new TaskRowMapper(cursor);
+      List<Task> result = new ArrayList<>();
+      while (cursor.moveToNext()) {
+        Task task = mapper.map(cursor);
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+          values[i] = getValue(cursor, columns[i]);
+        }
+        keys.put(task.getId(), new Key(order, values, position < 0 ? -1 : position++));
+        result.add(task);
+      }
+      return result;
+    } finally {
+      cursor.close();
+    }
+  }
+
+  /**
+   * Rows strictly after (or before) the key in sort order. For a term t with key value v, the row
+   * is after the key if t is after v, or if t equals v and the remaining terms are after the key.
+   * NULLs sort first, as in SQLite.
+   */
+  private String seekPredicate(
+      int index, Key key, boolean backwards, boolean inclusive, List<Object> args) {
+    Term term = terms.get(index);
+    Object value = key.values[index];
+    boolean descending = term.descending != backwards;
+    String after;
+    if (value == null) {
+      after = descending ? "0" : term.expression + " IS NOT NULL";
+    } else {
+      args.add(value);
+      after =
+          descending
+              ? "(" + term.expression + " < ? OR " + term.expression + " IS NULL)"
+              : term.expression + " > ?";
+    }
+    boolean last = index == terms.size() - 1;
+    if (last && !inclusive) {
+      return after;
+    }
+    String equal;
+    if (value == null) {
+      equal = term.expression + " IS NULL";
+    } else {
+      args.add(value);
+      equal = term.expression + " = ?";
+    }
+    if (last) {
+      return after + " OR " + equal;
+    }
+    return after
+        + " OR ("
+        + equal
+        + " AND ("
+        + seekPredicate(index + 1, key, backwards, inclusive, args)
+        + "))";
+  }
+
+  private void splitQuery(String sql) {
+    StringBuilder keyColumns = new StringBuilder();
+    for (Term term : terms) {
+      if (term.column.startsWith(KEY_COLUMN_PREFIX)) {
+        keyColumns.append(term.expression).append(" AS ").append(term.column).append(", ");
+      }
+    }
+    int selectIndex = sql.toUpperCase().indexOf("SELECT ") + "SELECT ".length();
+    sql = sql.substring(0, selectIndex) + keyColumns + sql.substring(selectIndex);
+
+    int groupBy = lastIndexOfKeyword(sql, "GROUP BY");
+    String head = groupBy < 0 ? sql : sql.substring(0, groupBy);
+    tail = groupBy < 0 ? "" : " " + sql.substring(groupBy);
+    int whereIndex = firstIndexOfKeyword(head, "WHERE");
+    if (whereIndex < 0) {
+      select = head;
+      where = "";
+    } else {
+      select = head.substring(0, whereIndex);
+      where = " WHERE (" + head.substring(whereIndex + "WHERE".length()) + ")";
+    }
+  }
+
+  private static Object getValue(Cursor cursor, int column) {
+    switch (cursor.getType(column)) {
+      case Cursor.FIELD_TYPE_INTEGER:
+        return cursor.getLong(column);
+      case Cursor.FIELD_TYPE_FLOAT:
+        return cursor.getDouble(column);
+      case Cursor.FIELD_TYPE_STRING:
+        return cursor.getString(column);
+      case Cursor.FIELD_TYPE_BLOB:
+        return cursor.getBlob(column);
+      default:
+        return null;
+    }
+  }
+
+  private static int firstIndexOfKeyword(String sql, String keyword) {
+    List<Integer> indices = indicesOfKeyword(sql, keyword);
+    return indices.isEmpty() ? -1 : indices.get(0);
+  }
+
+  private static int lastIndexOfKeyword(String sql, String keyword) {
+    List<Integer> indices = indicesOfKeyword(sql, keyword);
+    return indices.isEmpty() ? -1 : indices.get(indices.size() - 1);
+  }
+
+  /** Positions of a keyword outside of parentheses and quotes */
+  private static List<Integer> indicesOfKeyword(String sql, String keyword) {
+    List<Integer> result = new ArrayList<>();
+    int depth = 0;
+    char quote = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0
+          && sql.regionMatches(true, i, keyword, 0, keyword.length())
+          && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)))) {
+        result.add(i);
+      }
+    }
+    return result;
+  }
+
+  private static List<String> splitTopLevel(String sql) {
+    List<String> result = new ArrayList<>();
+    int depth = 0;
+    char quote = 0;
+    int start = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        result.add(sql.substring(start, i));
+        start = i + 1;
+      }
+    }
+    if (sql.substring(start).trim().length() > 0) {
+      result.add(sql.substring(start));
+    }
+    return result;
+  }
+
+  public static class Key {
+
+    final String order;
+    final Object[] values;
+    final int position;
+
+    Key(String order, Object[] values, int position) {
+      this.order = order;
+      this.values = values;
+      this.position = position;
+    }
+  }
+
+  private static class Term {
+
+    final String expression;
+    final boolean descending;
+    final String column;
+
+    Term(String expression, boolean descending, String column) {
+      this.expression = expression;
+      this.descending = descending;
+      this.column = column;
+    }
+
+    /**
+     * Unqualified column references are read back from the result set under their own name, which
+     * also covers aliases such as `gtasks_order`. Anything else is selected as an extra key column.
+     */
+    static Term parse(String term, int index) {
+      boolean descending = false;
+      Matcher matcher = DIRECTION.matcher(term);
+      if (matcher.find()) {
+        descending = matcher.group(1).equalsIgnoreCase("DESC");
+        term = term.substring(0, matcher.start());
+      }
+      Matcher identifier = IDENTIFIER.matcher(term);
+      String column = identifier.matches() ? identifier.group(1) : KEY_COLUMN_PREFIX + index;
+      return new Term(term, descending, column);
+    }
+  }
+}
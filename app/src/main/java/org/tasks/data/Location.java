@@ -5,6 +5,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 import com.google.common.base.Strings;
@@ -12,7 +13,7 @@ import java.io.Serializable;
 import java.util.regex.Pattern;
 import org.tasks.backup.XmlReader;
 
-@Entity(tableName = "locations")
+@Entity(tableName = "locations", indices = @Index("task"))
 public class Location implements Serializable, Parcelable {
 
   public static final Parcelable.Creator<Location> CREATOR =
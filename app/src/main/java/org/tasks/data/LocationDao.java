@@ -15,6 +15,9 @@ public interface LocationDao {
   @Query("SELECT * FROM locations WHERE task = :taskId ORDER BY name ASC")
   List<Location> getGeofences(long taskId);
 
+  @Query("SELECT * FROM locations WHERE task IN (:tasks) ORDER BY task, name ASC")
+  List<Location> getGeofences(List<Long> tasks);
+
   @Query(
       "SELECT locations.* FROM locations INNER JOIN tasks ON tasks._id = locations.task WHERE tasks._id = :taskId AND tasks.deleted = 0 AND tasks.completed = 0")
   List<Location> getActiveGeofences(long taskId);
@@ -0,0 +1,242 @@
+package org.tasks.data;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+import com.google.common.base.Strings;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.todoroo.astrid.api.CaldavFilter;
+import com.todoroo.astrid.api.GtasksFilter;
+import com.todoroo.astrid.api.TagFilter;
+import com.todoroo.astrid.dao.Database;
+import io.reactivex.Completable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.inject.Inject;
+import org.tasks.LocalBroadcastManager;
+import org.tasks.injection.ApplicationScope;
+import timber.log.Timber;
+
+/**
+ * Tags, Google Task lists and CalDAV calendars, kept in memory so that task rows, widgets and the
+ * drawer can name and color lists without running a query. The cache is loaded in the background
+ * when the app starts and reloaded whenever Room reports a write to one of the tables. Reloads run
+ * one at a time on their own thread, so the newest contents are always published last. Readers
+ * see the previous contents until the reload finishes. A refresh is broadcast only if something
+ * that rows or the drawer show changed, so sync bookkeeping such as a new ctag doesn't redraw
+ * every list.
+ *
+ * <p>Cached objects are shared, don't modify them.
+ */
+@ApplicationScope
+public class MetadataCache {
+
+  private final TagDataDao tagDataDao;
+  private final GoogleTaskListDao googleTaskListDao;
+  private final CaldavDao caldavDao;
+  private final LocalBroadcastManager localBroadcastManager;
+  private final Scheduler reloader =
+      Schedulers.from(
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder().setNameFormat("metadata-cache-%d").build()));
+  private final AtomicBoolean reloadQueued = new AtomicBoolean();
+  private volatile Snapshot snapshot;
+
+  @Inject
+  public MetadataCache(
+      Database database,
+      TagDataDao tagDataDao,
+      GoogleTaskListDao googleTaskListDao,
+      CaldavDao caldavDao,
+      LocalBroadcastManager localBroadcastManager) {
+    this.tagDataDao = tagDataDao;
+    this.googleTaskListDao = googleTaskListDao;
+    this.caldavDao = caldavDao;
+    this.localBroadcastManager = localBroadcastManager;
+    database
+        .getInvalidationTracker()
+        .addObserver(
+            new InvalidationTracker.Observer("tagdata", "google_task_lists", "caldav_calendar") {
+              @Override
+              public void onInvalidated(@NonNull Set<String> tables) {
+                reload();
+              }
+            });
+  }
+
+  /** Loads the cache in the background so that the first list doesn't have to wait for it */
+  public void warmUp() {
+    Completable.fromAction(this::getSnapshot)
+        .subscribeOn(Schedulers.io())
+        .subscribe(() -> {}, Timber::e);
+  }
+
+  private void reload() {
+    if (!reloadQueued.compareAndSet(false, true)) {
+      return;
+    }
+    Completable.fromAction(
+            () -> {
+              reloadQueued.set(false);
+              Snapshot previous = snapshot;
+              Snapshot result = load();
+              snapshot = result;
+              if (previous == null || !previous.displayed.equals(result.displayed)) {
+                localBroadcastManager.broadcastRefresh();
+              }
+            })
+        .subscribeOn(reloader)
+        .subscribe(() -> {}, Timber::e);
+  }
+
+  /** Tags with a name, ordered by name with hidden tags last */
+  public List<TagData> getTags() {
+    return getSnapshot().tags;
+  }
+
+  @Nullable
+  public TagData getTag(String uuid) {
+    return getSnapshot().tagsByUuid.get(uuid);
+  }
+
+  @Nullable
+  public TagFilter getTagFilter(String uuid) {
+    return getSnapshot().tagFilters.get(uuid);
+  }
+
+  /** Lists for an account ordered by title */
+  public List<GoogleTaskList> getGoogleTaskLists(String account) {
+    return unmodifiableList(getSnapshot().googleTaskLists.get(account));
+  }
+
+  @Nullable
+  public GoogleTaskList getGoogleTaskList(long id) {
+    return getSnapshot().googleTaskListsById.get(id);
+  }
+
+  @Nullable
+  public GtasksFilter getGoogleTaskFilter(String remoteId) {
+    return getSnapshot().googleTaskFilters.get(remoteId);
+  }
+
+  /** Calendars for an account ordered by name */
+  public List<CaldavCalendar> getCaldavCalendars(String account) {
+    return unmodifiableList(getSnapshot().caldavCalendars.get(account));
+  }
+
+  @Nullable
+  public CaldavCalendar getCaldavCalendar(String uuid) {
+    return getSnapshot().caldavCalendarsByUuid.get(uuid);
+  }
+
+  @Nullable
+  public CaldavFilter getCaldavFilter(String uuid) {
+    return getSnapshot().caldavFilters.get(uuid);
+  }
+
+  /**
+   * Loads the cache on the calling thread if it hasn't been loaded yet. No lock is held while
+   * loading, since the caller may be inside a transaction that the load would have to wait for.
+   */
+  private Snapshot getSnapshot() {
+    Snapshot result = snapshot;
+    if (result == null) {
+      result = load();
+      synchronized (this) {
+        if (snapshot == null) {
+          snapshot = result;
+        }
+        result = snapshot;
+      }
+    }
+    return result;
+  }
+
+  private Snapshot load() {
+    Snapshot result = new Snapshot();
+    result.setTags(tagDataDao.tagDataOrderedByName());
+    result.setGoogleTaskLists(googleTaskListDao.getAllLists());
+    result.setCaldavCalendars(caldavDao.getCalendars());
+    return result;
+  }
+
+  private static class Snapshot {
+
+    private List<TagData> tags = ImmutableList.of();
+    private final Map<String, TagData> tagsByUuid = new HashMap<>();
+    private final Map<String, TagFilter> tagFilters = new HashMap<>();
+    private final ListMultimap<String, GoogleTaskList> googleTaskLists =
+        ArrayListMultimap.create();
+    private final Map<Long, GoogleTaskList> googleTaskListsById = new HashMap<>();
+    private final Map<String, GtasksFilter> googleTaskFilters = new HashMap<>();
+    private final ListMultimap<String, CaldavCalendar> caldavCalendars =
+        ArrayListMultimap.create();
+    private final Map<String, CaldavCalendar> caldavCalendarsByUuid = new HashMap<>();
+    private final Map<String, CaldavFilter> caldavFilters = new HashMap<>();
+    private final List<List<Object>> displayed = new ArrayList<>();
+
+    /** Visible tags followed by hidden tags, each ordered by name */
+    void setTags(List<TagData> tagData) {
+      List<TagData> visible = new ArrayList<>();
+      List<TagData> hidden = new ArrayList<>();
+      for (TagData tag : tagData) {
+        tagsByUuid.put(tag.getRemoteId(), tag);
+        tagFilters.put(tag.getRemoteId(), new TagFilter(tag));
+        displayed.add(asList(tag.getId(), tag.getRemoteId(), tag.getName(), tag.getColor()));
+        if (Strings.isNullOrEmpty(tag.getName())) {
+          continue;
+        }
+        if (tag.getName().startsWith(".")) {
+          hidden.add(tag);
+        } else {
+          visible.add(tag);
+        }
+      }
+      visible.addAll(hidden);
+      tags = ImmutableList.copyOf(visible);
+    }
+
+    void setGoogleTaskLists(List<GoogleTaskList> lists) {
+      for (GoogleTaskList list : lists) {
+        googleTaskLists.put(list.getAccount(), list);
+        googleTaskListsById.put(list.getId(), list);
+        googleTaskFilters.put(list.getRemoteId(), new GtasksFilter(list));
+        displayed.add(
+            asList(
+                list.getId(),
+                list.getAccount(),
+                list.getRemoteId(),
+                list.getTitle(),
+                list.getColor()));
+      }
+    }
+
+    void setCaldavCalendars(List<CaldavCalendar> calendars) {
+      for (CaldavCalendar calendar : calendars) {
+        caldavCalendars.put(calendar.getAccount(), calendar);
+        caldavCalendarsByUuid.put(calendar.getUuid(), calendar);
+        caldavFilters.put(calendar.getUuid(), new CaldavFilter(calendar));
+        displayed.add(
+            asList(
+                calendar.getId(),
+                calendar.getAccount(),
+                calendar.getUuid(),
+                calendar.getName(),
+                calendar.getColor()));
+      }
+    }
+  }
+}
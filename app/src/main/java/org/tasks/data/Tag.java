@@ -3,13 +3,16 @@ package org.tasks.data;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 import com.todoroo.andlib.data.Table;
 import com.todoroo.andlib.data.Property;
 import org.tasks.backup.XmlReader;
 
-@Entity(tableName = "tags")
+@Entity(
+    tableName = "tags",
+    indices = {@Index("task"), @Index("tag_uid"), @Index("task_uid")})
 public class Tag {
 
   public static final String KEY = "tags-tag"; // $NON-NLS-1$
@@ -38,6 +38,9 @@ public interface TagDao {
   @Query("SELECT * FROM tags WHERE task = :taskId")
   List<Tag> getTagsForTask(long taskId);
 
+  @Query("SELECT * FROM tags WHERE task IN (:tasks) ORDER BY task")
+  List<Tag> getTagsForTasks(List<Long> tasks);
+
   @Query("SELECT * FROM tags WHERE task = :taskId AND tag_uid = :tagUid")
   Tag getTagByTaskAndTagUid(long taskId, String tagUid);
 
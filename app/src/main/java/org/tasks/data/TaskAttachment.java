@@ -3,6 +3,7 @@ package org.tasks.data;
 import android.net.Uri;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.google.common.base.Strings;
 import com.todoroo.andlib.data.Property;
@@ -10,7 +11,7 @@ import com.todoroo.andlib.data.Table;
 import com.todoroo.astrid.data.Task;
 import java.io.File;
 
-@Entity(tableName = "task_attachments")
+@Entity(tableName = "task_attachments", indices = @Index("task_id"))
 public final class TaskAttachment {
 
   @Deprecated public static final Table TABLE = new Table("task_attachments");
@@ -16,6 +16,9 @@ public abstract class TaskAttachmentDao {
   @Query("SELECT * FROM task_attachments WHERE task_id = :taskUuid")
   public abstract List<TaskAttachment> getAttachments(String taskUuid);
 
+  @Query("SELECT * FROM task_attachments WHERE task_id IN (:taskUuids)")
+  public abstract List<TaskAttachment> getAttachments(List<String> taskUuids);
+
   @Query(
       "SELECT task_attachments.* FROM task_attachments INNER JOIN tasks ON tasks._id = :task WHERE task_id = tasks.remoteId")
   public abstract List<TaskAttachment> getAttachments(long task);
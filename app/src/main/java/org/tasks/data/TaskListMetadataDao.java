@@ -1,9 +1,14 @@
 package org.tasks.data;
 
+import static com.google.common.collect.Iterables.partition;
+
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
+import java.util.List;
 
 @Dao
 public abstract class TaskListMetadataDao {
@@ -20,4 +25,28 @@ public abstract class TaskListMetadataDao {
   public void createNew(TaskListMetadata taskListMetadata) {
     taskListMetadata.setId(insert(taskListMetadata));
   }
+
+  @Query("SELECT * FROM task_list_positions WHERE list = :list ORDER BY position ASC")
+  public abstract List<TaskListPosition> getPositions(long list);
+
+  @Insert(onConflict = OnConflictStrategy.REPLACE)
+  abstract List<Long> insert(List<TaskListPosition> positions);
+
+  @Query("DELETE FROM task_list_positions WHERE list = :list AND task IN(:tasks)")
+  abstract void deletePositions(long list, List<Long> tasks);
+
+  /** Writes the changed positions and removes the positions of tasks no longer in the list */
+  @Transaction
+  public void updatePositions(long list, List<TaskListPosition> changed, List<Long> removed) {
+    for (List<Long> partition : partition(removed, 998)) {
+      deletePositions(list, partition);
+    }
+    if (changed.isEmpty()) {
+      return;
+    }
+    List<Long> ids = insert(changed);
+    for (int i = 0; i < changed.size(); i++) {
+      changed.get(i).setId(ids.get(i));
+    }
+  }
 }
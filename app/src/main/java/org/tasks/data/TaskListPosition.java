@@ -0,0 +1,101 @@
+package org.tasks.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import com.todoroo.andlib.data.Property.LongProperty;
+import com.todoroo.andlib.data.Table;
+
+/**
+ * Position of a task in a manually sorted list. Positions are sparse keys in preorder, so sorting
+ * by position lists every parent right before its subtasks.
+ */
+@Entity(
+    tableName = "task_list_positions",
+    indices = {@Index(value = {"list", "task"}, unique = true), @Index("task")})
+public class TaskListPosition {
+
+  public static final Table TABLE = new Table("task_list_positions");
+  public static final LongProperty LIST = new LongProperty(TABLE, "list");
+  public static final LongProperty TASK = new LongProperty(TABLE, "task");
+  public static final LongProperty POSITION = new LongProperty(TABLE, "position");
+
+  @PrimaryKey(autoGenerate = true)
+  @ColumnInfo(name = "_id")
+  private long id;
+
+  /** {@link TaskListMetadata} id */
+  @ColumnInfo(name = "list")
+  private long list;
+
+  @ColumnInfo(name = "task")
+  private long task;
+
+  /** Task id of the parent, 0 for top level tasks */
+  @ColumnInfo(name = "parent")
+  private long parent;
+
+  @ColumnInfo(name = "position")
+  private long position;
+
+  @ColumnInfo(name = "indent")
+  private int indent;
+
+  public TaskListPosition() {}
+
+  @Ignore
+  public TaskListPosition(long list, long task) {
+    this.list = list;
+    this.task = task;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getList() {
+    return list;
+  }
+
+  public void setList(long list) {
+    this.list = list;
+  }
+
+  public long getTask() {
+    return task;
+  }
+
+  public void setTask(long task) {
+    this.task = task;
+  }
+
+  public long getParent() {
+    return parent;
+  }
+
+  public void setParent(long parent) {
+    this.parent = parent;
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  public void setPosition(long position) {
+    this.position = position;
+  }
+
+  public int getIndent() {
+    return indent;
+  }
+
+  public void setIndent(int indent) {
+    this.indent = indent;
+  }
+}
@@ -5,6 +5,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 import com.google.common.base.Strings;
@@ -15,7 +16,7 @@ import org.json.JSONObject;
 import org.tasks.backup.XmlReader;
 import timber.log.Timber;
 
-@Entity(tableName = "userActivity")
+@Entity(tableName = "userActivity", indices = @Index("target_id"))
 public class UserActivity implements Parcelable {
 
   public static final Creator<UserActivity> CREATOR =
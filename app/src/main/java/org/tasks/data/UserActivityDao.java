@@ -25,6 +25,9 @@ public abstract class UserActivityDao {
   @Query("SELECT * FROM userActivity WHERE target_id = :taskUuid ORDER BY created_at DESC ")
   public abstract List<UserActivity> getCommentsForTask(String taskUuid);
 
+  @Query("SELECT * FROM userActivity WHERE target_id IN (:taskUuids) ORDER BY created_at DESC")
+  public abstract List<UserActivity> getCommentsForTasks(List<String> taskUuids);
+
   @Query(
       "SELECT userActivity.* FROM userActivity INNER JOIN tasks ON tasks._id = :task WHERE target_id = tasks.remoteId")
   public abstract List<UserActivity> getComments(long task);
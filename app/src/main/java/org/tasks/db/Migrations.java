@@ -218,6 +218,147 @@ public class Migrations {
         }
       };
 
+  private static final Migration MIGRATION_60_61 =
+      new Migration(60, 61) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `autoSort` INTEGER");
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `dueSort` INTEGER");
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `importanceSort` INTEGER");
+          // keep in sync with SortHelper.setSortKeys
+          String adjustedDueDate =
+              "(CASE WHEN IFNULL(`dueDate`, 0) = 0 THEN 1125899906842624 "
+                  + "WHEN (`dueDate` / 1000) % 60 > 0 THEN `dueDate` "
+                  + "ELSE `dueDate` + 43140000 END)";
+          database.execSQL(
+              "UPDATE `tasks` SET "
+                  + "`autoSort` = "
+                  + adjustedDueDate
+                  + " + 172800000 * IFNULL(`importance`, 0), "
+                  + "`dueSort` = "
+                  + adjustedDueDate
+                  + " + IFNULL(`importance`, 0), "
+                  + "`importanceSort` = IFNULL(`importance`, 0) * 4503599627370496 + "
+                  + "(CASE WHEN IFNULL(`dueDate`, 0) = 0 THEN 1125899906842624 ELSE `dueDate` END)");
+          database.execSQL("CREATE INDEX `t_auto_sort` ON `tasks` (`autoSort`)");
+          database.execSQL("CREATE INDEX `t_due_sort` ON `tasks` (`dueSort`)");
+          database.execSQL("CREATE INDEX `t_importance_sort` ON `tasks` (`importanceSort`)");
+        }
+      };
+
+  private static final Migration MIGRATION_61_62 =
+      new Migration(61, 62) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE INDEX `t_active` ON `tasks` (`deleted`, `completed`, `hideUntil`)");
+          database.execSQL("CREATE INDEX `t_due_date` ON `tasks` (`dueDate`)");
+          database.execSQL("CREATE INDEX `index_alarms_task` ON `alarms` (`task`)");
+          database.execSQL("CREATE INDEX `index_caldav_tasks_task` ON `caldav_tasks` (`task`)");
+          database.execSQL(
+              "CREATE INDEX `index_caldav_tasks_calendar_object` ON `caldav_tasks` (`calendar`, `object`)");
+          database.execSQL("CREATE INDEX `index_google_tasks_task` ON `google_tasks` (`task`)");
+          database.execSQL(
+              "CREATE INDEX `index_google_tasks_list_id` ON `google_tasks` (`list_id`)");
+          database.execSQL(
+              "CREATE INDEX `index_google_tasks_remote_id` ON `google_tasks` (`remote_id`)");
+          database.execSQL("CREATE INDEX `index_locations_task` ON `locations` (`task`)");
+          database.execSQL("CREATE INDEX `index_tags_task` ON `tags` (`task`)");
+          database.execSQL("CREATE INDEX `index_tags_tag_uid` ON `tags` (`tag_uid`)");
+          database.execSQL("CREATE INDEX `index_tags_task_uid` ON `tags` (`task_uid`)");
+          database.execSQL(
+              "CREATE INDEX `index_task_attachments_task_id` ON `task_attachments` (`task_id`)");
+          database.execSQL(
+              "CREATE INDEX `index_userActivity_target_id` ON `userActivity` (`target_id`)");
+        }
+      };
+
+  private static final Migration MIGRATION_62_63 =
+      new Migration(62, 63) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("ALTER TABLE `caldav_calendar` ADD COLUMN `sync_token` TEXT");
+        }
+      };
+
+  private static final Migration MIGRATION_63_64 =
+      new Migration(63, 64) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `nextReminder` INTEGER");
+          database.execSQL("ALTER TABLE `tasks` ADD COLUMN `nextReminderType` INTEGER");
+          // computed by ReminderService the next time notifications are scheduled
+          database.execSQL(
+              "UPDATE `tasks` SET `nextReminderType` = 0, `nextReminder` = "
+                  + "(CASE WHEN `completed` = 0 AND `deleted` = 0 AND (`notificationFlags` > 0 "
+                  + "OR `notifications` > 0 OR `snoozeTime` > 0) THEN -1 ELSE 0 END)");
+          database.execSQL("CREATE INDEX `t_next_reminder` ON `tasks` (`nextReminder`)");
+        }
+      };
+
+  private static final Migration MIGRATION_64_65 =
+      new Migration(64, 65) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `task_list_positions` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `list` INTEGER NOT NULL, `task` INTEGER NOT NULL, `parent` INTEGER NOT NULL, `position` INTEGER NOT NULL, `indent` INTEGER NOT NULL)");
+          database.execSQL(
+              "CREATE UNIQUE INDEX `index_task_list_positions_list_task` ON `task_list_positions` (`list`, `task`)");
+        }
+      };
+
+  private static final Migration MIGRATION_65_66 =
+      new Migration(65, 66) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          TaskSearch.create(database);
+        }
+      };
+
+  private static final Migration MIGRATION_66_67 =
+      new Migration(66, 67) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL("ALTER TABLE `caldav_tasks` RENAME TO `caldav_tasks-temp`");
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `caldav_tasks` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `task` INTEGER NOT NULL, `calendar` TEXT, `object` TEXT, `remote_id` TEXT, `etag` TEXT, `last_sync` INTEGER NOT NULL, `deleted` INTEGER NOT NULL, `vtodo` BLOB)");
+          database.execSQL(
+              "INSERT INTO `caldav_tasks` (`_id`, `task`, `calendar`, `object`, `remote_id`, `etag`, `last_sync`, `deleted`, `vtodo`) "
+                  + "SELECT `_id`, `task`, `calendar`, `object`, `remote_id`, `etag`, `last_sync`, `deleted`, CAST(`vtodo` AS BLOB) FROM `caldav_tasks-temp`");
+          database.execSQL("DROP TABLE `caldav_tasks-temp`");
+          database.execSQL("CREATE INDEX `index_caldav_tasks_task` ON `caldav_tasks` (`task`)");
+          database.execSQL(
+              "CREATE INDEX `index_caldav_tasks_calendar_object` ON `caldav_tasks` (`calendar`, `object`)");
+        }
+      };
+
+  private static final Migration MIGRATION_67_68 =
+      new Migration(67, 68) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE TABLE IF NOT EXISTS `pending_saves` (`_id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `task` INTEGER NOT NULL, `original_completion` INTEGER NOT NULL, `original_deletion` INTEGER NOT NULL, `push_gtasks` INTEGER NOT NULL, `push_caldav` INTEGER NOT NULL, `suppress_refresh` INTEGER NOT NULL)");
+        }
+      };
+
+  private static final Migration MIGRATION_68_69 =
+      new Migration(68, 69) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "ALTER TABLE `caldav_tasks` ADD COLUMN `conflict` INTEGER DEFAULT 0 NOT NULL");
+        }
+      };
+
+  private static final Migration MIGRATION_69_70 =
+      new Migration(69, 70) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+          database.execSQL(
+              "CREATE INDEX `index_task_list_positions_task` ON `task_list_positions` (`task`)");
+        }
+      };
+
   public static final Migration[] MIGRATIONS =
       new Migration[] {
         MIGRATION_35_36,
@@ -235,7 +376,17 @@ public class Migrations {
         MIGRATION_53_54,
         MIGRATION_54_58,
         MIGRATION_58_59,
-        MIGRATION_59_60
+        MIGRATION_59_60,
+        MIGRATION_60_61,
+        MIGRATION_61_62,
+        MIGRATION_62_63,
+        MIGRATION_63_64,
+        MIGRATION_64_65,
+        MIGRATION_65_66,
+        MIGRATION_66_67,
+        MIGRATION_67_68,
+        MIGRATION_68_69,
+        MIGRATION_69_70
       };
 
   private static Migration NOOP(int from, int to) {
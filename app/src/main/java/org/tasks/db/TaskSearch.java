@@ -0,0 +1,167 @@
+package org.tasks.db;
+
+import android.database.sqlite.SQLiteException;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.google.common.base.Joiner;
+import com.todoroo.andlib.data.Table;
+import com.todoroo.andlib.sql.Criterion;
+import com.todoroo.andlib.sql.Field;
+import com.todoroo.andlib.sql.Order;
+import com.todoroo.andlib.sql.Query;
+import com.todoroo.astrid.data.Task;
+import java.util.ArrayList;
+import java.util.List;
+import timber.log.Timber;
+
+/**
+ * FTS4 index over task titles, notes, comments and tag names. The index is kept up to date by
+ * triggers on tasks, tags and userActivity, so every write path (DAOs, sync, backup restore) is
+ * covered. The docid of each row is the task id.
+ */
+public class TaskSearch {
+
+  public static final Table TABLE = new Table("task_search");
+  private static final Field DOCID = Field.field("docid");
+  private static final Field ALL_COLUMNS = Field.field("task_search");
+  private static final Field TITLE = Field.field("title");
+
+  /** Creates the index and triggers for new databases */
+  public static final RoomDatabase.Callback CALLBACK =
+      new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+          create(db);
+        }
+      };
+
+  private static final String COMMENTS =
+      "(SELECT group_concat(`message`, ' ') FROM `userActivity` WHERE `target_id` = %s)";
+  private static final String TAGS =
+      "(SELECT group_concat(`name`, ' ') FROM `tags` WHERE `task` = %s)";
+
+  /** Creates and populates the index and adds the triggers that keep it up to date */
+  static void create(SupportSQLiteDatabase db) {
+    try {
+      // unicode61 folds case for non-ASCII characters, but isn't available on older devices
+      db.execSQL(
+          "CREATE VIRTUAL TABLE IF NOT EXISTS `task_search` USING fts4(`title`, `notes`, `comments`, `tags`, tokenize=unicode61, prefix=\"2,3\")");
+    } catch (SQLiteException e) {
+      Timber.e(e);
+      db.execSQL(
+          "CREATE VIRTUAL TABLE IF NOT EXISTS `task_search` USING fts4(`title`, `notes`, `comments`, `tags`, prefix=\"2,3\")");
+    }
+    db.execSQL(
+        "INSERT INTO `task_search` (`docid`, `title`, `notes`, `comments`, `tags`) SELECT `_id`, `title`, `notes`, "
+            + String.format(COMMENTS, "`tasks`.`remoteId`")
+            + ", "
+            + String.format(TAGS, "`tasks`.`_id`")
+            + " FROM `tasks`");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_insert` AFTER INSERT ON `tasks` BEGIN INSERT INTO `task_search` (`docid`, `title`, `notes`, `comments`, `tags`) VALUES (new.`_id`, new.`title`, new.`notes`, "
+            + String.format(COMMENTS, "new.`remoteId`")
+            + ", "
+            + String.format(TAGS, "new.`_id`")
+            + "); END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_update` AFTER UPDATE ON `tasks` WHEN old.`title` IS NOT new.`title` OR old.`notes` IS NOT new.`notes` OR old.`remoteId` IS NOT new.`remoteId` BEGIN UPDATE `task_search` SET `title` = new.`title`, `notes` = new.`notes`, `comments` = "
+            + String.format(COMMENTS, "new.`remoteId`")
+            + " WHERE `docid` = new.`_id`; END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_delete` AFTER DELETE ON `tasks` BEGIN DELETE FROM `task_search` WHERE `docid` = old.`_id`; END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_tag_insert` AFTER INSERT ON `tags` BEGIN "
+            + updateTags("new")
+            + " END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_tag_update` AFTER UPDATE OF `name`, `task` ON `tags` BEGIN "
+            + updateTags("old")
+            + " "
+            + updateTags("new")
+            + " END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_tag_delete` AFTER DELETE ON `tags` BEGIN "
+            + updateTags("old")
+            + " END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_comment_insert` AFTER INSERT ON `userActivity` BEGIN "
+            + updateComments("new")
+            + " END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_comment_update` AFTER UPDATE OF `message`, `target_id` ON `userActivity` BEGIN "
+            + updateComments("old")
+            + " "
+            + updateComments("new")
+            + " END");
+    db.execSQL(
+        "CREATE TRIGGER IF NOT EXISTS `task_search_comment_delete` AFTER DELETE ON `userActivity` BEGIN "
+            + updateComments("old")
+            + " END");
+  }
+
+  private static String updateTags(String row) {
+    String task = row + ".`task`";
+    return "UPDATE `task_search` SET `tags` = "
+        + String.format(TAGS, task)
+        + " WHERE `docid` = "
+        + task
+        + ";";
+  }
+
+  private static String updateComments(String row) {
+    String target = row + ".`target_id`";
+    return "UPDATE `task_search` SET `comments` = "
+        + String.format(COMMENTS, target)
+        + " WHERE `docid` IN (SELECT `_id` FROM `tasks` WHERE `remoteId` = "
+        + target
+        + ");";
+  }
+
+  /**
+   * Tasks that contain a word starting with each word in the query, in any of the indexed columns.
+   * Queries without any words fall back to a substring match on the title.
+   */
+  public static Criterion matches(String query) {
+    String match = toMatchQuery(query);
+    return match.isEmpty() ? Task.TITLE.like("%" + query + "%") : matchesExpression(match);
+  }
+
+  /** Tasks that match an FTS query built with {@link #toMatchQuery(String)} */
+  public static Criterion matchesExpression(String match) {
+    return Task.ID.in(Query.select(DOCID).from(TABLE).where(ALL_COLUMNS.match(match)));
+  }
+
+  /**
+   * Ranks tasks with every word of the query in their title above other matches
+   *
+   * @return null if the query doesn't have any words
+   */
+  @Nullable
+  public static Order rank(String query) {
+    String match = toMatchQuery(query);
+    return match.isEmpty()
+        ? null
+        : Order.desc(Task.ID.in(Query.select(DOCID).from(TABLE).where(TITLE.match(match))));
+  }
+
+  /**
+   * Converts user input to an FTS query that matches every word as a prefix. Words are quoted so
+   * that operators such as OR, NOT or NEAR are searched for literally, and only contain letters and
+   * digits so the result never needs escaping.
+   */
+  public static String toMatchQuery(String query) {
+    List<String> words = new ArrayList<>();
+    StringBuilder word = new StringBuilder();
+    for (int i = 0; i <= query.length(); i++) {
+      if (i < query.length() && Character.isLetterOrDigit(query.charAt(i))) {
+        word.append(query.charAt(i));
+      } else if (word.length() > 0) {
+        words.add("\"" + word + "*\"");
+        word.setLength(0);
+      }
+    }
+    return Joiner.on(' ').join(words);
+  }
+}
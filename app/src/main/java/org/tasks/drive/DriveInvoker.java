@@ -4,7 +4,6 @@ import android.content.Context;
 import android.net.Uri;
 import com.google.api.client.googleapis.extensions.android.gms.auth.GoogleAccountCredential;
 import com.google.api.client.http.InputStreamContent;
-import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.GenericJson;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.client.util.ExponentialBackOff;
@@ -21,6 +20,7 @@ import org.tasks.R;
 import org.tasks.files.FileHelper;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.Preferences;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 public class DriveInvoker {
@@ -31,7 +31,10 @@ public class DriveInvoker {
   private final Context context;
 
   @Inject
-  public DriveInvoker(@ForApplication Context context, Preferences preferences) {
+  public DriveInvoker(
+      @ForApplication Context context,
+      Preferences preferences,
+      HttpClientFactory httpClientFactory) {
     this.context = context;
     if (preferences.getBoolean(R.string.p_google_drive_backup, false)) {
       GoogleAccountCredential credential =
@@ -41,7 +44,7 @@ public class DriveInvoker {
               .setSelectedAccountName(
                   preferences.getStringValue(R.string.p_google_drive_backup_account));
       service =
-          new Drive.Builder(new NetHttpTransport(), new JacksonFactory(), credential)
+          new Drive.Builder(httpClientFactory.getTransport(), new JacksonFactory(), credential)
               .setApplicationName(String.format("Tasks/%s", BuildConfig.VERSION_NAME))
               .build();
     } else {
@@ -1,8 +1,17 @@
 package org.tasks.filters;
 
+import android.database.Cursor;
+import androidx.annotation.Nullable;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterListItem;
+import com.todoroo.astrid.api.PermaSql;
 import com.todoroo.astrid.dao.TaskDao;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
@@ -11,8 +20,21 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 
+/**
+ * Counts the tasks in each drawer filter. Filter queries are split into their joins and their WHERE
+ * clause, and filters that share the same joins are counted together in a single scan with one
+ * {@code SUM(CASE WHEN ...)} column per filter. Every tag filter shares one join, as does every
+ * Google Task list and every CalDAV calendar, so a refresh runs a handful of queries no matter how
+ * many filters are registered. Queries that can't be split are counted on their own.
+ */
 public class FilterCounter {
 
+  private static final int MAX_COLUMNS = 200;
+  private static final String COUNT_COLUMN = "SUM(CASE WHEN (%s) THEN 1 ELSE 0 END)";
+  private static final String[] KEYWORDS = {
+    "WHERE", "ORDER BY", "GROUP BY", "LIMIT", "HAVING", "UNION", "INTERSECT", "EXCEPT"
+  };
+
   // Previous solution involved a queue of filters and a filterSizeLoadingThread. The
   // filterSizeLoadingThread had
   // a few problems: how to make sure that the thread is resumed when the controlling activity is
@@ -29,6 +51,8 @@ public class FilterCounter {
   private final ExecutorService executorService;
 
   private final Map<Filter, Integer> filterCounts = new ConcurrentHashMap<>();
+  private final List<Runnable> callbacks = new ArrayList<>();
+  private boolean queued;
 
   private final TaskDao taskDao;
 
@@ -42,19 +66,130 @@ public class FilterCounter {
     this.executorService = executorService;
   }
 
+  /** Requests that are made while a refresh is still queued are served by that refresh */
   public void refreshFilterCounts(final Runnable onComplete) {
+    synchronized (callbacks) {
+      if (onComplete != null) {
+        callbacks.add(onComplete);
+      }
+      if (queued) {
+        return;
+      }
+      queued = true;
+    }
     executorService.submit(
         () -> {
-          for (Filter filter : filterCounts.keySet()) {
-            int size = taskDao.count(filter);
-            filterCounts.put(filter, size);
+          List<Runnable> pending;
+          synchronized (callbacks) {
+            queued = false;
+            pending = new ArrayList<>(callbacks);
+            callbacks.clear();
           }
-          if (onComplete != null) {
-            onComplete.run();
+          filterCounts.putAll(count(new ArrayList<>(filterCounts.keySet())));
+          for (Runnable callback : pending) {
+            callback.run();
           }
         });
   }
 
+  Map<Filter, Integer> count(List<Filter> filters) {
+    Map<Filter, Integer> result = new HashMap<>();
+    ListMultimap<String, Filter> byJoin = ArrayListMultimap.create();
+    Map<Filter, String> predicates = new HashMap<>();
+    for (Filter filter : filters) {
+      String[] split = split(PermaSql.replacePlaceholdersForQuery(filter.getSqlQuery()));
+      if (split == null) {
+        result.put(filter, taskDao.count(filter));
+      } else {
+        byJoin.put(split[0], filter);
+        predicates.put(filter, split[1]);
+      }
+    }
+    for (String join : byJoin.keySet()) {
+      List<Filter> group = byJoin.get(join);
+      for (int start = 0; start < group.size(); start += MAX_COLUMNS) {
+        List<Filter> chunk = group.subList(start, Math.min(group.size(), start + MAX_COLUMNS));
+        List<String> columns = new ArrayList<>();
+        for (Filter filter : chunk) {
+          columns.add(String.format(COUNT_COLUMN, predicates.get(filter)));
+        }
+        Cursor cursor = taskDao.aggregate(join, columns);
+        try {
+          boolean hasRow = cursor.moveToFirst();
+          for (int i = 0; i < chunk.size(); i++) {
+            result.put(chunk.get(i), hasRow ? cursor.getInt(i) : 0);
+          }
+        } finally {
+          cursor.close();
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Splits a filter query into the joins and the WHERE predicate. Trailing ORDER BY clauses are
+   * dropped.
+   *
+   * @return null if the query doesn't have a WHERE clause or uses GROUP BY, LIMIT or a compound
+   *     select at the top level
+   */
+  @Nullable
+  static String[] split(String query) {
+    String upper = query.toUpperCase(Locale.US);
+    int where = -1;
+    int end = query.length();
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = 0; i < query.length(); i++) {
+      char c = query.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (quoted) {
+        continue;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && isKeyword(upper, i)) {
+        if (upper.startsWith("WHERE", i) && where < 0) {
+          where = i;
+        } else if (upper.startsWith("ORDER BY", i) && where >= 0) {
+          end = i;
+          break;
+        } else if (!upper.startsWith("WHERE", i) && !upper.startsWith("ORDER BY", i)) {
+          return null;
+        }
+      }
+    }
+    if (where < 0 || depth != 0 || quoted) {
+      return null;
+    }
+    String predicate = query.substring(where + "WHERE".length(), end).trim();
+    if (predicate.isEmpty()) {
+      return null;
+    }
+    return new String[] {query.substring(0, where).trim(), predicate};
+  }
+
+  private static boolean isKeyword(String upper, int index) {
+    if (index > 0 && isIdentifier(upper.charAt(index - 1))) {
+      return false;
+    }
+    for (String keyword : KEYWORDS) {
+      int end = index + keyword.length();
+      if (upper.startsWith(keyword, index)
+          && (end == upper.length() || !isIdentifier(upper.charAt(end)))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isIdentifier(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '`';
+  }
+
   public void registerFilter(Filter filter) {
     if (!filterCounts.containsKey(filter)) {
       filterCounts.put(filter, 0);
@@ -32,11 +32,13 @@ import org.tasks.data.GoogleTaskList;
 import org.tasks.data.GoogleTaskListDao;
 import org.tasks.data.Tag;
 import org.tasks.data.TagData;
+import org.tasks.db.TaskSearch;
 import org.tasks.injection.ForApplication;
 import org.tasks.sync.SyncAdapters;
 
 public class FilterCriteriaProvider {
 
+  public static final String IDENTIFIER_TEXT = "text"; // $NON-NLS-1$
   private static final String IDENTIFIER_TITLE = "title"; // $NON-NLS-1$
   private static final String IDENTIFIER_IMPORTANCE = "importance"; // $NON-NLS-1$
   private static final String IDENTIFIER_DUEDATE = "dueDate"; // $NON-NLS-1$
@@ -75,6 +77,7 @@ public class FilterCriteriaProvider {
     result.add(getDueDateFilter());
     result.add(getPriorityFilter());
     result.add(getTaskTitleContainsFilter());
+    result.add(getTaskTextContainsFilter());
     if (!googleTaskListDao.getAccounts().isEmpty()) {
       result.add(getGtasksFilterCriteria());
     }
@@ -194,6 +197,23 @@ public class FilterCriteriaProvider {
         r.getString(R.string.CFC_title_contains_name));
   }
 
+  /** Full text search over titles, notes, comments and tags */
+  private CustomFilterCriterion getTaskTextContainsFilter() {
+    return new TextInputCriterion(
+        IDENTIFIER_TEXT,
+        r.getString(R.string.CFC_text_contains_text),
+        Query.select(Task.ID)
+            .from(Task.TABLE)
+            .where(
+                Criterion.and(
+                    TaskDao.TaskCriteria.activeAndVisible(), TaskSearch.matchesExpression("?")))
+            .toString(),
+        r.getString(R.string.CFC_text_contains_name),
+        "",
+        null,
+        r.getString(R.string.CFC_text_contains_name));
+  }
+
   private CustomFilterCriterion getGtasksFilterCriteria() {
     List<GoogleTaskList> lists = googleTaskListDao.getAllLists();
 
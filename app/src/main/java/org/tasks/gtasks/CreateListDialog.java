@@ -17,6 +17,7 @@ import org.tasks.dialogs.DialogBuilder;
 import org.tasks.injection.DialogFragmentComponent;
 import org.tasks.injection.ForApplication;
 import org.tasks.injection.InjectingDialogFragment;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 public class CreateListDialog extends InjectingDialogFragment {
@@ -25,6 +26,7 @@ public class CreateListDialog extends InjectingDialogFragment {
   private static final String EXTRA_NAME = "extra_name";
   @Inject DialogBuilder dialogBuilder;
   @Inject @ForApplication Context context;
+  @Inject HttpClientFactory httpClientFactory;
   private CreateListDialogCallback callback;
   private ProgressDialog dialog;
   private String account;
@@ -73,7 +75,7 @@ public class CreateListDialog extends InjectingDialogFragment {
       @Override
       protected TaskList doInBackground(Void... voids) {
         try {
-          return new GtasksInvoker(context, account).createGtaskList(name);
+          return new GtasksInvoker(context, httpClientFactory, account).createGtaskList(name);
         } catch (IOException e) {
           Timber.e(e);
           return null;
@@ -17,12 +17,14 @@ import org.tasks.dialogs.DialogBuilder;
 import org.tasks.injection.DialogFragmentComponent;
 import org.tasks.injection.ForApplication;
 import org.tasks.injection.InjectingDialogFragment;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 public class DeleteListDialog extends InjectingDialogFragment {
 
   private static final String EXTRA_LIST = "extra_list";
   @Inject @ForApplication Context context;
+  @Inject HttpClientFactory httpClientFactory;
   @Inject DialogBuilder dialogBuilder;
   private DeleteListDialogCallback callback;
   private GoogleTaskList googleTaskList;
@@ -69,7 +71,7 @@ public class DeleteListDialog extends InjectingDialogFragment {
       @Override
       protected Boolean doInBackground(Void... voids) {
         try {
-          new GtasksInvoker(context, googleTaskList.getAccount())
+          new GtasksInvoker(context, httpClientFactory, googleTaskList.getAccount())
               .deleteGtaskList(googleTaskList.getRemoteId());
           return true;
         } catch (IOException e) {
@@ -1,11 +1,13 @@
 package org.tasks.gtasks;
 
+import static com.google.common.collect.Lists.partition;
 import static org.tasks.date.DateTimeUtils.newDateTime;
 
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.text.TextUtils;
+import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import com.google.api.client.googleapis.extensions.android.gms.auth.UserRecoverableAuthIOException;
 import com.google.api.services.tasks.model.TaskList;
@@ -15,6 +17,7 @@ import com.google.common.base.Strings;
 import com.todoroo.andlib.utility.DateUtilities;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.GtasksFilter;
+import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.dao.TaskDao;
 import com.todoroo.astrid.data.SyncFlags;
 import com.todoroo.astrid.data.Task;
@@ -30,7 +33,13 @@ import com.todoroo.astrid.service.TaskDeleter;
 import com.todoroo.astrid.utility.Constants;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
@@ -42,16 +51,23 @@ import org.tasks.data.GoogleTaskDao;
 import org.tasks.data.GoogleTaskList;
 import org.tasks.data.GoogleTaskListDao;
 import org.tasks.injection.ForApplication;
+import org.tasks.jobs.AfterSaveHandler;
+import org.tasks.jobs.AfterSaveHandler.Change;
 import org.tasks.notifications.NotificationManager;
 import org.tasks.preferences.DefaultFilterProvider;
 import org.tasks.preferences.PermissionChecker;
 import org.tasks.preferences.Preferences;
+import org.tasks.sync.HttpClientFactory;
+import org.tasks.sync.SyncScheduler;
+import org.tasks.sync.SyncScheduler.Job;
 import org.tasks.time.DateTime;
 import timber.log.Timber;
 
 public class GoogleTaskSynchronizer {
 
   private static final String DEFAULT_LIST = "@default"; // $NON-NLS-1$
+  private static final String HOST = "www.googleapis.com";
+  private static final int FETCH_SIZE = 500;
 
   private final Context context;
   private final GoogleTaskListDao googleTaskListDao;
@@ -70,6 +86,10 @@ public class GoogleTaskSynchronizer {
   private final LocalBroadcastManager localBroadcastManager;
   private final Inventory inventory;
   private final TaskDeleter taskDeleter;
+  private final Database database;
+  private final AfterSaveHandler afterSaveHandler;
+  private final SyncScheduler syncScheduler;
+  private final HttpClientFactory httpClientFactory;
 
   @Inject
   public GoogleTaskSynchronizer(
@@ -89,7 +109,11 @@ public class GoogleTaskSynchronizer {
       GoogleAccountManager googleAccountManager,
       LocalBroadcastManager localBroadcastManager,
       Inventory inventory,
-      TaskDeleter taskDeleter) {
+      TaskDeleter taskDeleter,
+      Database database,
+      AfterSaveHandler afterSaveHandler,
+      SyncScheduler syncScheduler,
+      HttpClientFactory httpClientFactory) {
     this.context = context;
     this.googleTaskListDao = googleTaskListDao;
     this.gtasksSyncService = gtasksSyncService;
@@ -107,6 +131,10 @@ public class GoogleTaskSynchronizer {
     this.localBroadcastManager = localBroadcastManager;
     this.inventory = inventory;
     this.taskDeleter = taskDeleter;
+    this.database = database;
+    this.afterSaveHandler = afterSaveHandler;
+    this.syncScheduler = syncScheduler;
+    this.httpClientFactory = httpClientFactory;
   }
 
   public static void mergeDates(long remoteDueDate, Task local) {
@@ -126,30 +154,51 @@ public class GoogleTaskSynchronizer {
 
   public void sync() {
     List<GoogleTaskAccount> accounts = googleTaskListDao.getAccounts();
+    List<GoogleTaskAccount> synced = new ArrayList<>();
+    List<Job> lists = Collections.synchronizedList(new ArrayList<>());
+    List<Job> jobs = new ArrayList<>();
     for (int i = 0; i < accounts.size(); i++) {
       GoogleTaskAccount account = accounts.get(i);
-      Timber.d("%s: start sync", account);
-      try {
-        if (i == 0 || inventory.hasPro()) {
-          synchronize(account);
-        } else {
-          account.setError(context.getString(R.string.requires_pro_subscription));
-        }
-      } catch (UserRecoverableAuthIOException e) {
-        Timber.e(e);
-        sendNotification(context, e.getIntent());
-      } catch (IOException e) {
-        account.setError(e.getMessage());
-        Timber.e(e);
-      } catch (Exception e) {
-        account.setError(e.getMessage());
-        tracker.reportException(e);
-      } finally {
+      if (i == 0 || inventory.hasPro()) {
+        synced.add(account);
+        jobs.add(
+            new Job(
+                account.getAccount(),
+                HOST,
+                () -> run(account, () -> lists.addAll(synchronize(account)))));
+      } else {
+        account.setError(context.getString(R.string.requires_pro_subscription));
         googleTaskListDao.update(account);
         localBroadcastManager.broadcastRefreshList();
-        Timber.d("%s: end sync", account);
       }
     }
+    try {
+      syncScheduler.runAll("gtasks", jobs);
+      syncScheduler.runAll("gtasks", lists);
+    } catch (InterruptedException e) {
+      Timber.e(e);
+      Thread.currentThread().interrupt();
+    }
+    for (GoogleTaskAccount account : synced) {
+      googleTaskListDao.update(account);
+      localBroadcastManager.broadcastRefreshList();
+      Timber.d("%s: end sync", account);
+    }
+  }
+
+  private void run(GoogleTaskAccount account, SyncRunnable runnable) {
+    try {
+      runnable.run();
+    } catch (UserRecoverableAuthIOException e) {
+      Timber.e(e);
+      sendNotification(context, e.getIntent());
+    } catch (IOException e) {
+      account.setError(e.getMessage());
+      Timber.e(e);
+    } catch (Exception e) {
+      account.setError(e.getMessage());
+      tracker.reportException(e);
+    }
   }
 
   private void sendNotification(Context context, Intent intent) {
@@ -170,16 +219,17 @@ public class GoogleTaskSynchronizer {
     notificationManager.notify(Constants.NOTIFICATION_SYNC_ERROR, builder, true, false, false);
   }
 
-  private void synchronize(GoogleTaskAccount account) throws IOException {
+  /** Pushes local changes, updates the lists and returns a job to fetch each of them */
+  private List<Job> synchronize(GoogleTaskAccount account) throws IOException {
+    Timber.d("%s: start sync", account);
     if (!permissionChecker.canAccessAccounts()
         || googleAccountManager.getAccount(account.getAccount()) == null) {
       account.setError(context.getString(R.string.cannot_access_account));
-      googleTaskListDao.update(account);
-      localBroadcastManager.broadcastRefreshList();
-      return;
+      return Collections.emptyList();
     }
 
-    GtasksInvoker gtasksInvoker = new GtasksInvoker(context, account.getAccount());
+    GtasksInvoker gtasksInvoker =
+        new GtasksInvoker(context, httpClientFactory, account.getAccount());
     pushLocalChanges(account, gtasksInvoker);
 
     List<TaskList> gtaskLists = new ArrayList<>();
@@ -204,30 +254,64 @@ public class GoogleTaskSynchronizer {
         preferences.setString(R.string.p_default_remote_list, null);
       }
     }
+    account.setError("");
+    List<Job> jobs = new ArrayList<>();
     for (final GoogleTaskList list : gtasksListService.getListsToUpdate(gtaskLists)) {
-      fetchAndApplyRemoteChanges(gtasksInvoker, list);
+      jobs.add(
+          new Job(
+              account.getAccount(),
+              HOST,
+              () -> run(account, () -> fetchAndApplyRemoteChanges(gtasksInvoker, list))));
     }
-    account.setError("");
+    return jobs;
   }
 
+  /**
+   * Pushes deletions and updates in batches, then creates new tasks. New tasks are created in
+   * rounds, since a task can only be placed once its parent and prior sibling exist remotely.
+   */
   private void pushLocalChanges(GoogleTaskAccount account, GtasksInvoker gtasksInvoker)
       throws UserRecoverableAuthIOException {
     List<Task> tasks = taskDao.getGoogleTasksToPush(account.getAccount());
-    for (Task task : tasks) {
-      try {
-        pushTask(task, gtasksInvoker);
-      } catch (UserRecoverableAuthIOException e) {
-        throw e;
-      } catch (IOException e) {
-        Timber.e(e);
+    try {
+      GtasksInvoker.Batch batch = gtasksInvoker.newBatch();
+      List<PendingCreate> creates = new ArrayList<>();
+      for (Task task : tasks) {
+        queueTask(task, batch, creates);
       }
+      batch.execute();
+      pushCreates(creates, gtasksInvoker);
+    } catch (UserRecoverableAuthIOException e) {
+      throw e;
+    } catch (IOException e) {
+      Timber.e(e);
     }
   }
 
-  private void pushTask(Task task, GtasksInvoker gtasksInvoker) throws IOException {
+  private void queueTask(Task task, GtasksInvoker.Batch batch, List<PendingCreate> creates) {
     for (GoogleTask deleted : googleTaskDao.getDeletedByTaskId(task.getId())) {
-      gtasksInvoker.deleteGtask(deleted.getListId(), deleted.getRemoteId());
-      googleTaskDao.delete(deleted);
+      if (Strings.isNullOrEmpty(deleted.getRemoteId())) {
+        googleTaskDao.delete(deleted);
+        continue;
+      }
+      batch.delete(
+          deleted.getListId(),
+          deleted.getRemoteId(),
+          new GtasksInvoker.Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+              googleTaskDao.delete(deleted);
+            }
+
+            @Override
+            public void onFailure(IOException e) {
+              if (e instanceof HttpNotFoundException) {
+                googleTaskDao.delete(deleted);
+              } else {
+                Timber.e(e);
+              }
+            }
+          });
     }
 
     GoogleTask gtasksMetadata = googleTaskDao.getByTaskId(task.getId());
@@ -286,30 +370,93 @@ public class GoogleTaskSynchronizer {
       remoteModel.setStatus("needsAction"); // $NON-NLS-1$
     }
 
-    if (!newlyCreated) {
-      try {
-        gtasksInvoker.updateGtask(listId, remoteModel);
-      } catch (HttpNotFoundException e) {
-        Timber.e(e);
-        googleTaskDao.delete(gtasksMetadata);
-        return;
-      }
+    if (newlyCreated) {
+      creates.add(new PendingCreate(task, gtasksMetadata, listId, remoteModel));
     } else {
-      String parent = gtasksSyncService.getRemoteParentId(gtasksMetadata);
-      String priorSibling = gtasksSyncService.getRemoteSiblingId(listId, gtasksMetadata);
+      batch.update(
+          listId,
+          remoteModel,
+          new GtasksInvoker.Callback<com.google.api.services.tasks.model.Task>() {
+            @Override
+            public void onSuccess(com.google.api.services.tasks.model.Task result) {
+              markSynced(task, gtasksMetadata);
+            }
 
-      com.google.api.services.tasks.model.Task created =
-          gtasksInvoker.createGtask(listId, remoteModel, parent, priorSibling);
+            @Override
+            public void onFailure(IOException e) {
+              Timber.e(e);
+              if (e instanceof HttpNotFoundException) {
+                googleTaskDao.delete(gtasksMetadata);
+              }
+            }
+          });
+    }
+  }
 
-      if (created != null) {
-        // Update the metadata for the newly created task
-        gtasksMetadata.setRemoteId(created.getId());
-        gtasksMetadata.setListId(listId);
-      } else {
-        return;
+  private void pushCreates(List<PendingCreate> creates, GtasksInvoker gtasksInvoker)
+      throws IOException {
+    Map<Long, PendingCreate> pending = new LinkedHashMap<>();
+    for (PendingCreate create : creates) {
+      GoogleTask sibling = gtasksSyncService.getPriorSibling(create.listId, create.googleTask);
+      create.parentRemoteId = gtasksSyncService.getRemoteParentId(create.googleTask);
+      if (sibling != null) {
+        create.priorSibling = sibling.getTask();
+        create.priorSiblingRemoteId = Strings.emptyToNull(sibling.getRemoteId());
       }
+      pending.put(create.task.getId(), create);
     }
+    Map<Long, String> created = new HashMap<>();
+    Set<Long> failed = new HashSet<>();
+    while (!pending.isEmpty()) {
+      List<PendingCreate> ready = new ArrayList<>();
+      for (PendingCreate create : pending.values()) {
+        long parent = create.googleTask.getParent();
+        if (failed.contains(parent) || failed.contains(create.priorSibling)) {
+          failed.add(create.task.getId());
+        } else if (!pending.containsKey(parent) && !pending.containsKey(create.priorSibling)) {
+          ready.add(create);
+        }
+      }
+      pending.keySet().removeAll(failed);
+      if (ready.isEmpty()) {
+        if (!pending.isEmpty()) {
+          Timber.e("Unable to order %s new tasks", pending.size());
+        }
+        break;
+      }
+      GtasksInvoker.Batch batch = gtasksInvoker.newBatch();
+      for (PendingCreate create : ready) {
+        pending.remove(create.task.getId());
+        long parent = create.googleTask.getParent();
+        batch.insert(
+            create.listId,
+            create.remoteModel,
+            created.containsKey(parent) ? created.get(parent) : create.parentRemoteId,
+            created.containsKey(create.priorSibling)
+                ? created.get(create.priorSibling)
+                : create.priorSiblingRemoteId,
+            new GtasksInvoker.Callback<com.google.api.services.tasks.model.Task>() {
+              @Override
+              public void onSuccess(com.google.api.services.tasks.model.Task result) {
+                created.put(create.task.getId(), result.getId());
+                // Update the metadata for the newly created task
+                create.googleTask.setRemoteId(result.getId());
+                create.googleTask.setListId(create.listId);
+                markSynced(create.task, create.googleTask);
+              }
+
+              @Override
+              public void onFailure(IOException e) {
+                Timber.e(e);
+                failed.add(create.task.getId());
+              }
+            });
+      }
+      batch.execute();
+    }
+  }
 
+  private void markSynced(Task task, GoogleTask gtasksMetadata) {
     task.setModificationDate(DateUtilities.now());
     gtasksMetadata.setLastSync(DateUtilities.now() + 1000L);
     if (gtasksMetadata.getId() == Task.NO_ID) {
@@ -321,7 +468,7 @@ public class GoogleTaskSynchronizer {
     taskDao.save(task);
   }
 
-  private synchronized void fetchAndApplyRemoteChanges(
+  private void fetchAndApplyRemoteChanges(
       GtasksInvoker gtasksInvoker, GoogleTaskList list) throws UserRecoverableAuthIOException {
     String listId = list.getRemoteId();
     long lastSyncDate = list.getLastSync();
@@ -349,64 +496,133 @@ public class GoogleTaskSynchronizer {
       } while (nextPageToken != null);
 
       if (!tasks.isEmpty()) {
-        for (com.google.api.services.tasks.model.Task gtask : tasks) {
-          String remoteId = gtask.getId();
-          GoogleTask googleTask = getMetadataByGtaskId(remoteId);
-          Task task = null;
-          if (googleTask == null) {
-            googleTask = new GoogleTask(0, "");
-          } else if (googleTask.getTask() > 0) {
-            task = taskDao.fetch(googleTask.getTask());
-          }
-          Boolean isDeleted = gtask.getDeleted();
-          Boolean isHidden = gtask.getHidden();
-          if ((isDeleted != null && isDeleted) || (isHidden != null && isHidden)) {
-            if (task != null) {
-              taskDeleter.delete(task);
-            }
-            continue;
-          }
-          if (task == null) {
-            task = taskCreator.createWithValues(null, "");
-          }
-          GtasksTaskContainer container = new GtasksTaskContainer(gtask, task, listId, googleTask);
-          container.gtaskMetadata.setRemoteOrder(Long.parseLong(gtask.getPosition()));
-          container.gtaskMetadata.setParent(localIdForGtasksId(gtask.getParent()));
-          container.gtaskMetadata.setLastSync(DateUtilities.now() + 1000L);
-          write(container);
-          lastSyncDate = Math.max(lastSyncDate, container.getUpdateTime());
+        List<Change> saved = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        long updateTime =
+            syncScheduler.write(
+                () ->
+                    database.runInTransaction(
+                        () -> applyRemoteChanges(listId, tasks, saved, deleted)));
+        if (!deleted.isEmpty()) {
+          syncScheduler.write(() -> taskDeleter.delete(deleted));
         }
-        list.setLastSync(lastSyncDate);
+        list.setLastSync(Math.max(lastSyncDate, updateTime));
         googleTaskListDao.insertOrReplace(list);
         gtasksTaskListUpdater.correctOrderAndIndentForList(listId);
+        afterSaveHandler.afterSave(saved);
+        localBroadcastManager.broadcastRefresh();
       }
     } catch (UserRecoverableAuthIOException e) {
       throw e;
     } catch (IOException e) {
       Timber.e(e);
+    } catch (InterruptedException e) {
+      Timber.e(e);
+      Thread.currentThread().interrupt();
     }
   }
 
-  private long localIdForGtasksId(String gtasksId) {
-    GoogleTask metadata = getMetadataByGtaskId(gtasksId);
-    return metadata == null ? Task.NO_ID : metadata.getTask();
+  /** Returns the most recent remote update time */
+  private long applyRemoteChanges(
+      String listId,
+      List<com.google.api.services.tasks.model.Task> tasks,
+      List<Change> saved,
+      List<Long> deleted) {
+    Map<String, Local> byRemoteId = getLocal(listId, tasks);
+    long updateTime = 0;
+    for (com.google.api.services.tasks.model.Task gtask : tasks) {
+      String remoteId = gtask.getId();
+      Local local = byRemoteId.get(remoteId);
+      GoogleTask googleTask = local == null ? new GoogleTask(0, "") : local.googleTask;
+      Task task = local == null ? null : local.task;
+      Task original = task == null ? null : new Task(task);
+      Boolean isDeleted = gtask.getDeleted();
+      Boolean isHidden = gtask.getHidden();
+      if ((isDeleted != null && isDeleted) || (isHidden != null && isHidden)) {
+        if (task != null) {
+          deleted.add(task.getId());
+        }
+        continue;
+      }
+      if (task == null) {
+        task = taskCreator.createWithValues(null, "");
+      }
+      GtasksTaskContainer container = new GtasksTaskContainer(gtask, task, listId, googleTask);
+      container.gtaskMetadata.setRemoteOrder(Long.parseLong(gtask.getPosition()));
+      Local parent = byRemoteId.get(gtask.getParent());
+      container.gtaskMetadata.setParent(parent == null ? Task.NO_ID : parent.googleTask.getTask());
+      container.gtaskMetadata.setLastSync(DateUtilities.now() + 1000L);
+      if (write(container, original, saved)) {
+        byRemoteId.put(remoteId, new Local(container.gtaskMetadata, task));
+      }
+      updateTime = Math.max(updateTime, container.getUpdateTime());
+    }
+    return updateTime;
   }
 
-  private GoogleTask getMetadataByGtaskId(String gtaskId) {
-    return googleTaskDao.getByRemoteId(gtaskId);
+  /**
+   * Returns the local copies of a list's tasks by remote id, with their tasks loaded in batches.
+   * Changed tasks that aren't in the list are looked up in every list, since a task that was moved
+   * on the server keeps its remote id.
+   */
+  private Map<String, Local> getLocal(
+      String listId, List<com.google.api.services.tasks.model.Task> tasks) {
+    Map<String, GoogleTask> byRemoteId = new HashMap<>();
+    for (GoogleTask googleTask : googleTaskDao.getByListId(listId)) {
+      String remoteId = googleTask.getRemoteId();
+      if (!Strings.isNullOrEmpty(remoteId) && !byRemoteId.containsKey(remoteId)) {
+        byRemoteId.put(remoteId, googleTask);
+      }
+    }
+    List<String> moved = new ArrayList<>();
+    for (com.google.api.services.tasks.model.Task gtask : tasks) {
+      if (!byRemoteId.containsKey(gtask.getId())) {
+        moved.add(gtask.getId());
+      }
+    }
+    for (List<String> chunk : partition(moved, FETCH_SIZE)) {
+      for (GoogleTask googleTask : googleTaskDao.getByRemoteIds(chunk)) {
+        if (!byRemoteId.containsKey(googleTask.getRemoteId())) {
+          byRemoteId.put(googleTask.getRemoteId(), googleTask);
+        }
+      }
+    }
+    List<Long> ids = new ArrayList<>();
+    for (com.google.api.services.tasks.model.Task gtask : tasks) {
+      GoogleTask googleTask = byRemoteId.get(gtask.getId());
+      if (googleTask != null && googleTask.getTask() > 0) {
+        ids.add(googleTask.getTask());
+      }
+    }
+    Map<Long, Task> localTasks = new HashMap<>();
+    for (List<Long> chunk : partition(ids, FETCH_SIZE)) {
+      for (Task task : taskDao.fetch(chunk)) {
+        localTasks.put(task.getId(), task);
+      }
+    }
+    Map<String, Local> result = new HashMap<>();
+    for (Map.Entry<String, GoogleTask> entry : byRemoteId.entrySet()) {
+      GoogleTask googleTask = entry.getValue();
+      result.put(entry.getKey(), new Local(googleTask, localTasks.get(googleTask.getTask())));
+    }
+    return result;
   }
 
-  private void write(GtasksTaskContainer task) {
+  /** Returns true if the task was written */
+  private boolean write(GtasksTaskContainer task, Task original, List<Change> saved) {
     if (!TextUtils.isEmpty(task.task.getTitle())) {
       task.task.putTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC, true);
-      task.task.putTransitory(TaskDao.TRANS_SUPPRESS_REFRESH, true);
       task.prepareForSaving();
       if (task.task.isNew()) {
         taskDao.createNew(task.task);
+        saved.add(new Change(task.task, null));
+      } else if (taskDao.saveWithoutHooks(task.task, original)) {
+        saved.add(new Change(task.task, original));
       }
-      taskDao.save(task.task);
       synchronizeMetadata(task.task.getId(), task.metadata);
+      return true;
     }
+    return false;
   }
 
   /**
@@ -441,4 +657,43 @@ public class GoogleTaskSynchronizer {
       googleTaskDao.insert(values);
     }
   }
+
+  private interface SyncRunnable {
+    void run() throws IOException;
+  }
+
+  /** A task's row in google_tasks and the task, if it has been loaded */
+  private static class Local {
+
+    final GoogleTask googleTask;
+    @Nullable final Task task;
+
+    Local(GoogleTask googleTask, @Nullable Task task) {
+      this.googleTask = googleTask;
+      this.task = task;
+    }
+  }
+
+  /** A new task waiting for its parent and prior sibling to be created */
+  private static class PendingCreate {
+
+    final Task task;
+    final GoogleTask googleTask;
+    final String listId;
+    final com.google.api.services.tasks.model.Task remoteModel;
+    String parentRemoteId;
+    long priorSibling = Task.NO_ID;
+    String priorSiblingRemoteId;
+
+    PendingCreate(
+        Task task,
+        GoogleTask googleTask,
+        String listId,
+        com.google.api.services.tasks.model.Task remoteModel) {
+      this.task = task;
+      this.googleTask = googleTask;
+      this.listId = listId;
+      this.remoteModel = remoteModel;
+    }
+  }
 }
@@ -18,6 +18,7 @@ import org.tasks.dialogs.DialogBuilder;
 import org.tasks.injection.DialogFragmentComponent;
 import org.tasks.injection.ForApplication;
 import org.tasks.injection.InjectingDialogFragment;
+import org.tasks.sync.HttpClientFactory;
 import timber.log.Timber;
 
 public class RenameListDialog extends InjectingDialogFragment {
@@ -25,6 +26,7 @@ public class RenameListDialog extends InjectingDialogFragment {
   private static final String EXTRA_NAME = "extra_name";
   private static final String EXTRA_LIST = "extra_list";
   @Inject @ForApplication Context context;
+  @Inject HttpClientFactory httpClientFactory;
   @Inject DialogBuilder dialogBuilder;
   private RenameListDialogCallback callback;
   private ProgressDialog dialog;
@@ -74,7 +76,7 @@ public class RenameListDialog extends InjectingDialogFragment {
       @Override
       protected TaskList doInBackground(Void... voids) {
         try {
-          return new GtasksInvoker(context, googleTaskList.getAccount())
+          return new GtasksInvoker(context, httpClientFactory, googleTaskList.getAccount())
               .renameGtaskList(googleTaskList.getRemoteId(), name);
         } catch (IOException e) {
           Timber.e(e);
@@ -23,7 +23,9 @@ import org.tasks.data.TaskAttachmentDao;
 import org.tasks.data.TaskListMetadataDao;
 import org.tasks.data.UserActivityDao;
 import org.tasks.db.Migrations;
-import org.tasks.jobs.WorkManager;
+import org.tasks.db.TaskSearch;
+import org.tasks.jobs.AfterSaveQueue;
+import org.tasks.jobs.PendingSaveDao;
 import org.tasks.locale.Locale;
 import org.tasks.notifications.NotificationDao;
 import org.tasks.security.Encryption;
@@ -56,6 +58,7 @@ public class ApplicationModule {
     return Room.databaseBuilder(context, Database.class, Database.NAME)
         .allowMainThreadQueries() // TODO: remove me
         .addMigrations(Migrations.MIGRATIONS)
+        .addCallback(TaskSearch.CALLBACK)
         .build()
         .init(tracker, () -> Astrid2TaskProvider.notifyDatabaseModification(context));
   }
@@ -134,9 +137,9 @@ public class ApplicationModule {
 
   @Provides
   @ApplicationScope
-  public TaskDao getTaskDao(Database database, WorkManager workManager) {
+  public TaskDao getTaskDao(Database database, AfterSaveQueue afterSaveQueue) {
     TaskDao taskDao = database.getTaskDao();
-    taskDao.initialize(workManager);
+    taskDao.initialize(afterSaveQueue);
     return taskDao;
   }
 
@@ -146,6 +149,12 @@ public class ApplicationModule {
     return database.getDeletionDao();
   }
 
+  @Provides
+  @ApplicationScope
+  public PendingSaveDao getPendingSaveDao(Database database) {
+    return database.getPendingSaveDao();
+  }
+
   @Provides
   @ApplicationScope
   public Encryption getEncryption() {
@@ -6,6 +6,7 @@ import org.tasks.notifications.NotificationClearedReceiver;
 import org.tasks.receivers.BootCompletedReceiver;
 import org.tasks.receivers.CompleteTaskReceiver;
 import org.tasks.receivers.MyPackageReplacedReceiver;
+import org.tasks.receivers.TimeChangedReceiver;
 import org.tasks.widget.TasksWidget;
 
 @Subcomponent(modules = BroadcastModule.class)
@@ -22,4 +23,6 @@ public interface BroadcastComponent {
   void inject(TasksWidget tasksWidget);
 
   void inject(NotificationClearedReceiver notificationClearedReceiver);
+
+  void inject(TimeChangedReceiver timeChangedReceiver);
 }
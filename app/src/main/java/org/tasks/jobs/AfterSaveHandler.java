@@ -0,0 +1,121 @@
+package org.tasks.jobs;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+import android.provider.CalendarContract;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import com.todoroo.astrid.data.Task;
+import com.todoroo.astrid.reminders.ReminderService;
+import com.todoroo.astrid.repeats.RepeatTaskHelper;
+import com.todoroo.astrid.timers.TimerPlugin;
+import java.util.List;
+import javax.inject.Inject;
+import org.tasks.R;
+import org.tasks.injection.ForApplication;
+import org.tasks.location.GeofenceService;
+import org.tasks.notifications.NotificationManager;
+import org.tasks.scheduling.RefreshScheduler;
+import timber.log.Timber;
+
+/** Reminders, notifications, geofences and repeats that need updating after a task was saved */
+public class AfterSaveHandler {
+
+  private final Context context;
+  private final RepeatTaskHelper repeatTaskHelper;
+  private final NotificationManager notificationManager;
+  private final GeofenceService geofenceService;
+  private final TimerPlugin timerPlugin;
+  private final ReminderService reminderService;
+  private final RefreshScheduler refreshScheduler;
+
+  @Inject
+  public AfterSaveHandler(
+      @ForApplication Context context,
+      RepeatTaskHelper repeatTaskHelper,
+      NotificationManager notificationManager,
+      GeofenceService geofenceService,
+      TimerPlugin timerPlugin,
+      ReminderService reminderService,
+      RefreshScheduler refreshScheduler) {
+    this.context = context;
+    this.repeatTaskHelper = repeatTaskHelper;
+    this.notificationManager = notificationManager;
+    this.geofenceService = geofenceService;
+    this.timerPlugin = timerPlugin;
+    this.reminderService = reminderService;
+    this.refreshScheduler = refreshScheduler;
+  }
+
+  /**
+   * Process a batch of saved tasks. Unlike {@link AfterSaveQueue} this does not broadcast a refresh
+   * or request a sync, callers broadcast once for the whole batch.
+   */
+  public void afterSave(List<Change> changes) {
+    for (Change change : changes) {
+      afterSave(change.task, change.originalCompletion, change.originalDeletion);
+    }
+  }
+
+  void afterSave(Task task, long originalCompletion, long originalDeletion) {
+    long taskId = task.getId();
+
+    reminderService.scheduleAlarm(task);
+
+    boolean completionDateModified = !task.getCompletionDate().equals(originalCompletion);
+    boolean deletionDateModified = !task.getDeletionDate().equals(originalDeletion);
+
+    boolean justCompleted = completionDateModified && task.isCompleted();
+    boolean justDeleted = deletionDateModified && task.isDeleted();
+
+    if (justCompleted || justDeleted) {
+      notificationManager.cancel(taskId);
+      geofenceService.cancelGeofences(taskId);
+    } else if (completionDateModified || deletionDateModified) {
+      geofenceService.setupGeofences(taskId);
+    }
+
+    if (justCompleted) {
+      updateCalendarTitle(task);
+      repeatTaskHelper.handleRepeat(task);
+      if (task.getTimerStart() > 0) {
+        timerPlugin.stopTimer(task);
+      }
+    }
+
+    refreshScheduler.scheduleRefresh(task);
+  }
+
+  private void updateCalendarTitle(Task task) {
+    String calendarUri = task.getCalendarURI();
+    if (!TextUtils.isEmpty(calendarUri)) {
+      try {
+        // change title of calendar event
+        ContentResolver cr = context.getContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(
+            CalendarContract.Events.TITLE,
+            context.getString(R.string.gcal_completed_title, task.getTitle()));
+        cr.update(Uri.parse(calendarUri), values, null, null);
+      } catch (Exception e) {
+        Timber.e(e);
+      }
+    }
+  }
+
+  /** A saved task along with the completion and deletion dates it had before it was saved */
+  public static class Change {
+
+    final Task task;
+    final long originalCompletion;
+    final long originalDeletion;
+
+    public Change(Task task, @Nullable Task original) {
+      this.task = task;
+      originalCompletion = original == null ? 0 : original.getCompletionDate();
+      originalDeletion = original == null ? 0 : original.getDeletionDate();
+    }
+  }
+}
@@ -0,0 +1,309 @@
+package org.tasks.jobs;
+
+import static com.google.common.collect.Iterables.partition;
+import static com.todoroo.astrid.dao.TaskDao.TRANS_SUPPRESS_REFRESH;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.SyncFlags;
+import com.todoroo.astrid.data.Task;
+import dagger.Lazy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.tasks.LocalBroadcastManager;
+import org.tasks.TaskChange;
+import org.tasks.TaskChange.Kind;
+import org.tasks.analytics.Tracker;
+import org.tasks.injection.ApplicationScope;
+import org.tasks.sync.SyncAdapters;
+import timber.log.Timber;
+
+/**
+ * Collects saved tasks for a short window and runs the after-save hooks for them in batches.
+ * Saving the same task several times within the window only processes it once, and each batch
+ * broadcasts at most one refresh and requests at most one sync.
+ *
+ * <p>Each save is written to {@link PendingSaveDao} on the queue's thread as soon as it is added,
+ * ahead of the batch, and removed once the batch has been processed. {@link #recover()} processes
+ * whatever a previous process left behind. Entries whose hooks fail are handed to {@link
+ * AfterSaveWork} so they are retried by WorkManager, without repeating the entries that succeeded.
+ */
+@ApplicationScope
+public class AfterSaveQueue {
+
+  private static final long WINDOW_MILLIS = 250;
+  private static final int FETCH_SIZE = 500;
+
+  private final ScheduledExecutorService executor =
+      newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setNameFormat("after-save-%d").build());
+  private final Map<Long, Entry> pending = new LinkedHashMap<>();
+  private final List<PendingSave> unjournaled = new ArrayList<>();
+  private final Lazy<TaskDao> taskDao;
+  private final Lazy<AfterSaveHandler> afterSaveHandler;
+  private final Lazy<SyncAdapters> syncAdapters;
+  private final PendingSaveDao pendingSaveDao;
+  private final WorkManager workManager;
+  private final LocalBroadcastManager localBroadcastManager;
+  private final Tracker tracker;
+  private boolean scheduled;
+  private boolean journalScheduled;
+  // journal row ids, only touched on the executor
+  private long firstPending;
+  private long lastPending;
+  private long firstSaved;
+
+  @Inject
+  public AfterSaveQueue(
+      Lazy<TaskDao> taskDao,
+      Lazy<AfterSaveHandler> afterSaveHandler,
+      Lazy<SyncAdapters> syncAdapters,
+      PendingSaveDao pendingSaveDao,
+      WorkManager workManager,
+      LocalBroadcastManager localBroadcastManager,
+      Tracker tracker) {
+    this.taskDao = taskDao;
+    this.afterSaveHandler = afterSaveHandler;
+    this.syncAdapters = syncAdapters;
+    this.pendingSaveDao = pendingSaveDao;
+    this.workManager = workManager;
+    this.localBroadcastManager = localBroadcastManager;
+    this.tracker = tracker;
+  }
+
+  public synchronized void add(Task current, Task original) {
+    Entry entry = new Entry(current, original);
+    Entry previous = pending.get(entry.id);
+    pending.put(entry.id, previous == null ? entry : previous.merge(entry));
+    unjournaled.add(new PendingSave(entry));
+    try {
+      if (!journalScheduled) {
+        executor.execute(this::journal);
+        journalScheduled = true;
+      }
+      if (!scheduled) {
+        executor.schedule(this::flush, WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        scheduled = true;
+      }
+    } catch (RejectedExecutionException e) {
+      Timber.e(e);
+      unjournaled.clear();
+      workManager.afterSave(drain());
+    }
+  }
+
+  /** Processes the saves that a previous process didn't get to */
+  public void recover() {
+    executor.execute(
+        () -> {
+          // saves from this process are already in a batch
+          List<PendingSave> saves =
+              pendingSaveDao.getBefore(firstSaved == 0 ? Long.MAX_VALUE : firstSaved);
+          if (saves.isEmpty()) {
+            return;
+          }
+          Timber.d("Recovering %s saves", saves.size());
+          Map<Long, Entry> entries = new LinkedHashMap<>();
+          for (PendingSave save : saves) {
+            Entry entry = save.toEntry();
+            Entry previous = entries.get(entry.id);
+            entries.put(entry.id, previous == null ? entry : previous.merge(entry));
+          }
+          process(
+              new ArrayList<>(entries.values()),
+              saves.get(0).getId(),
+              saves.get(saves.size() - 1).getId());
+        });
+  }
+
+  private synchronized List<Entry> drain() {
+    List<Entry> entries = new ArrayList<>(pending.values());
+    pending.clear();
+    scheduled = false;
+    return entries;
+  }
+
+  private synchronized List<PendingSave> takeUnjournaled() {
+    List<PendingSave> saves = new ArrayList<>(unjournaled);
+    unjournaled.clear();
+    journalScheduled = false;
+    return saves;
+  }
+
+  private void journal() {
+    journal(takeUnjournaled());
+  }
+
+  private void journal(List<PendingSave> saves) {
+    if (saves.isEmpty()) {
+      return;
+    }
+    List<Long> rowIds = pendingSaveDao.insert(saves);
+    if (firstSaved == 0) {
+      firstSaved = rowIds.get(0);
+    }
+    if (firstPending == 0) {
+      firstPending = rowIds.get(0);
+    }
+    lastPending = rowIds.get(rowIds.size() - 1);
+  }
+
+  private void flush() {
+    List<Entry> entries;
+    List<PendingSave> saves;
+    synchronized (this) {
+      entries = drain();
+      saves = takeUnjournaled();
+    }
+    journal(saves);
+    long first = firstPending;
+    long last = lastPending;
+    firstPending = 0;
+    process(entries, first, last);
+  }
+
+  private void process(List<Entry> entries, long firstSave, long lastSave) {
+    List<Entry> failed;
+    try {
+      failed = process(entries);
+    } catch (Exception e) {
+      // the tasks couldn't be loaded, so none of the entries were handled
+      Timber.e(e);
+      tracker.reportException(e);
+      failed = entries;
+    }
+    if (!failed.isEmpty()) {
+      workManager.afterSave(failed);
+    }
+    pendingSaveDao.delete(firstSave, lastSave);
+  }
+
+  /** @return the entries whose after-save hooks failed and still need to run */
+  List<Entry> process(List<Entry> entries) {
+    Map<Long, Task> tasks = new HashMap<>();
+    for (List<Long> ids : partition(Entry.ids(entries), FETCH_SIZE)) {
+      for (Task task : taskDao.get().fetch(ids)) {
+        tasks.put(task.getId(), task);
+      }
+    }
+    List<Entry> failed = new ArrayList<>();
+    boolean pushGtasks = false;
+    boolean pushCaldav = false;
+    Map<Kind, List<Long>> changes = new EnumMap<>(Kind.class);
+    for (Entry entry : entries) {
+      Task task = tasks.get(entry.id);
+      if (task == null) {
+        Timber.e("Missing saved task");
+        continue;
+      }
+      try {
+        afterSaveHandler.get().afterSave(task, entry.originalCompletion, entry.originalDeletion);
+      } catch (Exception e) {
+        Timber.e(e);
+        tracker.reportException(e);
+        failed.add(entry);
+        continue;
+      }
+      pushGtasks |= entry.pushGtasks;
+      pushCaldav |= entry.pushCaldav;
+      if (!entry.suppressRefresh) {
+        Kind kind = entry.getKind(task);
+        List<Long> ids = changes.get(kind);
+        if (ids == null) {
+          ids = new ArrayList<>();
+          changes.put(kind, ids);
+        }
+        ids.add(task.getId());
+      }
+    }
+    try {
+      SyncAdapters syncAdapters = this.syncAdapters.get();
+      if ((pushGtasks && syncAdapters.isGoogleTaskSyncEnabled())
+          || (pushCaldav && syncAdapters.isCaldavSyncEnabled())) {
+        workManager.syncNow();
+      }
+      for (Map.Entry<Kind, List<Long>> change : changes.entrySet()) {
+        localBroadcastManager.broadcastRefresh(TaskChange.of(change.getKey(), change.getValue()));
+      }
+    } catch (Exception e) {
+      // the hooks already ran, retrying the entries would run them twice
+      Timber.e(e);
+      tracker.reportException(e);
+    }
+    return failed;
+  }
+
+  static class Entry {
+
+    final long id;
+    final long originalCompletion;
+    final long originalDeletion;
+    final boolean pushGtasks;
+    final boolean pushCaldav;
+    final boolean suppressRefresh;
+
+    Entry(
+        long id,
+        long originalCompletion,
+        long originalDeletion,
+        boolean pushGtasks,
+        boolean pushCaldav,
+        boolean suppressRefresh) {
+      this.id = id;
+      this.originalCompletion = originalCompletion;
+      this.originalDeletion = originalDeletion;
+      this.pushGtasks = pushGtasks;
+      this.pushCaldav = pushCaldav;
+      this.suppressRefresh = suppressRefresh;
+    }
+
+    Entry(Task current, Task original) {
+      boolean suppress = current.checkTransitory(SyncFlags.GTASKS_SUPPRESS_SYNC);
+      boolean force = current.checkTransitory(SyncFlags.FORCE_SYNC);
+      id = current.getId();
+      originalCompletion = original == null ? 0 : original.getCompletionDate();
+      originalDeletion = original == null ? 0 : original.getDeletionDate();
+      pushGtasks = !suppress && (force || !current.googleTaskUpToDate(original));
+      pushCaldav = !suppress && (force || !current.caldavUpToDate(original));
+      suppressRefresh = current.checkTransitory(TRANS_SUPPRESS_REFRESH);
+    }
+
+    Kind getKind(Task task) {
+      if (originalDeletion == 0 && task.isDeleted()) {
+        return Kind.DELETED;
+      } else if (originalCompletion == 0 && task.isCompleted()) {
+        return Kind.COMPLETED;
+      } else {
+        return Kind.UPDATED;
+      }
+    }
+
+    /** Keeps the state from before the first save and pushes if any of the saves needs it */
+    Entry merge(Entry next) {
+      return new Entry(
+          id,
+          originalCompletion,
+          originalDeletion,
+          pushGtasks || next.pushGtasks,
+          pushCaldav || next.pushCaldav,
+          suppressRefresh && next.suppressRefresh);
+    }
+
+    static List<Long> ids(List<Entry> entries) {
+      List<Long> ids = new ArrayList<>();
+      for (Entry entry : entries) {
+        ids.add(entry.id);
+      }
+      return ids;
+    }
+  }
+}
@@ -4,24 +4,37 @@ import static com.google.common.base.Predicates.notNull;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Lists.newArrayList;
 
+import androidx.annotation.Nullable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Ordering;
-import com.google.common.collect.TreeMultimap;
-import com.google.common.primitives.Ints;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import javax.inject.Inject;
 import org.tasks.injection.ApplicationScope;
 import org.tasks.preferences.Preferences;
 import org.tasks.time.DateTime;
 
+/**
+ * Pending notifications ordered by time. Entries are also indexed by type and id, so canceling the
+ * entries for a task or alarm doesn't need to scan the whole queue.
+ *
+ * <p>Once {@link NotificationWindow} sets the end of the window, entries at or after the end are
+ * dropped and the queue wakes up at the end of the window so that it can be refilled.
+ */
 @ApplicationScope
 public class NotificationQueue {
 
-  private final TreeMultimap<Long, NotificationQueueEntry> jobs =
-      TreeMultimap.create(Ordering.natural(), (l, r) -> Ints.compare(l.hashCode(), r.hashCode()));
+  private final TreeMap<Long, Set<NotificationQueueEntry>> jobs = new TreeMap<>();
+  private final Map<Key, Set<NotificationQueueEntry>> index = new HashMap<>();
   private final Preferences preferences;
   private final WorkManager workManager;
+  private int size;
+  private long windowEnd;
 
   @Inject
   public NotificationQueue(Preferences preferences, WorkManager workManager) {
@@ -36,18 +49,45 @@ public class NotificationQueue {
   public synchronized <T extends NotificationQueueEntry> void add(Iterable<T> entries) {
     long originalFirstTime = firstTime();
     for (T entry : filter(entries, notNull())) {
-      jobs.put(entry.getTime(), entry);
+      put(entry);
     }
     if (originalFirstTime != firstTime()) {
       scheduleNext(true);
     }
   }
 
+  /** Replaces every reminder in the queue, rescheduling at most once */
+  public synchronized void replaceReminders(Iterable<ReminderEntry> reminders) {
+    replace(ReminderEntry.class, null, reminders);
+  }
+
+  /** Replaces the reminders for the given tasks, rescheduling at most once */
+  public synchronized void replaceReminders(
+      Collection<Long> taskIds, Iterable<ReminderEntry> reminders) {
+    replace(ReminderEntry.class, taskIds, reminders);
+  }
+
   public synchronized void clear() {
     jobs.clear();
+    index.clear();
+    size = 0;
+    windowEnd = 0;
     workManager.cancelNotifications();
   }
 
+  /** Moves the end of the window and adds the entries that fall within it */
+  synchronized void setWindow(long end, Iterable<? extends NotificationQueueEntry> entries) {
+    windowEnd = end;
+    for (NotificationQueueEntry entry : filter(entries, notNull())) {
+      put(entry);
+    }
+    scheduleNext(true);
+  }
+
+  synchronized long getWindowEnd() {
+    return windowEnd;
+  }
+
   public synchronized void cancelAlarm(long alarmId) {
     cancel(AlarmEntry.class, alarmId);
   }
@@ -59,7 +99,33 @@ public class NotificationQueue {
   private void cancel(Class<? extends NotificationQueueEntry> c, long id) {
     long firstTime = firstTime();
 
-    remove(newArrayList(filter(jobs.values(), r -> r.getClass().equals(c) && r.getId() == id)));
+    removeKey(new Key(c, id));
+
+    if (firstTime != firstTime()) {
+      scheduleNext(true);
+    }
+  }
+
+  private void replace(
+      Class<? extends NotificationQueueEntry> c,
+      @Nullable Collection<Long> ids,
+      Iterable<? extends NotificationQueueEntry> entries) {
+    long firstTime = firstTime();
+
+    if (ids == null) {
+      for (Key key : newArrayList(index.keySet())) {
+        if (key.type.equals(c)) {
+          removeKey(key);
+        }
+      }
+    } else {
+      for (Long id : ids) {
+        removeKey(new Key(c, id));
+      }
+    }
+    for (NotificationQueueEntry entry : filter(entries, notNull())) {
+      put(entry);
+    }
 
     if (firstTime != firstTime()) {
       scheduleNext(true);
@@ -69,8 +135,8 @@ public class NotificationQueue {
   synchronized List<? extends NotificationQueueEntry> getOverdueJobs() {
     List<NotificationQueueEntry> result = newArrayList();
     long cutoff = new DateTime().startOfMinute().plusMinutes(1).getMillis();
-    for (Long key : jobs.keySet().headSet(cutoff)) {
-      result.addAll(jobs.get(key));
+    for (Set<NotificationQueueEntry> entries : jobs.headMap(cutoff).values()) {
+      result.addAll(entries);
     }
     return result;
   }
@@ -80,7 +146,7 @@ public class NotificationQueue {
   }
 
   private void scheduleNext(boolean cancelCurrent) {
-    if (jobs.isEmpty()) {
+    if (jobs.isEmpty() && windowEnd == 0) {
       if (cancelCurrent) {
         workManager.cancelNotifications();
       }
@@ -90,27 +156,112 @@ public class NotificationQueue {
   }
 
   private long firstTime() {
-    return jobs.isEmpty() ? 0 : jobs.asMap().firstKey();
+    return jobs.isEmpty() ? 0 : jobs.firstKey();
   }
 
   long nextScheduledTime() {
     long next = firstTime();
-    return next > 0 ? preferences.adjustForQuietHours(next) : 0;
+    if (next == 0) {
+      return windowEnd;
+    }
+    next = preferences.adjustForQuietHours(next);
+    return windowEnd > 0 ? Math.min(next, windowEnd) : next;
   }
 
   int size() {
-    return jobs.size();
+    return size;
   }
 
   List<NotificationQueueEntry> getJobs() {
-    return ImmutableList.copyOf(jobs.values());
+    ImmutableList.Builder<NotificationQueueEntry> result = ImmutableList.builder();
+    for (Set<NotificationQueueEntry> entries : jobs.values()) {
+      result.addAll(entries);
+    }
+    return result.build();
   }
 
   public synchronized boolean remove(List<? extends NotificationQueueEntry> entries) {
-    boolean success = true;
     for (NotificationQueueEntry entry : entries) {
-      success &= !jobs.containsEntry(entry.getTime(), entry) || jobs.remove(entry.getTime(), entry);
+      if (removeFrom(jobs, entry.getTime(), entry)) {
+        removeFrom(index, new Key(entry), entry);
+        size--;
+      }
+    }
+    return true;
+  }
+
+  private void put(NotificationQueueEntry entry) {
+    if (windowEnd > 0 && entry.getTime() >= windowEnd) {
+      return;
+    }
+    if (addTo(jobs, entry.getTime(), entry)) {
+      addTo(index, new Key(entry), entry);
+      size++;
+    }
+  }
+
+  private void removeKey(Key key) {
+    Set<NotificationQueueEntry> entries = index.remove(key);
+    if (entries == null) {
+      return;
+    }
+    for (NotificationQueueEntry entry : entries) {
+      removeFrom(jobs, entry.getTime(), entry);
+      size--;
+    }
+  }
+
+  private static <K> boolean addTo(
+      Map<K, Set<NotificationQueueEntry>> map, K key, NotificationQueueEntry entry) {
+    Set<NotificationQueueEntry> entries = map.get(key);
+    if (entries == null) {
+      entries = new LinkedHashSet<>();
+      map.put(key, entries);
+    }
+    return entries.add(entry);
+  }
+
+  private static <K> boolean removeFrom(
+      Map<K, Set<NotificationQueueEntry>> map, K key, NotificationQueueEntry entry) {
+    Set<NotificationQueueEntry> entries = map.get(key);
+    if (entries == null || !entries.remove(entry)) {
+      return false;
+    }
+    if (entries.isEmpty()) {
+      map.remove(key);
+    }
+    return true;
+  }
+
+  private static class Key {
+
+    final Class<? extends NotificationQueueEntry> type;
+    final long id;
+
+    Key(NotificationQueueEntry entry) {
+      this(entry.getClass(), entry.getId());
+    }
+
+    Key(Class<? extends NotificationQueueEntry> type, long id) {
+      this.type = type;
+      this.id = id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return id == key.id && type.equals(key.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + (int) (id ^ (id >>> 32));
     }
-    return success;
   }
 }
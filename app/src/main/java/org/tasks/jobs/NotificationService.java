@@ -18,6 +18,7 @@ public class NotificationService extends InjectingService {
   @Inject Preferences preferences;
   @Inject Notifier notifier;
   @Inject NotificationQueue notificationQueue;
+  @Inject NotificationWindow notificationWindow;
   @Inject Tracker tracker;
 
   @Nullable
@@ -50,6 +51,7 @@ public class NotificationService extends InjectingService {
     } catch (Exception e) {
       tracker.reportException(e);
     } finally {
+      notificationWindow.refill();
       notificationQueue.scheduleNext();
     }
   }
@@ -0,0 +1,50 @@
+package org.tasks.jobs;
+
+import static com.google.common.collect.Iterables.concat;
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
+
+import com.todoroo.astrid.alarms.AlarmService;
+import com.todoroo.astrid.reminders.ReminderService;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+
+/**
+ * Keeps only the notifications for the next {@link #WINDOW_MILLIS} in the {@link
+ * NotificationQueue}, read from the reminder times stored on tasks and alarms. The queue wakes up
+ * when the window runs out so that the next one can be loaded.
+ */
+@ApplicationScope
+public class NotificationWindow {
+
+  private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+  private final NotificationQueue notificationQueue;
+  private final ReminderService reminderService;
+  private final AlarmService alarmService;
+
+  @Inject
+  public NotificationWindow(
+      NotificationQueue notificationQueue,
+      ReminderService reminderService,
+      AlarmService alarmService) {
+    this.notificationQueue = notificationQueue;
+    this.reminderService = reminderService;
+    this.alarmService = alarmService;
+  }
+
+  public synchronized void load() {
+    long end = currentTimeMillis() + WINDOW_MILLIS;
+    notificationQueue.setWindow(
+        end,
+        concat(reminderService.getRemindersBefore(end), alarmService.getAlarmEntriesBefore(end)));
+  }
+
+  /** Loads the next window if the current one has run out */
+  synchronized void refill() {
+    long windowEnd = notificationQueue.getWindowEnd();
+    if (windowEnd > 0 && windowEnd <= currentTimeMillis()) {
+      load();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package org.tasks.jobs;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+/**
+ * A save that {@link AfterSaveQueue} has not finished processing. Rows are written before a save
+ * joins the in-memory batch and deleted once the batch is done, so saves that were still waiting
+ * when the process died are picked up on the next start.
+ */
+@Entity(tableName = "pending_saves")
+public class PendingSave {
+
+  @PrimaryKey(autoGenerate = true)
+  @ColumnInfo(name = "_id")
+  private long id;
+
+  @ColumnInfo(name = "task")
+  private long task;
+
+  @ColumnInfo(name = "original_completion")
+  private long originalCompletion;
+
+  @ColumnInfo(name = "original_deletion")
+  private long originalDeletion;
+
+  @ColumnInfo(name = "push_gtasks")
+  private boolean pushGtasks;
+
+  @ColumnInfo(name = "push_caldav")
+  private boolean pushCaldav;
+
+  @ColumnInfo(name = "suppress_refresh")
+  private boolean suppressRefresh;
+
+  public PendingSave() {}
+
+  @Ignore
+  PendingSave(AfterSaveQueue.Entry entry) {
+    task = entry.id;
+    originalCompletion = entry.originalCompletion;
+    originalDeletion = entry.originalDeletion;
+    pushGtasks = entry.pushGtasks;
+    pushCaldav = entry.pushCaldav;
+    suppressRefresh = entry.suppressRefresh;
+  }
+
+  AfterSaveQueue.Entry toEntry() {
+    return new AfterSaveQueue.Entry(
+        task, originalCompletion, originalDeletion, pushGtasks, pushCaldav, suppressRefresh);
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public long getTask() {
+    return task;
+  }
+
+  public void setTask(long task) {
+    this.task = task;
+  }
+
+  public long getOriginalCompletion() {
+    return originalCompletion;
+  }
+
+  public void setOriginalCompletion(long originalCompletion) {
+    this.originalCompletion = originalCompletion;
+  }
+
+  public long getOriginalDeletion() {
+    return originalDeletion;
+  }
+
+  public void setOriginalDeletion(long originalDeletion) {
+    this.originalDeletion = originalDeletion;
+  }
+
+  public boolean isPushGtasks() {
+    return pushGtasks;
+  }
+
+  public void setPushGtasks(boolean pushGtasks) {
+    this.pushGtasks = pushGtasks;
+  }
+
+  public boolean isPushCaldav() {
+    return pushCaldav;
+  }
+
+  public void setPushCaldav(boolean pushCaldav) {
+    this.pushCaldav = pushCaldav;
+  }
+
+  public boolean isSuppressRefresh() {
+    return suppressRefresh;
+  }
+
+  public void setSuppressRefresh(boolean suppressRefresh) {
+    this.suppressRefresh = suppressRefresh;
+  }
+}
@@ -0,0 +1,19 @@
+package org.tasks.jobs;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import java.util.List;
+
+@Dao
+public interface PendingSaveDao {
+
+  @Insert
+  List<Long> insert(List<PendingSave> pendingSaves);
+
+  @Query("SELECT * FROM pending_saves WHERE _id < :before ORDER BY _id ASC")
+  List<PendingSave> getBefore(long before);
+
+  @Query("DELETE FROM pending_saves WHERE _id BETWEEN :first AND :last")
+  void delete(long first, long last);
+}
@@ -26,6 +26,10 @@ public class ReminderEntry implements NotificationQueueEntry {
     return time;
   }
 
+  public int getType() {
+    return type;
+  }
+
   @Override
   public Notification toNotification() {
     Notification notification = new Notification();
@@ -3,6 +3,8 @@ package org.tasks.jobs;
 import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.work.WorkerParameters;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.caldav.CaldavSynchronizer;
@@ -10,6 +12,7 @@ import org.tasks.gtasks.GoogleTaskSynchronizer;
 import org.tasks.injection.InjectingWorker;
 import org.tasks.injection.JobComponent;
 import org.tasks.preferences.Preferences;
+import org.tasks.sync.SyncScheduler;
 import timber.log.Timber;
 
 public class SyncWork extends InjectingWorker {
@@ -20,6 +23,7 @@ public class SyncWork extends InjectingWorker {
   @Inject GoogleTaskSynchronizer googleTaskSynchronizer;
   @Inject LocalBroadcastManager localBroadcastManager;
   @Inject Preferences preferences;
+  @Inject SyncScheduler syncScheduler;
 
   public SyncWork(@NonNull Context context, @NonNull WorkerParameters workerParams) {
     super(context, workerParams);
@@ -36,9 +40,17 @@ public class SyncWork extends InjectingWorker {
 
     preferences.setSyncOngoing(true);
     localBroadcastManager.broadcastRefresh();
+    // both synchronizers hand their accounts to the same SyncScheduler, run them side by side
     try {
-      caldavSynchronizer.sync();
-      googleTaskSynchronizer.sync();
+      Future<?> googleTasks = syncScheduler.start(googleTaskSynchronizer::sync);
+      try {
+        caldavSynchronizer.sync();
+      } catch (Exception e) {
+        Timber.e(e);
+      }
+      googleTasks.get();
+    } catch (ExecutionException e) {
+      Timber.e(e.getCause());
     } catch (Exception e) {
       Timber.e(e);
     } finally {
@@ -1,5 +1,6 @@
 package org.tasks.jobs;
 
+import static com.google.common.collect.Lists.partition;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastKitKat;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastMarshmallow;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastOreo;
@@ -25,7 +26,6 @@ import androidx.work.OneTimeWorkRequest.Builder;
 import androidx.work.PeriodicWorkRequest;
 import androidx.work.Worker;
 import com.google.common.primitives.Longs;
-import com.todoroo.astrid.data.Task;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -72,11 +72,14 @@ public class WorkManager {
     workManager = androidx.work.WorkManager.getInstance();
   }
 
-  public void afterSave(Task current, Task original) {
-    workManager.enqueue(
-        new OneTimeWorkRequest.Builder(AfterSaveWork.class)
-            .setInputData(AfterSaveWork.getInputData(current, original))
-            .build());
+  void afterSave(List<AfterSaveQueue.Entry> entries) {
+    // stay well below the 10KB limit on input data
+    for (List<AfterSaveQueue.Entry> batch : partition(entries, 200)) {
+      workManager.enqueue(
+          new OneTimeWorkRequest.Builder(AfterSaveWork.class)
+              .setInputData(AfterSaveWork.getInputData(batch))
+              .build());
+    }
   }
 
   public void cleanup(List<Long> ids) {
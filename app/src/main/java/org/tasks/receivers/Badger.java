@@ -1,12 +1,12 @@
 package org.tasks.receivers;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.dao.TaskDao;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import javax.inject.Inject;
-import org.tasks.LocalBroadcastManager;
+import org.tasks.TaskChangeBus;
 import org.tasks.injection.ApplicationScope;
 import org.tasks.injection.ForApplication;
 import org.tasks.preferences.DefaultFilterProvider;
@@ -18,14 +18,8 @@ public class Badger {
   private final Context context;
   private final DefaultFilterProvider defaultFilterProvider;
   private final TaskDao taskDao;
-  private final LocalBroadcastManager localBroadcastManager;
-  private final BroadcastReceiver receiver =
-      new BroadcastReceiver() {
-        @Override
-        public void onReceive(Context context, Intent intent) {
-          publishCount();
-        }
-      };
+  private final TaskChangeBus taskChangeBus;
+  private Disposable taskChanges;
   private boolean enabled;
 
   @Inject
@@ -33,20 +27,27 @@ public class Badger {
       @ForApplication Context context,
       DefaultFilterProvider defaultFilterProvider,
       TaskDao taskDao,
-      LocalBroadcastManager localBroadcastManager) {
+      TaskChangeBus taskChangeBus) {
     this.context = context;
     this.defaultFilterProvider = defaultFilterProvider;
     this.taskDao = taskDao;
-    this.localBroadcastManager = localBroadcastManager;
+    this.taskChangeBus = taskChangeBus;
   }
 
   public void setEnabled(boolean newValue) {
     try {
       if (newValue) {
-        localBroadcastManager.registerRefreshReceiver(receiver);
+        if (taskChanges == null) {
+          taskChanges =
+              taskChangeBus
+                  .observe()
+                  .observeOn(Schedulers.io())
+                  .subscribe(change -> publishCount(), Timber::e);
+        }
         publishCount();
       } else if (enabled) {
-        localBroadcastManager.unregisterReceiver(receiver);
+        taskChanges.dispose();
+        taskChanges = null;
         ShortcutBadger.removeCount(context);
       }
       enabled = newValue;
@@ -0,0 +1,32 @@
+package org.tasks.receivers;
+
+import android.content.Context;
+import android.content.Intent;
+import org.tasks.injection.BroadcastComponent;
+import org.tasks.injection.InjectingBroadcastReceiver;
+import org.tasks.scheduling.NotificationSchedulerIntentService;
+import timber.log.Timber;
+
+/** Stored reminder times are wall clock times, compute them again when the clock changes */
+public class TimeChangedReceiver extends InjectingBroadcastReceiver {
+
+  @Override
+  public void onReceive(Context context, Intent intent) {
+    super.onReceive(context, intent);
+
+    String action = intent.getAction();
+    if (!Intent.ACTION_TIMEZONE_CHANGED.equals(action)
+        && !Intent.ACTION_TIME_CHANGED.equals(action)) {
+      return;
+    }
+
+    Timber.d("onReceive(context, %s)", intent);
+
+    NotificationSchedulerIntentService.enqueueWork(context, false, true);
+  }
+
+  @Override
+  protected void inject(BroadcastComponent component) {
+    component.inject(this);
+  }
+}
@@ -3,12 +3,12 @@ package org.tasks.scheduling;
 import android.content.Context;
 import android.content.Intent;
 import androidx.core.app.JobIntentService;
-import com.todoroo.astrid.alarms.AlarmService;
-import com.todoroo.astrid.reminders.ReminderService;
+import com.todoroo.astrid.dao.TaskDao;
 import javax.inject.Inject;
 import org.tasks.injection.InjectingJobIntentService;
 import org.tasks.injection.ServiceComponent;
 import org.tasks.jobs.NotificationQueue;
+import org.tasks.jobs.NotificationWindow;
 import org.tasks.notifications.NotificationManager;
 import timber.log.Timber;
 
@@ -16,14 +16,25 @@ public class NotificationSchedulerIntentService extends InjectingJobIntentServic
 
   private static final String EXTRA_CANCEL_EXISTING_NOTIFICATIONS =
       "extra_cancel_existing_notifications";
-  @Inject AlarmService alarmService;
-  @Inject ReminderService reminderService;
+  private static final String EXTRA_RECOMPUTE_REMINDERS = "extra_recompute_reminders";
   @Inject NotificationQueue notificationQueue;
+  @Inject NotificationWindow notificationWindow;
   @Inject NotificationManager notificationManager;
+  @Inject TaskDao taskDao;
 
   public static void enqueueWork(Context context, boolean cancelNotifications) {
+    enqueueWork(context, cancelNotifications, false);
+  }
+
+  /**
+   * @param recomputeReminders discard the stored reminder times, needed when the reminder
+   *     preferences change
+   */
+  public static void enqueueWork(
+      Context context, boolean cancelNotifications, boolean recomputeReminders) {
     Intent intent = new Intent(context, NotificationSchedulerIntentService.class);
     intent.putExtra(EXTRA_CANCEL_EXISTING_NOTIFICATIONS, cancelNotifications);
+    intent.putExtra(EXTRA_RECOMPUTE_REMINDERS, recomputeReminders);
     JobIntentService.enqueueWork(
         context,
         NotificationSchedulerIntentService.class,
@@ -41,8 +52,10 @@ public class NotificationSchedulerIntentService extends InjectingJobIntentServic
         intent.getBooleanExtra(EXTRA_CANCEL_EXISTING_NOTIFICATIONS, false);
 
     notificationManager.restoreNotifications(cancelExistingNotifications);
-    reminderService.scheduleAllAlarms();
-    alarmService.scheduleAllAlarms();
+    if (intent.getBooleanExtra(EXTRA_RECOMPUTE_REMINDERS, false)) {
+      taskDao.invalidateNextReminders();
+    }
+    notificationWindow.load();
   }
 
   @Override
@@ -0,0 +1,41 @@
+package org.tasks.sync;
+
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import javax.inject.Inject;
+import okhttp3.OkHttpClient;
+import org.tasks.injection.ApplicationScope;
+
+/**
+ * The one HTTP stack used by sync and backup. Clients for individual accounts are derived with
+ * {@link #newBuilder()} so they share a connection pool, dispatcher and TLS session cache, and
+ * connections opened by one sync run are reused by the next.
+ */
+@ApplicationScope
+public class HttpClientFactory {
+
+  private final HttpMetrics metrics = new HttpMetrics();
+  private final OkHttpClient httpClient =
+      new OkHttpClient.Builder().eventListenerFactory(metrics).build();
+  private final HttpTransport transport = new NetHttpTransport();
+
+  @Inject
+  public HttpClientFactory() {}
+
+  /**
+   * Returns a builder for a client that shares this factory's connections. Responses are requested
+   * gzip-compressed and decompressed transparently unless the caller sets Accept-Encoding itself.
+   */
+  public OkHttpClient.Builder newBuilder() {
+    return httpClient.newBuilder();
+  }
+
+  /** Shared transport for the Google API clients */
+  public HttpTransport getTransport() {
+    return transport;
+  }
+
+  public HttpMetrics getMetrics() {
+    return metrics;
+  }
+}
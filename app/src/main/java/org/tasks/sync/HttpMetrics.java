@@ -0,0 +1,209 @@
+package org.tasks.sync;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Request;
+import okhttp3.Response;
+import timber.log.Timber;
+
+/**
+ * Per-host counters for every call made through {@link HttpClientFactory}: calls, new and reused
+ * connections, bytes sent and received, and a histogram of call latency. Counters accumulate for
+ * the life of the process.
+ */
+public class HttpMetrics implements EventListener.Factory {
+
+  static final long[] LATENCY_BUCKETS = {100, 250, 500, 1000, 2500, 5000, 10000};
+
+  private final ConcurrentMap<String, Host> hosts = new ConcurrentHashMap<>();
+
+  @Override
+  public EventListener create(Call call) {
+    return new Listener(getHost(call.request().url().host()));
+  }
+
+  public Host getHost(String host) {
+    Host result = hosts.get(host);
+    if (result == null) {
+      Host created = new Host(host);
+      result = hosts.putIfAbsent(host, created);
+      if (result == null) {
+        result = created;
+      }
+    }
+    return result;
+  }
+
+  public void log() {
+    List<String> names = new ArrayList<>(hosts.keySet());
+    Collections.sort(names);
+    for (String name : names) {
+      Timber.i("%s", hosts.get(name));
+    }
+  }
+
+  public static class Host {
+
+    private final String name;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLongArray latency = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+    Host(String name) {
+      this.name = name;
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    public long getFailures() {
+      return failures.get();
+    }
+
+    public long getConnectionsOpened() {
+      return connectionsOpened.get();
+    }
+
+    public long getConnectionsReused() {
+      return connectionsReused.get();
+    }
+
+    public long getBytesOut() {
+      return bytesOut.get();
+    }
+
+    public long getBytesIn() {
+      return bytesIn.get();
+    }
+
+    /**
+     * Returns the number of calls that took at most {@code LATENCY_BUCKETS[index]} milliseconds
+     * (and more than the previous bound). The last index counts every slower call.
+     */
+    public long getLatency(int index) {
+      return latency.get(index);
+    }
+
+    void onCallEnd(long millis, boolean failed) {
+      calls.incrementAndGet();
+      if (failed) {
+        failures.incrementAndGet();
+      }
+      int bucket = 0;
+      while (bucket < LATENCY_BUCKETS.length && millis > LATENCY_BUCKETS[bucket]) {
+        bucket++;
+      }
+      latency.incrementAndGet(bucket);
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder histogram = new StringBuilder();
+      for (int i = 0; i <= LATENCY_BUCKETS.length; i++) {
+        histogram
+            .append(i == 0 ? "" : " ")
+            .append(i < LATENCY_BUCKETS.length ? "<=" + LATENCY_BUCKETS[i] : ">")
+            .append("ms:")
+            .append(latency.get(i));
+      }
+      return name
+          + ": calls="
+          + calls
+          + " failures="
+          + failures
+          + " opened="
+          + connectionsOpened
+          + " reused="
+          + connectionsReused
+          + " out="
+          + bytesOut
+          + " in="
+          + bytesIn
+          + " latency=["
+          + histogram
+          + "]";
+    }
+  }
+
+  /** Listeners are created per call and only see that call's events, in order */
+  private static class Listener extends EventListener {
+
+    private final Host host;
+    private long start;
+    private boolean connecting;
+
+    Listener(Host host) {
+      this.host = host;
+    }
+
+    @Override
+    public void callStart(Call call) {
+      start = System.nanoTime();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+      connecting = true;
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+      if (connecting) {
+        host.connectionsOpened.incrementAndGet();
+      } else {
+        host.connectionsReused.incrementAndGet();
+      }
+      connecting = false;
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+      host.bytesOut.addAndGet(request.headers().byteCount());
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+      host.bytesOut.addAndGet(byteCount);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+      host.bytesIn.addAndGet(response.headers().byteCount());
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+      host.bytesIn.addAndGet(byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+      host.onCallEnd(elapsed(), false);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+      host.onCallEnd(elapsed(), true);
+    }
+
+    private long elapsed() {
+      return (System.nanoTime() - start) / 1000000;
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package org.tasks.sync;
+
+import static org.tasks.time.DateTimeUtils.currentTimeMillis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.inject.Inject;
+import org.tasks.injection.ApplicationScope;
+import timber.log.Timber;
+
+/**
+ * Runs independent sync jobs (accounts, calendars, lists) concurrently on a bounded pool, with at
+ * most {@link #MAX_PER_HOST} jobs talking to the same server at once. Jobs for a busy server wait
+ * in a queue for that server and are only handed to the pool once one of its jobs finishes, so
+ * they never hold a pool thread that jobs for other servers could use.
+ *
+ * <p>Jobs apply what they downloaded through {@link #write}, which runs every write on one writer
+ * thread. Jobs overlap on network I/O and parsing, and their batches are written one at a time
+ * instead of contending for SQLite's write lock. Small bookkeeping updates, such as an account's
+ * error or a calendar's ctag, are still written by the job itself.
+ */
+@ApplicationScope
+public class SyncScheduler {
+
+  private static final int THREADS = 4;
+  private static final int MAX_PER_HOST = 2;
+
+  private final ExecutorService executor =
+      Executors.newFixedThreadPool(
+          THREADS, new ThreadFactoryBuilder().setNameFormat("sync-scheduler-%d").build());
+  private final ExecutorService writer =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            writerThread = new Thread(runnable, "sync-writer");
+            return writerThread;
+          });
+  private final ExecutorService synchronizers =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setNameFormat("sync-%d").build());
+  private final Map<String, Host> hosts = new HashMap<>();
+  private volatile Thread writerThread;
+
+  @Inject
+  public SyncScheduler() {}
+
+  /** Runs a synchronizer in the background, it hands its jobs to {@link #runAll} */
+  public Future<?> start(Runnable synchronizer) {
+    return synchronizers.submit(synchronizer);
+  }
+
+  /**
+   * Runs the jobs and waits for all of them to finish. Jobs may call {@link #write} but must not
+   * call {@link #runAll}. Logs the wall time spent on each account, slowest first.
+   */
+  public void runAll(String tag, List<Job> jobs) throws InterruptedException {
+    if (jobs.isEmpty()) {
+      return;
+    }
+    Map<String, long[]> timings = new LinkedHashMap<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (Job job : jobs) {
+      FutureTask<Void> future = new FutureTask<>(wrap(job, timings));
+      futures.add(future);
+      dispatch(job.host, future);
+    }
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        Timber.e(e.getCause());
+      }
+    }
+    List<Map.Entry<String, long[]>> sorted = new ArrayList<>(timings.entrySet());
+    Collections.sort(sorted, (l, r) -> Long.compare(elapsed(r.getValue()), elapsed(l.getValue())));
+    for (Map.Entry<String, long[]> entry : sorted) {
+      Timber.i("%s: %s took %sms", tag, entry.getKey(), elapsed(entry.getValue()));
+    }
+  }
+
+  /**
+   * Runs the write on the writer thread and waits for it. The caller's context class loader is
+   * used while it runs. If the caller is interrupted the write still finishes.
+   */
+  public <T> T write(Callable<T> write) throws InterruptedException {
+    if (Thread.currentThread() == writerThread) {
+      try {
+        return write.call();
+      } catch (Exception e) {
+        throw propagate(e);
+      }
+    }
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    Future<T> future =
+        writer.submit(
+            () -> {
+              Thread thread = Thread.currentThread();
+              ClassLoader previous = thread.getContextClassLoader();
+              thread.setContextClassLoader(classLoader);
+              try {
+                return write.call();
+              } finally {
+                thread.setContextClassLoader(previous);
+              }
+            });
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw propagate(e.getCause());
+    }
+  }
+
+  public void write(Runnable write) throws InterruptedException {
+    write(Executors.callable(write));
+  }
+
+  private static RuntimeException propagate(Throwable throwable) {
+    if (throwable instanceof RuntimeException) {
+      return (RuntimeException) throwable;
+    } else if (throwable instanceof Error) {
+      throw (Error) throwable;
+    }
+    return new RuntimeException(throwable);
+  }
+
+  private static long elapsed(long[] timing) {
+    return timing[1] - timing[0];
+  }
+
+  private Callable<Void> wrap(Job job, Map<String, long[]> timings) {
+    return () -> {
+      long start = currentTimeMillis();
+      try {
+        job.runnable.run();
+      } finally {
+        long end = currentTimeMillis();
+        synchronized (timings) {
+          long[] timing = timings.get(job.account);
+          if (timing == null) {
+            timings.put(job.account, new long[] {start, end});
+          } else {
+            timing[0] = Math.min(timing[0], start);
+            timing[1] = Math.max(timing[1], end);
+          }
+        }
+      }
+      return null;
+    };
+  }
+
+  private synchronized void dispatch(String name, Runnable runnable) {
+    Host host = hosts.get(name);
+    if (host == null) {
+      host = new Host();
+      hosts.put(name, host);
+    }
+    if (host.running < MAX_PER_HOST) {
+      host.running++;
+      execute(name, runnable);
+    } else {
+      host.waiting.add(runnable);
+    }
+  }
+
+  private synchronized void onFinished(String name) {
+    Host host = hosts.get(name);
+    Runnable next = host.waiting.poll();
+    if (next != null) {
+      execute(name, next);
+    } else if (--host.running == 0) {
+      hosts.remove(name);
+    }
+  }
+
+  private void execute(String host, Runnable runnable) {
+    executor.execute(
+        () -> {
+          try {
+            runnable.run();
+          } finally {
+            onFinished(host);
+          }
+        });
+  }
+
+  private static class Host {
+
+    final Queue<Runnable> waiting = new ArrayDeque<>();
+    int running;
+  }
+
+  public static class Job {
+
+    final String account;
+    final String host;
+    final Runnable runnable;
+
+    /**
+     * @param account name used to report timings, jobs for the same account are reported together
+     * @param host server the job talks to
+     */
+    public Job(String account, String host, Runnable runnable) {
+      this.account = account;
+      this.host = host == null ? "" : host;
+      this.runnable = runnable;
+    }
+  }
+}
@@ -16,17 +16,11 @@ import com.todoroo.astrid.api.CaldavFilter;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.GtasksFilter;
 import com.todoroo.astrid.api.TagFilter;
-import com.todoroo.astrid.tags.TagService;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import javax.inject.Inject;
 import org.tasks.R;
-import org.tasks.data.CaldavCalendar;
-import org.tasks.data.CaldavDao;
-import org.tasks.data.GoogleTaskList;
-import org.tasks.data.GoogleTaskListDao;
+import org.tasks.data.MetadataCache;
 import org.tasks.data.TagData;
 import org.tasks.injection.ForActivity;
 import org.tasks.themes.ThemeCache;
@@ -34,15 +28,10 @@ import org.tasks.themes.ThemeColor;
 
 public class ChipProvider {
 
-  private final Map<String, GtasksFilter> googleTaskLists = new HashMap<>();
-  private final Map<String, CaldavFilter> caldavCalendars = new HashMap<>();
-  private final Map<String, TagFilter> tagDatas = new HashMap<>();
   private final Context context;
   private final ThemeCache themeCache;
   private final int iconAlpha;
-  private final GoogleTaskListDao googleTaskListDao;
-  private final CaldavDao caldavDao;
-  private final TagService tagService;
+  private final MetadataCache metadataCache;
   private final Ordering<TagFilter> orderByName =
       new Ordering<TagFilter>() {
         @Override
@@ -55,14 +44,10 @@ public class ChipProvider {
   public ChipProvider(
       @ForActivity Context context,
       ThemeCache themeCache,
-      GoogleTaskListDao googleTaskListDao,
-      CaldavDao caldavDao,
-      TagService tagService) {
+      MetadataCache metadataCache) {
     this.context = context;
     this.themeCache = themeCache;
-    this.googleTaskListDao = googleTaskListDao;
-    this.caldavDao = caldavDao;
-    this.tagService = tagService;
+    this.metadataCache = metadataCache;
     iconAlpha = (int) (255 * getDimen(context, R.dimen.alpha_secondary));
   }
 
@@ -76,18 +61,18 @@ public class ChipProvider {
   public List<Chip> getChips(String caldav, String googleTask, Iterable<String> tagUuids) {
     List<Chip> chips = new ArrayList<>();
     if (!Strings.isNullOrEmpty(googleTask)) {
-      GtasksFilter googleTaskFilter = getGoogleTaskList(googleTask);
+      GtasksFilter googleTaskFilter = metadataCache.getGoogleTaskFilter(googleTask);
       if (googleTaskFilter != null) {
         chips.add(newChip(googleTaskFilter));
       }
     } else if (!Strings.isNullOrEmpty(caldav)) {
-      CaldavFilter caldavFilter = getCaldavCalendar(caldav);
+      CaldavFilter caldavFilter = metadataCache.getCaldavFilter(caldav);
       if (caldavFilter != null) {
         chips.add(newChip(caldavFilter));
       }
     }
     Iterable<TagFilter> tagFilters =
-        filter(transform(tagUuids, this::getTag), Predicates.notNull());
+        filter(transform(tagUuids, metadataCache::getTagFilter), Predicates.notNull());
     for (TagFilter tagFilter : orderByName.sortedCopy(tagFilters)) {
       chips.add(newChip(tagFilter));
     }
@@ -121,40 +106,4 @@ public class ChipProvider {
             },
             new int[] {color.getPrimaryColor(), color.getPrimaryColor()}));
   }
-
-  private GtasksFilter getGoogleTaskList(String remoteId) {
-    GtasksFilter gtasksFilter = googleTaskLists.get(remoteId);
-    if (gtasksFilter == null) {
-      GoogleTaskList googleTaskList = googleTaskListDao.getByRemoteId(remoteId);
-      if (googleTaskList != null) {
-        gtasksFilter = new GtasksFilter(googleTaskList);
-        googleTaskLists.put(remoteId, gtasksFilter);
-      }
-    }
-    return gtasksFilter;
-  }
-
-  private CaldavFilter getCaldavCalendar(String uuid) {
-    CaldavFilter caldavFilter = caldavCalendars.get(uuid);
-    if (caldavFilter == null) {
-      CaldavCalendar calendar = caldavDao.getCalendar(uuid);
-      if (calendar != null) {
-        caldavFilter = new CaldavFilter(calendar);
-        caldavCalendars.put(uuid, caldavFilter);
-      }
-    }
-    return caldavFilter;
-  }
-
-  private TagFilter getTag(String uuid) {
-    TagFilter tagFilter = tagDatas.get(uuid);
-    if (tagFilter == null) {
-      TagData tagData = tagService.getTagByUuid(uuid);
-      if (tagData != null) {
-        tagFilter = new TagFilter(tagData);
-        tagDatas.put(uuid, tagFilter);
-      }
-    }
-    return tagFilter;
-  }
 }
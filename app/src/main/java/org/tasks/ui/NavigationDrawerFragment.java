@@ -18,9 +18,12 @@ import com.todoroo.astrid.activity.MainActivity;
 import com.todoroo.astrid.adapter.FilterAdapter;
 import com.todoroo.astrid.api.Filter;
 import com.todoroo.astrid.api.FilterListItem;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import javax.inject.Inject;
 import org.tasks.LocalBroadcastManager;
 import org.tasks.R;
+import org.tasks.TaskChangeBus;
 import org.tasks.filters.NavigationDrawerAction;
 import org.tasks.injection.FragmentComponent;
 import org.tasks.injection.InjectingFragment;
@@ -37,6 +40,7 @@ public class NavigationDrawerFragment extends InjectingFragment {
   private static final String TOKEN_LAST_SELECTED = "lastSelected"; // $NON-NLS-1$
   private final RefreshReceiver refreshReceiver = new RefreshReceiver();
   @Inject LocalBroadcastManager localBroadcastManager;
+  @Inject TaskChangeBus taskChangeBus;
   @Inject FilterAdapter adapter;
   /** A pointer to the current callbacks instance (the Activity). */
   private OnFilterItemClickedListener mCallbacks;
@@ -44,6 +48,7 @@ public class NavigationDrawerFragment extends InjectingFragment {
   private DrawerLayout mDrawerLayout;
   private ListView mDrawerListView;
   private View mFragmentContainerView;
+  private Disposable taskChanges;
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -145,8 +150,9 @@ public class NavigationDrawerFragment extends InjectingFragment {
   @Override
   public void onPause() {
     super.onPause();
-    if (adapter != null) {
-      localBroadcastManager.unregisterReceiver(adapter.getFilterListUpdateReceiver());
+    if (taskChanges != null) {
+      taskChanges.dispose();
+      taskChanges = null;
     }
     try {
       localBroadcastManager.unregisterReceiver(refreshReceiver);
@@ -222,11 +228,18 @@ public class NavigationDrawerFragment extends InjectingFragment {
   @Override
   public void onResume() {
     super.onResume();
-    localBroadcastManager.registerRefreshReceiver(refreshReceiver);
     localBroadcastManager.registerRefreshListReceiver(refreshReceiver);
 
     if (adapter != null) {
-      localBroadcastManager.registerRefreshReceiver(adapter.getFilterListUpdateReceiver());
+      taskChanges =
+          taskChangeBus
+              .observe()
+              .observeOn(AndroidSchedulers.mainThread())
+              .subscribe(
+                  change -> {
+                    adapter.notifyDataSetChanged();
+                    adapter.refreshFilterCount();
+                  });
       repopulateList();
     }
   }
@@ -248,10 +261,7 @@ public class NavigationDrawerFragment extends InjectingFragment {
       if (intent == null) {
         return;
       }
-      String action = intent.getAction();
-      if (LocalBroadcastManager.REFRESH.equals(action)) {
-        adapter.refreshFilterCount();
-      } else if (LocalBroadcastManager.REFRESH_LIST.equals(action)) {
+      if (LocalBroadcastManager.REFRESH_LIST.equals(intent.getAction())) {
         repopulateList();
       }
     }
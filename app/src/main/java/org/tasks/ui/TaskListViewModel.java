@@ -5,11 +5,13 @@ import static com.todoroo.astrid.activity.TaskListFragment.FILE_METADATA_JOIN;
 import static com.todoroo.astrid.activity.TaskListFragment.GTASK_METADATA_JOIN;
 import static com.todoroo.astrid.activity.TaskListFragment.TAGS_METADATA_JOIN;
 
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModel;
 import androidx.paging.DataSource.Factory;
 import androidx.paging.LivePagedListBuilder;
 import androidx.paging.PagedList;
+import androidx.paging.PagedList.Config;
 import com.todoroo.andlib.data.Property;
 import com.todoroo.andlib.sql.Criterion;
 import com.todoroo.andlib.sql.Field;
@@ -24,9 +26,11 @@ import com.todoroo.astrid.core.SortHelper;
 import com.todoroo.astrid.dao.Database;
 import com.todoroo.astrid.data.Task;
 import javax.inject.Inject;
+import org.tasks.TaskChange;
 import org.tasks.data.CaldavTask;
 import org.tasks.data.GoogleTask;
-import org.tasks.data.LimitOffsetDataSource;
+import org.tasks.data.KeysetDataSource;
+import org.tasks.data.KeysetDataSource.Key;
 import org.tasks.data.Tag;
 import org.tasks.data.TaskAttachment;
 import org.tasks.preferences.Preferences;
@@ -36,7 +40,7 @@ public class TaskListViewModel extends ViewModel {
   @Inject Preferences preferences;
   @Inject Database database;
 
-  private LimitOffsetDataSource latest;
+  private KeysetDataSource latest;
   private LiveData<PagedList<Task>> tasks;
   private Filter filter;
 
@@ -50,18 +54,24 @@ public class TaskListViewModel extends ViewModel {
 
   private LiveData<PagedList<Task>> getLiveData(Property<?>[] properties) {
     return new LivePagedListBuilder<>(
-            new Factory<Integer, Task>() {
+            new Factory<Key, Task>() {
               @Override
-              public LimitOffsetDataSource create() {
+              public KeysetDataSource create() {
                 latest = toDataSource(filter, properties);
                 return latest;
               }
             },
-            20)
+            new Config.Builder().setPageSize(20).setEnablePlaceholders(false).build())
         .build();
   }
 
-  private LimitOffsetDataSource toDataSource(Filter filter, Property<?>[] properties) {
+  private KeysetDataSource toDataSource(Filter filter, Property<?>[] properties) {
+    return new KeysetDataSource(database, getQuery(preferences, filter, properties));
+  }
+
+  /** The query behind the task list for {@code filter}, before paging */
+  public static String getQuery(
+      Preferences preferences, Filter filter, Property<?>... properties) {
     Criterion tagsJoinCriterion =
         Criterion.and(Task.ID.eq(Field.field(TAGS_METADATA_JOIN + ".task")));
     Criterion gtaskJoinCriterion =
@@ -112,17 +122,10 @@ public class TaskListViewModel extends ViewModel {
       groupedQuery = query + " GROUP BY " + Task.ID;
     }
 
-    return getLimitOffsetDataSource(groupedQuery, properties);
-  }
-
-  private LimitOffsetDataSource getLimitOffsetDataSource(
-      String queryTemplate, Property<?>... properties) {
-    String query =
-        Query.select(properties)
-            .withQueryTemplate(PermaSql.replacePlaceholdersForQuery(queryTemplate))
-            .from(Task.TABLE)
-            .toString();
-    return new LimitOffsetDataSource(database, query);
+    return Query.select(properties)
+        .withQueryTemplate(PermaSql.replacePlaceholdersForQuery(groupedQuery))
+        .from(Task.TABLE)
+        .toString();
   }
 
   public void searchByFilter(Filter filter) {
@@ -130,6 +133,15 @@ public class TaskListViewModel extends ViewModel {
     invalidate();
   }
 
+  /** True if the change can't alter the rows of the current list */
+  @WorkerThread
+  public boolean isUnaffectedBy(TaskChange change) {
+    KeysetDataSource dataSource = latest;
+    return dataSource != null
+        && !change.isEverything()
+        && dataSource.isUnaffectedBy(change.getTaskIds());
+  }
+
   public void invalidate() {
     if (latest != null) {
       latest.invalidate();
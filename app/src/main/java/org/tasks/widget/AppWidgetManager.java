@@ -1,25 +1,42 @@
 package org.tasks.widget;
 
+import static com.todoroo.andlib.utility.AndroidUtilities.atLeastJellybeanMR1;
+
 import android.content.ComponentName;
 import android.content.Context;
+import android.widget.RemoteViews;
 import javax.inject.Inject;
 import org.tasks.R;
 import org.tasks.injection.ForApplication;
+import org.tasks.locale.Locale;
 
 public class AppWidgetManager {
 
   private final android.appwidget.AppWidgetManager appWidgetManager;
   private final Context context;
+  private final Locale locale;
 
   @Inject
-  public AppWidgetManager(@ForApplication Context context) {
+  public AppWidgetManager(@ForApplication Context context, Locale locale) {
     this.context = context;
+    this.locale = locale;
     appWidgetManager = android.appwidget.AppWidgetManager.getInstance(context);
   }
 
-  public void updateWidgets() {
-    int[] widgetIds =
-        appWidgetManager.getAppWidgetIds(new ComponentName(context, TasksWidget.class));
+  int[] getWidgetIds() {
+    return appWidgetManager.getAppWidgetIds(new ComponentName(context, TasksWidget.class));
+  }
+
+  void notifyDataChanged(int[] widgetIds) {
     appWidgetManager.notifyAppWidgetViewDataChanged(widgetIds, R.id.list_view);
   }
+
+  void updateTitle(int widgetId, String title) {
+    RemoteViews rv = new RemoteViews(context.getPackageName(), R.layout.scrollable_widget);
+    rv.setTextViewText(R.id.widget_title, title);
+    if (atLeastJellybeanMR1()) {
+      rv.setInt(R.id.widget, "setLayoutDirection", locale.getDirectionality());
+    }
+    appWidgetManager.partiallyUpdateAppWidget(widgetId, rv);
+  }
 }
@@ -3,30 +3,18 @@ package org.tasks.widget;
 import static androidx.core.content.ContextCompat.getColor;
 import static com.todoroo.andlib.utility.AndroidUtilities.atLeastJellybeanMR1;
 
-import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
-import android.database.Cursor;
 import android.graphics.Bitmap;
 import android.graphics.Paint;
-import android.text.TextUtils;
 import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService;
-import com.google.common.collect.ObjectArrays;
-import com.todoroo.andlib.data.Property;
-import com.todoroo.andlib.utility.DateUtilities;
-import com.todoroo.astrid.api.Filter;
-import com.todoroo.astrid.api.GtasksFilter;
-import com.todoroo.astrid.core.SortHelper;
-import com.todoroo.astrid.dao.TaskDao;
-import com.todoroo.astrid.data.Task;
-import com.todoroo.astrid.subtasks.SubtasksHelper;
+import java.util.Collections;
+import java.util.List;
 import org.tasks.BuildConfig;
 import org.tasks.R;
-import org.tasks.data.GoogleTask;
 import org.tasks.locale.Locale;
-import org.tasks.preferences.DefaultFilterProvider;
 import org.tasks.preferences.Preferences;
 import org.tasks.themes.ThemeCache;
 import org.tasks.themes.WidgetTheme;
@@ -38,10 +26,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
   private final WidgetCheckBoxes checkBoxes;
   private final ThemeCache themeCache;
   private final int widgetId;
-  private final TaskDao taskDao;
-  private final DefaultFilterProvider defaultFilterProvider;
-  private final SubtasksHelper subtasksHelper;
-  private final Preferences preferences;
+  private final WidgetSnapshots widgetSnapshots;
   private final WidgetPreferences widgetPreferences;
   private final Context context;
 
@@ -53,23 +38,18 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
   private int textColorPrimary;
   private int textColorSecondary;
 
-  private Cursor cursor;
+  private List<WidgetSnapshot.Row> rows = Collections.emptyList();
 
   ScrollableViewsFactory(
-      SubtasksHelper subtasksHelper,
       Preferences preferences,
       Context context,
       int widgetId,
-      TaskDao taskDao,
-      DefaultFilterProvider defaultFilterProvider,
+      WidgetSnapshots widgetSnapshots,
       WidgetCheckBoxes checkBoxes,
       ThemeCache themeCache) {
-    this.subtasksHelper = subtasksHelper;
-    this.preferences = preferences;
     this.context = context;
     this.widgetId = widgetId;
-    this.taskDao = taskDao;
-    this.defaultFilterProvider = defaultFilterProvider;
+    this.widgetSnapshots = widgetSnapshots;
     this.checkBoxes = checkBoxes;
     this.themeCache = themeCache;
 
@@ -80,32 +60,26 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
 
   @Override
   public void onCreate() {
-    cursor = getCursor();
+    onDataSetChanged();
   }
 
   @Override
   public void onDataSetChanged() {
-    if (cursor != null) {
-      cursor.close();
-    }
-    cursor = getCursor();
+    updateSettings();
+    rows = widgetSnapshots.get(widgetId).getRows();
   }
 
   @Override
-  public void onDestroy() {
-    if (cursor != null) {
-      cursor.close();
-    }
-  }
+  public void onDestroy() {}
 
   @Override
   public int getCount() {
-    return cursor.getCount();
+    return rows.size();
   }
 
   @Override
   public RemoteViews getViewAt(int position) {
-    return buildUpdate(position);
+    return position < rows.size() ? buildUpdate(rows.get(position)) : null;
   }
 
   @Override
@@ -120,8 +94,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
 
   @Override
   public long getItemId(int position) {
-    Task task = getTask(position);
-    return task == null ? 0 : task.getId();
+    return position < rows.size() ? rows.get(position).id : 0;
   }
 
   @Override
@@ -129,30 +102,26 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
     return true;
   }
 
-  private Bitmap getCheckbox(Task task) {
-    if (task.isCompleted()) {
-      return checkBoxes.getCompletedCheckbox(task.getPriority());
-    } else if (TextUtils.isEmpty(task.getRecurrence())) {
-      return checkBoxes.getCheckBox(task.getPriority());
+  private Bitmap getCheckbox(WidgetSnapshot.Row task) {
+    if (task.completed) {
+      return checkBoxes.getCompletedCheckbox(task.priority);
+    } else if (!task.recurring) {
+      return checkBoxes.getCheckBox(task.priority);
     } else {
-      return checkBoxes.getRepeatingCheckBox(task.getPriority());
+      return checkBoxes.getRepeatingCheckBox(task.priority);
     }
   }
 
-  private RemoteViews buildUpdate(int position) {
+  private RemoteViews buildUpdate(WidgetSnapshot.Row task) {
     try {
-      Task task = getTask(position);
-      if (task == null) {
-        return null;
-      }
       String textContent;
       int textColorTitle = textColorPrimary;
 
-      textContent = task.getTitle();
+      textContent = task.title;
 
       RemoteViews row = new RemoteViews(BuildConfig.APPLICATION_ID, R.layout.widget_row);
 
-      if (task.isCompleted()) {
+      if (task.completed) {
         textColorTitle = textColorSecondary;
         row.setInt(
             R.id.widget_text, "setPaintFlags", Paint.STRIKE_THRU_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
@@ -164,7 +133,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
         formatDueDate(row, task);
       } else {
         row.setViewVisibility(R.id.widget_due_date, View.GONE);
-        if (task.hasDueDate() && task.isOverdue()) {
+        if (task.overdue) {
           textColorTitle = getColor(context, R.color.overdue);
         }
       }
@@ -173,7 +142,7 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
       row.setTextColor(R.id.widget_text, textColorTitle);
       row.setImageViewBitmap(R.id.widget_complete_box, getCheckbox(task));
 
-      long taskId = task.getId();
+      long taskId = task.id;
       Intent editIntent = new Intent(TasksWidget.EDIT_TASK);
       editIntent.putExtra(TasksWidget.EXTRA_FILTER_ID, filterId);
       editIntent.putExtra(TasksWidget.EXTRA_ID, taskId);
@@ -201,50 +170,14 @@ class ScrollableViewsFactory implements RemoteViewsService.RemoteViewsFactory {
     return null;
   }
 
-  private Cursor getCursor() {
-    updateSettings();
-    Filter filter = defaultFilterProvider.getFilterFromPreference(filterId);
-    return taskDao.getCursor(getQuery(filter), getProperties(filter));
-  }
-
-  private Task getTask(int position) {
-    return cursor.moveToPosition(position) ? new Task(cursor) : null;
-  }
-
-  private String getQuery(Filter filter) {
-    int sort = preferences.getSortMode();
-    if (sort == 0) {
-      sort = SortHelper.SORT_WIDGET;
-    }
-    AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
-    RemoteViews rv = new RemoteViews(context.getPackageName(), R.layout.scrollable_widget);
-    rv.setTextViewText(R.id.widget_title, filter.listingTitle);
-    if (atLeastJellybeanMR1()) {
-      rv.setInt(R.id.widget, "setLayoutDirection", Locale.getInstance(context).getDirectionality());
-    }
-    appWidgetManager.partiallyUpdateAppWidget(widgetId, rv);
-    String query =
-        SortHelper.adjustQueryForFlagsAndSort(preferences, filter.getSqlQuery(), sort)
-            .replaceAll("LIMIT \\d+", "");
-    return subtasksHelper.applySubtasksToWidgetFilter(filter, query);
-  }
-
-  private Property<?>[] getProperties(Filter filter) {
-    return filter instanceof GtasksFilter
-        ? ObjectArrays.concat(Task.PROPERTIES, new Property<?>[] {GoogleTask.ORDER}, Property.class)
-        : Task.PROPERTIES;
-  }
-
-  private void formatDueDate(RemoteViews row, Task task) {
-    if (task.hasDueDate()) {
+  private void formatDueDate(RemoteViews row, WidgetSnapshot.Row task) {
+    if (task.dueDate != null) {
       row.setViewVisibility(R.id.widget_due_date, View.VISIBLE);
-      row.setTextViewText(
-          R.id.widget_due_date,
-          DateUtilities.getRelativeDateStringWithTime(context, task.getDueDate()));
+      row.setTextViewText(R.id.widget_due_date, task.dueDate);
       //noinspection ResourceAsColor
       row.setTextColor(
           R.id.widget_due_date,
-          task.isOverdue() ? getColor(context, R.color.overdue) : textColorSecondary);
+          task.overdue ? getColor(context, R.color.overdue) : textColorSecondary);
       row.setFloat(R.id.widget_due_date, "setTextSize", dueDateTextSize);
     } else {
       row.setViewVisibility(R.id.widget_due_date, View.GONE);
@@ -0,0 +1,134 @@
+package org.tasks.widget;
+
+import androidx.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Everything a widget draws: the list title, the rows and the widget settings that affect how rows
+ * are drawn. Two equal snapshots draw the same widget.
+ */
+class WidgetSnapshot {
+
+  private final String title;
+  private final List<Row> rows;
+  private final List<Object> settings;
+
+  WidgetSnapshot(String title, List<Row> rows, List<Object> settings) {
+    this.title = title;
+    this.rows = rows;
+    this.settings = settings;
+  }
+
+  String getTitle() {
+    return title;
+  }
+
+  List<Row> getRows() {
+    return rows;
+  }
+
+  /** True if the snapshot was taken with these widget settings */
+  boolean hasSettings(List<Object> settings) {
+    return this.settings.equals(settings);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    WidgetSnapshot snapshot = (WidgetSnapshot) o;
+
+    if (title != null ? !title.equals(snapshot.title) : snapshot.title != null) {
+      return false;
+    }
+    if (!settings.equals(snapshot.settings)) {
+      return false;
+    }
+    return rows.equals(snapshot.rows);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = title != null ? title.hashCode() : 0;
+    result = 31 * result + settings.hashCode();
+    result = 31 * result + rows.hashCode();
+    return result;
+  }
+
+  static class Row {
+
+    final long id;
+    final String title;
+    @Nullable final String dueDate;
+    final boolean overdue;
+    final boolean completed;
+    final boolean recurring;
+    final int priority;
+
+    Row(
+        long id,
+        String title,
+        @Nullable String dueDate,
+        boolean overdue,
+        boolean completed,
+        boolean recurring,
+        int priority) {
+      this.id = id;
+      this.title = title;
+      this.dueDate = dueDate;
+      this.overdue = overdue;
+      this.completed = completed;
+      this.recurring = recurring;
+      this.priority = priority;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Row row = (Row) o;
+
+      if (id != row.id) {
+        return false;
+      }
+      if (overdue != row.overdue) {
+        return false;
+      }
+      if (completed != row.completed) {
+        return false;
+      }
+      if (recurring != row.recurring) {
+        return false;
+      }
+      if (priority != row.priority) {
+        return false;
+      }
+      if (title != null ? !title.equals(row.title) : row.title != null) {
+        return false;
+      }
+      return dueDate != null ? dueDate.equals(row.dueDate) : row.dueDate == null;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (id ^ (id >>> 32));
+      result = 31 * result + (title != null ? title.hashCode() : 0);
+      result = 31 * result + (dueDate != null ? dueDate.hashCode() : 0);
+      result = 31 * result + (overdue ? 1 : 0);
+      result = 31 * result + (completed ? 1 : 0);
+      result = 31 * result + (recurring ? 1 : 0);
+      result = 31 * result + priority;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package org.tasks.widget;
+
+import android.content.Context;
+import android.database.Cursor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.primitives.Ints;
+import com.todoroo.andlib.data.Property;
+import com.todoroo.andlib.utility.DateUtilities;
+import com.todoroo.astrid.api.Filter;
+import com.todoroo.astrid.api.GtasksFilter;
+import com.todoroo.astrid.core.SortHelper;
+import com.todoroo.astrid.dao.TaskDao;
+import com.todoroo.astrid.data.TaskRow;
+import com.todoroo.astrid.subtasks.SubtasksHelper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.inject.Inject;
+import org.tasks.data.GoogleTask;
+import org.tasks.injection.ApplicationScope;
+import org.tasks.injection.ForApplication;
+import org.tasks.locale.Locale;
+import org.tasks.preferences.DefaultFilterProvider;
+import org.tasks.preferences.Preferences;
+
+/**
+ * Keeps a {@link WidgetSnapshot} for every widget. Snapshots are recomputed in the background when
+ * tasks change, and only the widgets whose snapshot changed are asked to redraw. {@link
+ * ScrollableViewsFactory} binds rows from the snapshot without touching the database.
+ */
+@ApplicationScope
+public class WidgetSnapshots {
+
+  /** Widgets show the filter's own limit, or at most this many rows */
+  static final int MAX_ROWS = 100;
+
+  private static final Pattern LIMIT = Pattern.compile("LIMIT (\\d+)");
+
+  private final Map<Integer, WidgetSnapshot> snapshots = new ConcurrentHashMap<>();
+  private final Context context;
+  private final AppWidgetManager appWidgetManager;
+  private final Preferences preferences;
+  private final TaskDao taskDao;
+  private final DefaultFilterProvider defaultFilterProvider;
+  private final SubtasksHelper subtasksHelper;
+
+  @Inject
+  public WidgetSnapshots(
+      @ForApplication Context context,
+      Locale locale,
+      AppWidgetManager appWidgetManager,
+      Preferences preferences,
+      TaskDao taskDao,
+      DefaultFilterProvider defaultFilterProvider,
+      SubtasksHelper subtasksHelper) {
+    this.context = locale.createConfigurationContext(context);
+    this.appWidgetManager = appWidgetManager;
+    this.preferences = preferences;
+    this.taskDao = taskDao;
+    this.defaultFilterProvider = defaultFilterProvider;
+    this.subtasksHelper = subtasksHelper;
+  }
+
+  /** Recomputes every widget's snapshot and redraws the widgets whose snapshot changed. */
+  public void refresh() {
+    int[] widgetIds = appWidgetManager.getWidgetIds();
+    snapshots.keySet().retainAll(Ints.asList(widgetIds));
+    List<Integer> changed = new ArrayList<>();
+    for (int widgetId : widgetIds) {
+      WidgetPreferences widgetPreferences = new WidgetPreferences(context, preferences, widgetId);
+      WidgetSnapshot snapshot = load(widgetPreferences, getSettings(widgetPreferences));
+      WidgetSnapshot previous = snapshots.put(widgetId, snapshot);
+      if (!snapshot.equals(previous)) {
+        appWidgetManager.updateTitle(widgetId, snapshot.getTitle());
+        changed.add(widgetId);
+      }
+    }
+    if (!changed.isEmpty()) {
+      appWidgetManager.notifyDataChanged(Ints.toArray(changed));
+    }
+  }
+
+  /**
+   * Returns the latest snapshot, loading it if the widget hasn't been refreshed yet or was
+   * reconfigured since
+   */
+  WidgetSnapshot get(int widgetId) {
+    WidgetPreferences widgetPreferences = new WidgetPreferences(context, preferences, widgetId);
+    List<Object> settings = getSettings(widgetPreferences);
+    WidgetSnapshot snapshot = snapshots.get(widgetId);
+    if (snapshot == null || !snapshot.hasSettings(settings)) {
+      snapshot = load(widgetPreferences, settings);
+      snapshots.put(widgetId, snapshot);
+    }
+    return snapshot;
+  }
+
+  /** Widget settings that change which rows are loaded or how they are drawn */
+  private static List<Object> getSettings(WidgetPreferences widgetPreferences) {
+    return Arrays.<Object>asList(
+        widgetPreferences.getFilterId(),
+        widgetPreferences.getThemeIndex(),
+        widgetPreferences.getFontSize(),
+        widgetPreferences.showDueDate(),
+        widgetPreferences.showCheckboxes());
+  }
+
+  private WidgetSnapshot load(WidgetPreferences widgetPreferences, List<Object> settings) {
+    Filter filter = defaultFilterProvider.getFilterFromPreference(widgetPreferences.getFilterId());
+    ImmutableList.Builder<WidgetSnapshot.Row> rows = ImmutableList.builder();
+    Cursor cursor = taskDao.getCursor(getQuery(filter), getProperties(filter));
+    try {
+      TaskRow.Mapper mapper = new TaskRow.Mapper(cursor);
+      while (cursor.moveToNext()) {
+        rows.add(toRow(mapper.map(cursor)));
+      }
+    } finally {
+      cursor.close();
+    }
+    return new WidgetSnapshot(filter.listingTitle, rows.build(), settings);
+  }
+
+  private WidgetSnapshot.Row toRow(TaskRow task) {
+    return new WidgetSnapshot.Row(
+        task.getId(),
+        task.getTitle(),
+        task.hasDueDate()
+            ? DateUtilities.getRelativeDateStringWithTime(context, task.getDueDate())
+            : null,
+        task.hasDueDate() && task.isOverdue(),
+        task.isCompleted(),
+        task.isRecurring(),
+        task.getPriority());
+  }
+
+  private String getQuery(Filter filter) {
+    int sort = preferences.getSortMode();
+    if (sort == 0) {
+      sort = SortHelper.SORT_WIDGET;
+    }
+    String query = SortHelper.adjustQueryForFlagsAndSort(preferences, filter.getSqlQuery(), sort);
+    int limit = MAX_ROWS;
+    Matcher matcher = LIMIT.matcher(query);
+    if (matcher.find()) {
+      limit = Math.min(limit, Integer.parseInt(matcher.group(1)));
+      query = matcher.replaceAll("");
+    }
+    return subtasksHelper.applySubtasksToWidgetFilter(filter, query) + " LIMIT " + limit;
+  }
+
+  private Property<?>[] getProperties(Filter filter) {
+    return filter instanceof GtasksFilter
+        ? ObjectArrays.concat(
+            TaskRow.PROPERTIES, new Property<?>[] {GoogleTask.ORDER}, Property.class)
+        : TaskRow.PROPERTIES;
+  }
+}